@@ -63,6 +63,14 @@ CREATE TABLE "authorization_challenges" (
     "validated"        TIMESTAMPTZ
 );
 
+CREATE INDEX IF NOT EXISTS "authorizations_account_identifier_idx" ON "authorizations" (
+    "account_id", "identifier_type", "identifier_value"
+);
+
+CREATE INDEX IF NOT EXISTS "authorization_challenges_authz_id_idx" ON "authorization_challenges" (
+    "authz_id"
+);
+
 CREATE TABLE "certificates" (
     "id"               VARCHAR PRIMARY KEY,
     "created"          TIMESTAMPTZ NOT NULL,
@@ -7,6 +7,8 @@ package org.dogtagpki.acme.database;
 
 import java.util.Collection;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.apache.commons.lang3.NotImplementedException;
 import org.dogtagpki.acme.ACMEAccount;
@@ -45,6 +47,14 @@ public abstract class ACMEDatabase {
         // ignore
     }
 
+    /**
+     * This method returns the progress of the latest removal of expired
+     * records for each record type, or null if not available.
+     */
+    public Map<String, Object> getSweepMetrics() {
+        return null;
+    }
+
     public abstract void addNonce(ACMENonce nonce) throws Exception;
     public abstract ACMENonce removeNonce(String nonceID) throws Exception;
     public abstract void removeExpiredNonces(Date currentTime) throws Exception;
@@ -100,6 +110,55 @@ public abstract class ACMEDatabase {
     public abstract ACMEAuthorization getAuthorization(String authzID) throws Exception;
     public abstract ACMEAuthorization getAuthorizationByChallenge(String challengeID) throws Exception;
 
+    /**
+     * This method returns the authorization records with the provided IDs
+     * (e.g. all authorizations of an order) including their challenges.
+     *
+     * The default implementation retrieves the records one at a time.
+     * Databases that can retrieve multiple records in a single query
+     * should override this method.
+     *
+     * @param authzIDs The IDs of the authorizations.
+     * @return The authorization records mapped by ID in the same order
+     *         as the provided IDs. Missing records are not included.
+     * @throws Exception
+     */
+    public Map<String, ACMEAuthorization> getAuthorizations(Collection<String> authzIDs) throws Exception {
+
+        Map<String, ACMEAuthorization> authorizations = new LinkedHashMap<>();
+
+        for (String authzID : authzIDs) {
+            ACMEAuthorization authorization = getAuthorization(authzID);
+            if (authorization == null) continue;
+            authorizations.put(authzID, authorization);
+        }
+
+        return authorizations;
+    }
+
+    /**
+     * This method returns a valid authorization record owned by the account
+     * for the identifier which will not expire before the provided time.
+     * The record can be reused for a new order instead of creating a new
+     * authorization.
+     *
+     * The default implementation does not support authorization reuse.
+     *
+     * @param accountID The ID of the account.
+     * @param identifier The identifier without the wildcard prefix.
+     * @param wildcard Whether the authorization is for a wildcard identifier.
+     * @param time The time until which the authorization has to be valid.
+     * @return A valid authorization record, or null if not available.
+     * @throws Exception
+     */
+    public ACMEAuthorization getValidAuthorization(
+            String accountID,
+            ACMEIdentifier identifier,
+            boolean wildcard,
+            Date time) throws Exception {
+        return null;
+    }
+
     /**
      * This method returns all valid and non-expired authorization records
      * owned by the account which can be used to validate certificate
@@ -137,6 +196,23 @@ public abstract class ACMEDatabase {
     }
 
     public abstract void addAuthorization(ACMEAuthorization authorization) throws Exception;
+
+    /**
+     * This method adds the authorization records of a new order.
+     *
+     * The default implementation adds the records one at a time.
+     * Databases that can add multiple records in a single operation
+     * should override this method.
+     *
+     * @param authorizations The authorization records.
+     * @throws Exception
+     */
+    public void addAuthorizations(Collection<ACMEAuthorization> authorizations) throws Exception {
+        for (ACMEAuthorization authorization : authorizations) {
+            addAuthorization(authorization);
+        }
+    }
+
     public abstract void updateAuthorization(ACMEAuthorization authorization) throws Exception;
 
     public void removeExpiredAuthorizations(Date currentTime) throws Exception {
@@ -8,7 +8,9 @@ package org.dogtagpki.acme.database;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.dogtagpki.acme.ACMEAccount;
@@ -31,6 +33,9 @@ public class InMemoryDatabase extends ACMEDatabase {
     private Map<String, ACMEAuthorization> authorizations = new ConcurrentHashMap<>();
     private Map<String, ACMECertificate> certificates = new ConcurrentHashMap<>();
 
+    // authorization IDs by account ID, identifier, and wildcard
+    private Map<String, Set<String>> authorizationIndex = new ConcurrentHashMap<>();
+
     @Override
     public void init() throws Exception {
         logger.info("Initializing in-memory database");
@@ -150,6 +155,57 @@ public class InMemoryDatabase extends ACMEDatabase {
         return null;
     }
 
+    @Override
+    public Map<String, ACMEAuthorization> getAuthorizations(Collection<String> authzIDs) throws Exception {
+
+        Map<String, ACMEAuthorization> results = new LinkedHashMap<>();
+
+        for (String authzID : authzIDs) {
+            ACMEAuthorization authorization = authorizations.get(authzID);
+            if (authorization == null) continue;
+            results.put(authzID, authorization);
+        }
+
+        return results;
+    }
+
+    String getAuthorizationKey(String accountID, ACMEIdentifier identifier, boolean wildcard) {
+        return accountID + ":" + identifier.getType() + ":" + identifier.getValue() + ":" + wildcard;
+    }
+
+    String getAuthorizationKey(ACMEAuthorization authorization) {
+        return getAuthorizationKey(
+                authorization.getAccountID(),
+                authorization.getIdentifier(),
+                Boolean.TRUE.equals(authorization.getWildcard()));
+    }
+
+    @Override
+    public ACMEAuthorization getValidAuthorization(
+            String accountID,
+            ACMEIdentifier identifier,
+            boolean wildcard,
+            Date time) throws Exception {
+
+        Set<String> authzIDs = authorizationIndex.get(getAuthorizationKey(accountID, identifier, wildcard));
+        if (authzIDs == null) return null;
+
+        for (String authzID : authzIDs) {
+
+            ACMEAuthorization authorization = authorizations.get(authzID);
+            if (authorization == null) continue;
+
+            if (!"valid".equals(authorization.getStatus())) continue;
+
+            Date expirationTime = authorization.getExpirationTime();
+            if (expirationTime != null && !expirationTime.after(time)) continue;
+
+            return authorization;
+        }
+
+        return null;
+    }
+
     @Override
     public Collection<ACMEAuthorization> getRevocationAuthorizations(String accountID, Date time) throws Exception {
 
@@ -229,6 +285,13 @@ public class InMemoryDatabase extends ACMEDatabase {
     @Override
     public void addAuthorization(ACMEAuthorization authorization) throws Exception {
         authorizations.put(authorization.getID(), authorization);
+        authorizationIndex.compute(getAuthorizationKey(authorization), (k, authzIDs) -> {
+            if (authzIDs == null) {
+                authzIDs = ConcurrentHashMap.newKeySet();
+            }
+            authzIDs.add(authorization.getID());
+            return authzIDs;
+        });
     }
 
     @Override
@@ -238,8 +301,19 @@ public class InMemoryDatabase extends ACMEDatabase {
 
     @Override
     public void removeExpiredAuthorizations(Date currentTime) throws Exception {
-        authorizations.values().removeIf(
-                n -> n.getExpirationTime() != null && !currentTime.before(n.getExpirationTime()));
+        authorizations.values().removeIf(n -> {
+
+            if (n.getExpirationTime() == null || currentTime.before(n.getExpirationTime())) {
+                return false;
+            }
+
+            authorizationIndex.computeIfPresent(getAuthorizationKey(n), (k, authzIDs) -> {
+                authzIDs.remove(n.getID());
+                return authzIDs.isEmpty() ? null : authzIDs;
+            });
+
+            return true;
+        });
     }
 
     @Override
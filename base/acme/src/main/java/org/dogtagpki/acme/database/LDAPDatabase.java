@@ -11,8 +11,14 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
@@ -31,16 +37,21 @@ import com.netscape.cmscore.base.FileConfigStorage;
 import com.netscape.cmscore.ldapconn.LDAPConfig;
 import com.netscape.cmscore.ldapconn.LdapBoundConnFactory;
 import com.netscape.cmscore.ldapconn.PKISocketConfig;
+import com.netscape.cmsutil.ldap.LDAPUtil;
 import com.netscape.cmsutil.password.IPasswordStore;
 import com.netscape.cmsutil.password.PlainPasswordFile;
 
 import netscape.ldap.LDAPAttribute;
 import netscape.ldap.LDAPAttributeSet;
 import netscape.ldap.LDAPConnection;
+import netscape.ldap.LDAPDN;
 import netscape.ldap.LDAPEntry;
 import netscape.ldap.LDAPException;
 import netscape.ldap.LDAPModification;
 import netscape.ldap.LDAPModificationSet;
+import netscape.ldap.LDAPResponse;
+import netscape.ldap.LDAPResponseListener;
+import netscape.ldap.LDAPSearchConstraints;
 import netscape.ldap.LDAPSearchResults;
 
 /**
@@ -112,10 +123,30 @@ public class LDAPDatabase extends ACMEDatabase {
     enum LoadChallenges { DoLoad , DontLoad };
     enum OnNoSuchObject { Ignore , Throw };
 
+    static final int DEFAULT_SWEEP_PAGE_SIZE = 500;
+    static final int DEFAULT_SWEEP_PIPELINE_SIZE = 50;
+    static final int DEFAULT_BATCH_SIZE = 100;
+
     String baseDN;
 
     LdapBoundConnFactory connFactory = null;
 
+    // expired records are removed in pages of sweepPageSize entries
+    // with up to sweepPipelineSize outstanding deletes, at most
+    // sweepMaxRate deletes per second (0 = unlimited), and for at
+    // most sweepMaxDuration seconds per sweep (0 = unlimited)
+    int sweepPageSize = DEFAULT_SWEEP_PAGE_SIZE;
+    int sweepPipelineSize = DEFAULT_SWEEP_PIPELINE_SIZE;
+    int sweepMaxRate;
+    int sweepMaxDuration;
+
+    // multiple records are searched with at most batchSize values
+    // per filter and added with up to batchSize outstanding requests
+    int batchSize = DEFAULT_BATCH_SIZE;
+
+    Map<String, Map<String, Object>> sweepMetrics = new ConcurrentHashMap<>();
+    volatile boolean closed;
+
     Boolean enabled;
     LDAPConfigMonitor monitor;
 
@@ -142,6 +173,9 @@ public class LDAPDatabase extends ACMEDatabase {
                 if (name.equals("baseDN") || name.equals("basedn")) {
                     continue;
 
+                } else if (name.startsWith("sweep.") || name.equals("batchSize")) {
+                    continue;
+
                 } else if (name.equals("url")) {
                     logger.info("- URL: " + value);
 
@@ -226,6 +260,36 @@ public class LDAPDatabase extends ACMEDatabase {
         }
         logger.info("- base DN: " + baseDN);
 
+        String sweepPageSize = config.getParameter("sweep.pageSize");
+        if (sweepPageSize != null) {
+            this.sweepPageSize = Integer.parseInt(sweepPageSize);
+        }
+        logger.info("- sweep page size: " + this.sweepPageSize);
+
+        String sweepPipelineSize = config.getParameter("sweep.pipelineSize");
+        if (sweepPipelineSize != null) {
+            this.sweepPipelineSize = Integer.parseInt(sweepPipelineSize);
+        }
+        logger.info("- sweep pipeline size: " + this.sweepPipelineSize);
+
+        String sweepMaxRate = config.getParameter("sweep.maxRate");
+        if (sweepMaxRate != null) {
+            this.sweepMaxRate = Integer.parseInt(sweepMaxRate);
+        }
+        logger.info("- sweep max rate: " + this.sweepMaxRate);
+
+        String sweepMaxDuration = config.getParameter("sweep.maxDuration");
+        if (sweepMaxDuration != null) {
+            this.sweepMaxDuration = Integer.parseInt(sweepMaxDuration);
+        }
+        logger.info("- sweep max duration: " + this.sweepMaxDuration);
+
+        String batchSize = config.getParameter("batchSize");
+        if (batchSize != null) {
+            this.batchSize = Integer.parseInt(batchSize);
+        }
+        logger.info("- batch size: " + this.batchSize);
+
         PKISocketConfig socketConfig = cs.getSocketConfig();
 
         connFactory = new LdapBoundConnFactory("acme");
@@ -339,15 +403,7 @@ public class LDAPDatabase extends ACMEDatabase {
 
     @Override
     public void removeExpiredNonces(Date currentTime) throws Exception {
-        String[] attrs = {"1.1"};  // suppress attrs for performance; we only need DN
-        List<LDAPEntry> entries = ldapSearch(
-            RDN_NONCE + "," + baseDN,
-            "(" + ATTR_EXPIRES + "<=" + dateFormat.format(currentTime) + ")",
-            attrs
-        );
-        for (LDAPEntry entry : entries) {
-            ldapDelete(entry.getDN(), OnNoSuchObject.Ignore);
-        }
+        ldapRemoveExpired("nonces", RDN_NONCE, currentTime);
     }
 
     @Override
@@ -609,15 +665,7 @@ public class LDAPDatabase extends ACMEDatabase {
 
     @Override
     public void removeExpiredOrders(Date currentTime) throws Exception {
-        String[] attrs = {"1.1"};  // suppress attrs for performance; we only need DN
-        List<LDAPEntry> entries = ldapSearch(
-            RDN_ORDER + "," + baseDN,
-            "(" + ATTR_EXPIRES + "<=" + dateFormat.format(currentTime) + ")",
-            attrs
-        );
-        for (LDAPEntry entry : entries) {
-            ldapDelete(entry.getDN(), OnNoSuchObject.Ignore);
-        }
+        ldapRemoveExpired("orders", RDN_ORDER, currentTime);
     }
 
     @Override
@@ -631,10 +679,36 @@ public class LDAPDatabase extends ACMEDatabase {
         LDAPEntry entry = ldapGet(dn);
         if (entry == null) return null;
 
+        ACMEAuthorization authz = loadAuthorization(entry);
+
+        if (clc == LoadChallenges.DoLoad) {
+            authz.setChallenges(getChallenges(authzID));
+        }
+
+        return authz;
+    }
+
+    private List<ACMEChallenge> getChallenges(String authzID) throws Exception {
+        List<ACMEChallenge> challenges = new ArrayList<>();
+        Collection<LDAPEntry> entries = ldapSearch(
+            RDN_CHALLENGE + "," + baseDN,
+            "(&(" + ATTR_OBJECTCLASS + "=" + OBJ_CHALLENGE +
+                ")(" + ATTR_AUTHORIZATION_ID + "=" + authzID + "))"
+        );
+        for (LDAPEntry challengeEntry : entries) {
+            challenges.add(loadChallenge(challengeEntry));
+        }
+        return challenges;
+    }
+
+    private ACMEAuthorization loadAuthorization(LDAPEntry entry)
+            throws Exception {
         LDAPAttribute attr;
 
         ACMEAuthorization authz = new ACMEAuthorization();
-        authz.setID(authzID);
+
+        attr = entry.getAttribute(ATTR_AUTHORIZATION_ID);
+        authz.setID(attr.getStringValues().nextElement());
 
         attr = entry.getAttribute(ATTR_ACCOUNT_ID);
         authz.setAccountID(attr.getStringValues().nextElement());
@@ -670,20 +744,63 @@ public class LDAPDatabase extends ACMEDatabase {
             }
         }
 
-        if (clc == LoadChallenges.DoLoad) {
-            List<ACMEChallenge> challenges = new ArrayList<>();
-            Collection<LDAPEntry> entries = ldapSearch(
+        return authz;
+    }
+
+    /**
+     * Get multiple authorizations with one search for the authorizations
+     * and one search for their challenges per batch of IDs.
+     */
+    @Override
+    public Map<String, ACMEAuthorization> getAuthorizations(Collection<String> authzIDs)
+            throws Exception {
+
+        Map<String, ACMEAuthorization> authzs = new HashMap<>();
+        Map<String, List<ACMEChallenge>> challenges = new HashMap<>();
+        List<String> ids = new ArrayList<>(authzIDs);
+
+        for (int index = 0; index < ids.size(); index += batchSize) {
+
+            List<String> batch = ids.subList(index, Math.min(index + batchSize, ids.size()));
+
+            StringBuilder filter = new StringBuilder("(|");
+            for (String authzID : batch) {
+                filter.append("(" + ATTR_AUTHORIZATION_ID + "=" + authzID + ")");
+            }
+            filter.append(")");
+
+            List<LDAPEntry> entries = ldapSearch(
+                RDN_AUTHORIZATION + "," + baseDN,
+                "(&(" + ATTR_OBJECTCLASS + "=" + OBJ_AUTHORIZATION + ")" + filter + ")"
+            );
+            for (LDAPEntry entry : entries) {
+                ACMEAuthorization authz = loadAuthorization(entry);
+                authzs.put(authz.getID(), authz);
+                challenges.put(authz.getID(), new ArrayList<>());
+            }
+
+            entries = ldapSearch(
                 RDN_CHALLENGE + "," + baseDN,
-                "(&(" + ATTR_OBJECTCLASS + "=" + OBJ_CHALLENGE +
-                    ")(" + ATTR_AUTHORIZATION_ID + "=" + authzID + "))"
+                "(&(" + ATTR_OBJECTCLASS + "=" + OBJ_CHALLENGE + ")" + filter + ")"
             );
-            for (LDAPEntry challengeEntry : entries) {
-                challenges.add(loadChallenge(challengeEntry));
+            for (LDAPEntry entry : entries) {
+                ACMEChallenge challenge = loadChallenge(entry);
+                List<ACMEChallenge> list = challenges.get(challenge.getAuthzID());
+                if (list == null) continue;
+                list.add(challenge);
             }
-            authz.setChallenges(challenges);
         }
 
-        return authz;
+        // return the authorizations in the requested order
+        Map<String, ACMEAuthorization> results = new LinkedHashMap<>();
+        for (String authzID : authzIDs) {
+            ACMEAuthorization authz = authzs.get(authzID);
+            if (authz == null) continue;
+            authz.setChallenges(challenges.get(authzID));
+            results.put(authzID, authz);
+        }
+
+        return results;
     }
 
     private ACMEChallenge getChallenge(String challengeID)
@@ -754,6 +871,31 @@ public class LDAPDatabase extends ACMEDatabase {
 
     @Override
     public void addAuthorization(ACMEAuthorization authorization) throws Exception {
+        ldapAdd(createAuthorizationEntry(authorization));
+    }
+
+    /**
+     * Add multiple authorizations (and their challenges, if any)
+     * asynchronously on a single connection.
+     */
+    @Override
+    public void addAuthorizations(Collection<ACMEAuthorization> authorizations)
+            throws Exception {
+        List<LDAPEntry> entries = new ArrayList<>();
+        for (ACMEAuthorization authorization : authorizations) {
+            entries.add(createAuthorizationEntry(authorization));
+        }
+        for (ACMEAuthorization authorization : authorizations) {
+            Collection<ACMEChallenge> challenges = authorization.getChallenges();
+            if (challenges == null) continue;
+            for (ACMEChallenge challenge : challenges) {
+                entries.add(createChallengeEntry(authorization.getAccountID(), challenge));
+            }
+        }
+        ldapAddPipelined(entries);
+    }
+
+    private LDAPEntry createAuthorizationEntry(ACMEAuthorization authorization) {
         ACMEIdentifier identifier = authorization.getIdentifier();
         LDAPAttribute[] attrs = {
             new LDAPAttribute(ATTR_OBJECTCLASS, OBJ_AUTHORIZATION),
@@ -776,12 +918,15 @@ public class LDAPDatabase extends ACMEDatabase {
 
         String dn = ATTR_AUTHORIZATION_ID + "=" + authorization.getID()
                         + "," + RDN_AUTHORIZATION + "," + baseDN;
-        LDAPEntry entry = new LDAPEntry(dn, attrSet);
-        ldapAdd(entry);
+        return new LDAPEntry(dn, attrSet);
     }
 
     public void addChallenge(String accountID, ACMEChallenge challenge)
             throws Exception {
+        ldapAdd(createChallengeEntry(accountID, challenge));
+    }
+
+    private LDAPEntry createChallengeEntry(String accountID, ACMEChallenge challenge) {
         String type = challenge.getType();
         String objclass = null;
         if (type.equals("dns-01")) {
@@ -805,8 +950,7 @@ public class LDAPDatabase extends ACMEDatabase {
 
         String dn = ATTR_CHALLENGE_ID + "=" + challenge.getID()
                         + "," + RDN_CHALLENGE + "," + baseDN;
-        LDAPEntry entry = new LDAPEntry(dn, attrSet);
-        ldapAdd(entry);
+        return new LDAPEntry(dn, attrSet);
     }
 
     @Override
@@ -907,17 +1051,38 @@ public class LDAPDatabase extends ACMEDatabase {
         return !entries.isEmpty();
     }
 
+    /**
+     * Find a valid authorization for the identifier with the same
+     * filter as hasRevocationAuthorization() which can be served
+     * from the acmeAccountId and acmeIdentifier indexes.
+     */
     @Override
-    public void removeExpiredAuthorizations(Date currentTime) throws Exception {
-        String[] attrs = {"1.1"};  // suppress attrs for performance; we only need DN
+    public ACMEAuthorization getValidAuthorization(
+            String accountID,
+            ACMEIdentifier identifier,
+            boolean wildcard,
+            Date time) throws Exception {
+
         List<LDAPEntry> entries = ldapSearch(
             RDN_AUTHORIZATION + "," + baseDN,
-            "(" + ATTR_EXPIRES + "<=" + dateFormat.format(currentTime) + ")",
-            attrs
+            "(&(" + ATTR_OBJECTCLASS + "=" + OBJ_AUTHORIZATION
+                + ")(" + ATTR_ACCOUNT_ID + "=" + accountID
+                + ")(!(" + ATTR_EXPIRES + "<=" + dateFormat.format(time) + ")"
+                + ")(" + ATTR_STATUS + "=valid"
+                + ")(" + ATTR_IDENTIFIER + "=" + identifier.getType() + ":" + identifier.getValue()
+                + ")(" + ATTR_AUTHORIZATION_WILDCARD + "=" + (wildcard ? "TRUE" : "FALSE")
+                + "))"
         );
-        for (LDAPEntry entry : entries) {
-            ldapDelete(entry.getDN(), OnNoSuchObject.Ignore);
-        }
+        if (entries.isEmpty()) return null;
+
+        ACMEAuthorization authz = loadAuthorization(entries.get(0));
+        authz.setChallenges(getChallenges(authz.getID()));
+        return authz;
+    }
+
+    @Override
+    public void removeExpiredAuthorizations(Date currentTime) throws Exception {
+        ldapRemoveExpired("authorizations", RDN_AUTHORIZATION, currentTime);
     }
 
     @Override
@@ -968,15 +1133,7 @@ public class LDAPDatabase extends ACMEDatabase {
 
     @Override
     public void removeExpiredCertificates(Date currentTime) throws Exception {
-        String[] attrs = {"1.1"};  // suppress attrs for performance; we only need DN
-        List<LDAPEntry> entries = ldapSearch(
-            RDN_CERTIFICATE + "," + baseDN,
-            "(" + ATTR_EXPIRES + "<=" + dateFormat.format(currentTime) + ")",
-            attrs
-        );
-        for (LDAPEntry entry : entries) {
-            ldapDelete(entry.getDN(), OnNoSuchObject.Ignore);
-        }
+        ldapRemoveExpired("certificates", RDN_CERTIFICATE, currentTime);
     }
 
     /* LOW LEVEL LDAP METHODS */
@@ -995,6 +1152,52 @@ public class LDAPDatabase extends ACMEDatabase {
         }
     }
 
+    /**
+     * Adds the entries asynchronously on the same connection with at most
+     * batchSize outstanding requests. All responses in a batch are
+     * received before an error is reported.
+     */
+    void ldapAddPipelined(List<LDAPEntry> entries) throws Exception {
+
+        LDAPConnection conn = connFactory.getConn();
+        try {
+            int index = 0;
+
+            while (index < entries.size()) {
+
+                int end = Math.min(index + batchSize, entries.size());
+
+                LDAPResponseListener listener = null;
+                for (int i = index; i < end; i++) {
+                    LDAPEntry entry = entries.get(i);
+                    logger.info("LDAP: add " + entry.getDN());
+                    listener = conn.add(entry, listener, conn.getConstraints());
+                }
+
+                LDAPResponse failure = null;
+                for (int i = index; i < end; i++) {
+                    LDAPResponse response = listener.getResponse();
+                    if (response.getResultCode() != LDAPException.SUCCESS && failure == null) {
+                        failure = response;
+                    }
+                }
+
+                if (failure != null) {
+                    throw new Exception("LDAP add failed: " + failure.getErrorMessage()
+                            + " (result code " + failure.getResultCode() + ")");
+                }
+
+                index = end;
+            }
+
+        } catch (LDAPException e) {
+            throw new Exception("LDAP add failed: " + e, e);
+
+        } finally {
+            connFactory.returnConn(conn);
+        }
+    }
+
     void ldapModify(String dn, LDAPModificationSet mods) throws Exception {
 
         logger.info("LDAP: modify " + dn);
@@ -1089,8 +1292,241 @@ public class LDAPDatabase extends ACMEDatabase {
         return l;
     }
 
+    /**
+     * Removes expired entries under the specified RDN.
+     *
+     * The entries are found with size-limited searches that return at
+     * most one page of DNs at a time. The entries in each page are
+     * deleted asynchronously on the same connection with a bounded
+     * number of outstanding requests. Deleted entries no longer match
+     * the filter, so the next search returns the next page and a sweep
+     * that has been stopped (e.g. due to the maximum duration or a
+     * shutdown) will resume where it left off in the next run.
+     *
+     * The progress is recorded in the sweep metrics after each page.
+     *
+     * Entries that cannot be deleted still match the filter, so they
+     * are excluded from the subsequent searches in the same sweep and
+     * retried in the next run. If the number of such entries reaches
+     * the page size the sweep is stopped.
+     */
+    void ldapRemoveExpired(String name, String rdn, Date currentTime) throws Exception {
+
+        String searchBase = rdn + "," + baseDN;
+        String expiredFilter = "(" + ATTR_EXPIRES + "<=" + dateFormat.format(currentTime) + ")";
+
+        logger.info("LDAP: removing expired entries in " + searchBase);
+
+        long startTime = System.currentTimeMillis();
+        long removed = 0;
+        Set<String> failedDNs = new LinkedHashSet<>();
+        int pages = 0;
+        String status = "running";
+
+        LDAPConnection conn = connFactory.getConn();
+        try {
+            while (true) {
+
+                if (closed) {
+                    status = "interrupted";
+                    break;
+                }
+
+                String filter = createSweepFilter(expiredFilter, failedDNs);
+
+                List<String> dns = ldapSearchPage(conn, searchBase, filter);
+                if (dns.isEmpty()) {
+                    status = "complete";
+                    break;
+                }
+
+                pages++;
+
+                removed += ldapDeletePipelined(conn, dns, startTime, removed, failedDNs);
+
+                updateSweepMetrics(name, startTime, pages, removed, failedDNs.size(), status);
+
+                if (failedDNs.size() >= sweepPageSize) {
+                    // too many entries cannot be deleted, try again in the next run
+                    logger.warn("LDAP: unable to remove " + failedDNs.size()
+                            + " expired entries in " + searchBase);
+                    status = "failed";
+                    break;
+                }
+
+                if (dns.size() < sweepPageSize) {
+                    status = "complete";
+                    break;
+                }
+
+                long elapsed = System.currentTimeMillis() - startTime;
+                if (sweepMaxDuration > 0 && elapsed >= sweepMaxDuration * 1000L) {
+                    logger.info("LDAP: maximum sweep duration reached, continuing in the next run");
+                    status = "incomplete";
+                    break;
+                }
+            }
+
+        } finally {
+            connFactory.returnConn(conn);
+            updateSweepMetrics(name, startTime, pages, removed, failedDNs.size(), status);
+        }
+
+        logger.info("LDAP: removed " + removed + " expired entries in " + searchBase
+                + " (" + status + ")");
+    }
+
+    /**
+     * Returns a filter that matches the expired entries except the ones
+     * that could not be deleted earlier in the sweep. The entries are
+     * identified by the value of their RDN attribute.
+     */
+    String createSweepFilter(String expiredFilter, Collection<String> failedDNs) {
+
+        if (failedDNs.isEmpty()) {
+            return expiredFilter;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("(&");
+        sb.append(expiredFilter);
+
+        for (String dn : failedDNs) {
+            // the RDN values are generated IDs which do not need unescaping
+            String[] rdn = LDAPDN.explodeDN(dn, false)[0].split("=", 2);
+            sb.append("(!(" + rdn[0] + "=" + LDAPUtil.escapeFilter(rdn[1]) + "))");
+        }
+
+        sb.append(")");
+        return sb.toString();
+    }
+
+    /**
+     * Returns the DNs of at most one page of entries matching the filter.
+     * The results are streamed from the server instead of being
+     * collected before returning to the caller.
+     */
+    List<String> ldapSearchPage(LDAPConnection conn, String searchBase, String filter)
+            throws Exception {
+
+        logger.debug("LDAP: search " + searchBase + " " + filter);
+
+        LDAPSearchConstraints cons = new LDAPSearchConstraints();
+        cons.setMaxResults(sweepPageSize);
+        cons.setBatchSize(1);
+
+        String[] attrs = {"1.1"};  // suppress attrs for performance; we only need DN
+        List<String> dns = new ArrayList<>();
+
+        try {
+            LDAPSearchResults results = conn.search(
+                searchBase,
+                LDAPConnection.SCOPE_SUB,
+                filter,
+                attrs,
+                false /* attrsOnly */,
+                cons
+            );
+
+            while (results.hasMoreElements()) {
+                dns.add(results.next().getDN());
+            }
+
+        } catch (LDAPException e) {
+            // the page is full, the rest will be returned by the next search
+            if (e.getLDAPResultCode() != LDAPException.SIZE_LIMIT_EXCEEDED) {
+                throw new Exception("LDAP search failed: " + e, e);
+            }
+        }
+
+        return dns;
+    }
+
+    /**
+     * Deletes the entries asynchronously with at most sweepPipelineSize
+     * outstanding requests, limiting the rate to sweepMaxRate deletes
+     * per second since the start of the sweep. The DNs of the entries
+     * that cannot be deleted are added into failedDNs.
+     *
+     * @return the number of entries deleted (or already removed)
+     */
+    int ldapDeletePipelined(
+            LDAPConnection conn,
+            List<String> dns,
+            long startTime,
+            long removed,
+            Collection<String> failedDNs) throws Exception {
+
+        int deleted = 0;
+        int index = 0;
+
+        while (index < dns.size()) {
+
+            int end = Math.min(index + sweepPipelineSize, dns.size());
+
+            // use a listener for each request to match the responses to the DNs
+            List<LDAPResponseListener> listeners = new ArrayList<>();
+            for (int i = index; i < end; i++) {
+                logger.debug("LDAP: delete " + dns.get(i));
+                listeners.add(conn.delete(dns.get(i), null, conn.getConstraints()));
+            }
+
+            for (int i = index; i < end; i++) {
+                LDAPResponse response = listeners.get(i - index).getResponse();
+                int resultCode = response.getResultCode();
+
+                if (resultCode == LDAPException.SUCCESS
+                        || resultCode == LDAPException.NO_SUCH_OBJECT) {
+                    deleted++;
+                } else {
+                    logger.warn("LDAP: unable to delete expired entry " + dns.get(i)
+                            + " (result code " + resultCode + "): " + response.getErrorMessage());
+                    failedDNs.add(dns.get(i));
+                }
+            }
+
+            index = end;
+
+            if (sweepMaxRate > 0) {
+                // sleep until the rate is back under the limit
+                long expected = (removed + deleted) * 1000L / sweepMaxRate;
+                long elapsed = System.currentTimeMillis() - startTime;
+                if (expected > elapsed) {
+                    Thread.sleep(expected - elapsed);
+                }
+            }
+        }
+
+        return deleted;
+    }
+
+    void updateSweepMetrics(
+            String name,
+            long startTime,
+            int pages,
+            long removed,
+            long failed,
+            String status) {
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("startTime", new Date(startTime));
+        metrics.put("duration", System.currentTimeMillis() - startTime);
+        metrics.put("pages", pages);
+        metrics.put("removed", removed);
+        metrics.put("failed", failed);
+        metrics.put("status", status);
+
+        sweepMetrics.put(name, metrics);
+    }
+
+    @Override
+    public Map<String, Object> getSweepMetrics() {
+        return new LinkedHashMap<>(sweepMetrics);
+    }
+
     @Override
     public void close() throws Exception {
+        closed = true;
         if (monitor != null) {
             monitor.stop();
         }
@@ -0,0 +1,248 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.acme.database;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class wraps a JDBC connection borrowed from
+ * PostgreSQLConnectionPool. Closing it returns the connection
+ * into the pool.
+ *
+ * The connection keeps a cache of prepared statements so the same
+ * SQL statement is only prepared once per connection. The cached
+ * statements are returned with a wrapper that keeps the statement
+ * open when it is closed so the existing try-with-resources blocks
+ * can be used unchanged.
+ *
+ * The connection is only used by one thread at a time so the
+ * statement cache is not synchronized.
+ */
+public class PostgreSQLConnection implements AutoCloseable {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(PostgreSQLConnection.class);
+
+    // https://www.postgresql.org/docs/current/errcodes-appendix.html
+    public final static String CONNECTION_EXCEPTION_CLASS = "08";
+
+    class CachedStatement {
+
+        PreparedStatement statement;
+        PreparedStatement proxy;
+        boolean inUse;
+        boolean evicted;
+
+        CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class },
+                    (object, method, args) -> {
+
+                        if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                            inUse = false;
+
+                            if (evicted) {
+                                statement.close();
+                                return null;
+                            }
+
+                            // keep the statement open for the next caller
+                            // without the parameters or batch of this caller
+                            try {
+                                statement.clearParameters();
+                                statement.clearBatch();
+                            } catch (SQLException e) {
+                                checkException(e);
+                                throw e;
+                            }
+                            return null;
+                        }
+
+                        try {
+                            return method.invoke(statement, args);
+
+                        } catch (InvocationTargetException e) {
+                            Throwable cause = e.getCause();
+                            if (cause instanceof SQLException) {
+                                checkException((SQLException) cause);
+                            }
+                            throw cause;
+                        }
+                    });
+        }
+    }
+
+    PostgreSQLConnectionPool pool;
+    Connection connection;
+    int statementCacheSize;
+
+    Map<String, CachedStatement> statements;
+
+    long lastUsed;
+    boolean broken;
+
+    // set when the connection is returned into the pool,
+    // cleared when the connection is borrowed again
+    boolean closed;
+
+    public PostgreSQLConnection(
+            PostgreSQLConnectionPool pool,
+            Connection connection,
+            int statementCacheSize) {
+
+        this.pool = pool;
+        this.connection = connection;
+        this.statementCacheSize = statementCacheSize;
+
+        statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+
+                if (size() <= PostgreSQLConnection.this.statementCacheSize) {
+                    return false;
+                }
+
+                CachedStatement cachedStatement = eldest.getValue();
+                if (cachedStatement.inUse) {
+                    // close the statement when it is no longer used
+                    cachedStatement.evicted = true;
+                } else {
+                    closeStatement(cachedStatement.statement);
+                }
+
+                return true;
+            }
+        };
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    public boolean isBroken() {
+        return broken;
+    }
+
+    /**
+     * Marks the connection as broken if the exception indicates
+     * that the connection to the database has failed.
+     */
+    public void checkException(SQLException e) {
+
+        String sqlState = e.getSQLState();
+
+        if (sqlState != null && sqlState.startsWith(CONNECTION_EXCEPTION_CLASS)) {
+            logger.warn("PostgreSQLConnection: Connection failed: " + e.getMessage());
+            broken = true;
+        }
+    }
+
+    /**
+     * Returns a prepared statement for the SQL statement.
+     *
+     * If the statement is in the cache and not being used it will be
+     * reused, otherwise a new statement will be prepared.
+     */
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+
+        if (statementCacheSize <= 0) {
+            return connection.prepareStatement(sql);
+        }
+
+        CachedStatement cachedStatement = statements.get(sql);
+
+        if (cachedStatement != null && cachedStatement.inUse) {
+            // the statement is being used by an outer query
+            return connection.prepareStatement(sql);
+        }
+
+        if (cachedStatement == null) {
+            try {
+                cachedStatement = new CachedStatement(connection.prepareStatement(sql));
+
+            } catch (SQLException e) {
+                checkException(e);
+                throw e;
+            }
+
+            statements.put(sql, cachedStatement);
+        }
+
+        cachedStatement.inUse = true;
+        return cachedStatement.proxy;
+    }
+
+    public Statement createStatement() throws SQLException {
+        return connection.createStatement();
+    }
+
+    /**
+     * Checks whether the connection is still usable.
+     */
+    public boolean isValid(int timeout) {
+
+        if (broken) {
+            return false;
+        }
+
+        try {
+            return connection.isValid(timeout);
+
+        } catch (SQLException e) {
+            logger.warn("PostgreSQLConnection: Unable to validate connection: " + e.getMessage());
+            return false;
+        }
+    }
+
+    void closeStatement(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            logger.warn("PostgreSQLConnection: Unable to close statement: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Closes the cached statements and the JDBC connection.
+     */
+    public void disconnect() {
+
+        for (Iterator<CachedStatement> i = statements.values().iterator(); i.hasNext(); ) {
+            closeStatement(i.next().statement);
+            i.remove();
+        }
+
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.warn("PostgreSQLConnection: Unable to close connection: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the connection into the pool. Closing the connection
+     * again has no effect until it is borrowed again.
+     */
+    @Override
+    public void close() {
+
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        pool.returnConnection(this);
+    }
+}
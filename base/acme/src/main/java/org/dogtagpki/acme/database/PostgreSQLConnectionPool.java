@@ -0,0 +1,181 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.acme.database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Deque;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class keeps a pool of JDBC connections to the database.
+ *
+ * The number of connections (idle or in use) is limited by the
+ * maximum size of the pool. If all connections are in use, the
+ * caller will wait until a connection is returned into the pool.
+ *
+ * An idle connection that has not been used for longer than the
+ * validation interval is validated before it is returned to the
+ * caller. A connection that has failed or is no longer valid is
+ * closed and replaced with a new connection.
+ */
+public class PostgreSQLConnectionPool {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(PostgreSQLConnectionPool.class);
+
+    public final static int DEFAULT_MAX_SIZE = 10;
+    public final static int DEFAULT_STATEMENT_CACHE_SIZE = 50;
+    public final static int DEFAULT_VALIDATION_INTERVAL = 30; // seconds
+    public final static int DEFAULT_TIMEOUT = 30; // seconds
+
+    /**
+     * Creates a new JDBC connection.
+     */
+    public interface ConnectionFactory {
+        Connection createConnection() throws SQLException;
+    }
+
+    ConnectionFactory factory;
+
+    int maxSize = DEFAULT_MAX_SIZE;
+    int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+    int validationInterval = DEFAULT_VALIDATION_INTERVAL;
+    int timeout = DEFAULT_TIMEOUT;
+
+    Semaphore permits;
+    Deque<PostgreSQLConnection> connections = new ConcurrentLinkedDeque<>();
+    volatile boolean closed;
+
+    public PostgreSQLConnectionPool(String url, Properties info) {
+        this(() -> DriverManager.getConnection(url, info));
+    }
+
+    public PostgreSQLConnectionPool(ConnectionFactory factory) {
+        this.factory = factory;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    public int getValidationInterval() {
+        return validationInterval;
+    }
+
+    public void setValidationInterval(int validationInterval) {
+        this.validationInterval = validationInterval;
+    }
+
+    public int getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    public void init() {
+        permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Returns the number of idle connections in the pool.
+     */
+    public int getIdleConnections() {
+        return connections.size();
+    }
+
+    /**
+     * Borrows a connection from the pool. The connection must be
+     * closed to return it into the pool.
+     */
+    public PostgreSQLConnection getConnection() throws Exception {
+
+        if (!permits.tryAcquire(timeout, TimeUnit.SECONDS)) {
+            throw new SQLException("Unable to get database connection: Timed out after " + timeout + " s");
+        }
+
+        try {
+            PostgreSQLConnection connection;
+
+            while ((connection = connections.pollFirst()) != null) {
+
+                long idleTime = System.currentTimeMillis() - connection.lastUsed;
+
+                if (idleTime < validationInterval * 1000L || connection.isValid(timeout)) {
+                    connection.closed = false;
+                    return connection;
+                }
+
+                logger.info("PostgreSQLConnectionPool: Discarding invalid connection");
+                connection.disconnect();
+            }
+
+            logger.info("PostgreSQLConnectionPool: Creating connection");
+            return new PostgreSQLConnection(this, factory.createConnection(), statementCacheSize);
+
+        } catch (Throwable e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    void returnConnection(PostgreSQLConnection connection) {
+
+        try {
+            if (closed) {
+                connection.disconnect();
+                return;
+            }
+
+            if (connection.isBroken() || connection.getConnection().isClosed()) {
+                logger.info("PostgreSQLConnectionPool: Discarding failed connection");
+                connection.disconnect();
+                return;
+            }
+
+            connection.lastUsed = System.currentTimeMillis();
+            connections.offerFirst(connection);
+
+        } catch (SQLException e) {
+            logger.warn("PostgreSQLConnectionPool: Unable to return connection: " + e.getMessage());
+            connection.disconnect();
+
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Closes the idle connections. Connections that are in use will
+     * be closed when they are returned into the pool.
+     */
+    public void close() {
+
+        closed = true;
+
+        PostgreSQLConnection connection;
+        while ((connection = connections.pollFirst()) != null) {
+            connection.disconnect();
+        }
+    }
+}
@@ -8,18 +8,20 @@ package org.dogtagpki.acme.database;
 import java.io.FileReader;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.sql.Array;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.TimeZone;
 
@@ -45,7 +47,8 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     protected String url;
 
     protected Properties statements;
-    protected Connection connection;
+    protected PostgreSQLConnectionPool connectionPool;
+    protected volatile boolean initialized;
 
     Boolean enabled;
     PostgreSQLConfigMonitor monitor;
@@ -68,6 +71,36 @@ public class PostgreSQLDatabase extends ACMEDatabase {
 
         url = (String) info.remove("url");
 
+        // pool parameters are not passed to the JDBC driver
+        String poolMaxSize = (String) info.remove("pool.maxSize");
+        String poolStatementCacheSize = (String) info.remove("pool.statementCacheSize");
+        String poolValidationInterval = (String) info.remove("pool.validationInterval");
+        String poolTimeout = (String) info.remove("pool.timeout");
+
+        connectionPool = new PostgreSQLConnectionPool(url, info);
+
+        if (poolMaxSize != null) {
+            connectionPool.setMaxSize(Integer.parseInt(poolMaxSize));
+        }
+        logger.info("- pool max size: " + connectionPool.getMaxSize());
+
+        if (poolStatementCacheSize != null) {
+            connectionPool.setStatementCacheSize(Integer.parseInt(poolStatementCacheSize));
+        }
+        logger.info("- pool statement cache size: " + connectionPool.getStatementCacheSize());
+
+        if (poolValidationInterval != null) {
+            connectionPool.setValidationInterval(Integer.parseInt(poolValidationInterval));
+        }
+        logger.info("- pool validation interval (seconds): " + connectionPool.getValidationInterval());
+
+        if (poolTimeout != null) {
+            connectionPool.setTimeout(Integer.parseInt(poolTimeout));
+        }
+        logger.info("- pool timeout (seconds): " + connectionPool.getTimeout());
+
+        connectionPool.init();
+
         String statementsFilename = info.getProperty(
                 "statements",
                 "/usr/share/pki/acme/database/postgresql/statements.conf");
@@ -107,36 +140,25 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     }
 
     /**
-     * This method will create the initial connection, validate
-     * the current connection, or reestablish the connection if
-     * it's closed.
+     * This method will borrow a connection from the connection pool.
+     * The pool validates idle connections and reestablishes the
+     * connections that have failed. The tables will be created on
+     * the first connection.
+     *
+     * The connection must be closed to return it into the pool.
      *
      * This method should only be called by methods implementing
      * ACMEDatabase.
-     *
-     * TODO: Use connection pool.
      */
-    public void connect() throws Exception {
+    public PostgreSQLConnection connect() throws Exception {
 
-        if (connection == null) { // create the initial connection
-            logger.info("Connecting to " + url);
-            connection = DriverManager.getConnection(url, info);
-            setup();
-            return;
-        }
+        PostgreSQLConnection connection;
 
-        // validate the current connection
-        try (Statement st = connection.createStatement();
-            ResultSet rs = st.executeQuery("SELECT 1")) {
+        try {
+            connection = connectionPool.getConnection();
 
         } catch (SQLException e) {
 
-            if (connection.isClosed()) { // reestablish the connection
-                logger.info("Reconnecting to " + url);
-                connection = DriverManager.getConnection(url, info);
-                return;
-            }
-
             logger.error("Unable to access database: " + e.getMessage());
 
             // https://www.postgresql.org/docs/current/errcodes-appendix.html
@@ -144,12 +166,35 @@ public class PostgreSQLDatabase extends ACMEDatabase {
 
             throw e;
         }
+
+        if (initialized) {
+            return connection;
+        }
+
+        synchronized (this) {
+
+            if (initialized) {
+                return connection;
+            }
+
+            try {
+                setup(connection);
+
+            } catch (Exception e) {
+                connection.close();
+                throw e;
+            }
+
+            initialized = true;
+        }
+
+        return connection;
     }
 
     /**
      * This method will create the tables if they do not exist.
      */
-    public void setup() throws Exception {
+    public void setup(PostgreSQLConnection connection) throws Exception {
 
         logger.info("Setting up database");
 
@@ -162,7 +207,8 @@ public class PostgreSQLDatabase extends ACMEDatabase {
             if (StringUtils.isEmpty(sql)) continue;
             logger.info("SQL: " + sql);
 
-            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            // do not cache the setup statements
+            try (PreparedStatement ps = connection.getConnection().prepareStatement(sql)) {
                 ps.executeUpdate();
 
             } catch (SQLException e) {
@@ -173,6 +219,12 @@ public class PostgreSQLDatabase extends ACMEDatabase {
                 // If table already exists, ignore
                 if ("42P07".equals(sqlState)) continue;
 
+                // If index cannot be created (e.g. in existing database), ignore
+                if ("42501".equals(sqlState) && sql.startsWith("CREATE INDEX")) {
+                    logger.warn("Unable to create index: " + e.getMessage());
+                    continue;
+                }
+
                 logger.error("Unable to set up database: " + e.getMessage());
                 logger.error("SQL state: " + sqlState);
 
@@ -181,7 +233,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    String getConfig(String id) throws Exception {
+    String getConfig(PostgreSQLConnection connection, String id) throws Exception {
 
         logger.info("Getting config " + id);
 
@@ -202,7 +254,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    void addConfig(String id, String value) throws Exception {
+    void addConfig(PostgreSQLConnection connection, String id, String value) throws Exception {
 
         logger.info("Setting config " + id + ": " + value);
 
@@ -216,7 +268,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    int updateConfig(String id, String value) throws Exception {
+    int updateConfig(PostgreSQLConnection connection, String id, String value) throws Exception {
 
         logger.info("Updating config " + id + ": " + value);
 
@@ -230,7 +282,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    void removeConfig(String id) throws Exception {
+    void removeConfig(PostgreSQLConnection connection, String id) throws Exception {
 
         logger.info("Removing config " + id);
 
@@ -243,17 +295,17 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    void setConfig(String id, String value) throws Exception {
+    void setConfig(PostgreSQLConnection connection, String id, String value) throws Exception {
 
         if (value == null) {
-            removeConfig(id);
+            removeConfig(connection, id);
             return;
         }
 
-        int updatedRows = updateConfig(id, value);
+        int updatedRows = updateConfig(connection, id, value);
         if (updatedRows > 0) return;
 
-        addConfig(id, value);
+        addConfig(connection, id, value);
     }
 
     @Override
@@ -265,10 +317,10 @@ public class PostgreSQLDatabase extends ACMEDatabase {
 
         if (monitor == null) {
 
-            connect();
-
-            String value = getConfig("enabled");
-            enabled = value == null ? null : Boolean.valueOf(value);
+            try (PostgreSQLConnection connection = connect()) {
+                String value = getConfig(connection, "enabled");
+                enabled = value == null ? null : Boolean.valueOf(value);
+            }
         }
 
         return enabled;
@@ -277,15 +329,15 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public void setEnabled(Boolean enabled) throws Exception {
 
-        connect();
+        try (PostgreSQLConnection connection = connect()) {
+            String value = enabled == null ? null : enabled.toString();
+            setConfig(connection, "enabled", value);
 
-        String value = enabled == null ? null : enabled.toString();
-        setConfig("enabled", value);
-
-        this.enabled = enabled;
+            this.enabled = enabled;
+        }
     }
 
-    private ACMENonce getNonce(String nonceID) throws Exception {
+    private ACMENonce getNonce(PostgreSQLConnection connection, String nonceID) throws Exception {
 
         logger.info("Getting nonce " + nonceID);
 
@@ -318,41 +370,41 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public void addNonce(ACMENonce nonce) throws Exception {
 
-        connect();
+        try (PostgreSQLConnection connection = connect()) {
+            String nonceID = nonce.getID();
+            logger.info("Adding nonce " + nonceID);
 
-        String nonceID = nonce.getID();
-        logger.info("Adding nonce " + nonceID);
+            String sql = statements.getProperty("addNonce");
+            logger.info("SQL: " + sql);
 
-        String sql = statements.getProperty("addNonce");
-        logger.info("SQL: " + sql);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, nonceID);
 
-            ps.setString(1, nonceID);
+                Date creationTime = nonce.getCreationTime();
+                ps.setTimestamp(2, new Timestamp(creationTime.getTime()), UTC);
 
-            Date creationTime = nonce.getCreationTime();
-            ps.setTimestamp(2, new Timestamp(creationTime.getTime()), UTC);
+                Date expirationTime = nonce.getExpirationTime();
+                ps.setTimestamp(3, new Timestamp(expirationTime.getTime()), UTC);
 
-            Date expirationTime = nonce.getExpirationTime();
-            ps.setTimestamp(3, new Timestamp(expirationTime.getTime()), UTC);
-
-            ps.executeUpdate();
+                ps.executeUpdate();
+            }
         }
     }
 
     @Override
     public ACMENonce removeNonce(String nonceID) throws Exception {
 
-        connect();
+        try (PostgreSQLConnection connection = connect()) {
+            ACMENonce nonce = getNonce(connection, nonceID);
+            if (nonce == null) return null;
 
-        ACMENonce nonce = getNonce(nonceID);
-        if (nonce == null) return null;
-
-        deleteNonce(nonceID);
-        return nonce;
+            deleteNonce(connection, nonceID);
+            return nonce;
+        }
     }
 
-    private void deleteNonce(String nonceID) throws Exception {
+    private void deleteNonce(PostgreSQLConnection connection, String nonceID) throws Exception {
 
         logger.info("Removing nonce " + nonceID);
 
@@ -368,20 +420,20 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public void removeExpiredNonces(Date currentTime) throws Exception {
 
-        connect();
-
-        logger.info("Getting expired nonces");
+        try (PostgreSQLConnection connection = connect()) {
+            logger.info("Getting expired nonces");
 
-        Collection<String> nonceIDs = getExpiredNonceIDs(currentTime);
+            Collection<String> nonceIDs = getExpiredNonceIDs(connection, currentTime);
 
-        logger.info("Removing expired nonces");
+            logger.info("Removing expired nonces");
 
-        for (String nonceID : nonceIDs) {
-            deleteNonce(nonceID);
+            for (String nonceID : nonceIDs) {
+                deleteNonce(connection, nonceID);
+            }
         }
     }
 
-    private Collection<String> getExpiredNonceIDs(Date currentTime) throws Exception {
+    private Collection<String> getExpiredNonceIDs(PostgreSQLConnection connection, Date currentTime) throws Exception {
 
         String sql = statements.getProperty("getExpiredNonceIDs");
         logger.info("SQL: " + sql);
@@ -406,42 +458,42 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public ACMEAccount getAccount(String accountID) throws Exception {
 
-        connect();
-
-        logger.info("Getting account " + accountID);
+        try (PostgreSQLConnection connection = connect()) {
+            logger.info("Getting account " + accountID);
 
-        String sql = statements.getProperty("getAccount");
-        logger.info("SQL: " + sql);
+            String sql = statements.getProperty("getAccount");
+            logger.info("SQL: " + sql);
 
-        ACMEAccount account = new ACMEAccount();
+            ACMEAccount account = new ACMEAccount();
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, accountID);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, accountID);
 
-            try (ResultSet rs = ps.executeQuery()) {
+                try (ResultSet rs = ps.executeQuery()) {
 
-                if (!rs.next()) {
-                    return null;
-                }
+                    if (!rs.next()) {
+                        return null;
+                    }
 
-                account.setID(accountID);
+                    account.setID(accountID);
 
-                Timestamp created = rs.getTimestamp("created");
-                account.setCreationTime(new Date(created.getTime()));
+                    Timestamp created = rs.getTimestamp("created");
+                    account.setCreationTime(new Date(created.getTime()));
 
-                account.setStatus(rs.getString("status"));
+                    account.setStatus(rs.getString("status"));
 
-                String jwk = rs.getString("jwk");
-                account.setJWK(JWK.fromJSON(jwk));
+                    String jwk = rs.getString("jwk");
+                    account.setJWK(JWK.fromJSON(jwk));
+                }
             }
-        }
 
-        getAccountContacts(account);
+            getAccountContacts(connection, account);
 
-        return account;
+            return account;
+        }
     }
 
-    private void getAccountContacts(ACMEAccount account) throws Exception {
+    private void getAccountContacts(PostgreSQLConnection connection, ACMEAccount account) throws Exception {
 
         String accountID = account.getID();
         logger.info("Getting contacts for " + accountID);
@@ -471,54 +523,54 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public void addAccount(ACMEAccount account) throws Exception {
 
-        connect();
+        try (PostgreSQLConnection connection = connect()) {
+            String accountID = account.getID();
+            logger.info("Adding account " + accountID);
 
-        String accountID = account.getID();
-        logger.info("Adding account " + accountID);
+            String sql = statements.getProperty("addAccount");
+            logger.info("SQL: " + sql);
 
-        String sql = statements.getProperty("addAccount");
-        logger.info("SQL: " + sql);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, accountID);
 
-            ps.setString(1, accountID);
+                Date creationTime = account.getCreationTime();
+                ps.setTimestamp(2, creationTime == null ? null : new Timestamp(creationTime.getTime()), UTC);
 
-            Date creationTime = account.getCreationTime();
-            ps.setTimestamp(2, creationTime == null ? null : new Timestamp(creationTime.getTime()), UTC);
+                ps.setString(3, account.getStatus());
+                ps.setString(4, account.getJWK().toJSON());
 
-            ps.setString(3, account.getStatus());
-            ps.setString(4, account.getJWK().toJSON());
+                ps.executeUpdate();
+            }
 
-            ps.executeUpdate();
+            addAccountContacts(connection, account);
         }
-
-        addAccountContacts(account);
     }
 
     @Override
     public void updateAccount(ACMEAccount account) throws Exception {
 
-        connect();
+        try (PostgreSQLConnection connection = connect()) {
+            String accountID = account.getID();
+            logger.info("Updating account " + accountID);
 
-        String accountID = account.getID();
-        logger.info("Updating account " + accountID);
+            String sql = statements.getProperty("updateAccount");
+            logger.info("SQL: " + sql);
 
-        String sql = statements.getProperty("updateAccount");
-        logger.info("SQL: " + sql);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, account.getStatus());
+                ps.setString(2, accountID);
 
-            ps.setString(1, account.getStatus());
-            ps.setString(2, accountID);
+                ps.executeUpdate();
+            }
 
-            ps.executeUpdate();
+            removeAccountContacts(connection, accountID);
+            addAccountContacts(connection, account);
         }
-
-        removeAccountContacts(accountID);
-        addAccountContacts(account);
     }
 
-    private void addAccountContacts(ACMEAccount account) throws Exception {
+    private void addAccountContacts(PostgreSQLConnection connection, ACMEAccount account) throws Exception {
 
         String[] contacts = account.getContact();
         if (contacts == null) return;
@@ -541,7 +593,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    private void removeAccountContacts(String accountID) throws Exception {
+    private void removeAccountContacts(PostgreSQLConnection connection, String accountID) throws Exception {
 
         logger.info("Removing contacts for account " + accountID);
 
@@ -559,203 +611,203 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public ACMEOrder getOrder(String orderID) throws Exception {
 
-        connect();
+        try (PostgreSQLConnection connection = connect()) {
+            logger.info("Getting order " + orderID);
 
-        logger.info("Getting order " + orderID);
+            String sql = statements.getProperty("getOrder");
+            logger.info("SQL: " + sql);
 
-        String sql = statements.getProperty("getOrder");
-        logger.info("SQL: " + sql);
+            ACMEOrder order = new ACMEOrder();
 
-        ACMEOrder order = new ACMEOrder();
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, orderID);
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, orderID);
+                try (ResultSet rs = ps.executeQuery()) {
 
-            try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        return null;
+                    }
 
-                if (!rs.next()) {
-                    return null;
-                }
-
-                order.setID(orderID);
-                order.setAccountID(rs.getString("account_id"));
+                    order.setID(orderID);
+                    order.setAccountID(rs.getString("account_id"));
 
-                Timestamp created = rs.getTimestamp("created");
-                order.setCreationTime(created == null ? null : new Date(created.getTime()));
+                    Timestamp created = rs.getTimestamp("created");
+                    order.setCreationTime(created == null ? null : new Date(created.getTime()));
 
-                order.setStatus(rs.getString("status"));
+                    order.setStatus(rs.getString("status"));
 
-                Timestamp expires = rs.getTimestamp("expires");
-                order.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
+                    Timestamp expires = rs.getTimestamp("expires");
+                    order.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
 
-                Timestamp notBefore = rs.getTimestamp("not_before");
-                order.setNotBeforeTime(notBefore == null ? null : new Date(notBefore.getTime()));
+                    Timestamp notBefore = rs.getTimestamp("not_before");
+                    order.setNotBeforeTime(notBefore == null ? null : new Date(notBefore.getTime()));
 
-                Timestamp notAfter = rs.getTimestamp("not_after");
-                order.setNotAfterTime(notAfter == null ? null : new Date(notAfter.getTime()));
+                    Timestamp notAfter = rs.getTimestamp("not_after");
+                    order.setNotAfterTime(notAfter == null ? null : new Date(notAfter.getTime()));
 
-                order.setCertID(rs.getString("cert_id"));
+                    order.setCertID(rs.getString("cert_id"));
+                }
             }
-        }
 
-        getOrderIdentifiers(order);
-        getOrderAuthorizations(order);
+            getOrderIdentifiers(connection, order);
+            getOrderAuthorizations(connection, order);
 
-        return order;
+            return order;
+        }
     }
 
     @Override
     public Collection<ACMEOrder> getOrdersByAccount(String accountID) throws Exception {
 
-        connect();
+        try (PostgreSQLConnection connection = connect()) {
+            logger.info("Getting orders for account " + accountID);
 
-        logger.info("Getting orders for account " + accountID);
+            String sql = statements.getProperty("getOrdersByAccount");
+            logger.info("SQL: " + sql);
 
-        String sql = statements.getProperty("getOrdersByAccount");
-        logger.info("SQL: " + sql);
+            Collection<ACMEOrder> orders = new ArrayList<>();
 
-        Collection<ACMEOrder> orders = new ArrayList<>();
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, accountID);
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, accountID);
+                try (ResultSet rs = ps.executeQuery()) {
 
-            try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        ACMEOrder order = new ACMEOrder();
+                        order.setID(rs.getString("id"));
+                        order.setAccountID(accountID);
 
-                while (rs.next()) {
-                    ACMEOrder order = new ACMEOrder();
-                    order.setID(rs.getString("id"));
-                    order.setAccountID(accountID);
+                        Timestamp created = rs.getTimestamp("created");
+                        order.setCreationTime(created == null ? null : new Date(created.getTime()));
 
-                    Timestamp created = rs.getTimestamp("created");
-                    order.setCreationTime(created == null ? null : new Date(created.getTime()));
+                        order.setStatus(rs.getString("status"));
 
-                    order.setStatus(rs.getString("status"));
+                        Timestamp expires = rs.getTimestamp("expires");
+                        order.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
 
-                    Timestamp expires = rs.getTimestamp("expires");
-                    order.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
+                        Timestamp notBefore = rs.getTimestamp("not_before");
+                        order.setNotBeforeTime(notBefore == null ? null : new Date(notBefore.getTime()));
 
-                    Timestamp notBefore = rs.getTimestamp("not_before");
-                    order.setNotBeforeTime(notBefore == null ? null : new Date(notBefore.getTime()));
+                        Timestamp notAfter = rs.getTimestamp("not_after");
+                        order.setNotAfterTime(notAfter == null ? null : new Date(notAfter.getTime()));
 
-                    Timestamp notAfter = rs.getTimestamp("not_after");
-                    order.setNotAfterTime(notAfter == null ? null : new Date(notAfter.getTime()));
-
-                    order.setCertID(rs.getString("cert_id"));
+                        order.setCertID(rs.getString("cert_id"));
 
-                    getOrderIdentifiers(order);
-                    getOrderAuthorizations(order);
+                        getOrderIdentifiers(connection, order);
+                        getOrderAuthorizations(connection, order);
 
-                    orders.add(order);
+                        orders.add(order);
+                    }
                 }
             }
-        }
 
-        return orders;
+            return orders;
+        }
     }
 
     @Override
     public Collection<ACMEOrder> getOrdersByAuthorizationAndStatus(String authzID, String status)
             throws Exception {
 
-        connect();
-
-        logger.info("Getting " + status + " orders for authorization " + authzID);
+        try (PostgreSQLConnection connection = connect()) {
+            logger.info("Getting " + status + " orders for authorization " + authzID);
 
-        String sql = statements.getProperty("getOrdersByAuthorizationAndStatus");
-        logger.info("SQL: " + sql);
+            String sql = statements.getProperty("getOrdersByAuthorizationAndStatus");
+            logger.info("SQL: " + sql);
 
-        Collection<ACMEOrder> orders = new ArrayList<>();
+            Collection<ACMEOrder> orders = new ArrayList<>();
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, authzID);
-            ps.setString(2, status);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, authzID);
+                ps.setString(2, status);
 
-            try (ResultSet rs = ps.executeQuery()) {
+                try (ResultSet rs = ps.executeQuery()) {
 
-                while (rs.next()) {
-                    ACMEOrder order = new ACMEOrder();
-                    order.setID(rs.getString("id"));
-                    order.setAccountID(rs.getString("account_id"));
+                    while (rs.next()) {
+                        ACMEOrder order = new ACMEOrder();
+                        order.setID(rs.getString("id"));
+                        order.setAccountID(rs.getString("account_id"));
 
-                    Timestamp created = rs.getTimestamp("created");
-                    order.setCreationTime(created == null ? null : new Date(created.getTime()));
+                        Timestamp created = rs.getTimestamp("created");
+                        order.setCreationTime(created == null ? null : new Date(created.getTime()));
 
-                    order.setStatus(rs.getString("status"));
+                        order.setStatus(rs.getString("status"));
 
-                    Timestamp expires = rs.getTimestamp("expires");
-                    order.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
+                        Timestamp expires = rs.getTimestamp("expires");
+                        order.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
 
-                    Timestamp notBefore = rs.getTimestamp("not_before");
-                    order.setNotBeforeTime(notBefore == null ? null : new Date(notBefore.getTime()));
+                        Timestamp notBefore = rs.getTimestamp("not_before");
+                        order.setNotBeforeTime(notBefore == null ? null : new Date(notBefore.getTime()));
 
-                    Timestamp notAfter = rs.getTimestamp("not_after");
-                    order.setNotAfterTime(notAfter == null ? null : new Date(notAfter.getTime()));
+                        Timestamp notAfter = rs.getTimestamp("not_after");
+                        order.setNotAfterTime(notAfter == null ? null : new Date(notAfter.getTime()));
 
-                    order.setCertID(rs.getString("cert_id"));
+                        order.setCertID(rs.getString("cert_id"));
 
-                    getOrderIdentifiers(order);
-                    getOrderAuthorizations(order);
+                        getOrderIdentifiers(connection, order);
+                        getOrderAuthorizations(connection, order);
 
-                    orders.add(order);
+                        orders.add(order);
+                    }
                 }
             }
-        }
 
-        return orders;
+            return orders;
+        }
     }
 
     @Override
     public ACMEOrder getOrderByCertificate(String certID) throws Exception {
 
-        connect();
+        try (PostgreSQLConnection connection = connect()) {
+            logger.info("Getting order for certificate " + certID);
 
-        logger.info("Getting order for certificate " + certID);
+            String sql = statements.getProperty("getOrderByCertificate");
+            logger.info("SQL: " + sql);
 
-        String sql = statements.getProperty("getOrderByCertificate");
-        logger.info("SQL: " + sql);
+            ACMEOrder order = new ACMEOrder();
 
-        ACMEOrder order = new ACMEOrder();
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, certID);
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, certID);
+                try (ResultSet rs = ps.executeQuery()) {
 
-            try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        // no order found
+                        return null;
+                    }
 
-                if (!rs.next()) {
-                    // no order found
-                    return null;
-                }
-
-                // order found
+                    // order found
 
-                order.setID(rs.getString("id"));
-                order.setAccountID(rs.getString("account_id"));
+                    order.setID(rs.getString("id"));
+                    order.setAccountID(rs.getString("account_id"));
 
-                Timestamp created = rs.getTimestamp("created");
-                order.setCreationTime(created == null ? null : new Date(created.getTime()));
+                    Timestamp created = rs.getTimestamp("created");
+                    order.setCreationTime(created == null ? null : new Date(created.getTime()));
 
-                order.setStatus(rs.getString("status"));
+                    order.setStatus(rs.getString("status"));
 
-                Timestamp expires = rs.getTimestamp("expires");
-                order.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
+                    Timestamp expires = rs.getTimestamp("expires");
+                    order.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
 
-                Timestamp notBefore = rs.getTimestamp("not_before");
-                order.setNotBeforeTime(notBefore == null ? null : new Date(notBefore.getTime()));
+                    Timestamp notBefore = rs.getTimestamp("not_before");
+                    order.setNotBeforeTime(notBefore == null ? null : new Date(notBefore.getTime()));
 
-                Timestamp notAfter = rs.getTimestamp("not_after");
-                order.setNotAfterTime(notAfter == null ? null : new Date(notAfter.getTime()));
+                    Timestamp notAfter = rs.getTimestamp("not_after");
+                    order.setNotAfterTime(notAfter == null ? null : new Date(notAfter.getTime()));
 
-                order.setCertID(certID);
+                    order.setCertID(certID);
+                }
             }
-        }
 
-        getOrderIdentifiers(order);
-        getOrderAuthorizations(order);
+            getOrderIdentifiers(connection, order);
+            getOrderAuthorizations(connection, order);
 
-        return order;
+            return order;
+        }
     }
 
-    private Collection<String> getExpiredOrderIDs(Date currentTime) throws Exception {
+    private Collection<String> getExpiredOrderIDs(PostgreSQLConnection connection, Date currentTime) throws Exception {
 
         String sql = statements.getProperty("getExpiredOrderIDs");
         logger.info("SQL: " + sql);
@@ -777,7 +829,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         return orderIDs;
     }
 
-    private void getOrderIdentifiers(ACMEOrder order) throws Exception {
+    private void getOrderIdentifiers(PostgreSQLConnection connection, ACMEOrder order) throws Exception {
 
         String orderID = order.getID();
         logger.info("Getting identifiers for order " + orderID);
@@ -806,7 +858,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    private void getOrderAuthorizations(ACMEOrder order) throws Exception {
+    private void getOrderAuthorizations(PostgreSQLConnection connection, ACMEOrder order) throws Exception {
 
         String orderID = order.getID();
         logger.info("Getting authorizations for order " + orderID);
@@ -836,43 +888,43 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public void addOrder(ACMEOrder order) throws Exception {
 
-        connect();
+        try (PostgreSQLConnection connection = connect()) {
+            String orderID = order.getID();
+            logger.info("Adding order " + orderID);
 
-        String orderID = order.getID();
-        logger.info("Adding order " + orderID);
+            String sql = statements.getProperty("addOrder");
+            logger.info("SQL: " + sql);
 
-        String sql = statements.getProperty("addOrder");
-        logger.info("SQL: " + sql);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, orderID);
+                ps.setString(2, order.getAccountID());
 
-            ps.setString(1, orderID);
-            ps.setString(2, order.getAccountID());
+                Date creationTime = order.getCreationTime();
+                ps.setTimestamp(3, creationTime == null ? null : new Timestamp(creationTime.getTime()), UTC);
 
-            Date creationTime = order.getCreationTime();
-            ps.setTimestamp(3, creationTime == null ? null : new Timestamp(creationTime.getTime()), UTC);
+                ps.setString(4, order.getStatus());
 
-            ps.setString(4, order.getStatus());
+                Date expirationTime = order.getExpirationTime();
+                ps.setTimestamp(5, expirationTime == null ? null : new Timestamp(expirationTime.getTime()), UTC);
 
-            Date expirationTime = order.getExpirationTime();
-            ps.setTimestamp(5, expirationTime == null ? null : new Timestamp(expirationTime.getTime()), UTC);
+                Date notBefore = order.getNotBeforeTime();
+                ps.setTimestamp(6, notBefore == null ? null : new Timestamp(notBefore.getTime()), UTC);
 
-            Date notBefore = order.getNotBeforeTime();
-            ps.setTimestamp(6, notBefore == null ? null : new Timestamp(notBefore.getTime()), UTC);
+                Date notAfter = order.getNotAfterTime();
+                ps.setTimestamp(7, notAfter == null ? null : new Timestamp(notAfter.getTime()), UTC);
 
-            Date notAfter = order.getNotAfterTime();
-            ps.setTimestamp(7, notAfter == null ? null : new Timestamp(notAfter.getTime()), UTC);
+                ps.setString(8, order.getCertID());
 
-            ps.setString(8, order.getCertID());
+                ps.executeUpdate();
+            }
 
-            ps.executeUpdate();
+            addOrderIdentifiers(connection, order);
+            addOrderAuthorizations(connection, order);
         }
-
-        addOrderIdentifiers(order);
-        addOrderAuthorizations(order);
     }
 
-    private void addOrderIdentifiers(ACMEOrder order) throws Exception {
+    private void addOrderIdentifiers(PostgreSQLConnection connection, ACMEOrder order) throws Exception {
 
         ACMEIdentifier[] identifiers = order.getIdentifiers();
         if (identifiers == null) return;
@@ -896,7 +948,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    private void removeOrderIdentifiers(String orderID) throws Exception {
+    private void removeOrderIdentifiers(PostgreSQLConnection connection, String orderID) throws Exception {
 
         logger.info("Removing identifiers for order " + orderID);
 
@@ -909,7 +961,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    private void addOrderAuthorizations(ACMEOrder order) throws Exception {
+    private void addOrderAuthorizations(PostgreSQLConnection connection, ACMEOrder order) throws Exception {
 
         String[] authzIDs = order.getAuthzIDs();
         if (authzIDs == null) return;
@@ -932,7 +984,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    private void removeOrderAuthorizations(String orderID) throws Exception {
+    private void removeOrderAuthorizations(PostgreSQLConnection connection, String orderID) throws Exception {
 
         logger.info("Removing authorizations for order " + orderID);
 
@@ -948,32 +1000,32 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public void updateOrder(ACMEOrder order) throws Exception {
 
-        connect();
+        try (PostgreSQLConnection connection = connect()) {
+            String orderID = order.getID();
+            logger.info("Updating order " + orderID);
 
-        String orderID = order.getID();
-        logger.info("Updating order " + orderID);
-
-        String sql = statements.getProperty("updateOrder");
-        logger.info("SQL: " + sql);
+            String sql = statements.getProperty("updateOrder");
+            logger.info("SQL: " + sql);
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
 
-            ps.setString(1, order.getStatus());
-            ps.setString(2, order.getCertID());
+                ps.setString(1, order.getStatus());
+                ps.setString(2, order.getCertID());
 
-            Date expirationTime = order.getExpirationTime();
-            ps.setTimestamp(3, expirationTime == null ? null : new Timestamp(expirationTime.getTime()), UTC);
+                Date expirationTime = order.getExpirationTime();
+                ps.setTimestamp(3, expirationTime == null ? null : new Timestamp(expirationTime.getTime()), UTC);
 
-            ps.setString(4, orderID);
+                ps.setString(4, orderID);
 
-            ps.executeUpdate();
+                ps.executeUpdate();
+            }
         }
     }
 
-    private void removeOrder(String orderID) throws Exception {
+    private void removeOrder(PostgreSQLConnection connection, String orderID) throws Exception {
 
-        removeOrderIdentifiers(orderID);
-        removeOrderAuthorizations(orderID);
+        removeOrderIdentifiers(connection, orderID);
+        removeOrderAuthorizations(connection, orderID);
 
         logger.info("Removing order " + orderID);
 
@@ -989,114 +1041,222 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public void removeExpiredOrders(Date currentTime) throws Exception {
 
-        connect();
+        try (PostgreSQLConnection connection = connect()) {
+            logger.info("Getting expired order IDs");
 
-        logger.info("Getting expired order IDs");
+            Collection<String> orderIDs = getExpiredOrderIDs(connection, currentTime);
 
-        Collection<String> orderIDs = getExpiredOrderIDs(currentTime);
+            logger.info("Removing expired orders");
 
-        logger.info("Removing expired orders");
-
-        for (String orderID : orderIDs) {
-            removeOrder(orderID);
+            for (String orderID : orderIDs) {
+                removeOrder(connection, orderID);
+            }
         }
     }
 
     @Override
     public ACMEAuthorization getAuthorization(String authzID) throws Exception {
 
-        connect();
+        try (PostgreSQLConnection connection = connect()) {
+            logger.info("Getting authorization " + authzID);
 
-        logger.info("Getting authorization " + authzID);
+            String sql = statements.getProperty("getAuthorization");
+            logger.info("SQL: " + sql);
 
-        String sql = statements.getProperty("getAuthorization");
-        logger.info("SQL: " + sql);
+            ACMEAuthorization authorization = new ACMEAuthorization();
 
-        ACMEAuthorization authorization = new ACMEAuthorization();
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, authzID);
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, authzID);
+                try (ResultSet rs = ps.executeQuery()) {
 
-            try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        return null;
+                    }
 
-                if (!rs.next()) {
-                    return null;
+                    authorization.setID(authzID);
+                    authorization.setAccountID(rs.getString("account_id"));
+
+                    Timestamp created = rs.getTimestamp("created");
+                    authorization.setCreationTime(created == null ? null : new Date(created.getTime()));
+
+                    authorization.setStatus(rs.getString("status"));
+
+                    Timestamp expires = rs.getTimestamp("expires");
+                    authorization.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
+
+                    ACMEIdentifier identifier = new ACMEIdentifier();
+                    identifier.setType(rs.getString("identifier_type"));
+                    identifier.setValue(rs.getString("identifier_value"));
+                    authorization.setIdentifier(identifier);
+
+                    boolean wildcard = rs.getBoolean("wildcard");
+                    authorization.setWildcard(wildcard ? true : null);
                 }
+            }
 
-                authorization.setID(authzID);
-                authorization.setAccountID(rs.getString("account_id"));
+            getAuthorizationChallenges(connection, authorization);
 
-                Timestamp created = rs.getTimestamp("created");
-                authorization.setCreationTime(created == null ? null : new Date(created.getTime()));
+            return authorization;
+        }
+    }
 
-                authorization.setStatus(rs.getString("status"));
+    @Override
+    public ACMEAuthorization getAuthorizationByChallenge(String challengeID) throws Exception {
 
-                Timestamp expires = rs.getTimestamp("expires");
-                authorization.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
+        try (PostgreSQLConnection connection = connect()) {
+            logger.info("Getting authorization for challenge " + challengeID);
+
+            String sql = statements.getProperty("getAuthorizationByChallenge");
+            logger.info("SQL: " + sql);
+
+            ACMEAuthorization authorization = new ACMEAuthorization();
+
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, challengeID);
+
+                try (ResultSet rs = ps.executeQuery()) {
 
-                ACMEIdentifier identifier = new ACMEIdentifier();
-                identifier.setType(rs.getString("identifier_type"));
-                identifier.setValue(rs.getString("identifier_value"));
-                authorization.setIdentifier(identifier);
+                    if (!rs.next()) {
+                        return null;
+                    }
 
-                boolean wildcard = rs.getBoolean("wildcard");
-                authorization.setWildcard(wildcard ? true : null);
+                    authorization.setID(rs.getString("id"));
+                    authorization.setAccountID(rs.getString("account_id"));
+
+                    Timestamp created = rs.getTimestamp("created");
+                    authorization.setCreationTime(created == null ? null : new Date(created.getTime()));
+
+                    authorization.setStatus(rs.getString("status"));
+
+                    Timestamp expires = rs.getTimestamp("expires");
+                    authorization.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
+
+                    ACMEIdentifier identifier = new ACMEIdentifier();
+                    identifier.setType(rs.getString("identifier_type"));
+                    identifier.setValue(rs.getString("identifier_value"));
+                    authorization.setIdentifier(identifier);
+
+                    boolean wildcard = rs.getBoolean("wildcard");
+                    authorization.setWildcard(wildcard ? true : null);
+                }
             }
+
+            getAuthorizationChallenges(connection, authorization);
+
+            return authorization;
         }
+    }
+
+    private ACMEAuthorization loadAuthorization(ResultSet rs) throws Exception {
+
+        ACMEAuthorization authorization = new ACMEAuthorization();
+
+        authorization.setID(rs.getString("id"));
+
+        Timestamp created = rs.getTimestamp("created");
+        authorization.setCreationTime(created == null ? null : new Date(created.getTime()));
+
+        authorization.setStatus(rs.getString("status"));
 
-        getAuthorizationChallenges(authorization);
+        Timestamp expires = rs.getTimestamp("expires");
+        authorization.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
+
+        ACMEIdentifier identifier = new ACMEIdentifier();
+        identifier.setType(rs.getString("identifier_type"));
+        identifier.setValue(rs.getString("identifier_value"));
+        authorization.setIdentifier(identifier);
+
+        boolean wildcard = rs.getBoolean("wildcard");
+        authorization.setWildcard(wildcard ? true : null);
 
         return authorization;
     }
 
     @Override
-    public ACMEAuthorization getAuthorizationByChallenge(String challengeID) throws Exception {
+    public Map<String, ACMEAuthorization> getAuthorizations(Collection<String> authzIDs) throws Exception {
 
-        connect();
+        try (PostgreSQLConnection connection = connect()) {
+            logger.info("Getting " + authzIDs.size() + " authorizations");
 
-        logger.info("Getting authorization for challenge " + challengeID);
+            String sql = statements.getProperty("getAuthorizations");
+            logger.info("SQL: " + sql);
 
-        String sql = statements.getProperty("getAuthorizationByChallenge");
-        logger.info("SQL: " + sql);
+            Map<String, ACMEAuthorization> authorizations = new HashMap<>();
 
-        ACMEAuthorization authorization = new ACMEAuthorization();
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, challengeID);
+                Array array = connection.getConnection().createArrayOf("varchar", authzIDs.toArray());
+                ps.setArray(1, array);
 
-            try (ResultSet rs = ps.executeQuery()) {
+                try (ResultSet rs = ps.executeQuery()) {
 
-                if (!rs.next()) {
-                    return null;
+                    while (rs.next()) {
+                        ACMEAuthorization authorization = loadAuthorization(rs);
+                        authorization.setAccountID(rs.getString("account_id"));
+                        authorizations.put(authorization.getID(), authorization);
+                    }
+
+                } finally {
+                    array.free();
                 }
+            }
 
-                authorization.setID(rs.getString("id"));
-                authorization.setAccountID(rs.getString("account_id"));
+            getAuthorizationsChallenges(connection, authorizations);
 
-                Timestamp created = rs.getTimestamp("created");
-                authorization.setCreationTime(created == null ? null : new Date(created.getTime()));
+            // return the authorizations in the requested order
+            Map<String, ACMEAuthorization> results = new LinkedHashMap<>();
 
-                authorization.setStatus(rs.getString("status"));
+            for (String authzID : authzIDs) {
+                ACMEAuthorization authorization = authorizations.get(authzID);
+                if (authorization == null) continue;
+                results.put(authzID, authorization);
+            }
 
-                Timestamp expires = rs.getTimestamp("expires");
-                authorization.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
+            return results;
+        }
+    }
+
+    @Override
+    public ACMEAuthorization getValidAuthorization(
+            String accountID,
+            ACMEIdentifier identifier,
+            boolean wildcard,
+            Date time) throws Exception {
+
+        try (PostgreSQLConnection connection = connect()) {
+            logger.info("Getting valid authorization for " + identifier + " in account " + accountID);
+
+            String sql = statements.getProperty("getValidAuthorization");
+            logger.info("SQL: " + sql);
+
+            ACMEAuthorization authorization;
+
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, accountID);
+                ps.setString(2, identifier.getType());
+                ps.setString(3, identifier.getValue());
+                ps.setBoolean(4, wildcard);
+                ps.setTimestamp(5, new Timestamp(time.getTime()), UTC);
+
+                try (ResultSet rs = ps.executeQuery()) {
 
-                ACMEIdentifier identifier = new ACMEIdentifier();
-                identifier.setType(rs.getString("identifier_type"));
-                identifier.setValue(rs.getString("identifier_value"));
-                authorization.setIdentifier(identifier);
+                    if (!rs.next()) {
+                        return null;
+                    }
 
-                boolean wildcard = rs.getBoolean("wildcard");
-                authorization.setWildcard(wildcard ? true : null);
+                    authorization = loadAuthorization(rs);
+                    authorization.setAccountID(accountID);
+                }
             }
-        }
 
-        getAuthorizationChallenges(authorization);
+            getAuthorizationChallenges(connection, authorization);
 
-        return authorization;
+            return authorization;
+        }
     }
 
-    private Collection<String> getExpiredAuthorizationIDs(Date currentTime) throws Exception {
+    private Collection<String> getExpiredAuthorizationIDs(PostgreSQLConnection connection, Date currentTime) throws Exception {
 
         String sql = statements.getProperty("getExpiredAuthorizationIDs");
         logger.info("SQL: " + sql);
@@ -1121,55 +1281,55 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public Collection<ACMEAuthorization> getRevocationAuthorizations(String accountID, Date time) throws Exception {
 
-        connect();
+        try (PostgreSQLConnection connection = connect()) {
+            logger.info("Getting authorizations for account " + accountID);
 
-        logger.info("Getting authorizations for account " + accountID);
+            String sql = statements.getProperty("getRevocationAuthorizations");
+            logger.info("SQL: " + sql);
 
-        String sql = statements.getProperty("getRevocationAuthorizations");
-        logger.info("SQL: " + sql);
+            Collection<ACMEAuthorization> authorizations = new ArrayList<>();
 
-        Collection<ACMEAuthorization> authorizations = new ArrayList<>();
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, accountID);
+                ps.setTimestamp(2, new Timestamp(time.getTime()), UTC);
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, accountID);
-            ps.setTimestamp(2, new Timestamp(time.getTime()), UTC);
+                try (ResultSet rs = ps.executeQuery()) {
 
-            try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
 
-                while (rs.next()) {
+                        ACMEAuthorization authorization = new ACMEAuthorization();
 
-                    ACMEAuthorization authorization = new ACMEAuthorization();
+                        authorization.setID(rs.getString("id"));
+                        authorization.setAccountID(accountID);
 
-                    authorization.setID(rs.getString("id"));
-                    authorization.setAccountID(accountID);
+                        Timestamp created = rs.getTimestamp("created");
+                        authorization.setCreationTime(created == null ? null : new Date(created.getTime()));
 
-                    Timestamp created = rs.getTimestamp("created");
-                    authorization.setCreationTime(created == null ? null : new Date(created.getTime()));
+                        authorization.setStatus(rs.getString("status"));
 
-                    authorization.setStatus(rs.getString("status"));
+                        Timestamp expires = rs.getTimestamp("expires");
+                        authorization.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
 
-                    Timestamp expires = rs.getTimestamp("expires");
-                    authorization.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
+                        ACMEIdentifier identifier = new ACMEIdentifier();
+                        identifier.setType(rs.getString("identifier_type"));
+                        identifier.setValue(rs.getString("identifier_value"));
+                        authorization.setIdentifier(identifier);
 
-                    ACMEIdentifier identifier = new ACMEIdentifier();
-                    identifier.setType(rs.getString("identifier_type"));
-                    identifier.setValue(rs.getString("identifier_value"));
-                    authorization.setIdentifier(identifier);
-
-                    boolean wildcard = rs.getBoolean("wildcard");
-                    authorization.setWildcard(wildcard ? true : null);
+                        boolean wildcard = rs.getBoolean("wildcard");
+                        authorization.setWildcard(wildcard ? true : null);
 
-                    getAuthorizationChallenges(authorization);
+                        getAuthorizationChallenges(connection, authorization);
 
-                    authorizations.add(authorization);
+                        authorizations.add(authorization);
+                    }
                 }
             }
-        }
 
-        return authorizations;
+            return authorizations;
+        }
     }
 
-    private void getAuthorizationChallenges(ACMEAuthorization authorization) throws Exception {
+    private void getAuthorizationChallenges(PostgreSQLConnection connection, ACMEAuthorization authorization) throws Exception {
 
         String authzID = authorization.getID();
         logger.info("Getting challenges for authorization " + authzID);
@@ -1206,71 +1366,168 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    @Override
-    public void addAuthorization(ACMEAuthorization authorization) throws Exception {
+    private void getAuthorizationsChallenges(
+            PostgreSQLConnection connection,
+            Map<String, ACMEAuthorization> authorizations) throws Exception {
 
-        connect();
+        if (authorizations.isEmpty()) return;
 
-        String authzID = authorization.getID();
-        logger.info("Adding authorization " + authzID);
+        logger.info("Getting challenges for " + authorizations.size() + " authorizations");
 
-        String sql = statements.getProperty("addAuthorization");
+        String sql = statements.getProperty("getAuthorizationsChallenges");
         logger.info("SQL: " + sql);
 
+        Map<String, List<ACMEChallenge>> challenges = new HashMap<>();
+
         try (PreparedStatement ps = connection.prepareStatement(sql)) {
 
-            ps.setString(1, authzID);
-            ps.setString(2, authorization.getAccountID());
+            Array array = connection.getConnection().createArrayOf("varchar", authorizations.keySet().toArray());
+            ps.setArray(1, array);
 
-            Date creationTime = authorization.getCreationTime();
-            ps.setTimestamp(3, creationTime == null ? null : new Timestamp(creationTime.getTime()), UTC);
+            try (ResultSet rs = ps.executeQuery()) {
 
-            ps.setString(4, authorization.getStatus());
+                while (rs.next()) {
+                    ACMEChallenge challenge = new ACMEChallenge();
 
-            Date expirationTime = authorization.getExpirationTime();
-            ps.setTimestamp(5, expirationTime == null ? null : new Timestamp(expirationTime.getTime()), UTC);
+                    String authzID = rs.getString("authz_id");
 
-            ACMEIdentifier identifier = authorization.getIdentifier();
-            ps.setString(6, identifier.getType());
-            ps.setString(7, identifier.getValue());
+                    challenge.setID(rs.getString("id"));
+                    challenge.setAuthzID(authzID);
+                    challenge.setType(rs.getString("type"));
+                    challenge.setToken(rs.getString("token"));
+                    challenge.setStatus(rs.getString("status"));
 
-            Boolean wildcard = authorization.getWildcard();
-            ps.setBoolean(8, wildcard == null ? false : wildcard);
+                    Timestamp validated = rs.getTimestamp("validated");
+                    challenge.setValidationTime(validated == null ? null : new Date(validated.getTime()));
 
-            ps.executeUpdate();
+                    challenges.computeIfAbsent(authzID, k -> new ArrayList<>()).add(challenge);
+                }
+
+            } finally {
+                array.free();
+            }
+        }
+
+        for (Map.Entry<String, List<ACMEChallenge>> entry : challenges.entrySet()) {
+            authorizations.get(entry.getKey()).setChallenges(entry.getValue());
         }
+    }
+
+    private void setAuthorizationParameters(PreparedStatement ps, ACMEAuthorization authorization) throws Exception {
+
+        ps.setString(1, authorization.getID());
+        ps.setString(2, authorization.getAccountID());
+
+        Date creationTime = authorization.getCreationTime();
+        ps.setTimestamp(3, creationTime == null ? null : new Timestamp(creationTime.getTime()), UTC);
+
+        ps.setString(4, authorization.getStatus());
+
+        Date expirationTime = authorization.getExpirationTime();
+        ps.setTimestamp(5, expirationTime == null ? null : new Timestamp(expirationTime.getTime()), UTC);
 
-        addAuthorizationChallenges(authorization);
+        ACMEIdentifier identifier = authorization.getIdentifier();
+        ps.setString(6, identifier.getType());
+        ps.setString(7, identifier.getValue());
+
+        Boolean wildcard = authorization.getWildcard();
+        ps.setBoolean(8, wildcard == null ? false : wildcard);
     }
 
     @Override
-    public void updateAuthorization(ACMEAuthorization authorization) throws Exception {
+    public void addAuthorization(ACMEAuthorization authorization) throws Exception {
 
-        connect();
+        try (PostgreSQLConnection connection = connect()) {
+            String authzID = authorization.getID();
+            logger.info("Adding authorization " + authzID);
 
-        String authzID = authorization.getID();
-        logger.info("Updating authorization " + authzID);
+            String sql = statements.getProperty("addAuthorization");
+            logger.info("SQL: " + sql);
 
-        String sql = statements.getProperty("updateAuthorization");
-        logger.info("SQL: " + sql);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                setAuthorizationParameters(ps, authorization);
+                ps.executeUpdate();
+            }
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            addAuthorizationChallenges(connection, authorization);
+        }
+    }
 
-            ps.setString(1, authorization.getStatus());
+    @Override
+    public void addAuthorizations(Collection<ACMEAuthorization> authorizations) throws Exception {
 
-            Date expirationTime = authorization.getExpirationTime();
-            ps.setTimestamp(2, expirationTime == null ? null : new Timestamp(expirationTime.getTime()), UTC);
+        try (PostgreSQLConnection connection = connect()) {
+            logger.info("Adding " + authorizations.size() + " authorizations");
 
-            ps.setString(3, authzID);
+            String sql = statements.getProperty("addAuthorization");
+            logger.info("SQL: " + sql);
 
-            ps.executeUpdate();
+            // add all authorizations in a single transaction
+            Connection conn = connection.getConnection();
+            conn.setAutoCommit(false);
+
+            try {
+                try (PreparedStatement ps = connection.prepareStatement(sql)) {
+
+                    for (ACMEAuthorization authorization : authorizations) {
+                        setAuthorizationParameters(ps, authorization);
+                        ps.addBatch();
+                    }
+
+                    ps.executeBatch();
+                }
+
+                for (ACMEAuthorization authorization : authorizations) {
+                    addAuthorizationChallenges(connection, authorization);
+                }
+
+                conn.commit();
+
+            } catch (Exception e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    connection.checkException(ex);
+                    logger.warn("Unable to roll back transaction: " + ex.getMessage());
+                }
+                throw e;
+
+            } finally {
+                if (!connection.isBroken()) {
+                    conn.setAutoCommit(true);
+                }
+            }
         }
+    }
 
-        removeAuthorizationChallenges(authzID);
-        addAuthorizationChallenges(authorization);
+    @Override
+    public void updateAuthorization(ACMEAuthorization authorization) throws Exception {
+
+        try (PostgreSQLConnection connection = connect()) {
+            String authzID = authorization.getID();
+            logger.info("Updating authorization " + authzID);
+
+            String sql = statements.getProperty("updateAuthorization");
+            logger.info("SQL: " + sql);
+
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+
+                ps.setString(1, authorization.getStatus());
+
+                Date expirationTime = authorization.getExpirationTime();
+                ps.setTimestamp(2, expirationTime == null ? null : new Timestamp(expirationTime.getTime()), UTC);
+
+                ps.setString(3, authzID);
+
+                ps.executeUpdate();
+            }
+
+            removeAuthorizationChallenges(connection, authzID);
+            addAuthorizationChallenges(connection, authorization);
+        }
     }
 
-    private void removeAuthorizationChallenges(String authzID) throws Exception {
+    private void removeAuthorizationChallenges(PostgreSQLConnection connection, String authzID) throws Exception {
 
         logger.info("Removing challenges for authorization " + authzID);
 
@@ -1283,7 +1540,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    private void addAuthorizationChallenges(ACMEAuthorization authorization) throws Exception {
+    private void addAuthorizationChallenges(PostgreSQLConnection connection, ACMEAuthorization authorization) throws Exception {
 
         Collection<ACMEChallenge> challenges = authorization.getChallenges();
         if (challenges == null) return;
@@ -1312,9 +1569,9 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    private void removeAuthorization(String authzID) throws Exception {
+    private void removeAuthorization(PostgreSQLConnection connection, String authzID) throws Exception {
 
-        removeAuthorizationChallenges(authzID);
+        removeAuthorizationChallenges(connection, authzID);
 
         logger.info("Removing authorization " + authzID);
 
@@ -1330,55 +1587,55 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public void removeExpiredAuthorizations(Date currentTime) throws Exception {
 
-        connect();
+        try (PostgreSQLConnection connection = connect()) {
+            logger.info("Getting expired authorization IDs");
 
-        logger.info("Getting expired authorization IDs");
+            Collection<String> authzIDs = getExpiredAuthorizationIDs(connection, currentTime);
 
-        Collection<String> authzIDs = getExpiredAuthorizationIDs(currentTime);
+            logger.info("Removing expired authorization");
 
-        logger.info("Removing expired authorization");
-
-        for (String authzID : authzIDs) {
-            removeAuthorization(authzID);
+            for (String authzID : authzIDs) {
+                removeAuthorization(connection, authzID);
+            }
         }
     }
 
     @Override
     public ACMECertificate getCertificate(String certID) throws Exception {
 
-        connect();
+        try (PostgreSQLConnection connection = connect()) {
+            logger.info("Getting certificate " + certID);
 
-        logger.info("Getting certificate " + certID);
+            String sql = statements.getProperty("getCertificate");
+            logger.info("SQL: " + sql);
 
-        String sql = statements.getProperty("getCertificate");
-        logger.info("SQL: " + sql);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, certID);
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, certID);
+                try (ResultSet rs = ps.executeQuery()) {
 
-            try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        return null;
+                    }
 
-                if (!rs.next()) {
-                    return null;
-                }
-
-                ACMECertificate certificate = new ACMECertificate();
-                certificate.setID(certID);
+                    ACMECertificate certificate = new ACMECertificate();
+                    certificate.setID(certID);
 
-                Timestamp created = rs.getTimestamp("created");
-                certificate.setCreationTime(created == null ? null : new Date(created.getTime()));
+                    Timestamp created = rs.getTimestamp("created");
+                    certificate.setCreationTime(created == null ? null : new Date(created.getTime()));
 
-                certificate.setData(rs.getBytes("data"));
+                    certificate.setData(rs.getBytes("data"));
 
-                Timestamp expires = rs.getTimestamp("expires");
-                certificate.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
+                    Timestamp expires = rs.getTimestamp("expires");
+                    certificate.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
 
-                return certificate;
+                    return certificate;
+                }
             }
         }
     }
 
-    private Collection<String> getExpiredCertificateIDs(Date currentTime) throws Exception {
+    private Collection<String> getExpiredCertificateIDs(PostgreSQLConnection connection, Date currentTime) throws Exception {
 
         String sql = statements.getProperty("getExpiredCertificateIDs");
         logger.info("SQL: " + sql);
@@ -1403,30 +1660,30 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public void addCertificate(String certID, ACMECertificate certificate) throws Exception {
 
-        connect();
+        try (PostgreSQLConnection connection = connect()) {
+            logger.info("Adding certificate " + certID);
 
-        logger.info("Adding certificate " + certID);
+            String sql = statements.getProperty("addCertificate");
+            logger.info("SQL: " + sql);
 
-        String sql = statements.getProperty("addCertificate");
-        logger.info("SQL: " + sql);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, certID);
 
-            ps.setString(1, certID);
+                Date creationTime = certificate.getCreationTime();
+                ps.setTimestamp(2, creationTime == null ? null : new Timestamp(creationTime.getTime()), UTC);
 
-            Date creationTime = certificate.getCreationTime();
-            ps.setTimestamp(2, creationTime == null ? null : new Timestamp(creationTime.getTime()), UTC);
+                ps.setBytes(3, certificate.getData());
 
-            ps.setBytes(3, certificate.getData());
+                Date expirationTime = certificate.getExpirationTime();
+                ps.setTimestamp(4, expirationTime == null ? null : new Timestamp(expirationTime.getTime()), UTC);
 
-            Date expirationTime = certificate.getExpirationTime();
-            ps.setTimestamp(4, expirationTime == null ? null : new Timestamp(expirationTime.getTime()), UTC);
-
-            ps.executeUpdate();
+                ps.executeUpdate();
+            }
         }
     }
 
-    private void removeCertificate(String certID) throws Exception {
+    private void removeCertificate(PostgreSQLConnection connection, String certID) throws Exception {
 
         logger.info("Removing certificate " + certID);
 
@@ -1442,16 +1699,16 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public void removeExpiredCertificates(Date currentTime) throws Exception {
 
-        connect();
-
-        logger.info("Getting expired certificaate IDs");
+        try (PostgreSQLConnection connection = connect()) {
+            logger.info("Getting expired certificaate IDs");
 
-        Collection<String> certIDs = getExpiredCertificateIDs(currentTime);
+            Collection<String> certIDs = getExpiredCertificateIDs(connection, currentTime);
 
-        logger.info("Removing expired certificates");
+            logger.info("Removing expired certificates");
 
-        for (String certID : certIDs) {
-            removeCertificate(certID);
+            for (String certID : certIDs) {
+                removeCertificate(connection, certID);
+            }
         }
     }
 
@@ -1462,8 +1719,8 @@ public class PostgreSQLDatabase extends ACMEDatabase {
             monitor.stop();
         }
 
-        if (connection != null) {
-            connection.close();
+        if (connectionPool != null) {
+            connectionPool.close();
         }
     }
 }
@@ -7,6 +7,9 @@ package org.dogtagpki.acme.issuer;
 
 import java.math.BigInteger;
 import java.security.cert.X509Certificate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
@@ -25,6 +28,10 @@ public class ACMEIssuer {
 
     protected ACMEIssuerConfig config;
 
+    AtomicLong issued = new AtomicLong();
+    AtomicLong failed = new AtomicLong();
+    AtomicLong issueTime = new AtomicLong(); // nanoseconds
+
     public ACMEIssuerConfig getConfig() {
         return config;
     }
@@ -115,4 +122,35 @@ public class ACMEIssuer {
 
         throw new WebApplicationException(builder.build());
     }
+
+    /**
+     * Records the result of an issueCertificate() call.
+     *
+     * @param duration Duration of the call in nanoseconds.
+     * @param success Whether the certificate was issued.
+     */
+    public void updateMetrics(long duration, boolean success) {
+        if (success) {
+            issued.incrementAndGet();
+        } else {
+            failed.incrementAndGet();
+        }
+        issueTime.addAndGet(duration);
+    }
+
+    /**
+     * Returns the issuer metrics.
+     */
+    public Map<String, Object> getMetrics() {
+
+        long count = issued.get() + failed.get();
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("class", getClass().getName());
+        metrics.put("issued", issued.get());
+        metrics.put("failed", failed.get());
+        metrics.put("averageTime", count == 0 ? 0 : issueTime.get() / count / 1000000); // milliseconds
+
+        return metrics;
+    }
 }
@@ -0,0 +1,227 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.acme.issuer;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.security.Principal;
+import java.security.cert.X509Certificate;
+import java.util.Properties;
+
+import org.apache.commons.codec.binary.Base64;
+import org.dogtagpki.acme.ACMERevocation;
+import org.dogtagpki.tomcat.LocalCA;
+import org.mozilla.jss.CryptoManager;
+import org.mozilla.jss.netscape.security.pkcs.PKCS10;
+import org.mozilla.jss.netscape.security.util.Cert;
+import org.mozilla.jss.netscape.security.util.Utils;
+import org.mozilla.jss.netscape.security.x509.RevocationReason;
+import org.mozilla.jss.netscape.security.x509.X509CertImpl;
+
+import com.netscape.certsrv.dbs.certdb.CertId;
+
+/**
+ * This issuer issues certificates with a CA running in the same
+ * server as the ACME responder.
+ *
+ * The requests are submitted directly to the CA's profile enrollment
+ * without going through the REST API. The user is authenticated by
+ * the CA and the requests are authorized and audited by the CA the
+ * same way as the PKIIssuer.
+ */
+public class LocalIssuer extends ACMEIssuer {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(LocalIssuer.class);
+
+    private String caID;
+    private String nickname;
+    private String username;
+    private String password;
+    private String profile;
+
+    private Principal principal;
+
+    public String getProfile() {
+        return profile;
+    }
+
+    public void setProfile(String profile) {
+        this.profile = profile;
+    }
+
+    @Override
+    public void init() throws Exception {
+
+        logger.info("Initializing local issuer");
+
+        caID = config.getParameter("ca");
+        if (caID == null) {
+            caID = "ca";
+        }
+        logger.info("- CA: " + caID);
+
+        nickname = config.getParameter("nickname");
+        if (nickname != null) {
+            logger.info("- nickname: " + nickname);
+        }
+
+        username = config.getParameter("username");
+        if (username != null) {
+            logger.info("- username: " + username);
+        }
+
+        String passwordFilename = config.getParameter("passwordFile");
+        if (passwordFilename != null) {
+            // read password from file
+            File passwordFile = new File(passwordFilename);
+
+            logger.info("Loading password file " + passwordFilename);
+            Properties props = new Properties();
+            try (FileReader reader = new FileReader(passwordFile)) {
+                props.load(reader);
+            }
+            password = props.getProperty("acmeUserPassword");
+            if (password == null) {
+                throw new RuntimeException(
+                    "LocalIssuer: 'acmeUserPassword' property not present in file "
+                    + passwordFilename
+                );
+            }
+        } else {
+            password = config.getParameter("password");
+        }
+
+        profile = config.getParameter("profile");
+        logger.info("- profile: " + profile);
+
+        // The CA might not have been started yet (webapps are started
+        // in no particular order), so it will be located on first use.
+    }
+
+    public LocalCA getCA() throws Exception {
+
+        LocalCA ca = LocalCA.getInstance(caID);
+        if (ca == null) {
+            throw new Exception("CA " + caID + " is not running in this server");
+        }
+
+        return ca;
+    }
+
+    /**
+     * Returns the principal of the configured user. The user is
+     * authenticated on first use and the principal is reused until
+     * an operation fails.
+     */
+    public synchronized Principal getPrincipal(LocalCA ca) throws Exception {
+
+        if (principal != null) {
+            return principal;
+        }
+
+        if (nickname != null) {
+            logger.info("Authenticating " + nickname + " certificate with CA " + caID);
+
+            CryptoManager cm = CryptoManager.getInstance();
+            org.mozilla.jss.crypto.X509Certificate cert = cm.findCertByNickname(nickname);
+            X509Certificate[] certs = new X509Certificate[] { new X509CertImpl(cert.getEncoded()) };
+
+            principal = ca.authenticate(certs);
+
+        } else {
+            logger.info("Authenticating user " + username + " with CA " + caID);
+            principal = ca.authenticate(username, password);
+        }
+
+        return principal;
+    }
+
+    /**
+     * Discards the principal so the user will be authenticated again
+     * (e.g. in case the user's roles have changed).
+     */
+    public synchronized void resetPrincipal() {
+        principal = null;
+    }
+
+    @Override
+    public String issueCertificate(PKCS10 pkcs10) throws Exception {
+
+        logger.info("Issuing certificate");
+
+        LocalCA ca = getCA();
+        Principal principal = getPrincipal(ca);
+
+        BigInteger serialNumber;
+        try {
+            serialNumber = ca.enrollCertificate(principal, profile, pkcs10.toByteArray());
+
+        } catch (Exception e) {
+            resetPrincipal();
+            throw e;
+        }
+
+        logger.info("Serial number: " + new CertId(serialNumber).toHexString());
+        return Base64.encodeBase64URLSafeString(serialNumber.toByteArray());
+    }
+
+    @Override
+    public String getCertificateChain(String certID) throws Exception {
+
+        CertId id = new CertId(new BigInteger(1, Base64.decodeBase64(certID)));
+        logger.info("Serial number: " + id.toHexString());
+
+        // the certs are already sorted from leaf to root
+        X509Certificate[] certs = getCA().getCertificateChain(id.toBigInteger());
+
+        StringWriter sw = new StringWriter();
+
+        try (PrintWriter out = new PrintWriter(sw, true)) {
+            for (X509Certificate cert : certs) {
+                out.println(Cert.HEADER);
+                out.print(Utils.base64encode(cert.getEncoded(), true));
+                out.println(Cert.FOOTER);
+            }
+        }
+
+        return sw.toString();
+    }
+
+    @Override
+    public void revokeCertificate(ACMERevocation revocation) throws Exception {
+
+        String certBase64 = revocation.getCertificate();
+        byte[] certBytes = Utils.base64decode(certBase64);
+
+        Integer reason = revocation.getReason();
+        if (reason == null) {
+            reason = RevocationReason.UNSPECIFIED.getCode();
+        }
+
+        logger.info("Reason: " + reason);
+
+        X509CertImpl certImpl = new X509CertImpl(certBytes);
+        CertId certID = new CertId(certImpl.getSerialNumber());
+        logger.info("Serial number: " + certID.toHexString());
+
+        LocalCA ca = getCA();
+        Principal principal = getPrincipal(ca);
+
+        logger.info("Revoking certificate");
+
+        // the CA will verify that the certificate was issued by the CA
+        try {
+            ca.revokeCertificate(principal, certBytes, reason);
+
+        } catch (Exception e) {
+            resetPrincipal();
+            throw e;
+        }
+    }
+}
@@ -6,7 +6,10 @@
 package org.dogtagpki.acme.scheduler;
 
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+import org.dogtagpki.acme.database.ACMEDatabase;
 import org.dogtagpki.acme.server.ACMEEngine;
 
 /**
@@ -16,6 +19,8 @@ public class ACMEMaintenanceTask extends ACMETask {
 
     public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ACMEMaintenanceTask.class);
 
+    private volatile Map<String, Object> metrics;
+
     @Override
     public void run() throws Exception {
 
@@ -24,6 +29,37 @@ public class ACMEMaintenanceTask extends ACMETask {
         Date currentTime = new Date();
 
         ACMEEngine engine = ACMEEngine.getInstance();
-        engine.removeExpiredRecords(currentTime);
+        String status = "failed";
+
+        try {
+            engine.removeExpiredRecords(currentTime);
+            status = "complete";
+
+        } finally {
+            long duration = System.currentTimeMillis() - currentTime.getTime();
+            logger.info("ACME maintenance " + status + " in " + duration + " ms");
+
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("lastRun", currentTime);
+            metrics.put("duration", duration);
+            metrics.put("status", status);
+
+            ACMEDatabase database = engine.getDatabase();
+            Map<String, Object> sweepMetrics = database.getSweepMetrics();
+
+            if (sweepMetrics != null) {
+                for (Map.Entry<String, Object> entry : sweepMetrics.entrySet()) {
+                    logger.info("- " + entry.getKey() + ": " + entry.getValue());
+                }
+                metrics.put("records", sweepMetrics);
+            }
+
+            this.metrics = metrics;
+        }
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        return metrics;
     }
 }
@@ -5,6 +5,8 @@
 //
 package org.dogtagpki.acme.scheduler;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -20,6 +22,8 @@ public class ACMEScheduler {
 
     private ScheduledExecutorService executorService;
 
+    private Map<String, ACMETask> tasks = new LinkedHashMap<>();
+
     public ACMESchedulerConfig getConfig() {
         return config;
     }
@@ -52,6 +56,8 @@ public class ACMEScheduler {
             task.setConfig(taskConfig);
             task.init();
 
+            tasks.put(name, task);
+
             Runnable runnable = new Runnable() {
                 @Override
                 public void run() {
@@ -89,6 +95,23 @@ public class ACMEScheduler {
         }
     }
 
+    /**
+     * Returns the metrics of the tasks that provide them.
+     */
+    public Map<String, Object> getMetrics() {
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+
+        for (Map.Entry<String, ACMETask> entry : tasks.entrySet()) {
+            Map<String, Object> taskMetrics = entry.getValue().getMetrics();
+            if (taskMetrics != null) {
+                metrics.put(entry.getKey(), taskMetrics);
+            }
+        }
+
+        return metrics;
+    }
+
     public void shutdown() throws Exception {
         logger.info("Shutting down ACME scheduler");
         executorService.shutdown();
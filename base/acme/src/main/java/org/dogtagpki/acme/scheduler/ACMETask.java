@@ -5,6 +5,8 @@
 //
 package org.dogtagpki.acme.scheduler;
 
+import java.util.Map;
+
 /**
  * @author Endi S. Dewata
  */
@@ -25,4 +27,11 @@ public abstract class ACMETask {
 
     public void run() throws Exception {
     }
+
+    /**
+     * Returns the task metrics, or null if not available.
+     */
+    public Map<String, Object> getMetrics() {
+        return null;
+    }
 }
@@ -0,0 +1,192 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.acme.server;
+
+import java.security.PublicKey;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.dogtagpki.acme.ACMEAccount;
+
+/**
+ * This class keeps recently used ACME accounts in memory together
+ * with their decoded public keys so that requests signed with an
+ * existing account key can be verified without accessing the database
+ * or decoding the JWK again.
+ *
+ * Accounts are evicted when the cache is full (least recently used
+ * first) or when they are older than the timeout. The timeout limits
+ * how long an account updated by another ACME responder may be seen
+ * with its previous status or key.
+ *
+ * Callers receive a copy of the cached account so they can modify it
+ * without affecting the cache.
+ */
+public class ACMEAccountCache {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ACMEAccountCache.class);
+
+    public final static int DEFAULT_SIZE = 1000;
+    public final static int DEFAULT_TIMEOUT = 60; // seconds
+
+    class Entry {
+        ACMEAccount account;
+        PublicKey publicKey;
+        long expirationTime;
+    }
+
+    int size = DEFAULT_SIZE;
+    int timeout = DEFAULT_TIMEOUT;
+
+    Map<String, Entry> entries;
+
+    // incremented whenever an account is removed so that an account
+    // loaded before the removal will not be put into the cache
+    long generation;
+
+    AtomicLong hits = new AtomicLong();
+    AtomicLong misses = new AtomicLong();
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public int getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    public void init() {
+
+        logger.info("Initializing ACME account cache");
+        logger.info("- size: " + size);
+        logger.info("- timeout (seconds): " + timeout);
+
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > ACMEAccountCache.this.size;
+            }
+        };
+    }
+
+    synchronized Entry getEntry(String accountID) {
+
+        Entry entry = entries.get(accountID);
+        if (entry == null) return null;
+
+        if (entry.expirationTime <= System.currentTimeMillis()) {
+            entries.remove(accountID);
+            return null;
+        }
+
+        return entry;
+    }
+
+    /**
+     * Returns a copy of the cached account, or null if the account
+     * is not cached.
+     */
+    public ACMEAccount getAccount(String accountID) {
+
+        Entry entry = getEntry(accountID);
+
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+        return copy(entry.account);
+    }
+
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Puts an account loaded from the database into the cache.
+     *
+     * @param generation the cache generation before the account was loaded
+     */
+    public synchronized void putAccount(ACMEAccount account, long generation) {
+
+        if (generation != this.generation) return;
+
+        Entry entry = new Entry();
+        entry.account = copy(account);
+        entry.expirationTime = System.currentTimeMillis() + timeout * 1000L;
+
+        entries.put(account.getID(), entry);
+    }
+
+    /**
+     * Returns the decoded public key of the account, or null if the
+     * account is not cached or the key has not been decoded.
+     */
+    public PublicKey getPublicKey(ACMEAccount account) {
+
+        Entry entry = getEntry(account.getID());
+
+        // make sure the key belongs to the same version of the account
+        if (entry == null || entry.account.getJWK() != account.getJWK()) return null;
+
+        return entry.publicKey;
+    }
+
+    public synchronized void putPublicKey(ACMEAccount account, PublicKey publicKey) {
+
+        Entry entry = entries.get(account.getID());
+
+        // the account has been removed or replaced in the meantime
+        if (entry == null || entry.account.getJWK() != account.getJWK()) return;
+
+        entry.publicKey = publicKey;
+    }
+
+    public synchronized void removeAccount(String accountID) {
+        entries.remove(accountID);
+        generation++;
+    }
+
+    ACMEAccount copy(ACMEAccount account) {
+
+        ACMEAccount copy = new ACMEAccount();
+        copy.setID(account.getID());
+        copy.setStatus(account.getStatus());
+        copy.setContact(account.getContact() == null ? null : account.getContact().clone());
+        copy.setTermsOfServiceAgreed(account.getTermsOfServiceAgreed());
+        copy.setOnlyReturnExisting(account.getOnlyReturnExisting());
+        copy.setOrders(account.getOrders());
+        copy.setCreationTime(account.getCreationTime());
+
+        // the JWK is never modified so it can be shared
+        copy.setJWK(account.getJWK());
+
+        return copy;
+    }
+
+    /**
+     * Returns the cache metrics.
+     */
+    public synchronized Map<String, Object> getMetrics() {
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("size", entries.size());
+        metrics.put("hits", hits.get());
+        metrics.put("misses", misses.get());
+
+        return metrics;
+    }
+}
@@ -69,7 +69,7 @@ public class ACMEAccountService {
             }
         }
 
-        engine.validateJWS(jws, header.getAlg(), account.getJWK());
+        engine.validateJWS(jws, header.getAlg(), account);
 
         String payload = new String(jws.getPayloadAsBytes(), "UTF-8");
         logger.info("Payload: " + payload);
@@ -60,7 +60,7 @@ public class ACMEAuthorizationService {
         logger.info("Account ID: " + accountID);
 
         ACMEAccount account = engine.getAccount(accountID);
-        engine.validateJWS(jws, header.getAlg(), account.getJWK());
+        engine.validateJWS(jws, header.getAlg(), account);
 
         String payload = new String(jws.getPayloadAsBytes(), "UTF-8");
         logger.info("Payload: " + payload);
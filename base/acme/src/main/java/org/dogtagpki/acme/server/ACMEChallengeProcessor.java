@@ -6,8 +6,10 @@
 package org.dogtagpki.acme.server;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Map;
 
 import org.dogtagpki.acme.ACMEAccount;
 import org.dogtagpki.acme.ACMEAuthorization;
@@ -20,7 +22,7 @@ import org.dogtagpki.acme.validator.ACMEValidator;
 /**
  * @author Endi S. Dewata
  */
-public class ACMEChallengeProcessor implements Runnable {
+public class ACMEChallengeProcessor {
 
     public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ACMEChallengeProcessor.class);
 
@@ -41,38 +43,26 @@ public class ACMEChallengeProcessor implements Runnable {
         this.validator = validator;
     }
 
-    @Override
-    public void run() {
+    /**
+     * Runs a single validation attempt.
+     */
+    public ValidationResult validateChallenge() {
         try {
-            processChallenge();
+            return validator.validateChallenge(authorization, challenge);
+
         } catch (Exception e) {
-            logger.error("Unable to process challenge " + challenge.getID() + ": " + e.getMessage(), e);
+            ACMEError error = new ACMEError();
+            error.setType("urn:ietf:params:acme:error:serverInternal");
+            error.setDetail("Internal server error: " + e);
+            return ValidationResult.fail(error);
         }
     }
 
-    public void processChallenge() throws Exception {
-
-        String challengeID = challenge.getID();
-        logger.info("Processing challenge " + challengeID);
-
-        // TODO make retry parameters configurable
-        int maxAttempts = 5;
-        int delaySeconds = 5;
-        int attempts = 0;
-        ValidationResult r = null;
-
-        while (attempts++ < maxAttempts) {
-            try {
-                r = validator.validateChallenge(authorization, challenge);
-            } catch (Exception e) {
-                ACMEError error = new ACMEError();
-                error.setType("urn:ietf:params:acme:error:serverInternal");
-                error.setDetail("Internal server error: " + e);
-                r = ValidationResult.fail(error);
-            }
-            if (r.isOK()) break;
-            Thread.sleep(delaySeconds * 1000);
-        }
+    /**
+     * Updates the authorization and the pending orders with
+     * the result of the last validation attempt.
+     */
+    public void finalizeAuthorization(ValidationResult r) throws Exception {
 
         if (r.isOK()) {
             finalizeValidAuthorization();
@@ -128,10 +118,16 @@ public class ACMEChallengeProcessor implements Runnable {
         for (ACMEOrder order : orders) {
             boolean allAuthorizationsValid = true;
 
-            for (String orderAuthzID : order.getAuthzIDs()) {
+            String[] orderAuthzIDs = order.getAuthzIDs();
 
-                ACMEAuthorization authz = engine.getAuthorization(account, orderAuthzID);
-                if (authz.getStatus().equals("valid")) continue;
+            // get all authorizations of the order at once
+            Map<String, ACMEAuthorization> authzs =
+                engine.getAuthorizations(account, Arrays.asList(orderAuthzIDs));
+
+            for (String orderAuthzID : orderAuthzIDs) {
+
+                ACMEAuthorization authz = authzs.get(orderAuthzID);
+                if (authz != null && authz.getStatus().equals("valid")) continue;
 
                 allAuthorizationsValid = false;
                 break;
@@ -209,10 +205,16 @@ public class ACMEChallengeProcessor implements Runnable {
         for (ACMEOrder order : orders) {
             boolean allAuthorizationsValid = true;
 
-            for (String orderAuthzID : order.getAuthzIDs()) {
+            String[] orderAuthzIDs = order.getAuthzIDs();
+
+            // get all authorizations of the order at once
+            Map<String, ACMEAuthorization> authzs =
+                engine.getAuthorizations(account, Arrays.asList(orderAuthzIDs));
+
+            for (String orderAuthzID : orderAuthzIDs) {
 
-                ACMEAuthorization authz = engine.getAuthorization(account, orderAuthzID);
-                if (authz.getStatus().equals("valid")) continue;
+                ACMEAuthorization authz = authzs.get(orderAuthzID);
+                if (authz != null && authz.getStatus().equals("valid")) continue;
 
                 allAuthorizationsValid = false;
                 break;
@@ -11,6 +11,7 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -20,6 +21,7 @@ import javax.ws.rs.core.UriInfo;
 import org.dogtagpki.acme.ACMEAccount;
 import org.dogtagpki.acme.ACMEAuthorization;
 import org.dogtagpki.acme.ACMEChallenge;
+import org.dogtagpki.acme.ACMEError;
 import org.dogtagpki.acme.ACMEHeader;
 import org.dogtagpki.acme.ACMENonce;
 import org.dogtagpki.acme.JWS;
@@ -56,7 +58,7 @@ public class ACMEChallengeService {
         logger.info("Account ID: " + accountID);
 
         ACMEAccount account = engine.getAccount(accountID);
-        engine.validateJWS(jws, header.getAlg(), account.getJWK());
+        engine.validateJWS(jws, header.getAlg(), account);
 
         String payload = new String(jws.getPayloadAsBytes(), "UTF-8");
         logger.info("Payload: " + payload);
@@ -86,17 +88,38 @@ public class ACMEChallengeService {
             challenge.setStatus("processing");
             engine.updateAuthorization(account, authorization);
 
-            ACMEChallengeProcessor processor = new ACMEChallengeProcessor(
-                    account,
-                    authorization,
-                    challenge,
-                    validator);
+            ACMEValidationScheduler validationScheduler = engine.getValidationScheduler();
+            if (!validationScheduler.schedule(account, authorization, challenge, validator)) {
 
-            // TODO: use thread pool
-            new Thread(processor).start();
+                // let the client try again later
+                challenge.setStatus("pending");
+                engine.updateAuthorization(account, authorization);
+
+                throw createRateLimitedException(validationScheduler);
+            }
 
         } else if (challengeStatus.equals("processing")) {
-            // TODO: retry the challenge
+
+            // The challenge is normally still being validated, in which case
+            // it will not be validated again. If the validation was lost
+            // (e.g. server restart) schedule it again.
+
+            ACMEValidationScheduler validationScheduler = engine.getValidationScheduler();
+            if (!validationScheduler.isScheduled(challengeID)) {
+
+                String type = challenge.getType();
+                logger.info("Rescheduling " + type + " challenge " + challengeID);
+
+                ACMEValidator validator = engine.getValidator(type);
+                if (validator == null) {
+                    // TODO: generate proper exception
+                    throw new Exception("Unsupported challenge type: " + type);
+                }
+
+                if (!validationScheduler.schedule(account, authorization, challenge, validator)) {
+                    throw createRateLimitedException(validationScheduler);
+                }
+            }
 
             // RFC 8555 Section 8.2: Retrying Challenges
             //
@@ -134,4 +157,25 @@ public class ACMEChallengeService {
 
         return builder.build();
     }
+
+    WebApplicationException createRateLimitedException(ACMEValidationScheduler validationScheduler) {
+
+        // RFC 8555 Section 6.6: Rate Limits
+        //
+        // Once the rate limit is exceeded, the server MUST respond with an error
+        // with the type "urn:ietf:params:acme:error:rateLimited". Additionally,
+        // the server SHOULD send a Retry-After header field [RFC7231] indicating
+        // when the current request may succeed again.
+
+        ResponseBuilder builder = Response.status(429);
+        builder.type("application/problem+json");
+        builder.header("Retry-After", validationScheduler.getConfig().getRetryDelay());
+
+        ACMEError error = new ACMEError();
+        error.setType("urn:ietf:params:acme:error:rateLimited");
+        error.setDetail("Too many challenges are being validated, try again later");
+        builder.entity(error);
+
+        return new WebApplicationException(builder.build());
+    }
 }
@@ -17,6 +17,7 @@ import java.security.SecureRandom;
 import java.security.Signature;
 import java.security.cert.X509Certificate;
 import java.security.spec.RSAPublicKeySpec;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
@@ -100,11 +101,24 @@ public class ACMEEngine {
     private ACMESchedulerConfig schedulerConfig;
     private ACMEScheduler scheduler;
 
+    private ACMEValidationScheduler validationScheduler;
+
     private ACMERealmConfig realmConfig;
     private ACMERealm realm;
 
     private boolean noncesPersistent;
     private Map<String, ACMENonce> nonces = new ConcurrentHashMap<>();
+    private ACMEStatelessNonceManager statelessNonceManager;
+    private ACMEAccountCache accountCache;
+
+    // Signature objects are not thread-safe so each thread reuses its own
+    private ThreadLocal<Signature> rs256Verifiers = ThreadLocal.withInitial(() -> {
+        try {
+            return Signature.getInstance("SHA256withRSA", "Mozilla-JSS");
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    });
 
     public static ACMEEngine getInstance() {
         return INSTANCE;
@@ -165,6 +179,14 @@ public class ACMEEngine {
         validators.put(name, validator);
     }
 
+    public ACMEValidationScheduler getValidationScheduler() {
+        return validationScheduler;
+    }
+
+    public ACMEScheduler getScheduler() {
+        return scheduler;
+    }
+
     public ACMEIssuerConfig getIssuerConfig() {
         return issuerConfig;
     }
@@ -214,9 +236,11 @@ public class ACMEEngine {
         logger.info("- enabled: " + config.isEnabled());
         logger.info("- base URL: " + config.getBaseURL());
         logger.info("- nonces persistent: " + config.getNoncesPersistent());
+        logger.info("- nonces stateless: " + config.getNonceConfig().isStateless());
 
         ACMEPolicyConfig policyConfig = config.getPolicyConfig();
         logger.info("- wildcard: " + policyConfig.getEnableWildcards());
+        logger.info("- reuse authorizations: " + policyConfig.getReuseAuthorizations());
         logger.info("- nonce retention: " + policyConfig.getRetention().getNonces());
         logger.info("- authorization retention:");
         logger.info("  - pending: " + policyConfig.getRetention().getPendingAuthorizations());
@@ -230,6 +254,22 @@ public class ACMEEngine {
         logger.info("  - valid: " + policyConfig.getRetention().getValidOrders());
         logger.info("- certificate retention: " + policyConfig.getRetention().getCertificates());
 
+        if (policyConfig.getReuseAuthorizations()) {
+
+            // valid authorizations can only be reused if they outlive
+            // the ready orders that include them
+            Date currentTime = new Date();
+            Date authzExpirationTime = policyConfig.getRetention().getValidAuthorizations().getExpirationTime(currentTime);
+            Date orderExpirationTime = policyConfig.getRetention().getReadyOrders().getExpirationTime(currentTime);
+
+            if (authzExpirationTime != null && orderExpirationTime != null
+                    && !authzExpirationTime.after(orderExpirationTime)) {
+                logger.warn("Valid authorization retention (" + policyConfig.getRetention().getValidAuthorizations()
+                        + ") does not exceed ready order retention (" + policyConfig.getRetention().getReadyOrders()
+                        + "), authorizations will not be reused");
+            }
+        }
+
         policy = new ACMEPolicy(policyConfig);
     }
 
@@ -237,6 +277,54 @@ public class ACMEEngine {
         random = SecureRandom.getInstance("pkcs11prng", "Mozilla-JSS");
     }
 
+    public void initNonces() throws Exception {
+
+        ACMENonceConfig nonceConfig = config.getNonceConfig();
+        if (!nonceConfig.isStateless()) return;
+
+        if (noncesPersistent) {
+            logger.warn("Stateless nonces are enabled, ignoring nonces.persistent");
+            noncesPersistent = false;
+        }
+
+        statelessNonceManager = new ACMEStatelessNonceManager();
+        statelessNonceManager.setConfig(nonceConfig);
+        statelessNonceManager.setPolicy(policy);
+        statelessNonceManager.setRandom(random);
+        statelessNonceManager.init();
+    }
+
+    public ACMEStatelessNonceManager getStatelessNonceManager() {
+        return statelessNonceManager;
+    }
+
+    public void initAccountCache() throws Exception {
+
+        Integer size = config.getAccountCacheSize();
+        if (size != null && size <= 0) return;
+
+        accountCache = new ACMEAccountCache();
+
+        if (size != null) {
+            accountCache.setSize(size);
+        }
+
+        Integer timeout = config.getAccountCacheTimeout();
+        if (timeout != null) {
+            accountCache.setTimeout(timeout);
+        }
+
+        accountCache.init();
+    }
+
+    public ACMEAccountCache getAccountCache() {
+        return accountCache;
+    }
+
+    public void setAccountCache(ACMEAccountCache accountCache) {
+        this.accountCache = accountCache;
+    }
+
     public void initMetadata(String filename) throws Exception {
 
         File metadataConfigFile = new File(filename);
@@ -314,6 +402,13 @@ public class ACMEEngine {
         }
     }
 
+    public void initValidationScheduler() throws Exception {
+
+        validationScheduler = new ACMEValidationScheduler();
+        validationScheduler.setConfig(config.getValidationConfig());
+        validationScheduler.init();
+    }
+
     public void initIssuer(String filename) throws Exception {
 
         File issuerConfigFile = new File(filename);
@@ -492,9 +587,12 @@ public class ACMEEngine {
         this.noncesPersistent =  noncePersistent != null ? noncePersistent : false;
 
         initRandomGenerator();
+        initNonces();
+        initAccountCache();
         initMetadata(acmeConfDir + File.separator + "metadata.conf");
         initDatabase(acmeConfDir + File.separator + "database.conf");
         initValidators(acmeConfDir + File.separator + "validators.conf");
+        initValidationScheduler();
         initIssuer(acmeConfDir + File.separator + "issuer.conf");
         initScheduler(acmeConfDir + File.separator + "scheduler.conf");
         initMonitors(acmeConfDir + File.separator + "configsources.conf");
@@ -519,6 +617,13 @@ public class ACMEEngine {
         validators.clear();
     }
 
+    public void shutdownValidationScheduler() throws Exception {
+        if (validationScheduler == null) return;
+
+        validationScheduler.shutdown();
+        validationScheduler = null;
+    }
+
     public void shutdownIssuer() throws Exception {
         if (issuer == null) return;
 
@@ -555,6 +660,7 @@ public class ACMEEngine {
         shutdownMonitors();
         shutdownScheduler();
         shutdownIssuer();
+        shutdownValidationScheduler();
         shutdownValidators();
         shutdownDatabase();
 
@@ -569,6 +675,12 @@ public class ACMEEngine {
 
     public ACMENonce createNonce() throws Exception {
 
+        if (statelessNonceManager != null) {
+            ACMENonce nonce = statelessNonceManager.createNonce();
+            logger.info("Created nonce: " + nonce);
+            return nonce;
+        }
+
         Date currentTime = new Date();
         ACMENonce nonce = new ACMENonce();
 
@@ -599,6 +711,12 @@ public class ACMEEngine {
 
     public void validateNonce(String value) throws Exception {
 
+        if (statelessNonceManager != null) {
+            statelessNonceManager.validateNonce(value);
+            logger.info("Valid nonce: " + value);
+            return;
+        }
+
         ACMENonce nonce;
 
         if (noncesPersistent) {
@@ -636,40 +754,69 @@ public class ACMEEngine {
         database.removeExpiredCertificates(currentTime);
     }
 
-    public void validateJWS(JWS jws, String alg, JWK jwk) throws Exception {
+    public Signature createVerifier(String alg) throws Exception {
 
         // TODO: support other algorithms
 
-        Signature signer;
-        PublicKey publicKey;
-
         if ("RS256".equals(alg)) {
 
-            signer = Signature.getInstance("SHA256withRSA", "Mozilla-JSS");
+            if (accountCache != null) {
+                return rs256Verifiers.get();
+            }
 
-            String kty = jwk.getKty();
-            KeyFactory keyFactory = KeyFactory.getInstance(kty, "Mozilla-JSS");
+            return Signature.getInstance("SHA256withRSA", "Mozilla-JSS");
+        }
 
-            String n = jwk.getN();
-            BigInteger modulus = new BigInteger(1, Base64.decodeBase64(n));
+        ResponseBuilder builder = Response.status(Response.Status.BAD_REQUEST);
+        builder.type("application/problem+json");
 
-            String e = jwk.getE();
-            BigInteger publicExponent = new BigInteger(1, Base64.decodeBase64(e));
+        ACMEError error = new ACMEError();
+        error.setType("urn:ietf:params:acme:error:badSignatureAlgorithm");
+        error.setDetail("Signature of type " + alg + " not supported\n" +
+                "Try again with RS256.");
+        builder.entity(error);
 
-            RSAPublicKeySpec keySpec = new RSAPublicKeySpec(modulus, publicExponent);
-            publicKey = keyFactory.generatePublic(keySpec);
+        throw new WebApplicationException(builder.build());
+    }
 
-        } else {
-            ResponseBuilder builder = Response.status(Response.Status.BAD_REQUEST);
-            builder.type("application/problem+json");
+    public PublicKey createPublicKey(JWK jwk) throws Exception {
 
-            ACMEError error = new ACMEError();
-            error.setType("urn:ietf:params:acme:error:badSignatureAlgorithm");
-            error.setDetail("Signature of type " + alg + " not supported\n" +
-                    "Try again with RS256.");
-            builder.entity(error);
+        String kty = jwk.getKty();
+        KeyFactory keyFactory = KeyFactory.getInstance(kty, "Mozilla-JSS");
 
-            throw new WebApplicationException(builder.build());
+        String n = jwk.getN();
+        BigInteger modulus = new BigInteger(1, Base64.decodeBase64(n));
+
+        String e = jwk.getE();
+        BigInteger publicExponent = new BigInteger(1, Base64.decodeBase64(e));
+
+        RSAPublicKeySpec keySpec = new RSAPublicKeySpec(modulus, publicExponent);
+        return keyFactory.generatePublic(keySpec);
+    }
+
+    public void validateJWS(JWS jws, String alg, JWK jwk) throws Exception {
+
+        Signature signer = createVerifier(alg);
+        PublicKey publicKey = createPublicKey(jwk);
+
+        validateJWS(jws, signer, publicKey);
+    }
+
+    /**
+     * Validates a JWS signed with an existing account key. The decoded
+     * key is kept in the account cache for subsequent requests.
+     */
+    public void validateJWS(JWS jws, String alg, ACMEAccount account) throws Exception {
+
+        Signature signer = createVerifier(alg);
+        PublicKey publicKey = accountCache == null ? null : accountCache.getPublicKey(account);
+
+        if (publicKey == null) {
+            publicKey = createPublicKey(account.getJWK());
+
+            if (accountCache != null) {
+                accountCache.putPublicKey(account, publicKey);
+            }
         }
 
         validateJWS(jws, signer, publicKey);
@@ -714,7 +861,21 @@ public class ACMEEngine {
 
     public ACMEAccount getAccount(String accountID, boolean validate) throws Exception {
 
-        ACMEAccount account = database.getAccount(accountID);
+        ACMEAccount account = null;
+
+        if (accountCache != null) {
+            account = accountCache.getAccount(accountID);
+        }
+
+        if (account == null) {
+
+            long generation = accountCache == null ? 0 : accountCache.getGeneration();
+            account = database.getAccount(accountID);
+
+            if (account != null && accountCache != null) {
+                accountCache.putAccount(account, generation);
+            }
+        }
 
         if (validate) {
 
@@ -763,7 +924,15 @@ public class ACMEEngine {
     }
 
     public void updateAccount(ACMEAccount account) throws Exception {
-        database.updateAccount(account);
+        try {
+            database.updateAccount(account);
+
+        } finally {
+            // the account status or key may have changed
+            if (accountCache != null) {
+                accountCache.removeAccount(account.getID());
+            }
+        }
     }
 
     public void addAuthorization(ACMEAccount account, ACMEAuthorization authorization) throws Exception {
@@ -771,6 +940,13 @@ public class ACMEEngine {
         database.addAuthorization(authorization);
     }
 
+    public void addAuthorizations(ACMEAccount account, Collection<ACMEAuthorization> authorizations) throws Exception {
+        for (ACMEAuthorization authorization : authorizations) {
+            authorization.setAccountID(account.getID());
+        }
+        database.addAuthorizations(authorizations);
+    }
+
     public void validateAuthorization(ACMEAccount account, ACMEAuthorization authorization) throws Exception {
 
         String authzID = authorization.getID();
@@ -797,6 +973,36 @@ public class ACMEEngine {
         return authorization;
     }
 
+    /**
+     * Returns the authorizations with the provided IDs mapped by ID.
+     * Authorizations that no longer exist are not included.
+     */
+    public Map<String, ACMEAuthorization> getAuthorizations(ACMEAccount account, Collection<String> authzIDs) throws Exception {
+        Map<String, ACMEAuthorization> authorizations = database.getAuthorizations(authzIDs);
+        for (ACMEAuthorization authorization : authorizations.values()) {
+            validateAuthorization(account, authorization);
+        }
+        return authorizations;
+    }
+
+    /**
+     * Returns a valid authorization of the account for the identifier
+     * which will remain valid until the provided time, or null if the
+     * authorization reuse is disabled or there is no such authorization.
+     */
+    public ACMEAuthorization getValidAuthorization(
+            ACMEAccount account,
+            ACMEIdentifier identifier,
+            boolean wildcard,
+            Date time) throws Exception {
+
+        if (!policy.getReuseAuthorizations()) {
+            return null;
+        }
+
+        return database.getValidAuthorization(account.getID(), identifier, wildcard, time);
+    }
+
     public ACMEAuthorization getAuthorizationByChallenge(ACMEAccount account, String challengeID) throws Exception {
         ACMEAuthorization authorization = database.getAuthorizationByChallenge(challengeID);
         validateAuthorization(account, authorization);
@@ -877,8 +1083,9 @@ public class ACMEEngine {
         logger.info("Getting authorized identifiers");
         Set<String> authorizedDNSNames = new HashSet<>();
 
-        for (String authzID : order.getAuthzIDs()) {
-            ACMEAuthorization authz = database.getAuthorization(authzID);
+        Map<String, ACMEAuthorization> authzs = database.getAuthorizations(Arrays.asList(order.getAuthzIDs()));
+
+        for (ACMEAuthorization authz : authzs.values()) {
 
             // authz is guaranteed to be valid at this point
 
@@ -25,10 +25,18 @@ public class ACMEEngineConfig implements JSONSerializer {
     private Boolean enabled = true;
     private URL baseURL;
     private Boolean noncesPersistent;
+    private Integer accountCacheSize;
+    private Integer accountCacheTimeout;
+
+    @JsonProperty("nonces")
+    private ACMENonceConfig nonceConfig = new ACMENonceConfig();
 
     @JsonProperty("policy")
     private ACMEPolicyConfig policyConfig = new ACMEPolicyConfig();
 
+    @JsonProperty("validation")
+    private ACMEValidationConfig validationConfig = new ACMEValidationConfig();
+
     public Boolean isEnabled() {
         return enabled;
     }
@@ -53,6 +61,30 @@ public class ACMEEngineConfig implements JSONSerializer {
         this.noncesPersistent = noncesPersistent;
     }
 
+    public Integer getAccountCacheSize() {
+        return accountCacheSize;
+    }
+
+    public void setAccountCacheSize(Integer accountCacheSize) {
+        this.accountCacheSize = accountCacheSize;
+    }
+
+    public Integer getAccountCacheTimeout() {
+        return accountCacheTimeout;
+    }
+
+    public void setAccountCacheTimeout(Integer accountCacheTimeout) {
+        this.accountCacheTimeout = accountCacheTimeout;
+    }
+
+    public ACMENonceConfig getNonceConfig() {
+        return nonceConfig;
+    }
+
+    public void setNonceConfig(ACMENonceConfig nonceConfig) {
+        this.nonceConfig = nonceConfig;
+    }
+
     public ACMEPolicyConfig getPolicyConfig() {
         return policyConfig;
     }
@@ -61,6 +93,14 @@ public class ACMEEngineConfig implements JSONSerializer {
         this.policyConfig = wildcard;
     }
 
+    public ACMEValidationConfig getValidationConfig() {
+        return validationConfig;
+    }
+
+    public void setValidationConfig(ACMEValidationConfig validationConfig) {
+        this.validationConfig = validationConfig;
+    }
+
     public static ACMEEngineConfig fromProperties(Properties props) throws Exception {
 
         ACMEEngineConfig config = new ACMEEngineConfig();
@@ -79,12 +119,32 @@ public class ACMEEngineConfig implements JSONSerializer {
             } else if (key.equals("nonces.persistent")) {
                 config.setNoncePersistent(Boolean.valueOf(value));
 
+            } else if (key.equals("accounts.cache.size")) {
+                config.setAccountCacheSize(Integer.valueOf(value));
+
+            } else if (key.equals("accounts.cache.timeout")) {
+                config.setAccountCacheTimeout(Integer.valueOf(value));
+
+            } else if (key.startsWith("nonces.")) {
+
+                String nonceKey = key.substring(7);
+
+                ACMENonceConfig nonceConfig = config.getNonceConfig();
+                nonceConfig.setProperty(nonceKey, value);
+
             } else if (key.startsWith("policy.")) {
 
                 String policyKey = key.substring(7);
 
                 ACMEPolicyConfig policyConfig = config.getPolicyConfig();
                 policyConfig.setProperty(policyKey, value);
+
+            } else if (key.startsWith("validation.")) {
+
+                String validationKey = key.substring(11);
+
+                ACMEValidationConfig validationConfig = config.getValidationConfig();
+                validationConfig.setProperty(validationKey, value);
             }
         }
 
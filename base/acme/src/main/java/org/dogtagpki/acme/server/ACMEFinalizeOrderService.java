@@ -58,7 +58,7 @@ public class ACMEFinalizeOrderService {
         logger.info("Account ID: " + accountID);
 
         ACMEAccount account = engine.getAccount(accountID);
-        engine.validateJWS(jws, header.getAlg(), account.getJWK());
+        engine.validateJWS(jws, header.getAlg(), account);
 
         String payload = new String(jws.getPayloadAsBytes(), "UTF-8");
         logger.info("Payload: " + payload);
@@ -88,7 +88,19 @@ public class ACMEFinalizeOrderService {
         engine.validateCSR(account, order, pkcs10);
 
         ACMEIssuer issuer = engine.getIssuer();
-        String certID = issuer.issueCertificate(pkcs10);
+        String certID;
+
+        long start = System.nanoTime();
+        boolean success = false;
+
+        try {
+            certID = issuer.issueCertificate(pkcs10);
+            success = true;
+
+        } finally {
+            issuer.updateMetrics(System.nanoTime() - start, success);
+        }
+
         logger.info("Certificate issued: " + certID);
 
         order.setCertID(certID);
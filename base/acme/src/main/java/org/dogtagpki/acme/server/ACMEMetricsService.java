@@ -0,0 +1,70 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.acme.server;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+
+import org.dogtagpki.acme.issuer.ACMEIssuer;
+import org.dogtagpki.acme.scheduler.ACMEScheduler;
+
+/**
+ * This service returns the internal metrics of the ACME responder
+ * to the administrators.
+ */
+@Path("metrics")
+public class ACMEMetricsService {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ACMEMetricsService.class);
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response handleGET() throws Exception {
+
+        logger.info("Getting ACME metrics");
+
+        ACMEEngine engine = ACMEEngine.getInstance();
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+
+        ACMEValidationScheduler validationScheduler = engine.getValidationScheduler();
+        if (validationScheduler != null) {
+            metrics.put("validation", validationScheduler.getMetrics());
+        }
+
+        ACMEScheduler scheduler = engine.getScheduler();
+        if (scheduler != null) {
+            metrics.put("scheduler", scheduler.getMetrics());
+        }
+
+        ACMEAccountCache accountCache = engine.getAccountCache();
+        if (accountCache != null) {
+            metrics.put("accounts", accountCache.getMetrics());
+        }
+
+        ACMEStatelessNonceManager statelessNonceManager = engine.getStatelessNonceManager();
+        if (statelessNonceManager != null) {
+            metrics.put("nonces", statelessNonceManager.getMetrics());
+        }
+
+        ACMEIssuer issuer = engine.getIssuer();
+        if (issuer != null) {
+            metrics.put("issuer", issuer.getMetrics());
+        }
+
+        ResponseBuilder builder = Response.ok();
+        builder.entity(metrics);
+
+        return builder.build();
+    }
+}
@@ -59,13 +59,19 @@ public class ACMENewOrderService extends ACMEService {
         logger.info("Account ID: " + accountID);
 
         ACMEAccount account = engine.getAccount(accountID);
-        engine.validateJWS(jws, header.getAlg(), account.getJWK());
+        engine.validateJWS(jws, header.getAlg(), account);
 
         String payload = new String(jws.getPayloadAsBytes(), "UTF-8");
         logger.info("Payload: " + payload);
 
         ACMEOrder request = ACMEOrder.fromJSON(payload);
         ArrayList<String> authzIDs = new ArrayList<>();
+        ArrayList<ACMEAuthorization> authorizations = new ArrayList<>();
+
+        // reused authorizations have to remain valid until the order
+        // expires if the order is created in the ready state
+        Date readyOrderExpirationTime = engine.getPolicy().getReadyOrderExpirationTime(currentTime);
+        Date reusedExpirationTime = null;
 
         logger.info("Generating authorization for each identifiers");
         for (ACMEIdentifier identifier : request.getIdentifiers()) {
@@ -105,10 +111,25 @@ public class ACMENewOrderService extends ACMEService {
             identifier.setType(type);
             identifier.setValue(value);
 
+            ACMEAuthorization authorization = engine.getValidAuthorization(
+                    account, identifier, wildcard, readyOrderExpirationTime);
+
+            if (authorization != null) {
+                logger.info("- reusing authorization ID: " + authorization.getID());
+                authzIDs.add(authorization.getID());
+
+                Date expirationTime = authorization.getExpirationTime();
+                if (reusedExpirationTime == null || expirationTime.before(reusedExpirationTime)) {
+                    reusedExpirationTime = expirationTime;
+                }
+
+                continue;
+            }
+
             String authzID = engine.randomAlphanumeric(10);
             logger.info("- authorization ID: " + authzID);
 
-            ACMEAuthorization authorization = new ACMEAuthorization();
+            authorization = new ACMEAuthorization();
             authorization.setID(authzID);
             authorization.setCreationTime(currentTime);
             authorization.setIdentifier(identifier);
@@ -119,11 +140,15 @@ public class ACMENewOrderService extends ACMEService {
             Date expirationTime = engine.getPolicy().getPendingAuthorizationExpirationTime(currentTime);
             authorization.setExpirationTime(expirationTime);
 
-            engine.addAuthorization(account, authorization);
-
+            authorizations.add(authorization);
             authzIDs.add(authzID);
         }
 
+        // store all new authorizations at once
+        if (!authorizations.isEmpty()) {
+            engine.addAuthorizations(account, authorizations);
+        }
+
         String orderID = engine.randomAlphanumeric(10);
         logger.info("Order ID: " + orderID);
 
@@ -143,10 +168,28 @@ public class ACMENewOrderService extends ACMEService {
         //    in [RFC3339].  This field is REQUIRED for objects with "pending"
         //    or "valid" in the status field.
 
-        order.setStatus("pending");
+        if (authorizations.isEmpty() && !authzIDs.isEmpty()) {
+
+            // RFC 8555 Section 7.1.6: Status Changes
+            //
+            // Once all of the authorizations listed in the order object are in
+            // the "valid" state, the order transitions to the "ready" state.
+
+            logger.info("All authorizations are valid");
+            order.setStatus("ready");
+            order.setExpirationTime(readyOrderExpirationTime);
 
-        Date expirationTime = engine.getPolicy().getPendingOrderExpirationTime(currentTime);
-        order.setExpirationTime(expirationTime);
+        } else {
+            order.setStatus("pending");
+
+            // a pending order cannot outlive its reused authorizations
+            Date expirationTime = engine.getPolicy().getPendingOrderExpirationTime(currentTime);
+            if (reusedExpirationTime != null && reusedExpirationTime.before(expirationTime)) {
+                expirationTime = reusedExpirationTime;
+            }
+
+            order.setExpirationTime(expirationTime);
+        }
 
         engine.addOrder(account, order);
 
@@ -0,0 +1,64 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.acme.server;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.netscape.certsrv.util.JSONSerializer;
+
+/**
+ * This class contains the parameters of the stateless nonces.
+ */
+@JsonInclude(Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown=true)
+public class ACMENonceConfig implements JSONSerializer {
+
+    public final static int DEFAULT_WINDOW_SIZE = 1 << 20; // nonces
+
+    private Boolean stateless = false;
+    private Integer windowSize = DEFAULT_WINDOW_SIZE;
+
+    public Boolean isStateless() {
+        return stateless;
+    }
+
+    public void setStateless(Boolean stateless) {
+        this.stateless = stateless;
+    }
+
+    /**
+     * Number of the most recently created nonces that can be accepted.
+     * It should be bigger than the number of nonces created within the
+     * nonce lifetime.
+     */
+    public Integer getWindowSize() {
+        return windowSize;
+    }
+
+    public void setWindowSize(Integer windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    public void setProperty(String key, String value) throws Exception {
+
+        if (key.equals("stateless")) {
+            stateless = Boolean.valueOf(value);
+
+        } else if (key.equals("windowSize")) {
+            windowSize = Integer.valueOf(value);
+        }
+    }
+
+    @Override
+    public String toString() {
+        try {
+            return toJSON();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
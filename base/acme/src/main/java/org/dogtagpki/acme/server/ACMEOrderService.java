@@ -55,7 +55,7 @@ public class ACMEOrderService {
         logger.info("Account ID: " + accountID);
 
         ACMEAccount account = engine.getAccount(accountID);
-        engine.validateJWS(jws, header.getAlg(), account.getJWK());
+        engine.validateJWS(jws, header.getAlg(), account);
 
         ACMEOrder order = engine.getOrder(account, orderID);
 
@@ -90,6 +90,14 @@ public class ACMEPolicy {
         return;
     }
 
+    /**
+     * Whether a valid authorization of the same account for the same
+     * identifier can be included in a new order.
+     */
+    public boolean getReuseAuthorizations() {
+        return config.getReuseAuthorizations();
+    }
+
     public Date getNonceExpirationTime(Date currentTime) {
         return config.getRetention().getNonces().getExpirationTime(currentTime);
     }
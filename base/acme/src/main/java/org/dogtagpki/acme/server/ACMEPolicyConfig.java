@@ -26,6 +26,9 @@ public class ACMEPolicyConfig implements JSONSerializer {
     @JsonProperty("wildcard")
     private Boolean enableWildcardIssuance = true;
 
+    @JsonProperty("reuseAuthorizations")
+    private Boolean reuseAuthorizations = false;
+
     @JsonProperty("retention")
     private ACMERetentionConfig retention = new ACMERetentionConfig();
 
@@ -40,6 +43,15 @@ public class ACMEPolicyConfig implements JSONSerializer {
         enableWildcardIssuance = on;
     }
 
+    @JsonIgnore
+    public boolean getReuseAuthorizations() {
+        return reuseAuthorizations;
+    }
+
+    public void setReuseAuthorizations(boolean reuseAuthorizations) {
+        this.reuseAuthorizations = reuseAuthorizations;
+    }
+
     public ACMERetentionConfig getRetention() {
         return retention;
     }
@@ -55,6 +67,11 @@ public class ACMEPolicyConfig implements JSONSerializer {
             return;
         }
 
+        if (key.equals("reuseAuthorizations")) {
+            reuseAuthorizations = Boolean.valueOf(value);
+            return;
+        }
+
         if (key.startsWith("retention.")) {
             String retentionKey = key.substring(10);
             retention.setProperty(retentionKey, value);
@@ -78,7 +78,7 @@ public class ACMERevokeCertificateService {
 
             // validate that the revocation request was signed with the account key
             ACMEAccount account = engine.getAccount(accountID);
-            engine.validateJWS(jws, header.getAlg(), account.getJWK());
+            engine.validateJWS(jws, header.getAlg(), account);
 
             // validate that the account is authorized to revoke the cert
             engine.validateRevocation(account, revocation);
@@ -0,0 +1,300 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.acme.server;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+
+import org.apache.commons.codec.binary.Base64;
+import org.dogtagpki.acme.ACMEError;
+import org.dogtagpki.acme.ACMENonce;
+
+/**
+ * This class generates and validates nonces without storing them.
+ *
+ * Each nonce is a self-validating token that contains the creation
+ * time and a counter, authenticated with HMAC-SHA256 using a random
+ * key generated when the ACME responder is started.
+ *
+ * Used nonces are recorded in a replay window, which is a bitmap
+ * indexed by the nonce counter that covers the most recently created
+ * nonces. A nonce is accepted once if it is in the window and has not
+ * expired. Older nonces are rejected with a badNonce error that
+ * contains a new nonce, in which case the client will retry the
+ * request as described in RFC 8555 section 6.5.
+ *
+ * The key and the replay window are local to each ACME responder,
+ * so a nonce is only accepted by the ACME responder that created it,
+ * and the nonces created before the ACME responder was restarted are
+ * rejected. Deployments with multiple ACME responders need to route
+ * each client to the same responder (i.e. sticky sessions).
+ */
+public class ACMEStatelessNonceManager {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ACMEStatelessNonceManager.class);
+
+    public final static byte VERSION = 2;
+    public final static int KEY_LENGTH = 32; // bytes
+    public final static int MAC_LENGTH = 16; // bytes
+
+    // version + creation time + counter
+    public final static int DATA_LENGTH = 1 + 8 + 8;
+    public final static int NONCE_LENGTH = DATA_LENGTH + MAC_LENGTH;
+
+    enum Result { ACCEPTED, REPLAYED, OUTDATED }
+
+    class ReplayWindow {
+
+        long[] bits;
+        long size;
+
+        // counter of the latest nonce in the window
+        long top;
+
+        ReplayWindow(int size) {
+            bits = new long[(size + 63) / 64];
+            this.size = bits.length * 64L;
+        }
+
+        /**
+         * Moves the window up to the latest created nonce and
+         * clears the bits of the nonces that are no longer in the window.
+         */
+        void advance(long latest) {
+
+            if (latest <= top) return;
+
+            if (latest - top >= size) {
+                Arrays.fill(bits, 0);
+
+            } else {
+                for (long c = top + 1; c <= latest; c++) {
+                    int position = (int) (c % size);
+                    bits[position >>> 6] &= ~(1L << (position & 63));
+                }
+            }
+
+            top = latest;
+        }
+
+        /**
+         * Records the nonce counter in the window.
+         */
+        synchronized Result add(long value, long latest) {
+
+            advance(latest);
+
+            if (value <= top - size) return Result.OUTDATED;
+
+            int position = (int) (value % size);
+            long bit = 1L << (position & 63);
+
+            if ((bits[position >>> 6] & bit) != 0) return Result.REPLAYED;
+
+            bits[position >>> 6] |= bit;
+            return Result.ACCEPTED;
+        }
+    }
+
+    ACMENonceConfig config;
+    ACMEPolicy policy;
+    Random random;
+
+    SecretKeySpec key;
+    ThreadLocal<Mac> macs;
+
+    long lifetime;
+    AtomicLong counter = new AtomicLong();
+
+    ReplayWindow window;
+
+    AtomicLong created = new AtomicLong();
+    AtomicLong accepted = new AtomicLong();
+    AtomicLong rejected = new AtomicLong();
+
+    public ACMENonceConfig getConfig() {
+        return config;
+    }
+
+    public void setConfig(ACMENonceConfig config) {
+        this.config = config;
+    }
+
+    public ACMEPolicy getPolicy() {
+        return policy;
+    }
+
+    public void setPolicy(ACMEPolicy policy) {
+        this.policy = policy;
+    }
+
+    public Random getRandom() {
+        return random;
+    }
+
+    public void setRandom(Random random) {
+        this.random = random;
+    }
+
+    public void init() throws Exception {
+
+        logger.info("Initializing stateless nonces");
+        logger.info("- window size: " + config.getWindowSize());
+
+        byte[] keyBytes = new byte[KEY_LENGTH];
+        random.nextBytes(keyBytes);
+
+        key = new SecretKeySpec(keyBytes, "HmacSHA256");
+
+        // make sure the MAC is available before accepting requests
+        Mac.getInstance("HmacSHA256").init(key);
+
+        macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(key);
+                return mac;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        long startTime = System.currentTimeMillis();
+        Date currentTime = new Date(startTime);
+        lifetime = policy.getNonceExpirationTime(currentTime).getTime() - startTime;
+        logger.info("- lifetime (milliseconds): " + lifetime);
+
+        window = new ReplayWindow(config.getWindowSize());
+    }
+
+    byte[] sign(byte[] data) {
+        Mac mac = macs.get();
+        byte[] result = mac.doFinal(data);
+        return Arrays.copyOf(result, MAC_LENGTH);
+    }
+
+    public ACMENonce createNonce() {
+
+        long currentTime = System.currentTimeMillis();
+
+        ByteBuffer buffer = ByteBuffer.allocate(NONCE_LENGTH);
+        buffer.put(VERSION);
+        buffer.putLong(currentTime);
+        buffer.putLong(counter.incrementAndGet());
+
+        byte[] bytes = buffer.array();
+        buffer.put(sign(Arrays.copyOf(bytes, DATA_LENGTH)));
+
+        ACMENonce nonce = new ACMENonce();
+        nonce.setID(Base64.encodeBase64URLSafeString(bytes));
+
+        Date creationTime = new Date(currentTime);
+        nonce.setCreationTime(creationTime);
+        nonce.setExpirationTime(policy.getNonceExpirationTime(creationTime));
+
+        created.incrementAndGet();
+        return nonce;
+    }
+
+    public void validateNonce(String value) throws Exception {
+
+        try {
+            validate(value);
+            accepted.incrementAndGet();
+
+        } catch (Exception e) {
+            rejected.incrementAndGet();
+            throw e;
+        }
+    }
+
+    void validate(String value) throws Exception {
+
+        byte[] bytes = Base64.decodeBase64(value);
+
+        if (bytes.length != NONCE_LENGTH || bytes[0] != VERSION) {
+            throw createBadNonceException("Invalid nonce: " + value);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+        byte[] data = new byte[DATA_LENGTH];
+        buffer.get(data);
+
+        byte[] mac = new byte[MAC_LENGTH];
+        buffer.get(mac);
+
+        // the MAC can only be verified with the key of the ACME responder
+        // that created the nonce since the ACME responder was started
+        if (!MessageDigest.isEqual(mac, sign(data))) {
+            throw createBadNonceException("Invalid nonce: " + value);
+        }
+
+        ByteBuffer dataBuffer = ByteBuffer.wrap(data, 1, 16);
+        long creationTime = dataBuffer.getLong();
+        long nonceCounter = dataBuffer.getLong();
+        long currentTime = System.currentTimeMillis();
+
+        if (creationTime + lifetime <= currentTime) {
+            throw createBadNonceException("Expired nonce: " + value);
+        }
+
+        Result result = window.add(nonceCounter, counter.get());
+
+        if (result == Result.OUTDATED) {
+            throw createBadNonceException("Outdated nonce: " + value);
+        }
+
+        if (result == Result.REPLAYED) {
+            throw createBadNonceException("Used nonce: " + value);
+        }
+    }
+
+    /**
+     * Creates a badNonce error with a new nonce for the client to retry
+     * the request as described in RFC 8555 section 6.5.
+     */
+    public WebApplicationException createBadNonceException(String detail) {
+
+        logger.info(detail);
+
+        ResponseBuilder builder = Response.status(Response.Status.BAD_REQUEST);
+        builder.type("application/problem+json");
+        builder.header("Replay-Nonce", createNonce().getID());
+
+        ACMEError error = new ACMEError();
+        error.setType("urn:ietf:params:acme:error:badNonce");
+        error.setDetail(detail);
+        builder.entity(error);
+
+        return new WebApplicationException(builder.build());
+    }
+
+    /**
+     * Returns the nonce metrics.
+     */
+    public Map<String, Object> getMetrics() {
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("created", created.get());
+        metrics.put("accepted", accepted.get());
+        metrics.put("rejected", rejected.get());
+
+        return metrics;
+    }
+}
@@ -0,0 +1,258 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.acme.server;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.dogtagpki.acme.ACMEAccount;
+import org.dogtagpki.acme.ACMEAuthorization;
+import org.dogtagpki.acme.ACMEChallenge;
+import org.dogtagpki.acme.ValidationResult;
+import org.dogtagpki.acme.validator.ACMEValidator;
+import org.dogtagpki.acme.validator.ACMEValidatorConfig;
+
+/**
+ * This class validates ACME challenges with a bounded pool of threads.
+ *
+ * Each validation attempt runs as a separate task. If an attempt fails
+ * the next attempt is scheduled after the retry delay instead of
+ * keeping a thread waiting. A challenge is only validated once at a
+ * time regardless of how many times the client requests it.
+ *
+ * The number of concurrent validations for each validator can be
+ * limited with the maxConcurrent parameter in validators.conf,
+ * for example:
+ *
+ * <pre>
+ * http-01.maxConcurrent=10
+ * </pre>
+ */
+public class ACMEValidationScheduler {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ACMEValidationScheduler.class);
+
+    // delay before retrying an attempt that could not run due to
+    // the validator concurrency limit
+    public final static long BUSY_RETRY_DELAY = 100; // milliseconds
+
+    class ValidationTask implements Runnable {
+
+        String challengeID;
+        ACMEChallengeProcessor processor;
+        Semaphore permits;
+        long submitTime;
+        int attempts;
+
+        ValidationTask(ACMEChallengeProcessor processor, Semaphore permits) {
+            this.challengeID = processor.challenge.getID();
+            this.processor = processor;
+            this.permits = permits;
+            this.submitTime = System.currentTimeMillis();
+        }
+
+        @Override
+        public void run() {
+
+            if (permits != null && !permits.tryAcquire()) {
+                // validator is busy, try again later without counting the attempt
+                executor.schedule(this, BUSY_RETRY_DELAY, TimeUnit.MILLISECONDS);
+                return;
+            }
+
+            ValidationResult result;
+
+            running.incrementAndGet();
+            try {
+                attempts++;
+                logger.info("Validating challenge " + challengeID + " (attempt " + attempts + ")");
+                result = processor.validateChallenge();
+
+            } finally {
+                running.decrementAndGet();
+                if (permits != null) {
+                    permits.release();
+                }
+            }
+
+            if (!result.isOK() && attempts < config.getMaxAttempts()) {
+                logger.info("Retrying challenge " + challengeID + " in " + config.getRetryDelay() + " s");
+                executor.schedule(this, config.getRetryDelay(), TimeUnit.SECONDS);
+                return;
+            }
+
+            try {
+                processor.finalizeAuthorization(result);
+
+            } catch (Exception e) {
+                logger.error("Unable to process challenge " + challengeID + ": " + e.getMessage(), e);
+
+            } finally {
+                complete(this, result);
+            }
+        }
+    }
+
+    ACMEValidationConfig config;
+    ScheduledThreadPoolExecutor executor;
+
+    Map<String, ValidationTask> tasks = new ConcurrentHashMap<>();
+    Map<String, Semaphore> validatorPermits = new ConcurrentHashMap<>();
+
+    AtomicInteger running = new AtomicInteger();
+    AtomicLong submitted = new AtomicLong();
+    AtomicLong duplicates = new AtomicLong();
+    AtomicLong rejected = new AtomicLong();
+    AtomicLong valid = new AtomicLong();
+    AtomicLong invalid = new AtomicLong();
+    AtomicLong totalLatency = new AtomicLong();
+    AtomicLong maxLatency = new AtomicLong();
+
+    public ACMEValidationConfig getConfig() {
+        return config;
+    }
+
+    public void setConfig(ACMEValidationConfig config) {
+        this.config = config;
+    }
+
+    public void init() throws Exception {
+
+        logger.info("Initializing ACME validation scheduler");
+        logger.info("- threads: " + config.getThreads());
+        logger.info("- max queue size: " + config.getMaxQueueSize());
+        logger.info("- max attempts: " + config.getMaxAttempts());
+        logger.info("- retry delay (seconds): " + config.getRetryDelay());
+
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ScheduledThreadPoolExecutor(config.getThreads(), r -> {
+            Thread thread = new Thread(r, "ACMEValidation-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    Semaphore getPermits(ACMEValidator validator) {
+
+        ACMEValidatorConfig validatorConfig = validator.getConfig();
+        if (validatorConfig == null) return null;
+
+        String maxConcurrent = validatorConfig.getParameter("maxConcurrent");
+        if (maxConcurrent == null) return null;
+
+        return validatorPermits.computeIfAbsent(
+                validator.getName(),
+                name -> new Semaphore(Integer.parseInt(maxConcurrent)));
+    }
+
+    /**
+     * Returns true if the challenge is currently being validated.
+     */
+    public boolean isScheduled(String challengeID) {
+        return tasks.containsKey(challengeID);
+    }
+
+    /**
+     * Schedules the validation of a challenge. If the challenge is
+     * already being validated it will not be scheduled again.
+     *
+     * @return false if the validation queue is full
+     */
+    public boolean schedule(
+            ACMEAccount account,
+            ACMEAuthorization authorization,
+            ACMEChallenge challenge,
+            ACMEValidator validator) {
+
+        String challengeID = challenge.getID();
+
+        if (tasks.containsKey(challengeID)) {
+            logger.info("Challenge " + challengeID + " is already being validated");
+            duplicates.incrementAndGet();
+            return true;
+        }
+
+        if (tasks.size() >= config.getMaxQueueSize()) {
+            logger.warn("Unable to validate challenge " + challengeID + ": Validation queue is full");
+            rejected.incrementAndGet();
+            return false;
+        }
+
+        ACMEChallengeProcessor processor = new ACMEChallengeProcessor(
+                account,
+                authorization,
+                challenge,
+                validator);
+
+        ValidationTask task = new ValidationTask(processor, getPermits(validator));
+
+        if (tasks.putIfAbsent(challengeID, task) != null) {
+            logger.info("Challenge " + challengeID + " is already being validated");
+            duplicates.incrementAndGet();
+            return true;
+        }
+
+        logger.info("Scheduling validation for challenge " + challengeID);
+        submitted.incrementAndGet();
+
+        executor.execute(task);
+        return true;
+    }
+
+    void complete(ValidationTask task, ValidationResult result) {
+
+        tasks.remove(task.challengeID);
+
+        if (result.isOK()) {
+            valid.incrementAndGet();
+        } else {
+            invalid.incrementAndGet();
+        }
+
+        long latency = System.currentTimeMillis() - task.submitTime;
+        totalLatency.addAndGet(latency);
+        maxLatency.accumulateAndGet(latency, Math::max);
+
+        logger.info("Challenge " + task.challengeID + " validated in " + latency + " ms");
+    }
+
+    /**
+     * Returns the validation metrics.
+     */
+    public Map<String, Object> getMetrics() {
+
+        long completed = valid.get() + invalid.get();
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("queueSize", tasks.size());
+        metrics.put("running", running.get());
+        metrics.put("scheduledAttempts", executor.getQueue().size());
+        metrics.put("submitted", submitted.get());
+        metrics.put("duplicates", duplicates.get());
+        metrics.put("rejected", rejected.get());
+        metrics.put("valid", valid.get());
+        metrics.put("invalid", invalid.get());
+        metrics.put("averageLatency", completed == 0 ? 0 : totalLatency.get() / completed);
+        metrics.put("maxLatency", maxLatency.get());
+
+        return metrics;
+    }
+
+    public void shutdown() throws Exception {
+
+        logger.info("Shutting down ACME validation scheduler");
+
+        executor.shutdownNow();
+        tasks.clear();
+    }
+}
@@ -0,0 +1,210 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.acme.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class PostgreSQLConnectionPoolTest {
+
+    /**
+     * In-process JDBC connection that records the calls
+     * made by the pool and the cached statements.
+     */
+    static class TestConnection {
+
+        Connection connection;
+        boolean valid = true;
+        boolean closed;
+
+        int batchSize;
+        int clearBatchCalls;
+
+        TestConnection() {
+            connection = (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class },
+                    (object, method, args) -> {
+                        switch (method.getName()) {
+                        case "isValid":
+                            return valid;
+                        case "isClosed":
+                            return closed;
+                        case "close":
+                            closed = true;
+                            return null;
+                        case "prepareStatement":
+                            return createStatement();
+                        default:
+                            return null;
+                        }
+                    });
+        }
+
+        PreparedStatement createStatement() {
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class },
+                    (object, method, args) -> {
+                        switch (method.getName()) {
+                        case "addBatch":
+                            batchSize++;
+                            return null;
+                        case "clearBatch":
+                            batchSize = 0;
+                            clearBatchCalls++;
+                            return null;
+                        default:
+                            return null;
+                        }
+                    });
+        }
+    }
+
+    List<TestConnection> connections = new ArrayList<>();
+    PostgreSQLConnectionPool pool;
+
+    @Before
+    public void setUp() throws Exception {
+
+        pool = new PostgreSQLConnectionPool(() -> {
+            TestConnection connection = new TestConnection();
+            connections.add(connection);
+            return connection.connection;
+        });
+
+        pool.setMaxSize(2);
+        pool.setTimeout(1);
+        pool.init();
+    }
+
+    @Test
+    public void testBorrow() throws Exception {
+
+        PostgreSQLConnection connection1 = pool.getConnection();
+        PostgreSQLConnection connection2 = pool.getConnection();
+        assertNotSame(connection1, connection2);
+        assertEquals(2, connections.size());
+
+        connection1.close();
+        assertEquals(1, pool.getIdleConnections());
+
+        // the idle connection is reused
+        PostgreSQLConnection connection3 = pool.getConnection();
+        assertSame(connection1, connection3);
+        assertEquals(2, connections.size());
+
+        connection2.close();
+        connection3.close();
+        assertEquals(2, pool.getIdleConnections());
+    }
+
+    @Test
+    public void testValidation() throws Exception {
+
+        // validate idle connections on every borrow
+        pool.setValidationInterval(0);
+
+        PostgreSQLConnection connection1 = pool.getConnection();
+        connection1.close();
+
+        connections.get(0).valid = false;
+
+        PostgreSQLConnection connection2 = pool.getConnection();
+        assertNotSame(connection1, connection2);
+        assertTrue(connections.get(0).closed);
+        assertEquals(2, connections.size());
+
+        connection2.close();
+    }
+
+    @Test
+    public void testBrokenConnection() throws Exception {
+
+        PostgreSQLConnection connection = pool.getConnection();
+        connection.checkException(new SQLException("Connection failed", "08006"));
+        connection.close();
+
+        // the broken connection is not returned into the pool
+        assertTrue(connections.get(0).closed);
+        assertEquals(0, pool.getIdleConnections());
+    }
+
+    @Test
+    public void testExhaustion() throws Exception {
+
+        PostgreSQLConnection connection1 = pool.getConnection();
+        PostgreSQLConnection connection2 = pool.getConnection();
+
+        try {
+            pool.getConnection();
+            fail("Connection should not be available");
+        } catch (SQLException e) {
+            // expected
+        }
+
+        connection1.close();
+
+        PostgreSQLConnection connection3 = pool.getConnection();
+        connection2.close();
+        connection3.close();
+    }
+
+    @Test
+    public void testDoubleClose() throws Exception {
+
+        PostgreSQLConnection connection1 = pool.getConnection();
+        connection1.close();
+        connection1.close();
+
+        assertEquals(1, pool.getIdleConnections());
+
+        // the second close must not release another permit
+        PostgreSQLConnection connection2 = pool.getConnection();
+        PostgreSQLConnection connection3 = pool.getConnection();
+
+        try {
+            pool.getConnection();
+            fail("Connection should not be available");
+        } catch (SQLException e) {
+            // expected
+        }
+
+        connection2.close();
+        connection3.close();
+    }
+
+    @Test
+    public void testCachedStatementBatch() throws Exception {
+
+        try (PostgreSQLConnection connection = pool.getConnection()) {
+            try (PreparedStatement ps = connection.prepareStatement("INSERT")) {
+                ps.addBatch();
+                ps.addBatch();
+                // statement closed without executing the batch
+            }
+
+            // the cached statement does not keep the previous batch
+            try (PreparedStatement ps = connection.prepareStatement("INSERT")) {
+                assertEquals(0, connections.get(0).batchSize);
+                assertEquals(1, connections.get(0).clearBatchCalls);
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.acme.issuer;
+
+import java.io.FileReader;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.mozilla.jss.CryptoManager;
+import org.mozilla.jss.crypto.CryptoToken;
+import org.mozilla.jss.netscape.security.pkcs.PKCS10;
+import org.mozilla.jss.util.Password;
+
+import com.netscape.cmsutil.crypto.CryptoUtil;
+
+/**
+ * Certificate issuance benchmark for ACME issuers.
+ *
+ * It submits certificate requests to each of the specified issuer
+ * configurations the same way the finalize service does, then reports
+ * the latency and the number of certificates issued per second.
+ *
+ * The LocalIssuer can only issue certificates inside the server that
+ * runs the CA. In that case the issuance time is available in the
+ * issuer section of the ACME metrics.
+ *
+ * Usage:
+ *
+ * <pre>
+ * ACMEIssuerBenchmark -d &lt;NSS database&gt; [-c &lt;password&gt;]
+ *     -f &lt;issuer.conf&gt; [-f &lt;issuer.conf&gt; ...]
+ *     [-t &lt;threads&gt;] [-i &lt;iterations&gt;]
+ * </pre>
+ */
+public class ACMEIssuerBenchmark {
+
+    List<String> configs = new ArrayList<>();
+    int threads = 8;
+    int iterations = 1000;
+
+    KeyPair keyPair;
+
+    ACMEIssuer createIssuer(String filename) throws Exception {
+
+        Properties props = new Properties();
+        try (FileReader reader = new FileReader(filename)) {
+            props.load(reader);
+        }
+
+        ACMEIssuerConfig issuerConfig = ACMEIssuerConfig.fromProperties(props);
+
+        @SuppressWarnings("unchecked")
+        Class<ACMEIssuer> issuerClass = (Class<ACMEIssuer>) Class.forName(issuerConfig.getClassName());
+
+        ACMEIssuer issuer = issuerClass.getDeclaredConstructor().newInstance();
+        issuer.setConfig(issuerConfig);
+        issuer.init();
+
+        return issuer;
+    }
+
+    void run(String name, ACMEIssuer issuer) throws Exception {
+
+        // create the requests in advance so only the issuance is measured
+        List<PKCS10> requests = new ArrayList<>();
+        for (int i = 0; i < iterations; i++) {
+            requests.add(CryptoUtil.createCertificationRequest(
+                    "CN=server" + i + ".example.com", keyPair, null));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        AtomicInteger failures = new AtomicInteger();
+        long[] latencies = new long[iterations];
+
+        long start = System.nanoTime();
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < iterations; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    long requestStart = System.nanoTime();
+                    try {
+                        issuer.issueCertificate(requests.get(index));
+                    } catch (Exception e) {
+                        if (failures.incrementAndGet() == 1) {
+                            e.printStackTrace();
+                        }
+                    }
+                    latencies[index] = System.nanoTime() - requestStart;
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+        } finally {
+            executor.shutdown();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Arrays.sort(latencies);
+
+        System.out.println(String.format(
+                "  %s: %.2f s, failures: %d, %.0f ops/s, latency: p50 %.1f ms, p99 %.1f ms",
+                name, seconds, failures.get(), iterations / seconds,
+                latencies[iterations / 2] / 1e6,
+                latencies[Math.min(iterations - 1, iterations * 99 / 100)] / 1e6));
+    }
+
+    void run() throws Exception {
+
+        System.out.println("Iterations: " + iterations + ", threads: " + threads);
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA", "Mozilla-JSS");
+        generator.initialize(2048);
+        keyPair = generator.generateKeyPair();
+
+        for (String filename : configs) {
+
+            ACMEIssuer issuer = createIssuer(filename);
+
+            try {
+                run(issuer.getClass().getSimpleName() + " (" + filename + ")", issuer);
+            } finally {
+                issuer.close();
+            }
+        }
+    }
+
+    public static void printUsage() {
+        System.out.println(
+                "Usage: ACMEIssuerBenchmark -d <NSS database> [-c <password>]"
+                + " -f <issuer.conf> [-f <issuer.conf> ...]"
+                + " [-t <threads>] [-i <iterations>]");
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        ACMEIssuerBenchmark benchmark = new ACMEIssuerBenchmark();
+
+        String database = null;
+        String password = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+            case "-d":
+                database = args[++i];
+                break;
+            case "-c":
+                password = args[++i];
+                break;
+            case "-f":
+                benchmark.configs.add(args[++i]);
+                break;
+            case "-t":
+                benchmark.threads = Integer.parseInt(args[++i]);
+                break;
+            case "-i":
+                benchmark.iterations = Integer.parseInt(args[++i]);
+                break;
+            default:
+                printUsage();
+                System.exit(1);
+            }
+        }
+
+        if (database == null || benchmark.configs.isEmpty()) {
+            printUsage();
+            System.exit(1);
+        }
+
+        CryptoManager.initialize(database);
+        CryptoManager cm = CryptoManager.getInstance();
+
+        if (password != null) {
+            CryptoToken token = cm.getInternalKeyStorageToken();
+            Password pass = new Password(password.toCharArray());
+            try {
+                token.login(pass);
+            } finally {
+                pass.clear();
+            }
+        }
+
+        benchmark.run();
+    }
+}
@@ -0,0 +1,253 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.acme.server;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.codec.binary.Base64;
+import org.dogtagpki.acme.ACMEAccount;
+import org.dogtagpki.acme.JWK;
+import org.dogtagpki.acme.JWS;
+import org.dogtagpki.acme.database.InMemoryDatabase;
+import org.mozilla.jss.CryptoManager;
+import org.mozilla.jss.crypto.CryptoToken;
+import org.mozilla.jss.util.Password;
+
+/**
+ * JWS verification throughput benchmark for ACMEEngine.
+ *
+ * It verifies requests signed with existing account keys the same way
+ * the ACME services do (i.e. account lookup followed by JWS validation),
+ * then reports the number of verifications per second with and without
+ * the account cache. The database latency can be simulated with the
+ * -l option.
+ *
+ * Usage:
+ *
+ * <pre>
+ * ACMEJWSBenchmark -d &lt;NSS database&gt; [-c &lt;password&gt;]
+ *     [-a &lt;accounts&gt;] [-l &lt;database latency in ms&gt;]
+ *     [-t &lt;threads&gt;] [-i &lt;iterations&gt;]
+ * </pre>
+ */
+public class ACMEJWSBenchmark {
+
+    int accounts = 100;
+    int latency = 0;
+    int threads = 8;
+    int iterations = 10000;
+
+    class BenchmarkDatabase extends InMemoryDatabase {
+
+        @Override
+        public ACMEAccount getAccount(String accountID) throws Exception {
+            if (latency > 0) {
+                Thread.sleep(latency);
+            }
+            ACMEAccount account = super.getAccount(accountID);
+            if (account == null) return null;
+
+            // simulate a new object loaded from the database
+            ACMEAccount copy = ACMEAccount.fromJSON(account.toJSON());
+            copy.setJWK(JWK.fromJSON(account.getJWK().toJSON()));
+            return copy;
+        }
+    }
+
+    class Request {
+        String accountID;
+        JWS jws;
+    }
+
+    List<Request> requests = new ArrayList<>();
+    BenchmarkDatabase database = new BenchmarkDatabase();
+
+    static String encode(byte[] bytes) {
+        return Base64.encodeBase64URLSafeString(bytes);
+    }
+
+    static byte[] toUnsignedBytes(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes[0] != 0) return bytes;
+        byte[] result = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 1, result, 0, result.length);
+        return result;
+    }
+
+    void createAccounts() throws Exception {
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA", "Mozilla-JSS");
+        generator.initialize(2048);
+
+        for (int i = 0; i < accounts; i++) {
+
+            KeyPair keyPair = generator.generateKeyPair();
+            RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+
+            JWK jwk = new JWK();
+            jwk.setKty("RSA");
+            jwk.setN(encode(toUnsignedBytes(publicKey.getModulus())));
+            jwk.setE(encode(toUnsignedBytes(publicKey.getPublicExponent())));
+
+            ACMEAccount account = new ACMEAccount();
+            account.setID("account" + i);
+            account.setStatus("valid");
+            account.setJWK(jwk);
+            database.addAccount(account);
+
+            String header = encode(("{\"alg\":\"RS256\",\"kid\":\"https://localhost/acme/acct/"
+                    + account.getID() + "\"}").getBytes("UTF-8"));
+            String payload = encode("{}".getBytes("UTF-8"));
+
+            Signature signer = Signature.getInstance("SHA256withRSA", "Mozilla-JSS");
+            signer.initSign(keyPair.getPrivate());
+            signer.update((header + "." + payload).getBytes());
+
+            JWS jws = new JWS();
+            jws.setProtectedHeader(header);
+            jws.setPayload(payload);
+            jws.setSignature(encode(signer.sign()));
+
+            Request request = new Request();
+            request.accountID = account.getID();
+            request.jws = jws;
+            requests.add(request);
+        }
+    }
+
+    double run(String name, ACMEAccountCache accountCache) throws Exception {
+
+        ACMEEngine engine = new ACMEEngine();
+        engine.setDatabase(database);
+        engine.setAccountCache(accountCache);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        AtomicInteger failures = new AtomicInteger();
+
+        long start = System.nanoTime();
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < iterations; i++) {
+                Request request = requests.get(i % requests.size());
+                futures.add(executor.submit(() -> {
+                    try {
+                        ACMEAccount account = engine.getAccount(request.accountID);
+                        engine.validateJWS(request.jws, "RS256", account);
+                    } catch (Exception e) {
+                        if (failures.incrementAndGet() == 1) {
+                            e.printStackTrace();
+                        }
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+        } finally {
+            executor.shutdown();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double ops = iterations / seconds;
+
+        System.out.println(String.format("  %s: %.2f s, failures: %d, %.0f ops/s",
+                name, seconds, failures.get(), ops));
+
+        return ops;
+    }
+
+    void run() throws Exception {
+
+        System.out.println("Accounts: " + accounts + ", database latency: " + latency + " ms"
+                + ", iterations: " + iterations + ", threads: " + threads);
+
+        createAccounts();
+
+        double before = run("without account cache", null);
+
+        ACMEAccountCache accountCache = new ACMEAccountCache();
+        accountCache.init();
+
+        double after = run("with account cache", accountCache);
+
+        System.out.println(String.format("Speedup: %.2fx", after / before));
+        System.out.println("Account cache: " + accountCache.getMetrics());
+    }
+
+    public static void printUsage() {
+        System.out.println(
+                "Usage: ACMEJWSBenchmark -d <NSS database> [-c <password>]"
+                + " [-a <accounts>] [-l <database latency in ms>]"
+                + " [-t <threads>] [-i <iterations>]");
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        ACMEJWSBenchmark benchmark = new ACMEJWSBenchmark();
+
+        String database = null;
+        String password = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+            case "-d":
+                database = args[++i];
+                break;
+            case "-c":
+                password = args[++i];
+                break;
+            case "-a":
+                benchmark.accounts = Integer.parseInt(args[++i]);
+                break;
+            case "-l":
+                benchmark.latency = Integer.parseInt(args[++i]);
+                break;
+            case "-t":
+                benchmark.threads = Integer.parseInt(args[++i]);
+                break;
+            case "-i":
+                benchmark.iterations = Integer.parseInt(args[++i]);
+                break;
+            default:
+                printUsage();
+                System.exit(1);
+            }
+        }
+
+        if (database == null) {
+            printUsage();
+            System.exit(1);
+        }
+
+        CryptoManager.initialize(database);
+        CryptoManager cm = CryptoManager.getInstance();
+
+        if (password != null) {
+            CryptoToken token = cm.getInternalKeyStorageToken();
+            Password pass = new Password(password.toCharArray());
+            try {
+                token.login(pass);
+            } finally {
+                pass.clear();
+            }
+        }
+
+        benchmark.run();
+    }
+}
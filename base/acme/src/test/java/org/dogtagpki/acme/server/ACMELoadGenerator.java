@@ -0,0 +1,633 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.acme.server;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.net.URI;
+import java.nio.file.Files;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriBuilder;
+import javax.ws.rs.core.UriInfo;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.FileUtils;
+import org.dogtagpki.acme.ACMEAccount;
+import org.dogtagpki.acme.ACMEAuthorization;
+import org.dogtagpki.acme.ACMEChallenge;
+import org.dogtagpki.acme.ACMEHeader;
+import org.dogtagpki.acme.ACMEIdentifier;
+import org.dogtagpki.acme.ACMEOrder;
+import org.dogtagpki.acme.JWK;
+import org.dogtagpki.acme.JWS;
+import org.mozilla.jss.CryptoManager;
+import org.mozilla.jss.crypto.CryptoToken;
+import org.mozilla.jss.netscape.security.x509.DNSName;
+import org.mozilla.jss.netscape.security.x509.Extensions;
+import org.mozilla.jss.netscape.security.x509.GeneralNames;
+import org.mozilla.jss.netscape.security.x509.SubjectAlternativeNameExtension;
+import org.mozilla.jss.util.Password;
+
+import com.netscape.cmsutil.crypto.CryptoUtil;
+
+/**
+ * ACME load generator.
+ *
+ * It starts an embedded ACME engine with an in-memory database, an
+ * in-memory realm, an NSS issuer, and a stub validator, then drives
+ * the RFC 8555 flow (new-nonce, new-account, new-order, authz, chall,
+ * finalize, cert) concurrently by calling the ACME services directly,
+ * so the JWS, nonce, database, and issuer paths are measured without
+ * the network.
+ *
+ * It reports a latency histogram for each endpoint, the number of orders
+ * completed per second, and the ACME metrics at the end of the run.
+ *
+ * The NSS database must contain the CA signing certificate and key.
+ * Additional engine parameters (e.g. stateless nonces or account cache)
+ * can be specified in a separate engine.conf with the -e option.
+ *
+ * Usage:
+ *
+ * <pre>
+ * ACMELoadGenerator -d &lt;NSS database&gt; [-c &lt;password&gt;]
+ *     [-n &lt;CA signing nickname&gt;] [-x &lt;extensions config&gt;]
+ *     [-e &lt;engine.conf&gt;] [-a &lt;accounts&gt;] [-o &lt;orders&gt;]
+ *     [-s &lt;identifiers per order&gt;] [-l &lt;validation latency in ms&gt;]
+ *     [-p &lt;poll interval in ms&gt;] [-t &lt;threads&gt;]
+ * </pre>
+ */
+public class ACMELoadGenerator {
+
+    public final static URI BASE_URI = URI.create("https://localhost.localdomain:8443/acme/");
+
+    public final static String[] ENDPOINTS = {
+            "new-nonce", "new-account", "new-order", "authz", "chall", "finalize", "cert"
+    };
+
+    /**
+     * Latency histogram with power-of-two buckets in microseconds.
+     */
+    static class Histogram {
+
+        AtomicLongArray buckets = new AtomicLongArray(40);
+        AtomicLong count = new AtomicLong();
+        AtomicLong failures = new AtomicLong();
+        AtomicLong total = new AtomicLong();
+        AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+
+            long micros = nanos / 1000;
+
+            // bucket i contains latencies less than 2^i microseconds
+            int bucket = 64 - Long.numberOfLeadingZeros(micros);
+            buckets.incrementAndGet(Math.min(bucket, buckets.length() - 1));
+
+            count.incrementAndGet();
+            total.addAndGet(nanos);
+            max.accumulateAndGet(nanos, Math::max);
+        }
+
+        /**
+         * Returns the upper bound of the bucket containing the
+         * specified percentile in milliseconds.
+         */
+        double percentile(double p) {
+
+            long threshold = (long) Math.ceil(count.get() * p);
+            long sum = 0;
+
+            for (int i = 0; i < buckets.length(); i++) {
+                sum += buckets.get(i);
+                if (sum >= threshold) {
+                    return (1L << i) / 1000.0;
+                }
+            }
+
+            return max.get() / 1e6;
+        }
+
+        void print(String name) {
+
+            long n = count.get();
+
+            System.out.println(String.format(
+                    "  %s: count: %d, failures: %d, mean: %.2f ms, p50: < %.2f ms, p90: < %.2f ms,"
+                    + " p99: < %.2f ms, max: %.2f ms",
+                    name, n, failures.get(),
+                    n == 0 ? 0 : total.get() / n / 1e6,
+                    percentile(0.50), percentile(0.90), percentile(0.99),
+                    max.get() / 1e6));
+
+            for (int i = 0; i < buckets.length(); i++) {
+                long value = buckets.get(i);
+                if (value == 0) continue;
+                System.out.println(String.format("    < %10.3f ms: %d", (1L << i) / 1000.0, value));
+            }
+        }
+    }
+
+    class Client {
+        KeyPair keyPair;
+        JWK jwk;
+        URI accountURL;
+    }
+
+    String nickname = "ca_signing";
+    String extensions;
+    String engineConfig;
+    String password;
+    String database;
+
+    int accounts = 10;
+    int orders = 1000;
+    int identifiers = 1;
+    int validationLatency = 0;
+    int pollInterval = 10;
+    int threads = 8;
+
+    File instanceDir;
+    ACMEEngine engine;
+
+    UriInfo uriInfo;
+    ACMENewNonceService newNonceService = new ACMENewNonceService();
+    ACMENewAccountService newAccountService = new ACMENewAccountService();
+    ACMENewOrderService newOrderService = new ACMENewOrderService();
+    ACMEAuthorizationService authorizationService = new ACMEAuthorizationService();
+    ACMEChallengeService challengeService = new ACMEChallengeService();
+    ACMEFinalizeOrderService finalizeOrderService = new ACMEFinalizeOrderService();
+    ACMECertificateService certificateService = new ACMECertificateService();
+
+    Map<String, Histogram> histograms = new LinkedHashMap<>();
+    List<Client> clients = new ArrayList<>();
+    List<String> csrs = new ArrayList<>();
+
+    static String encode(byte[] bytes) {
+        return Base64.encodeBase64URLSafeString(bytes);
+    }
+
+    static byte[] toUnsignedBytes(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes[0] != 0) return bytes;
+        byte[] result = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 1, result, 0, result.length);
+        return result;
+    }
+
+    static String getID(URI url) {
+        String path = url.getPath();
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    void writeConfig(File file, String... lines) throws Exception {
+        try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+            for (String line : lines) {
+                out.println(line);
+            }
+        }
+    }
+
+    void startEngine() throws Exception {
+
+        instanceDir = Files.createTempDirectory("ACMELoadGenerator").toFile();
+        File confDir = new File(instanceDir, "conf" + File.separator + "acme");
+        confDir.mkdirs();
+
+        if (engineConfig == null) {
+            writeConfig(new File(confDir, "engine.conf"), "enabled=true");
+        } else {
+            FileUtils.copyFile(new File(engineConfig), new File(confDir, "engine.conf"));
+        }
+
+        writeConfig(new File(confDir, "metadata.conf"),
+                "termsOfService=https://www.example.com/acme/tos.pdf",
+                "website=https://www.example.com",
+                "externalAccountRequired=false");
+
+        writeConfig(new File(confDir, "database.conf"),
+                "class=org.dogtagpki.acme.database.InMemoryDatabase");
+
+        writeConfig(new File(confDir, "realm.conf"),
+                "class=org.dogtagpki.acme.realm.InMemoryRealm",
+                "username=admin",
+                "password=Secret.123");
+
+        writeConfig(new File(confDir, "validators.conf"),
+                "http-01.class=org.dogtagpki.acme.validator.StubValidator",
+                "http-01.delay=" + validationLatency);
+
+        File passwordFile = new File(instanceDir, "password.conf");
+        writeConfig(passwordFile, password == null ? "" : "internal=" + password);
+
+        List<String> issuerConfig = new ArrayList<>();
+        issuerConfig.add("class=org.dogtagpki.acme.issuer.NSSIssuer");
+        issuerConfig.add("database=" + new File(database).getAbsolutePath());
+        issuerConfig.add("passwords=" + passwordFile.getAbsolutePath());
+        issuerConfig.add("nickname=" + nickname);
+        if (extensions != null) {
+            issuerConfig.add("extensions=" + new File(extensions).getAbsolutePath());
+        }
+        writeConfig(new File(confDir, "issuer.conf"), issuerConfig.toArray(new String[0]));
+
+        // no maintenance tasks during the run
+        writeConfig(new File(confDir, "scheduler.conf"), "threads=1");
+
+        System.setProperty("catalina.base", instanceDir.getAbsolutePath());
+
+        engine = new ACMEEngine();
+        engine.setID("acme");
+        engine.start();
+
+        // the services only need the base URI
+        uriInfo = (UriInfo) Proxy.newProxyInstance(
+                UriInfo.class.getClassLoader(),
+                new Class<?>[] { UriInfo.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "getBaseUri":
+                        return BASE_URI;
+                    case "getBaseUriBuilder":
+                        return UriBuilder.fromUri(BASE_URI);
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+
+        newNonceService.uriInfo = uriInfo;
+        newAccountService.uriInfo = uriInfo;
+        newOrderService.uriInfo = uriInfo;
+        authorizationService.uriInfo = uriInfo;
+        challengeService.uriInfo = uriInfo;
+        finalizeOrderService.uriInfo = uriInfo;
+        certificateService.uriInfo = uriInfo;
+    }
+
+    void stopEngine() throws Exception {
+
+        if (engine != null) {
+            engine.stop();
+        }
+
+        if (instanceDir != null) {
+            FileUtils.deleteDirectory(instanceDir);
+        }
+    }
+
+    Response call(String endpoint, Callable<Response> callable) throws Exception {
+
+        Histogram histogram = histograms.get(endpoint);
+        long start = System.nanoTime();
+
+        try {
+            Response response = callable.call();
+            histogram.record(System.nanoTime() - start);
+            return response;
+
+        } catch (Exception e) {
+            histogram.failures.incrementAndGet();
+            throw e;
+        }
+    }
+
+    JWS sign(Client client, String endpoint, String nonce, String payload) throws Exception {
+
+        ACMEHeader header = new ACMEHeader();
+        header.setAlg("RS256");
+        header.setNonce(nonce);
+        header.setUrl(BASE_URI.resolve(endpoint));
+
+        if (client.accountURL == null) {
+            header.setJwk(client.jwk);
+        } else {
+            header.setKid(client.accountURL);
+        }
+
+        String protectedHeader = encode(header.toJSON().getBytes("UTF-8"));
+        String encodedPayload = encode(payload.getBytes("UTF-8"));
+
+        Signature signer = Signature.getInstance("SHA256withRSA", "Mozilla-JSS");
+        signer.initSign(client.keyPair.getPrivate());
+        signer.update((protectedHeader + "." + encodedPayload).getBytes("UTF-8"));
+
+        JWS jws = new JWS();
+        jws.setProtectedHeader(protectedHeader);
+        jws.setPayload(encodedPayload);
+        jws.setSignature(encode(signer.sign()));
+
+        return jws;
+    }
+
+    String getNonce(Response response) {
+        return response.getHeaderString("Replay-Nonce");
+    }
+
+    String newNonce() throws Exception {
+        Response response = call("new-nonce", () -> newNonceService.headNewNonce());
+        return getNonce(response);
+    }
+
+    void createClients() throws Exception {
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA", "Mozilla-JSS");
+        generator.initialize(2048);
+
+        for (int i = 0; i < accounts; i++) {
+
+            Client client = new Client();
+            client.keyPair = generator.generateKeyPair();
+
+            RSAPublicKey publicKey = (RSAPublicKey) client.keyPair.getPublic();
+            client.jwk = new JWK();
+            client.jwk.setKty("RSA");
+            client.jwk.setN(encode(toUnsignedBytes(publicKey.getModulus())));
+            client.jwk.setE(encode(toUnsignedBytes(publicKey.getPublicExponent())));
+
+            ACMEAccount account = new ACMEAccount();
+            account.setContact(new String[] { "mailto:user" + i + "@example.com" });
+            account.setTermsOfServiceAgreed(true);
+
+            JWS jws = sign(client, "new-account", newNonce(), account.toJSON());
+            Response response = call("new-account", () -> newAccountService.createNewAccount(jws));
+            client.accountURL = response.getLocation();
+
+            clients.add(client);
+        }
+    }
+
+    String getDNSName(int order, int identifier) {
+        return "server" + order + "-" + identifier + ".example.com";
+    }
+
+    void createCSRs() throws Exception {
+
+        // the CSRs are created in advance so they do not consume
+        // the CPU during the run
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA", "Mozilla-JSS");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+
+        for (int i = 0; i < orders; i++) {
+
+            Extensions exts = null;
+
+            if (identifiers > 1) {
+                GeneralNames generalNames = new GeneralNames();
+                for (int j = 0; j < identifiers; j++) {
+                    generalNames.add(new DNSName(getDNSName(i, j)));
+                }
+
+                exts = new Extensions();
+                exts.set(SubjectAlternativeNameExtension.NAME, new SubjectAlternativeNameExtension(generalNames));
+            }
+
+            byte[] csr = CryptoUtil.createCertificationRequest(
+                    "CN=" + getDNSName(i, 0), keyPair, exts).toByteArray();
+            csrs.add(encode(csr));
+        }
+    }
+
+    void processOrder(int index) throws Exception {
+
+        Client client = clients.get(index % clients.size());
+        String nonce = newNonce();
+
+        ACMEIdentifier[] orderIdentifiers = new ACMEIdentifier[identifiers];
+        for (int j = 0; j < identifiers; j++) {
+            ACMEIdentifier identifier = new ACMEIdentifier();
+            identifier.setType("dns");
+            identifier.setValue(getDNSName(index, j));
+            orderIdentifiers[j] = identifier;
+        }
+
+        ACMEOrder orderRequest = new ACMEOrder();
+        orderRequest.setIdentifiers(orderIdentifiers);
+
+        JWS newOrderJWS = sign(client, "new-order", nonce, orderRequest.toJSON());
+        Response response = call("new-order", () -> newOrderService.createNewOrder(newOrderJWS));
+        nonce = getNonce(response);
+
+        ACMEOrder order = (ACMEOrder) response.getEntity();
+        String orderID = getID(response.getLocation());
+
+        List<String> authzIDs = new ArrayList<>();
+
+        for (URI authzURL : order.getAuthorizations()) {
+
+            String authzID = getID(authzURL);
+            authzIDs.add(authzID);
+
+            JWS authzJWS = sign(client, "authz/" + authzID, nonce, "");
+            response = call("authz", () -> authorizationService.handlePOST(authzID, authzJWS));
+            nonce = getNonce(response);
+
+            ACMEAuthorization authorization = (ACMEAuthorization) response.getEntity();
+
+            String challengeID = null;
+            for (ACMEChallenge challenge : authorization.getChallenges()) {
+                if ("http-01".equals(challenge.getType())) {
+                    challengeID = challenge.getID();
+                }
+            }
+
+            if (challengeID == null) {
+                throw new Exception("Missing http-01 challenge in authorization " + authzID);
+            }
+
+            String id = challengeID;
+            JWS challengeJWS = sign(client, "chall/" + id, nonce, "{}");
+            response = call("chall", () -> challengeService.handlePOST(id, challengeJWS));
+            nonce = getNonce(response);
+        }
+
+        // poll the authorizations until they are validated
+        for (String authzID : authzIDs) {
+            while (true) {
+                JWS authzJWS = sign(client, "authz/" + authzID, nonce, "");
+                response = call("authz", () -> authorizationService.handlePOST(authzID, authzJWS));
+                nonce = getNonce(response);
+
+                String status = ((ACMEAuthorization) response.getEntity()).getStatus();
+                if ("valid".equals(status)) break;
+
+                if (!"pending".equals(status)) {
+                    throw new Exception("Authorization " + authzID + " is " + status);
+                }
+
+                Thread.sleep(pollInterval);
+            }
+        }
+
+        ACMEOrder finalizeRequest = new ACMEOrder();
+        finalizeRequest.setCSR(csrs.get(index));
+
+        JWS finalizeJWS = sign(client, "order/" + orderID + "/finalize", nonce, finalizeRequest.toJSON());
+        response = call("finalize", () -> finalizeOrderService.handlePOST(orderID, finalizeJWS));
+
+        order = (ACMEOrder) response.getEntity();
+        String certID = getID(order.getCertificate());
+
+        call("cert", () -> certificateService.handlePOST(certID));
+    }
+
+    void run() throws Exception {
+
+        System.out.println("Accounts: " + accounts + ", orders: " + orders
+                + ", identifiers per order: " + identifiers
+                + ", validation latency: " + validationLatency + " ms"
+                + ", threads: " + threads);
+
+        for (String endpoint : ENDPOINTS) {
+            histograms.put(endpoint, new Histogram());
+        }
+
+        try {
+            startEngine();
+
+            createClients();
+            createCSRs();
+
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            AtomicInteger failures = new AtomicInteger();
+
+            long start = System.nanoTime();
+
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < orders; i++) {
+                    int index = i;
+                    futures.add(executor.submit(() -> {
+                        try {
+                            processOrder(index);
+                        } catch (Exception e) {
+                            if (failures.incrementAndGet() == 1) {
+                                e.printStackTrace();
+                            }
+                        }
+                    }));
+                }
+
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+
+            } finally {
+                executor.shutdown();
+            }
+
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.println(String.format("Orders: %.2f s, failures: %d, %.1f orders/s",
+                    seconds, failures.get(), (orders - failures.get()) / seconds));
+
+            System.out.println("Latency:");
+            for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+                entry.getValue().print(entry.getKey());
+            }
+
+            System.out.println("Metrics:");
+            Object metrics = new ACMEMetricsService().handleGET().getEntity();
+            System.out.println("  " + metrics);
+
+        } finally {
+            stopEngine();
+        }
+    }
+
+    public static void printUsage() {
+        System.out.println(
+                "Usage: ACMELoadGenerator -d <NSS database> [-c <password>]"
+                + " [-n <CA signing nickname>] [-x <extensions config>]"
+                + " [-e <engine.conf>] [-a <accounts>] [-o <orders>]"
+                + " [-s <identifiers per order>] [-l <validation latency in ms>]"
+                + " [-p <poll interval in ms>] [-t <threads>]");
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        ACMELoadGenerator generator = new ACMELoadGenerator();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+            case "-d":
+                generator.database = args[++i];
+                break;
+            case "-c":
+                generator.password = args[++i];
+                break;
+            case "-n":
+                generator.nickname = args[++i];
+                break;
+            case "-x":
+                generator.extensions = args[++i];
+                break;
+            case "-e":
+                generator.engineConfig = args[++i];
+                break;
+            case "-a":
+                generator.accounts = Integer.parseInt(args[++i]);
+                break;
+            case "-o":
+                generator.orders = Integer.parseInt(args[++i]);
+                break;
+            case "-s":
+                generator.identifiers = Integer.parseInt(args[++i]);
+                break;
+            case "-l":
+                generator.validationLatency = Integer.parseInt(args[++i]);
+                break;
+            case "-p":
+                generator.pollInterval = Integer.parseInt(args[++i]);
+                break;
+            case "-t":
+                generator.threads = Integer.parseInt(args[++i]);
+                break;
+            default:
+                printUsage();
+                System.exit(1);
+            }
+        }
+
+        if (generator.database == null) {
+            printUsage();
+            System.exit(1);
+        }
+
+        CryptoManager.initialize(generator.database);
+        CryptoManager cm = CryptoManager.getInstance();
+
+        if (generator.password != null) {
+            CryptoToken token = cm.getInternalKeyStorageToken();
+            Password pass = new Password(generator.password.toCharArray());
+            try {
+                token.login(pass);
+            } finally {
+                pass.clear();
+            }
+        }
+
+        generator.run();
+    }
+}
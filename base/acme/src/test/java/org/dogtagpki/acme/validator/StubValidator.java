@@ -0,0 +1,56 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.acme.validator;
+
+import org.dogtagpki.acme.ACMEAuthorization;
+import org.dogtagpki.acme.ACMEChallenge;
+import org.dogtagpki.acme.ValidationResult;
+
+/**
+ * This validator accepts all challenges without contacting the client.
+ * It is used to measure the ACME responder without network validation.
+ *
+ * The validation latency can be simulated with the delay parameter
+ * (in milliseconds).
+ */
+public class StubValidator extends ACMEValidator {
+
+    long delay;
+
+    public StubValidator() {
+        super("Stub", "http-01");
+    }
+
+    @Override
+    public void init() throws Exception {
+
+        String type = config.getParameter("type");
+        if (type != null) {
+            this.type = type;
+        }
+
+        String delay = config.getParameter("delay");
+        if (delay != null) {
+            this.delay = Long.parseLong(delay);
+        }
+    }
+
+    @Override
+    public ValidationResult validateChallenge(
+            ACMEAuthorization authorization,
+            ACMEChallenge challenge) {
+
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        return ValidationResult.ok();
+    }
+}
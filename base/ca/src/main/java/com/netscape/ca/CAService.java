@@ -81,6 +81,8 @@ import com.netscape.cms.logging.Logger;
 import com.netscape.cms.logging.SignedAuditLogger;
 import com.netscape.cms.profile.common.Profile;
 import com.netscape.cmscore.apps.CMS;
+import com.netscape.cmscore.authentication.AuthenticationCache;
+import com.netscape.cmscore.authentication.VerifiedCert;
 import com.netscape.cmscore.base.ConfigStore;
 import com.netscape.cmscore.connector.HttpConnector;
 import com.netscape.cmscore.connector.LocalConnector;
@@ -118,6 +120,9 @@ public class CAService implements IService {
     private ConfigStore mConfig;
     private boolean mArchivalRequired = true;
 
+    // shared by all requests to reuse the CT log configuration and threads
+    private CTEngine mCTEngine = new CTEngine();
+
     public CAService(CertificateAuthority ca) {
         mCA = ca;
 
@@ -213,6 +218,10 @@ public class CAService implements IService {
         }
     }
 
+    public void shutdown() {
+        mCTEngine.shutdown();
+    }
+
     protected CertificateAuthority getCA() {
         return mCA;
     }
@@ -862,8 +871,7 @@ public class CAService implements IService {
         /*
          * handle possible Certificate Transparency processing
          */
-        CTEngine ctEngine = new CTEngine();
-        ctEngine.process(certi, mCA, aid, algname);
+        mCTEngine.process(certi, mCA, aid, algname);
 
         logger.debug("CAService: issueX509Cert: About to ca.sign cert.");
         cert = ca.sign(certi, algname);
@@ -1104,6 +1112,8 @@ public class CAService implements IService {
             logger.info(CMS.getLogMessage("CMSCORE_CA_CERT_REVOKED",
                     serialno.toString(16)));
 
+            updateAuthenticationCaches(certRec, true);
+
             // inform all CRLIssuingPoints about revoked certificate
 
             for (CRLIssuingPoint ip : engine.getCRLIssuingPoints()) {
@@ -1137,6 +1147,29 @@ public class CAService implements IService {
         return;
     }
 
+    /**
+     * Updates the cached revocation status and removes cached
+     * authentication results of a revoked or unrevoked certificate.
+     */
+    void updateAuthenticationCaches(CertRecord certRec, boolean revoked) {
+
+        CAEngine engine = CAEngine.getInstance();
+        X509CertImpl cert = certRec.getCertificate();
+
+        if (engine.mVCList != null && cert != null) {
+            if (revoked) {
+                engine.mVCList.update(cert, VerifiedCert.REVOKED);
+            } else {
+                engine.mVCList.remove(cert);
+            }
+        }
+
+        AuthenticationCache authCache = engine.getAuthSubsystem().getAuthenticationCache();
+        if (authCache != null) {
+            authCache.invalidateCert(certRec.getSerialNumber());
+        }
+    }
+
     /**
      * unrevoke cert, check serial number, etc.
      */
@@ -1193,6 +1226,8 @@ public class CAService implements IService {
 
                 logger.info(CMS.getLogMessage("CMSCORE_CA_CERT_UNREVOKED", serialNo.toString(16)));
 
+                updateAuthenticationCaches(certRec, false);
+
                 // inform all CRLIssuingPoints about unrevoked certificate
 
                 for (CRLIssuingPoint ip : engine.getCRLIssuingPoints()) {
@@ -0,0 +1,53 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cms.publish.publishers;
+
+import java.util.List;
+
+import com.netscape.certsrv.ldap.ELdapException;
+import com.netscape.certsrv.publish.ILdapPublisher;
+
+import netscape.ldap.LDAPEntry;
+import netscape.ldap.LDAPModificationSet;
+
+/**
+ * Publisher that can publish multiple objects into an LDAP entry with
+ * a single modify operation.
+ *
+ * It is used by the asynchronous publishing queue to coalesce the updates
+ * for the same entry, and to send the operations for multiple entries
+ * without waiting for the individual responses.
+ */
+public interface LdapBatchPublisher extends ILdapPublisher {
+
+    /**
+     * Returns true if the publisher can publish through the connection
+     * provided by the publishing queue (e.g. false if it is configured
+     * to use a separate directory).
+     */
+    public boolean isBatchEnabled();
+
+    /**
+     * Returns the attributes of the destination entry needed to
+     * compute the modifications.
+     */
+    public String[] getBatchAttributes();
+
+    /**
+     * Returns the modifications needed to publish the objects into the
+     * destination entry. The result is empty if there is nothing to publish.
+     *
+     * @param dn DN of the destination entry
+     * @param entry destination entry with the batch attributes
+     * @param objects objects to publish in the order they were queued
+     * @return modifications
+     * @exception ELdapException Unable to publish the objects.
+     */
+    public LDAPModificationSet getModifications(
+            String dn,
+            LDAPEntry entry,
+            List<Object> objects) throws ELdapException;
+}
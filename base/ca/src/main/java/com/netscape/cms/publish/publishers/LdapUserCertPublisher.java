@@ -20,6 +20,7 @@ package com.netscape.cms.publish.publishers;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.Vector;
 
 import org.dogtagpki.server.ca.CAEngine;
@@ -30,7 +31,6 @@ import com.netscape.certsrv.base.IExtendedPluginInfo;
 import com.netscape.certsrv.ldap.ELdapException;
 import com.netscape.certsrv.ldap.ELdapServerDownException;
 import com.netscape.certsrv.logging.AuditFormat;
-import com.netscape.certsrv.publish.ILdapPublisher;
 import com.netscape.cmscore.apps.CMS;
 import com.netscape.cmscore.base.ConfigStore;
 import com.netscape.cmscore.ldapconn.LdapBoundConnection;
@@ -42,6 +42,7 @@ import netscape.ldap.LDAPConnection;
 import netscape.ldap.LDAPEntry;
 import netscape.ldap.LDAPException;
 import netscape.ldap.LDAPModification;
+import netscape.ldap.LDAPModificationSet;
 import netscape.ldap.LDAPSearchResults;
 import netscape.ldap.LDAPv3;
 
@@ -50,7 +51,7 @@ import netscape.ldap.LDAPv3;
  *
  * @version $Revision$, $Date$
  */
-public class LdapUserCertPublisher implements ILdapPublisher, IExtendedPluginInfo {
+public class LdapUserCertPublisher implements LdapBatchPublisher, IExtendedPluginInfo {
 
     public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(LdapUserCertPublisher.class);
 
@@ -183,36 +184,19 @@ public class LdapUserCertPublisher implements ILdapPublisher, IExtendedPluginInf
 
         X509Certificate cert = (X509Certificate) certObj;
 
-        boolean deleteCert = false;
         try {
-            deleteCert = mConfig.getBoolean("deleteCert", false);
-        } catch (Exception e) {
-        }
-
-        try {
-            byte[] certEnc = cert.getEncoded();
-
             // check if cert already exists.
             LDAPSearchResults res = conn.search(dn, LDAPv3.SCOPE_BASE,
-                    "(objectclass=*)", new String[] { mCertAttr }, false);
+                    "(objectclass=*)", getBatchAttributes(), false);
             LDAPEntry entry = res.next();
 
-            if (ByteValueExists(entry.getAttribute(mCertAttr), certEnc)) {
-                logger.info("LdapUserCertPublisher: publish: " + dn + " already has cert.");
-                return;
-            }
-
             // publish
-            LDAPModification mod = null;
-            if (deleteCert) {
-                mod = new LDAPModification(LDAPModification.REPLACE,
-                        new LDAPAttribute(mCertAttr, certEnc));
-            } else {
-                mod = new LDAPModification(LDAPModification.ADD,
-                        new LDAPAttribute(mCertAttr, certEnc));
+            LDAPModificationSet mods = getModifications(dn, entry, List.of(cert));
+            if (mods.size() == 0) {
+                return;
             }
 
-            conn.modify(dn, mod);
+            conn.modify(dn, mods);
 
             logger.info(
                     AuditFormat.LDAP_PUBLISHED_FORMAT,
@@ -221,10 +205,6 @@ public class LdapUserCertPublisher implements ILdapPublisher, IExtendedPluginInf
                     cert.getSubjectDN()
             );
 
-        } catch (CertificateEncodingException e) {
-            logger.error("LdapUserCertPublisher: error in publish: " + e.getMessage(), e);
-            throw new ELdapException(CMS.getUserMessage("CMS_LDAP_GET_DER_ENCODED_CERT_FAILED", e.toString()));
-
         } catch (LDAPException e) {
             if (e.getLDAPResultCode() == LDAPException.UNAVAILABLE) {
                 // need to intercept this because message from LDAP is
@@ -247,6 +227,91 @@ public class LdapUserCertPublisher implements ILdapPublisher, IExtendedPluginInf
         }
     }
 
+    @Override
+    public boolean isBatchEnabled() {
+
+        if (mConfig == null) {
+            return true;
+        }
+
+        try {
+            // certs published to a separate directory cannot be batched
+            return mConfig.getString("host", null) == null || mConfig.getString("port", null) == null;
+
+        } catch (EBaseException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public String[] getBatchAttributes() {
+        return new String[] { mCertAttr };
+    }
+
+    /**
+     * Returns the modifications to add the certificates that do not exist
+     * in the entry yet. If deleteCert is enabled, the existing certificates
+     * will be replaced with the last certificate.
+     */
+    @Override
+    public LDAPModificationSet getModifications(
+            String dn,
+            LDAPEntry entry,
+            List<Object> certObjs) throws ELdapException {
+
+        boolean deleteCert = false;
+        try {
+            deleteCert = mConfig.getBoolean("deleteCert", false);
+        } catch (Exception e) {
+        }
+
+        LDAPAttribute certs = entry == null ? null : entry.getAttribute(mCertAttr);
+        LDAPAttribute newCerts = new LDAPAttribute(mCertAttr);
+
+        for (Object certObj : certObjs) {
+
+            if (!(certObj instanceof X509Certificate)) {
+                throw new IllegalArgumentException("Illegal arg to publish");
+            }
+
+            X509Certificate cert = (X509Certificate) certObj;
+
+            byte[] certEnc;
+            try {
+                certEnc = cert.getEncoded();
+            } catch (CertificateEncodingException e) {
+                logger.error("LdapUserCertPublisher: error in publish: " + e.getMessage(), e);
+                throw new ELdapException(CMS.getUserMessage("CMS_LDAP_GET_DER_ENCODED_CERT_FAILED", e.toString()));
+            }
+
+            if (deleteCert) {
+                // only the last cert will be kept
+                newCerts = new LDAPAttribute(mCertAttr);
+            }
+
+            if (ByteValueExists(certs, certEnc) || ByteValueExists(newCerts, certEnc)) {
+                logger.info("LdapUserCertPublisher: publish: " + dn + " already has cert.");
+                continue;
+            }
+
+            newCerts.addValue(certEnc);
+        }
+
+        LDAPModificationSet mods = new LDAPModificationSet();
+
+        if (newCerts.size() == 0) {
+            return mods;
+        }
+
+        if (deleteCert) {
+            mods.add(LDAPModification.REPLACE, newCerts);
+        } else {
+            mods.add(LDAPModification.ADD, newCerts);
+        }
+
+        return mods;
+    }
+
     /**
      * unpublish a user certificate
      * deletes the certificate from the list of certificates.
@@ -0,0 +1,960 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.ldap;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.dogtagpki.server.ca.CAEngine;
+import org.mozilla.jss.netscape.security.x509.X509CertImpl;
+
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.certsrv.ldap.ELdapException;
+import com.netscape.certsrv.logging.AuditFormat;
+import com.netscape.certsrv.publish.ILdapMapper;
+import com.netscape.certsrv.publish.ILdapPublisher;
+import com.netscape.certsrv.request.RequestId;
+import com.netscape.cms.publish.mappers.LdapCertSubjMap;
+import com.netscape.cms.publish.publishers.FileBasedPublisher;
+import com.netscape.cms.publish.publishers.LdapBatchPublisher;
+import com.netscape.cmscore.ldapconn.LdapBoundConnFactory;
+import com.netscape.cmscore.request.Request;
+
+import netscape.ldap.LDAPConnection;
+import netscape.ldap.LDAPEntry;
+import netscape.ldap.LDAPException;
+import netscape.ldap.LDAPMessage;
+import netscape.ldap.LDAPModificationSet;
+import netscape.ldap.LDAPResponse;
+import netscape.ldap.LDAPResponseListener;
+import netscape.ldap.LDAPSearchListener;
+import netscape.ldap.LDAPSearchResult;
+import netscape.ldap.LDAPv3;
+
+/**
+ * Asynchronous certificate publishing queue.
+ *
+ * The certificates to be published are stored in the pending directory
+ * and published in the background, so certificate issuance does not wait
+ * for the publishing directory. The pending certificates are published
+ * again after a restart.
+ *
+ * The certificates are published by a set of workers, each with its own
+ * connection to the publishing directory. A worker takes a batch of
+ * certificates from its queue, maps them to the destination entries, and
+ * coalesces the certificates for the same entry into a single modify
+ * operation. The reads and the modify operations for the whole batch are
+ * sent without waiting for the individual responses.
+ *
+ * Certificates are also unpublished through the queue. The tasks are
+ * assigned to the workers by subject DN so the tasks for the same subject
+ * are processed in order.
+ *
+ * Failed tasks are retried after the retry interval. If they still fail
+ * after the maximum number of retries they are moved into the failed
+ * directory, where they can be replayed or removed with the
+ * pki-server ca-publishing-queue commands. While a task is being retried
+ * or has failed, the later tasks for the same subject are kept in the
+ * pending directory so they will not be overwritten by the earlier task.
+ */
+public class AsyncPublishingQueue {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(AsyncPublishingQueue.class);
+
+    public static final String PENDING_DIR = "pending";
+    public static final String FAILED_DIR = "failed";
+    public static final String TASK_EXT = ".task";
+
+    public static final String PUBLISH = "publish";
+    public static final String UNPUBLISH = "unpublish";
+
+    CAPublisherProcessor processor;
+
+    File pendingDir;
+    File failedDir;
+
+    int threads;
+    int batchSize;
+    int maxRetries;
+    int retryInterval;
+
+    LdapBoundConnFactory connFactory;
+
+    Worker[] workers;
+    ExecutorService workerService;
+    ScheduledExecutorService executorService;
+
+    AtomicLong sequence = new AtomicLong();
+
+    // tasks that are queued or being published
+    Set<String> activeTasks = ConcurrentHashMap.newKeySet();
+
+    // subjects with a task that is being retried or has failed,
+    // the later tasks for these subjects have to wait for that task
+    Map<X500Principal, String> blockedSubjects = new ConcurrentHashMap<>();
+
+    volatile boolean running;
+
+    class Task {
+
+        String name;
+        String operation = PUBLISH;
+        X509Certificate cert;
+        String requestID;
+        Request request;
+        List<String> rules = new ArrayList<>();
+        int attempts;
+        String error;
+
+        // rules that failed in the current attempt
+        Map<String, String> failures = new LinkedHashMap<>();
+
+        String getSerialNumber() {
+            return "0x" + cert.getSerialNumber().toString(16);
+        }
+
+        X500Principal getSubject() {
+            return cert.getSubjectX500Principal();
+        }
+
+        boolean isUnpublish() {
+            return UNPUBLISH.equals(operation);
+        }
+
+        Request getRequest() {
+
+            if (request != null || requestID == null) {
+                return request;
+            }
+
+            try {
+                CAEngine engine = CAEngine.getInstance();
+                request = engine.getRequestRepository().readRequest(new RequestId(requestID));
+
+            } catch (EBaseException e) {
+                logger.warn("AsyncPublishingQueue: Unable to read request " + requestID + ": " + e.getMessage(), e);
+            }
+
+            return request;
+        }
+    }
+
+    /**
+     * Certificates to be published into the same entry with the same publisher.
+     */
+    class Update {
+
+        LdapBatchPublisher publisher;
+        String dn;
+
+        List<Task> tasks = new ArrayList<>();
+        List<String> rules = new ArrayList<>();
+
+        LDAPSearchListener searchListener;
+        LDAPResponseListener modifyListener;
+
+        Update(LdapBatchPublisher publisher, String dn) {
+            this.publisher = publisher;
+            this.dn = dn;
+        }
+
+        void add(Task task, String rule) {
+            tasks.add(task);
+            rules.add(rule);
+        }
+
+        List<Object> getCerts() {
+            List<Object> certs = new ArrayList<>();
+            for (Task task : tasks) {
+                certs.add(task.cert);
+            }
+            return certs;
+        }
+
+        void fail(String error) {
+            logger.warn("AsyncPublishingQueue: Unable to publish to " + dn + ": " + error);
+            for (int i = 0; i < tasks.size(); i++) {
+                tasks.get(i).failures.put(rules.get(i), error);
+            }
+        }
+    }
+
+    class Worker implements Runnable {
+
+        BlockingQueue<Task> queue = new LinkedBlockingQueue<>();
+
+        @Override
+        public void run() {
+
+            while (running) {
+
+                List<Task> batch = new ArrayList<>();
+
+                try {
+                    Task task = queue.poll(1, TimeUnit.SECONDS);
+                    if (task == null) {
+                        continue;
+                    }
+
+                    List<Task> tasks = new ArrayList<>();
+                    tasks.add(task);
+                    queue.drainTo(tasks, batchSize - 1);
+
+                    for (Task t : tasks) {
+                        if (isBlocked(t)) {
+                            // the task will be loaded again once the subject is released
+                            logger.info("AsyncPublishingQueue: Cert " + t.getSerialNumber()
+                                    + " waiting for " + blockedSubjects.get(t.getSubject()));
+                            activeTasks.remove(t.name);
+                            continue;
+                        }
+                        batch.add(t);
+                    }
+
+                    if (batch.isEmpty()) {
+                        continue;
+                    }
+
+                    publish(batch);
+
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+
+                } catch (Throwable e) {
+                    logger.error("AsyncPublishingQueue: Unable to publish certs: " + e.getMessage(), e);
+
+                    for (Task task : batch) {
+                        for (String rule : task.rules) {
+                            task.failures.put(rule, e.toString());
+                        }
+                        complete(task);
+                    }
+                }
+            }
+        }
+    }
+
+    public AsyncPublishingQueue(CAPublisherProcessor processor) {
+        this.processor = processor;
+    }
+
+    public void init(PublishingAsyncConfig config) throws EBaseException {
+
+        logger.info("AsyncPublishingQueue: Initializing asynchronous publishing");
+
+        String directory = config.getDirectory();
+        if (directory == null) {
+            CAEngine engine = CAEngine.getInstance();
+            directory = engine.getConfig().getInstanceDir() + File.separator + "ca" + File.separator + "publishing";
+        }
+        logger.info("AsyncPublishingQueue: - directory: " + directory);
+
+        pendingDir = new File(directory, PENDING_DIR);
+        failedDir = new File(directory, FAILED_DIR);
+
+        for (File dir : new File[] { pendingDir, failedDir }) {
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new EBaseException("Unable to create " + dir);
+            }
+        }
+
+        threads = config.getThreads();
+        logger.info("AsyncPublishingQueue: - threads: " + threads);
+
+        batchSize = config.getBatchSize();
+        logger.info("AsyncPublishingQueue: - batch size: " + batchSize);
+
+        maxRetries = config.getMaxRetries();
+        logger.info("AsyncPublishingQueue: - max retries: " + maxRetries);
+
+        retryInterval = config.getRetryInterval();
+        logger.info("AsyncPublishingQueue: - retry interval: " + retryInterval);
+
+        // continue the sequence from the existing tasks
+        sequence.set(Math.max(getLastSequence(pendingDir), getLastSequence(failedDir)));
+
+        // the later tasks for the subjects of the failed tasks
+        // have to wait until the failed tasks are replayed or removed
+        File[] failedFiles = failedDir.listFiles((dir, name) -> name.endsWith(TASK_EXT));
+        if (failedFiles != null) {
+            Arrays.sort(failedFiles);
+            for (File file : failedFiles) {
+                try {
+                    Task task = loadTask(file);
+                    blockedSubjects.putIfAbsent(task.getSubject(), task.name);
+                } catch (Exception e) {
+                    logger.warn("AsyncPublishingQueue: Unable to load " + file + ": " + e.getMessage(), e);
+                }
+            }
+        }
+
+        // use dedicated connections so publishing does not compete
+        // with the other users of the publishing connection pool
+        LdapConnModule connModule = (LdapConnModule) processor.getLdapConnModule();
+        if (connModule != null) {
+            connFactory = connModule.createConnFactory("AsyncPublishingQueue", threads, threads);
+        }
+    }
+
+    public void start() {
+
+        running = true;
+
+        AtomicInteger counter = new AtomicInteger();
+        workerService = Executors.newFixedThreadPool(threads, r -> {
+            return new Thread(r, "AsyncPublishingQueue-" + counter.incrementAndGet());
+        });
+
+        workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker();
+            workerService.execute(workers[i]);
+        }
+
+        // load the pending tasks immediately (e.g. after a restart), then
+        // periodically load the tasks to be retried or replayed
+        executorService = Executors.newSingleThreadScheduledExecutor(r -> {
+            return new Thread(r, "AsyncPublishingQueueLoader");
+        });
+        executorService.scheduleWithFixedDelay(this::loadPendingTasks, 0, retryInterval, TimeUnit.SECONDS);
+    }
+
+    public void shutdown() {
+
+        logger.info("AsyncPublishingQueue: Shutting down asynchronous publishing");
+
+        // pending tasks will be published again after restart
+        running = false;
+
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+
+        if (workerService != null) {
+            workerService.shutdown();
+            try {
+                workerService.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (connFactory != null) {
+            try {
+                connFactory.reset();
+            } catch (ELdapException e) {
+                logger.warn("AsyncPublishingQueue: Unable to close connections: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Adds a certificate to be published with the specified rules.
+     *
+     * @param cert certificate to be published
+     * @param request request which provides the criteria
+     * @param rules names of the publishing rules
+     * @exception ELdapException Unable to store the certificate in the queue.
+     */
+    public void add(X509Certificate cert, Request request, List<String> rules) throws ELdapException {
+        add(PUBLISH, cert, request, rules);
+    }
+
+    /**
+     * Adds a certificate to be unpublished with the specified rules.
+     * The certificate will be unpublished after the earlier tasks
+     * for the same subject.
+     *
+     * @param cert certificate to be unpublished
+     * @param request request which provides the criteria
+     * @param rules names of the publishing rules
+     * @exception ELdapException Unable to store the certificate in the queue.
+     */
+    public void addUnpublish(X509Certificate cert, Request request, List<String> rules) throws ELdapException {
+        add(UNPUBLISH, cert, request, rules);
+    }
+
+    void add(String operation, X509Certificate cert, Request request, List<String> rules) throws ELdapException {
+
+        Task task = new Task();
+        task.name = String.format("%019d", sequence.incrementAndGet()) + TASK_EXT;
+        task.operation = operation;
+        task.cert = cert;
+        task.request = request;
+        task.requestID = request == null ? null : request.getRequestId().toString();
+        task.rules.addAll(rules);
+
+        logger.info("AsyncPublishingQueue: Queuing cert " + task.getSerialNumber() + " to " + operation + " as " + task.name);
+
+        // register the task before storing it so it will not be loaded again
+        activeTasks.add(task.name);
+
+        try {
+            storeTask(pendingDir, task);
+
+        } catch (Exception e) {
+            logger.warn("AsyncPublishingQueue: Unable to queue cert " + task.getSerialNumber() + ": " + e.getMessage(), e);
+
+            // make sure the cert will not be published by the queue too
+            try {
+                Files.deleteIfExists(new File(pendingDir, task.name).toPath());
+            } catch (IOException ex) {
+                logger.warn("AsyncPublishingQueue: Unable to remove " + task.name + ": " + ex.getMessage(), ex);
+            }
+
+            activeTasks.remove(task.name);
+            throw new ELdapException("Unable to queue cert " + task.getSerialNumber() + ": " + e.getMessage(), e);
+        }
+
+        submit(task);
+    }
+
+    void submit(Task task) {
+        int index = Math.floorMod(task.getSubject().hashCode(), workers.length);
+        workers[index].queue.add(task);
+    }
+
+    /**
+     * Returns true if the task has to wait for an earlier task
+     * for the same subject.
+     */
+    boolean isBlocked(Task task) {
+        String blocker = blockedSubjects.get(task.getSubject());
+        return blocker != null && !blocker.equals(task.name);
+    }
+
+    /**
+     * Releases the subject blocked by the task and loads the tasks
+     * that were waiting for it.
+     */
+    void release(Task task) {
+
+        if (!blockedSubjects.remove(task.getSubject(), task.name) || !running) {
+            return;
+        }
+
+        try {
+            executorService.execute(this::loadPendingTasks);
+        } catch (RejectedExecutionException e) {
+            // the tasks will be loaded after restart
+        }
+    }
+
+    void loadPendingTasks() {
+
+        try {
+            File[] files = pendingDir.listFiles((dir, name) -> name.endsWith(TASK_EXT));
+            if (files == null) {
+                return;
+            }
+
+            // release the subjects of the failed tasks that have been removed
+            for (Map.Entry<X500Principal, String> entry : blockedSubjects.entrySet()) {
+                String name = entry.getValue();
+                if (!new File(pendingDir, name).exists() && !new File(failedDir, name).exists()) {
+                    logger.info("AsyncPublishingQueue: Releasing tasks waiting for " + name);
+                    blockedSubjects.remove(entry.getKey(), name);
+                }
+            }
+
+            Arrays.sort(files);
+            long now = System.currentTimeMillis();
+
+            for (File file : files) {
+
+                String name = file.getName();
+                if (activeTasks.contains(name)) {
+                    continue;
+                }
+
+                Task task;
+                try {
+                    task = loadTask(file);
+                } catch (Exception e) {
+                    logger.warn("AsyncPublishingQueue: Unable to load " + file + ": " + e.getMessage(), e);
+                    continue;
+                }
+
+                // tasks are loaded in order, so an earlier task
+                // for the same subject is being retried or has failed
+                if (isBlocked(task)) {
+                    continue;
+                }
+
+                if (task.attempts > 0) {
+                    // the later tasks for the same subject wait for the retry
+                    blockedSubjects.putIfAbsent(task.getSubject(), task.name);
+
+                    // wait before retrying a failed task
+                    if (file.lastModified() + retryInterval * 1000L > now) {
+                        continue;
+                    }
+                }
+
+                if (!activeTasks.add(name)) {
+                    continue;
+                }
+
+                logger.info("AsyncPublishingQueue: Loading cert " + task.getSerialNumber() + " from " + name);
+                submit(task);
+            }
+
+        } catch (Throwable e) {
+            // keep the scheduled task running
+            logger.error("AsyncPublishingQueue: Unable to load pending tasks: " + e.getMessage(), e);
+        }
+    }
+
+    void publish(List<Task> batch) throws ELdapException {
+
+        logger.info("AsyncPublishingQueue: Publishing " + batch.size() + " cert(s)");
+
+        LDAPConnection conn = connFactory == null ? null : connFactory.getConn();
+
+        try {
+            // certs for the same entry and publisher are coalesced
+            Map<String, Update> updates = new LinkedHashMap<>();
+
+            for (Task task : batch) {
+
+                task.failures.clear();
+
+                if (task.isUnpublish()) {
+                    // publish the earlier certs before unpublishing
+                    flush(conn, updates);
+                }
+
+                for (String rule : task.rules) {
+                    try {
+                        if (task.isUnpublish()) {
+                            unpublish(conn, task, rule);
+                        } else {
+                            map(conn, task, rule, updates);
+                        }
+
+                    } catch (Throwable e) {
+                        logger.warn("AsyncPublishingQueue: Unable to " + task.operation + " cert " + task.getSerialNumber()
+                                + " with rule " + rule + ": " + e.getMessage(), e);
+                        task.failures.put(rule, e.toString());
+                    }
+                }
+            }
+
+            flush(conn, updates);
+
+        } finally {
+            if (conn != null) {
+                connFactory.returnConn(conn);
+            }
+        }
+
+        for (Task task : batch) {
+            complete(task);
+        }
+    }
+
+    /**
+     * Maps the certificate to the destination entries for the specified rule.
+     * The certificate will be published with a batch modify if the publisher
+     * supports it, or with the publisher directly otherwise.
+     */
+    void map(LDAPConnection conn, Task task, String ruleName, Map<String, Update> updates) throws Exception {
+
+        LdapRule rule = processor.getRuleInsts().get(ruleName);
+        if (rule == null || !rule.enabled()) {
+            logger.info("AsyncPublishingQueue: Rule " + ruleName + " is no longer enabled");
+            return;
+        }
+
+        String publisherName = rule.getPublisher();
+        ILdapPublisher publisher = processor.getActivePublisherInstance(publisherName);
+        if (publisher == null) {
+            throw new ELdapException("Publisher not available: " + publisherName);
+        }
+
+        ILdapMapper mapper = null;
+        String mapperName = rule.getMapper();
+        if (mapperName != null && !mapperName.trim().equals("")) {
+            mapper = processor.getActiveMapperInstance(mapperName);
+        }
+
+        List<String> dns = new ArrayList<>();
+
+        if (mapper instanceof LdapCertSubjMap && ((LdapCertSubjMap) mapper).useAllEntries()) {
+            Vector<String> results = ((LdapCertSubjMap) mapper).mapAll(conn, task.getRequest(), task.cert);
+            if (results != null) {
+                dns.addAll(results);
+            }
+
+        } else if (mapper != null) {
+            String dn = mapper.map(conn, task.getRequest(), task.cert);
+            if (dn != null) {
+                dns.add(dn);
+            }
+        }
+
+        if (dns.isEmpty()) {
+            if (publisher instanceof FileBasedPublisher) {
+                publisher.publish(conn, null, task.cert);
+            }
+            return;
+        }
+
+        if (conn != null
+                && publisher instanceof LdapBatchPublisher
+                && ((LdapBatchPublisher) publisher).isBatchEnabled()) {
+
+            for (String dn : dns) {
+                String key = publisherName + ":" + dn.toLowerCase();
+                Update update = updates.computeIfAbsent(key, k -> new Update((LdapBatchPublisher) publisher, dn));
+                update.add(task, ruleName);
+            }
+            return;
+        }
+
+        for (String dn : dns) {
+            logger.info("AsyncPublishingQueue: Publishing cert " + task.getSerialNumber() + " to " + dn);
+            publisher.publish(conn, dn, task.cert);
+        }
+    }
+
+    /**
+     * Unpublishes the certificate with the specified rule.
+     */
+    void unpublish(LDAPConnection conn, Task task, String ruleName) throws Exception {
+
+        LdapRule rule = processor.getRuleInsts().get(ruleName);
+        if (rule == null || !rule.enabled()) {
+            logger.info("AsyncPublishingQueue: Rule " + ruleName + " is no longer enabled");
+            return;
+        }
+
+        String publisherName = rule.getPublisher();
+        ILdapPublisher publisher = processor.getActivePublisherInstance(publisherName);
+        if (publisher == null) {
+            throw new ELdapException("Publisher not available: " + publisherName);
+        }
+
+        String dn = null;
+        String mapperName = rule.getMapper();
+        if (mapperName != null && !mapperName.trim().equals("")) {
+            ILdapMapper mapper = processor.getActiveMapperInstance(mapperName);
+            if (mapper != null) {
+                dn = mapper.map(conn, task.getRequest(), task.cert);
+            }
+        }
+
+        logger.info("AsyncPublishingQueue: Unpublishing cert " + task.getSerialNumber() + " from " + dn);
+        publisher.unpublish(conn, dn, task.cert);
+    }
+
+    /**
+     * Applies the coalesced modifications and clears them.
+     */
+    void flush(LDAPConnection conn, Map<String, Update> updates) {
+
+        if (updates.isEmpty()) {
+            return;
+        }
+
+        modify(conn, updates.values());
+        updates.clear();
+    }
+
+    /**
+     * Reads the destination entries and applies the modifications.
+     * All operations are sent before the responses are processed.
+     */
+    void modify(LDAPConnection conn, Collection<Update> updates) {
+
+        for (Update update : updates) {
+            try {
+                update.searchListener = conn.search(
+                        update.dn,
+                        LDAPv3.SCOPE_BASE,
+                        "(objectclass=*)",
+                        update.publisher.getBatchAttributes(),
+                        false,
+                        (LDAPSearchListener) null,
+                        conn.getSearchConstraints());
+
+            } catch (LDAPException e) {
+                update.fail(e.toString());
+            }
+        }
+
+        for (Update update : updates) {
+
+            if (update.searchListener == null) {
+                continue;
+            }
+
+            try {
+                LDAPEntry entry = readEntry(update.searchListener);
+
+                LDAPModificationSet mods = update.publisher.getModifications(update.dn, entry, update.getCerts());
+                if (mods.size() == 0) {
+                    continue;
+                }
+
+                logger.info("AsyncPublishingQueue: Publishing " + update.tasks.size() + " cert(s) to " + update.dn);
+                update.modifyListener = conn.modify(update.dn, mods, null, conn.getConstraints());
+
+            } catch (Exception e) {
+                update.fail(e.toString());
+            }
+        }
+
+        for (Update update : updates) {
+
+            if (update.modifyListener == null) {
+                continue;
+            }
+
+            try {
+                LDAPResponse response = update.modifyListener.getResponse();
+                int resultCode = response.getResultCode();
+
+                if (resultCode != LDAPException.SUCCESS) {
+                    update.fail("LDAP modify failed: " + response.getErrorMessage() + " (result code " + resultCode + ")");
+                    continue;
+                }
+
+                for (Task task : update.tasks) {
+                    logger.info(
+                            AuditFormat.LDAP_PUBLISHED_FORMAT,
+                            update.publisher.getImplName(),
+                            task.cert.getSerialNumber().toString(16),
+                            task.cert.getSubjectDN());
+                }
+
+            } catch (LDAPException e) {
+                update.fail(e.toString());
+            }
+        }
+    }
+
+    LDAPEntry readEntry(LDAPSearchListener listener) throws LDAPException {
+
+        LDAPEntry entry = null;
+
+        while (true) {
+            LDAPMessage message = listener.getResponse();
+
+            if (message instanceof LDAPSearchResult) {
+                entry = ((LDAPSearchResult) message).getEntry();
+                continue;
+            }
+
+            if (!(message instanceof LDAPResponse)) {
+                continue;
+            }
+
+            LDAPResponse response = (LDAPResponse) message;
+            int resultCode = response.getResultCode();
+
+            if (resultCode != LDAPException.SUCCESS) {
+                throw new LDAPException("LDAP search failed", resultCode, response.getErrorMessage());
+            }
+
+            return entry;
+        }
+    }
+
+    /**
+     * Removes a published task, or keeps the failed rules for retry.
+     */
+    void complete(Task task) {
+
+        try {
+            File pendingFile = new File(pendingDir, task.name);
+
+            if (task.failures.isEmpty()) {
+                Files.deleteIfExists(pendingFile.toPath());
+                processor.setPublishedFlag(task.cert.getSerialNumber(), !task.isUnpublish());
+                logger.info("AsyncPublishingQueue: Completed " + task.operation + " of cert " + task.getSerialNumber());
+                release(task);
+                return;
+            }
+
+            task.rules = new ArrayList<>(task.failures.keySet());
+            task.error = String.join("; ", task.failures.values()).replaceAll("[\\r\\n]+", " ");
+            task.attempts++;
+
+            // the later tasks for the same subject wait until this task
+            // is completed, or replayed or removed if it has failed
+            blockedSubjects.putIfAbsent(task.getSubject(), task.name);
+
+            if (task.attempts > maxRetries) {
+                logger.error("AsyncPublishingQueue: Unable to " + task.operation + " cert " + task.getSerialNumber()
+                        + " after " + task.attempts + " attempt(s): " + task.error);
+                storeTask(failedDir, task);
+                Files.deleteIfExists(pendingFile.toPath());
+                return;
+            }
+
+            logger.warn("AsyncPublishingQueue: Unable to " + task.operation + " cert " + task.getSerialNumber()
+                    + ", will retry in " + retryInterval + " seconds: " + task.error);
+            storeTask(pendingDir, task);
+
+        } catch (Exception e) {
+            logger.error("AsyncPublishingQueue: Unable to update " + task.name + ": " + e.getMessage(), e);
+
+        } finally {
+            activeTasks.remove(task.name);
+        }
+    }
+
+    long getLastSequence(File dir) {
+
+        long last = 0;
+
+        String[] names = dir.list((d, name) -> name.endsWith(TASK_EXT));
+        if (names == null) {
+            return last;
+        }
+
+        for (String name : names) {
+            try {
+                last = Math.max(last, Long.parseLong(name.substring(0, name.length() - TASK_EXT.length())));
+            } catch (NumberFormatException e) {
+                // not created by the queue
+            }
+        }
+
+        return last;
+    }
+
+    /**
+     * Stores the task as name=value lines so it can be managed with
+     * the pki-server ca-publishing-queue commands. The task is written
+     * into a temporary file and synced to disk before it is moved into
+     * place, so an existing task is never replaced by an incomplete one.
+     */
+    void storeTask(File dir, Task task) throws Exception {
+
+        File file = new File(dir, task.name);
+        File tmpFile = new File(dir, task.name + ".tmp");
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("operation=" + task.operation + "\n");
+        sb.append("serialNumber=" + task.getSerialNumber() + "\n");
+        sb.append("subjectDN=" + task.cert.getSubjectDN() + "\n");
+        sb.append("requestID=" + (task.requestID == null ? "" : task.requestID) + "\n");
+        sb.append("rules=" + String.join(",", task.rules) + "\n");
+        sb.append("attempts=" + task.attempts + "\n");
+        sb.append("error=" + (task.error == null ? "" : task.error) + "\n");
+        sb.append("certificate=" + Base64.getEncoder().encodeToString(task.cert.getEncoded()) + "\n");
+
+        ByteBuffer buffer = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+
+        try {
+            try (FileChannel channel = FileChannel.open(tmpFile.toPath(),
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+
+                channel.force(true);
+            }
+
+            Files.move(tmpFile.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+
+        } catch (Exception e) {
+            Files.deleteIfExists(tmpFile.toPath());
+            throw e;
+        }
+
+        // sync the directory so the new name survives a crash
+        try (FileChannel channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    Task loadTask(File file) throws Exception {
+
+        Map<String, String> props = new HashMap<>();
+
+        for (String line : Files.readAllLines(file.toPath())) {
+            int i = line.indexOf('=');
+            if (i < 0) {
+                continue;
+            }
+            props.put(line.substring(0, i).trim(), line.substring(i + 1).trim());
+        }
+
+        String certificate = props.get("certificate");
+        if (certificate == null || certificate.isEmpty()) {
+            throw new IOException("Missing certificate");
+        }
+
+        Task task = new Task();
+        task.name = file.getName();
+        task.cert = new X509CertImpl(Base64.getDecoder().decode(certificate));
+
+        String operation = props.get("operation");
+        if (operation != null && !operation.isEmpty()) {
+            task.operation = operation;
+        }
+
+        String requestID = props.get("requestID");
+        if (requestID != null && !requestID.isEmpty()) {
+            task.requestID = requestID;
+        }
+
+        String rules = props.get("rules");
+        if (rules != null && !rules.isEmpty()) {
+            task.rules.addAll(Arrays.asList(rules.split(",")));
+        }
+
+        String attempts = props.get("attempts");
+        if (attempts != null && !attempts.isEmpty()) {
+            task.attempts = Integer.parseInt(attempts);
+        }
+
+        String error = props.get("error");
+        if (error != null && !error.isEmpty()) {
+            task.error = error;
+        }
+
+        return task;
+    }
+}
@@ -20,7 +20,9 @@ package com.netscape.cmscore.ldap;
 import java.math.BigInteger;
 import java.security.cert.X509CRL;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.Vector;
 
 import org.dogtagpki.server.ca.CAEngine;
@@ -64,6 +66,7 @@ public class CAPublisherProcessor extends PublisherProcessor {
 
     protected CertificateAuthority ca;
     private boolean createOwnDNEntry;
+    private AsyncPublishingQueue asyncQueue;
 
     public CAPublisherProcessor(String id) {
         super(id);
@@ -73,6 +76,10 @@ public class CAPublisherProcessor extends PublisherProcessor {
         return ca;
     }
 
+    public AsyncPublishingQueue getAsyncQueue() {
+        return asyncQueue;
+    }
+
     public void init(CertificateAuthority ca, PublishingConfig config) throws EBaseException {
 
         this.ca = ca;
@@ -123,6 +130,14 @@ public class CAPublisherProcessor extends PublisherProcessor {
                         publishingQueuePageSize,
                         savePublishingStatus);
             }
+
+            PublishingAsyncConfig asyncConfig = mConfig.getAsyncConfig();
+
+            if (asyncConfig.getEnable()) {
+                asyncQueue = new AsyncPublishingQueue(this);
+                asyncQueue.init(asyncConfig);
+                asyncQueue.start();
+            }
         }
     }
 
@@ -131,6 +146,11 @@ public class CAPublisherProcessor extends PublisherProcessor {
 
         logger.debug("Shuting down CA publishing");
 
+        // certs queued after this point will be published after restart
+        if (asyncQueue != null) {
+            asyncQueue.shutdown();
+        }
+
         if (requestListener != null) {
             CAEngine engine = CAEngine.getInstance();
             // requestListener.shutdown();
@@ -408,6 +428,22 @@ public class CAPublisherProcessor extends PublisherProcessor {
 
             error = true;
             errorRule.append("No rules enabled");
+
+        } else if (asyncQueue != null) {
+            // the cert will be published and flagged by the queue
+            List<String> ruleNames = new ArrayList<>();
+            while (rules.hasMoreElements()) {
+                ruleNames.add(rules.nextElement().getInstanceName());
+            }
+
+            try {
+                asyncQueue.add(cert, req, ruleNames);
+                return;
+
+            } catch (ELdapException e) {
+                logger.warn("CAPublisherProcessor: Publishing cert synchronously: " + e.getMessage(), e);
+                rules = getRules("certs", req);
+            }
         }
 
         while (rules != null && rules.hasMoreElements()) {
@@ -476,6 +512,23 @@ public class CAPublisherProcessor extends PublisherProcessor {
             throw new ELdapException(CMS.getUserMessage("CMS_LDAP_NO_RULE_MATCHED", req.getRequestId().toString()));
         }
 
+        if (asyncQueue != null) {
+            // the cert will be unpublished after it has been published by the queue
+            List<String> ruleNames = new ArrayList<>();
+            while (rules.hasMoreElements()) {
+                ruleNames.add(rules.nextElement().getInstanceName());
+            }
+
+            try {
+                asyncQueue.addUnpublish(cert, req, ruleNames);
+                return;
+
+            } catch (ELdapException e) {
+                logger.warn("CAPublisherProcessor: Unpublishing cert synchronously: " + e.getMessage(), e);
+                rules = getRules("certs", req);
+            }
+        }
+
         while (rules.hasMoreElements()) {
             LdapRule rule = rules.nextElement();
 
@@ -67,18 +67,43 @@ public class LdapConnModule implements ILdapConnModule {
 
         logger.debug("LdapConnModule: init begins");
 
+        mConfig = config;
+
+        int minConns = mConfig.getInteger(LdapBoundConnFactory.PROP_MINCONNS, 3);
+        int maxConns = mConfig.getInteger(LdapBoundConnFactory.PROP_MAXCONNS, 15);
+        // must get authInfo from the config, don't default to internaldb!!!
+
+        logger.debug("Creating LdapBoundConnFactory for LdapConnModule.");
+        mLdapConnFactory = createConnFactory("LDAPConnModule", minConns, maxConns);
+
+        mInited = true;
+
+        logger.debug("LdapConnModule: init ends");
+    }
+
+    /**
+     * Creates a separate connection factory to the publishing directory
+     * using the same connection and authentication parameters as the
+     * internal connection factory. The caller is responsible for
+     * resetting the factory when it is no longer needed.
+     *
+     * @param id connection factory ID
+     * @param minConns minimum number of connections
+     * @param maxConns maximum number of connections
+     * @return connection factory
+     */
+    public LdapBoundConnFactory createConnFactory(String id, int minConns, int maxConns) throws EBaseException {
+
+        if (mConfig == null) {
+            throw new ELdapException("Missing publishing directory configuration");
+        }
+
         CAEngine engine = CAEngine.getInstance();
         CAEngineConfig cs = engine.getConfig();
 
         PKISocketConfig socketConfig = cs.getSocketConfig();
         IPasswordStore passwordStore = engine.getPasswordStore();
 
-        mConfig = config;
-        /*
-        mLdapConnFactory = new LdapBoundConnFactory();
-        mLdapConnFactory.init(mConfig.getSubStore("ldap"));
-        */
-
         // support publishing dirsrv with different pwd than internaldb
         LDAPConfig ldap = mConfig.getSubStore("ldap", LDAPConfig.class);
 
@@ -95,17 +120,10 @@ public class LdapConnModule implements ILdapConnModule {
                 connConfig.getInteger("port"),
                 connInfo.getSecure());
 
-        int minConns = mConfig.getInteger(LdapBoundConnFactory.PROP_MINCONNS, 3);
-        int maxConns = mConfig.getInteger(LdapBoundConnFactory.PROP_MAXCONNS, 15);
-        // must get authInfo from the config, don't default to internaldb!!!
-
-        logger.debug("Creating LdapBoundConnFactory for LdapConnModule.");
-        mLdapConnFactory = new LdapBoundConnFactory("LDAPConnModule", minConns, maxConns, connInfo, authInfo);
-        mLdapConnFactory.init(socketConfig, passwordStore);
+        LdapBoundConnFactory factory = new LdapBoundConnFactory(id, minConns, maxConns, connInfo, authInfo);
+        factory.init(socketConfig, passwordStore);
 
-        mInited = true;
-
-        logger.debug("LdapConnModule: init ends");
+        return factory;
     }
 
     /**
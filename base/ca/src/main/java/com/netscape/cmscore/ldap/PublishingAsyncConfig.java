@@ -0,0 +1,70 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.ldap;
+
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.cmscore.base.ConfigStorage;
+import com.netscape.cmscore.base.ConfigStore;
+import com.netscape.cmscore.base.SimpleProperties;
+
+/**
+ * Provides ca.publish.async.* parameters.
+ */
+public class PublishingAsyncConfig extends ConfigStore {
+
+    public PublishingAsyncConfig() {
+    }
+
+    public PublishingAsyncConfig(ConfigStorage storage) {
+        super(storage);
+    }
+
+    public PublishingAsyncConfig(String name, SimpleProperties source) {
+        super(name, source);
+    }
+
+    /**
+     * Returns ca.publish.async.enable parameter.
+     */
+    public boolean getEnable() throws EBaseException {
+        return getBoolean("enable", false);
+    }
+
+    /**
+     * Returns ca.publish.async.directory parameter.
+     */
+    public String getDirectory() throws EBaseException {
+        return getString("directory", null);
+    }
+
+    /**
+     * Returns ca.publish.async.threads parameter.
+     */
+    public int getThreads() throws EBaseException {
+        return getInteger("threads", 4);
+    }
+
+    /**
+     * Returns ca.publish.async.batchSize parameter.
+     */
+    public int getBatchSize() throws EBaseException {
+        return getInteger("batchSize", 100);
+    }
+
+    /**
+     * Returns ca.publish.async.maxRetries parameter.
+     */
+    public int getMaxRetries() throws EBaseException {
+        return getInteger("maxRetries", 5);
+    }
+
+    /**
+     * Returns ca.publish.async.retryInterval parameter (in seconds).
+     */
+    public int getRetryInterval() throws EBaseException {
+        return getInteger("retryInterval", 60);
+    }
+}
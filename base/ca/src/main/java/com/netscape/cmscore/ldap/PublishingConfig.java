@@ -38,4 +38,8 @@ public class PublishingConfig extends ConfigStore {
     public PublishingRuleConfig getRuleConfig() {
         return getSubStore("rule", PublishingRuleConfig.class);
     }
+
+    public PublishingAsyncConfig getAsyncConfig() {
+        return getSubStore("async", PublishingAsyncConfig.class);
+    }
 }
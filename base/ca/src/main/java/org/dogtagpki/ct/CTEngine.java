@@ -16,7 +16,16 @@ import java.security.cert.X509Certificate;
 import java.security.spec.X509EncodedKeySpec;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.net.ntp.TimeStamp;
 import org.dogtagpki.ct.sct.SCTProcessor;
@@ -53,13 +62,114 @@ public class CTEngine {
     public static org.slf4j.Logger logger =
             org.slf4j.LoggerFactory.getLogger(CTEngine.class);
 
-    SCTProcessor ctConfig = null;
-    public void init()  throws Exception {
+    /**
+     * Log server configuration with the public key and the key ID
+     * parsed in advance, and signature verifiers reused by each thread.
+     */
+    static class CTLog {
+
+        LogServer server;
+        String host;
+        int port;
+        String uri;
+
+        PublicKey publicKey;
+        String keyID;
+
+        ThreadLocal<Map<String, Signature>> verifiers = ThreadLocal.withInitial(HashMap::new);
+
+        CTLog(LogServer server) {
+            this.server = server;
+            host = server.getUrl().getHost();
+            port = server.getUrl().getPort();
+            // TODO: Refactor to form right rest API
+            uri = server.getUrl() + "ct/v1/add-pre-chain";
+
+            try {
+                byte[] encodedKey = CryptoUtil.base64Decode(server.getPublicKey());
+                publicKey = KeyFactory.getInstance("EC", "Mozilla-JSS").generatePublic(
+                        new X509EncodedKeySpec(encodedKey));
+
+                MessageDigest digest = MessageDigest.getInstance("SHA256");
+                keyID = CryptoUtil.base64Encode(digest.digest(publicKey.getEncoded()));
+
+            } catch (Exception e) {
+                // SCTs from this log will fail verification
+                logger.warn("CTEngine: Unable to parse public key of log server "
+                        + server.getId() + ": " + e.getMessage(), e);
+            }
+        }
+
+        Signature getVerifier(String algorithm) throws Exception {
+            Map<String, Signature> map = verifiers.get();
+            Signature verifier = map.get(algorithm);
+            if (verifier == null) {
+                verifier = Signature.getInstance(algorithm, "Mozilla-JSS");
+                map.put(algorithm, verifier);
+            }
+            return verifier;
+        }
+    }
+
+    /**
+     * SCT response from a log server.
+     */
+    static class SCTResult {
+        int index;
+        String response;
+        boolean verified;
+    }
+
+    volatile SCTProcessor ctConfig = null;
+
+    List<CTLog> logs;
+    int timeout;
+    int minSCTs;
+    ExecutorService executor;
+
+    public synchronized void init()  throws Exception {
+
+        if (ctConfig != null) {
+            return;
+        }
+
+        String method = "CTEngine.init: ";
+
         // for getting CT config from CS.cfg
-        ctConfig = new SCTProcessor();
+        SCTProcessor config = new SCTProcessor();
 
         // Initialize CT configuration
-        ctConfig.init();
+        config.init();
+
+        timeout = config.getTimeout();
+        logger.debug(method + "timeout: " + timeout);
+
+        minSCTs = config.getMinSCTs();
+        logger.debug(method + "min SCTs: " + minSCTs);
+
+        logs = new ArrayList<>();
+        for (LogServer ls : config.getLogServerConfig()) {
+            logger.debug(method + "Log server " + ls.getId() + ": " + ls.getUrl());
+            logs.add(new CTLog(ls));
+        }
+
+        int threads = config.getThreads();
+        logger.debug(method + "threads: " + threads);
+
+        AtomicInteger counter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "CTSubmitter-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        ctConfig = config;
+    }
+
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
     }
 
     /**
@@ -166,53 +276,8 @@ public class CTEngine {
              */
             byte[] tbsCert = certi.getEncodedInfo(true);
 
-            List<LogServer> logServers = ctConfig.getLogServerConfig();
-            List<String> ctResponses = new ArrayList<>();
-
-            // loop through all CT log servers
-            for (LogServer ls : logServers) {
-                logger.debug(method + "Processing log server ID: " + ls.getId());
-
-                String ct_host = ls.getUrl().getHost();
-                logger.debug(method + "Log server host: " + ct_host);
-
-                int ct_port = ls.getUrl().getPort();
-                logger.debug(method + "Log server port: " + ct_port);
-
-                // TODO: Refactor to form right rest API
-                String ct_uri = ls.getUrl() + "ct/v1/add-pre-chain";
-                logger.debug(method + "Log server URI: " + ct_uri);
-
-                String respS = certTransSendReq(ct_host, ct_port, ct_uri, ctRequest);
-                if (respS == null) {
-                    errMsg = method + "Response from CT log server null";
-                    logger.warn(errMsg);
-                    // allow for CT log to fail to respond
-                    // skip to next CT log server
-                    continue;
-                }
-                logger.debug(method + "Response from CT log server " + respS);
-
-                // verify the sct
-
-                /* TODO this should be a configurable; hardcoded for now */
-                boolean allowFailedSCTVerification = true;
-                final CTResponse response = JSONSerializer.fromJSON(respS, CTResponse.class);
-                boolean verified = verifySCT(response, tbsCert, ls.getPublicKey(), ctCA);
-                if (verified) {
-                    logger.info(method + "verifySCT returned true; SCT is valid");
-                } else {
-                    // log at WARN if !verified, regardless of how we are treating
-                    // failed verifications, because it is indicative of log server
-                    // misbehavoiur
-                    logger.warn(method + "verifySCT returns false; SCT failed to verify");
-                }
-                if (verified || allowFailedSCTVerification) {
-                    ctResponses.add(respS);
-                } else {
-                    throw new EBaseException(errMsg);
-                }
-            }
+            // submit the precert to all CT log servers concurrently
+            List<String> ctResponses = submitPreCert(ctRequest, tbsCert, ctCA);
 
             /**
              * Now onto turning the precert into a real cert with the SCT list extension
@@ -238,6 +303,147 @@ public class CTEngine {
         }
     }
 
+    /**
+     * Submits the precert to all CT log servers concurrently and waits
+     * until all log servers have responded, the configured number of
+     * verified SCTs has been received, or the timeout has expired,
+     * whichever comes first.
+     *
+     * @return the responses in the order of the log server configuration
+     */
+    List<String> submitPreCert(CTRequest ctRequest, byte[] tbsCert, CertificateAuthority ctCA)
+            throws Exception {
+
+        String method = "CTEngine.submitPreCert: ";
+
+        // serialize the request and hash the issuer key once for all log servers
+        String request = ctRequest.toString();
+
+        /** per rfc 6962 -
+         * "issuer_key_hash" is the SHA-256 hash of the certificate issuer's
+         * public key, calculated over the DER encoding of the key represented
+         * as SubjectPublicKeyInfo.  This is needed to bind the issuer to the
+         * final certificate.
+         */
+        X509CertImpl cacert = ctCA.getCACert();
+        byte[] issuer_key = cacert.getPublicKey().getEncoded();
+        byte[] issuerKeyHash = MessageDigest.getInstance("SHA256").digest(issuer_key);
+
+        CompletionService<SCTResult> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<SCTResult>> futures = new ArrayList<>();
+
+        for (int i = 0; i < logs.size(); i++) {
+            int index = i;
+            CTLog log = logs.get(i);
+            futures.add(completionService.submit(() -> submitPreCert(index, log, request, tbsCert, issuerKeyHash)));
+        }
+
+        String[] responses = new String[logs.size()];
+        int verified = 0;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+
+                long remaining = deadline - System.nanoTime();
+                Future<SCTResult> future = completionService.poll(remaining, TimeUnit.NANOSECONDS);
+
+                if (future == null) {
+                    logger.warn(method + "Timeout waiting for CT log servers after " + timeout + " ms");
+                    break;
+                }
+
+                SCTResult result = future.get();
+                if (result == null) {
+                    // allow for CT log to fail to respond
+                    continue;
+                }
+
+                responses[result.index] = result.response;
+
+                if (result.verified) {
+                    verified++;
+                }
+
+                if (minSCTs > 0 && verified >= minSCTs) {
+                    logger.debug(method + "Received " + verified + " verified SCTs");
+                    break;
+                }
+            }
+
+        } finally {
+            // do not wait for the remaining log servers
+            for (Future<SCTResult> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+        if (minSCTs > 0 && verified < minSCTs) {
+            logger.warn(method + "Received " + verified + " verified SCTs, expected " + minSCTs);
+        }
+
+        List<String> ctResponses = new ArrayList<>();
+        for (String response : responses) {
+            if (response != null) {
+                ctResponses.add(response);
+            }
+        }
+
+        return ctResponses;
+    }
+
+    /**
+     * Submits the precert to a CT log server and verifies the SCT.
+     *
+     * @return the SCT response, or null if the log server did not respond
+     */
+    SCTResult submitPreCert(int index, CTLog log, String request, byte[] tbsCert, byte[] issuerKeyHash) {
+
+        String method = "CTEngine.submitPreCert: ";
+        logger.debug(method + "Processing log server ID: " + log.server.getId());
+        logger.debug(method + "Log server URI: " + log.uri);
+
+        String respS = certTransSendReq(log.host, log.port, log.uri, request);
+        if (respS == null) {
+            logger.warn(method + "Response from CT log server " + log.server.getId() + " null");
+            return null;
+        }
+        logger.debug(method + "Response from CT log server " + respS);
+
+        // verify the sct
+
+        /* TODO this should be a configurable; hardcoded for now */
+        boolean allowFailedSCTVerification = true;
+
+        CTResponse response;
+        try {
+            response = JSONSerializer.fromJSON(respS, CTResponse.class);
+        } catch (Exception e) {
+            logger.warn(method + "Invalid response from CT log server " + log.server.getId() + ": " + e.getMessage());
+            return null;
+        }
+
+        boolean verified = verifySCT(response, tbsCert, log, issuerKeyHash);
+        if (verified) {
+            logger.info(method + "verifySCT returned true; SCT is valid");
+        } else {
+            // log at WARN if !verified, regardless of how we are treating
+            // failed verifications, because it is indicative of log server
+            // misbehavoiur
+            logger.warn(method + "verifySCT returns false; SCT failed to verify");
+        }
+
+        if (!verified && !allowFailedSCTVerification) {
+            return null;
+        }
+
+        SCTResult result = new SCTResult();
+        result.index = index;
+        result.response = respS;
+        result.verified = verified;
+        return result;
+    }
+
     /**
      * (Certificate Transparency)
      *
@@ -442,10 +648,11 @@ public class CTEngine {
     *
     * @param response CT log server response
     * @param tbsCert encoded TBSCert
-    * @param logPublicKey public key of log
+    * @param log CT log with pre-parsed public key
+    * @param issuer_key_hash SHA-256 hash of the CA public key
     * @return boolean true for verified; false for not verified
     */
-    boolean verifySCT(CTResponse response, byte[] tbsCert, String logPublicKey, CertificateAuthority ctCA) {
+    boolean verifySCT(CTResponse response, byte[] tbsCert, CTLog log, byte[] issuer_key_hash) {
         String method = "CTEngine.:verifySCT: ";
         String errMsg = "";
         logger.debug(method + "begins");
@@ -503,18 +710,17 @@ public class CTEngine {
             byte[] signature_type = new byte[] {0}; // 1 byte; certificate_timestamp(0)
             byte[] entry_type = new byte[] {0, 1}; // 2 bytes; LogEntryType: precert_entry(1)
 
-            logger.debug(method + "using CT log public key: " + logPublicKey);
-            byte logPublicKey_b[] = CryptoUtil.base64Decode(logPublicKey);
+            logger.debug(method + "using CT log public key: " + log.server.getPublicKey());
 
             // First, verify the log id
-            PublicKey log_pubKey = KeyFactory.getInstance("EC", "Mozilla-JSS").generatePublic(
-                    new X509EncodedKeySpec(logPublicKey_b));
-
-            byte[] log_key_hash = null;
-            MessageDigest SHA256Digest = MessageDigest.getInstance("SHA256");
+            PublicKey log_pubKey = log.publicKey;
+            if (log_pubKey == null) {
+                logger.debug(method + "invalid CT log public key");
+                return false;
+            }
 
-            log_key_hash = SHA256Digest.digest(log_pubKey.getEncoded());
-            String log_key_hash_s = CryptoUtil.base64Encode(log_key_hash);
+            // the key hash is calculated when the log configuration is loaded
+            String log_key_hash_s = log.keyID;
             logger.debug(method + "CT log signer key hash: " + log_key_hash_s);
             if (log_key_hash_s.compareTo(response.getId()) == 0) {
                 logger.debug(method + "CT log signer key hash matches key id");
@@ -524,16 +730,6 @@ public class CTEngine {
                 return false;
             }
 
-            /** per rfc 6962 -
-             * "issuer_key_hash" is the SHA-256 hash of the certificate issuer's
-             * public key, calculated over the DER encoding of the key represented
-             * as SubjectPublicKeyInfo.  This is needed to bind the issuer to the
-             * final certificate.
-             */
-            X509CertImpl cacert = ctCA.getCACert();
-            byte[] issuer_key = cacert.getPublicKey().getEncoded();
-            byte[] issuer_key_hash = SHA256Digest.digest(issuer_key);
-
             String extensions_s = response.getExtensions();
             if (extensions_s == null) {
                 extensions_s = "";
@@ -568,8 +764,7 @@ public class CTEngine {
             byte[] data = ostream.toByteArray();
             logger.debug(method + "actual data len = " + data.length);
 
-            Signature signer = Signature.getInstance(
-                    hashAlg + "with"+ sigAlg, "Mozilla-JSS");
+            Signature signer = log.getVerifier(hashAlg + "with"+ sigAlg);
             signer.initVerify(log_pubKey);
             signer.update(data);
 
@@ -669,10 +864,10 @@ public class CTEngine {
      * @param ct_host host name
      * @param ct_port port #
      * @param ct_uri uri of the CT log server
-     * @param ctReq CT request
+     * @param ctReq CT request in JSON
      * @return response content from CT log server
      */
-    private String certTransSendReq(String ct_host, int ct_port, String ct_uri, CTRequest ctReq) {
+    private String certTransSendReq(String ct_host, int ct_port, String ct_uri, String ctReq) {
         String method = "CTEngine.certTransSendReq: ";
         HttpClient client = new HttpClient();
         HttpRequest req = new HttpRequest();
@@ -680,12 +875,13 @@ public class CTEngine {
 
         logger.debug(method + "begins");
         try {
-            client.connect(ct_host, ct_port);
+            // do not wait for the log server beyond the deadline
+            client.connect(ct_host, ct_port, timeout);
             req.setMethod("POST");
             req.setURI(ct_uri);
             req.setHeader("Content-Type", "application/json");
-            req.setContent(ctReq.toString());
-            req.setHeader("Content-Length", Integer.toString(ctReq.toString().length()));
+            req.setContent(ctReq);
+            req.setHeader("Content-Length", Integer.toString(ctReq.length()));
 
             resp = client.send(req);
             if (resp == null)
@@ -65,6 +65,31 @@ public class SCTProcessor {
         }
     }
 
+    /**
+     * Maximum time in milliseconds to wait for the SCTs of a certificate
+     * (ca.certTransparency.timeout).
+     */
+    public int getTimeout() throws EBaseException {
+        return mConfig.getInteger("timeout", 10000);
+    }
+
+    /**
+     * Number of verified SCTs after which the remaining log servers are
+     * not waited for, or 0 to wait for all log servers
+     * (ca.certTransparency.minSCTs).
+     */
+    public int getMinSCTs() throws EBaseException {
+        return mConfig.getInteger("minSCTs", 0);
+    }
+
+    /**
+     * Number of threads used to submit precertificates to the log servers
+     * (ca.certTransparency.threads).
+     */
+    public int getThreads() throws EBaseException {
+        return mConfig.getInteger("threads", 16);
+    }
+
     /**
      * Read log server configuration from CA's CS.cfg
      *
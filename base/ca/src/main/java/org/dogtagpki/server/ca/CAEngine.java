@@ -1723,6 +1723,10 @@ public class CAEngine extends CMSEngine {
         if (publisherProcessor != null) {
             publisherProcessor.shutdown();
         }
+
+        if (caService != null) {
+            caService.shutdown();
+        }
     }
 
     public void shutdownAuthorityMonitor() {
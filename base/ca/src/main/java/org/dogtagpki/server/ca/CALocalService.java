@@ -0,0 +1,232 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.server.ca;
+
+import java.math.BigInteger;
+import java.security.Principal;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+
+import org.dogtagpki.server.authentication.AuthToken;
+import org.dogtagpki.tomcat.LocalCA;
+import org.mozilla.jss.netscape.security.util.Cert;
+import org.mozilla.jss.netscape.security.util.Utils;
+import org.mozilla.jss.netscape.security.x509.RevocationReason;
+import org.mozilla.jss.netscape.security.x509.X509CertImpl;
+
+import com.netscape.ca.CertificateAuthority;
+import com.netscape.certsrv.authentication.AuthCredentials;
+import com.netscape.certsrv.base.SessionContext;
+import com.netscape.certsrv.base.UnauthorizedException;
+import com.netscape.certsrv.cert.CertEnrollmentRequest;
+import com.netscape.certsrv.dbs.certdb.CertId;
+import com.netscape.certsrv.logging.AuditFormat;
+import com.netscape.certsrv.logging.ILogger;
+import com.netscape.certsrv.profile.ProfileAttribute;
+import com.netscape.certsrv.profile.ProfileInput;
+import com.netscape.certsrv.request.RequestStatus;
+import com.netscape.cms.realm.PKIPrincipal;
+import com.netscape.cms.realm.PKIRealm;
+import com.netscape.cms.servlet.cert.EnrollmentProcessor;
+import com.netscape.cms.servlet.cert.RevocationProcessor;
+import com.netscape.cms.servlet.processors.CAProcessor;
+import com.netscape.cmscore.dbs.CertRecord;
+import com.netscape.cmscore.request.Request;
+
+/**
+ * This class provides access to the CA to other webapps running in the
+ * same server (e.g. ACME).
+ *
+ * The operations go through the same processors as the REST services,
+ * so users are authenticated by the CA realm, enrollment requests are
+ * authorized by the profile, and the same audit events are generated.
+ */
+public class CALocalService implements LocalCA {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(CALocalService.class);
+
+    public final static String AGENT_GROUP = "Certificate Manager Agents";
+
+    PKIRealm realm = new PKIRealm();
+
+    @Override
+    public Principal authenticate(String username, String password) throws Exception {
+
+        Principal principal = realm.authenticate(username, password);
+        if (principal == null) {
+            throw new UnauthorizedException("Unable to authenticate user " + username);
+        }
+
+        return principal;
+    }
+
+    @Override
+    public Principal authenticate(X509Certificate[] certs) throws Exception {
+
+        Principal principal = realm.authenticate(certs);
+        if (principal == null) {
+            throw new UnauthorizedException("Unable to authenticate certificate");
+        }
+
+        return principal;
+    }
+
+    /**
+     * Sets up the session context the same way as the REST services
+     * so that the operations are audited as the user.
+     */
+    AuthToken initSessionContext(Principal principal) {
+
+        if (!(principal instanceof PKIPrincipal)) {
+            throw new UnauthorizedException("Invalid principal: " + principal);
+        }
+
+        PKIPrincipal pkiPrincipal = (PKIPrincipal) principal;
+        AuthToken authToken = pkiPrincipal.getAuthToken();
+
+        SessionContext context = SessionContext.getContext();
+        context.put(SessionContext.LOCALE, Locale.getDefault());
+        context.put(SessionContext.AUTH_TOKEN, authToken);
+        context.put(SessionContext.USER_ID, principal.getName());
+        context.put(SessionContext.USER, pkiPrincipal.getUser());
+
+        return authToken;
+    }
+
+    @Override
+    public BigInteger enrollCertificate(Principal principal, String profileID, byte[] pkcs10) throws Exception {
+
+        logger.info("CALocalService: Enrolling certificate with profile " + profileID + " for " + principal.getName());
+
+        AuthToken authToken = initSessionContext(principal);
+
+        CertEnrollmentRequest data = new CertEnrollmentRequest();
+        data.setProfileId(profileID);
+
+        ProfileInput input = new ProfileInput();
+        input.addAttribute(new ProfileAttribute("cert_request_type", "pkcs10", null));
+        input.addAttribute(new ProfileAttribute("cert_request", Utils.base64encodeSingleLine(pkcs10), null));
+        data.addInput(input);
+
+        // the session context is released by the processor
+        EnrollmentProcessor processor = new EnrollmentProcessor("caProfileSubmit", Locale.getDefault());
+        Map<String, Object> results = processor.processEnrollment(
+                data,
+                null,
+                null,
+                new AuthCredentials(),
+                authToken);
+
+        Request request = ((Request[]) results.get(CAProcessor.ARG_REQUESTS))[0];
+        logger.info("CALocalService: Request ID: " + request.getRequestId().toHexString());
+        logger.info("CALocalService: Request status: " + request.getRequestStatus());
+
+        String errorCode = (String) results.get(CAProcessor.ARG_ERROR_CODE);
+
+        if ("2".equals(errorCode) || request.getRequestStatus() == RequestStatus.PENDING) {
+            throw new Exception("Unable to generate certificate: Request "
+                    + request.getRequestId().toHexString() + " requires agent approval");
+        }
+
+        if (errorCode != null) {
+            throw new Exception("Unable to generate certificate: " + results.get(CAProcessor.ARG_ERROR_REASON));
+        }
+
+        X509CertImpl cert = request.getExtDataInCert(Request.REQUEST_ISSUED_CERT);
+        logger.info("CALocalService: Serial number: " + new CertId(cert.getSerialNumber()).toHexString());
+
+        return cert.getSerialNumber();
+    }
+
+    @Override
+    public X509Certificate[] getCertificateChain(BigInteger serialNumber) throws Exception {
+
+        CAEngine engine = CAEngine.getInstance();
+
+        CertRecord record = engine.getCertificateRepository().readCertificateRecord(serialNumber);
+        X509CertImpl cert = record.getCertificate();
+
+        X509Certificate[] certChain = engine.getCertChain(cert);
+        return Cert.sortCertificateChain(certChain, true);
+    }
+
+    @Override
+    public void revokeCertificate(Principal principal, byte[] certificate, int reason) throws Exception {
+
+        X509CertImpl cert = new X509CertImpl(certificate);
+        CertId id = new CertId(cert.getSerialNumber());
+
+        logger.info("CALocalService: Revoking certificate " + id.toHexString() + " for " + principal.getName());
+
+        CAEngine engine = CAEngine.getInstance();
+        CertificateAuthority authority = engine.getCA();
+
+        initSessionContext(principal);
+
+        try {
+            RevocationProcessor processor = new RevocationProcessor("caDoRevoke-agent", Locale.getDefault());
+            processor.setStartTime(new Date().getTime());
+            processor.setInitiative(AuditFormat.FROMAGENT);
+            processor.setSerialNumber(id);
+
+            RevocationReason revReason = RevocationReason.valueOf(reason);
+            processor.setRevocationReason(revReason);
+            processor.setRequestType(revReason == RevocationReason.CERTIFICATE_HOLD
+                    ? RevocationProcessor.ON_HOLD : RevocationProcessor.REVOKE);
+            processor.setAuthority(authority);
+
+            try {
+                // same as the REST service, only agents can revoke
+                // certificates without a client certificate
+                if (!((PKIPrincipal) principal).hasRole(AGENT_GROUP)) {
+                    throw new UnauthorizedException("User " + principal.getName() + " is not an agent");
+                }
+
+                CertRecord targetRecord = processor.getCertificateRecord(id);
+                X509CertImpl targetCert = targetRecord.getCertificate();
+
+                // prevent revoking a certificate from this CA by presenting
+                // a different certificate with the same serial number
+                if (!Arrays.equals(certificate, targetCert.getEncoded())) {
+                    throw new Exception("Certificate was not issued by this CA");
+                }
+
+                processor.createCRLExtension();
+                processor.validateCertificateToRevoke(null, targetRecord, false);
+                processor.addCertificateToRevoke(targetCert);
+                processor.createRevocationRequest();
+
+                processor.auditChangeRequest(ILogger.SUCCESS);
+
+            } catch (Exception e) {
+                logger.warn("CALocalService: Unable to pre-process revocation request: " + e.getMessage());
+                processor.auditChangeRequest(ILogger.FAILURE);
+                throw e;
+            }
+
+            try {
+                processor.processRevocationRequest();
+                processor.auditChangeRequestProcessed(ILogger.SUCCESS);
+
+            } catch (Exception e) {
+                logger.error("CALocalService: Unable to process revocation request: " + e.getMessage(), e);
+                processor.auditChangeRequestProcessed(ILogger.FAILURE);
+                throw e;
+            }
+
+            Request request = processor.getRequest();
+            if (request.getRequestStatus() != RequestStatus.COMPLETE) {
+                throw new Exception("Unable to revoke certificate: " + request.getRequestStatus());
+            }
+
+        } finally {
+            SessionContext.releaseContext();
+        }
+    }
+}
@@ -5,8 +5,11 @@
 //
 package org.dogtagpki.server.ca;
 
+import javax.servlet.ServletContextEvent;
 import javax.servlet.annotation.WebListener;
 
+import org.dogtagpki.tomcat.LocalCA;
+
 import com.netscape.cmscore.apps.PKIWebListener;
 
 @WebListener
@@ -15,4 +18,25 @@ public class CAWebListener extends PKIWebListener {
     public CAEngine createEngine() {
         return new CAEngine();
     }
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+
+        super.contextInitialized(event);
+
+        CAEngine engine = CAEngine.getInstance();
+        if (engine.isPreOpMode()) return;
+
+        // Register CA for other webapps in this server
+        LocalCA.register(engine.getID(), new CALocalService());
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+
+        CAEngine engine = CAEngine.getInstance();
+        LocalCA.unregister(engine.getID());
+
+        super.contextDestroyed(event);
+    }
 }
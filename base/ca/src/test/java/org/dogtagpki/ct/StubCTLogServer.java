@@ -0,0 +1,255 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.ct;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.mozilla.jss.netscape.security.util.Utils;
+import org.mozilla.jss.netscape.security.x509.CertificateExtensions;
+import org.mozilla.jss.netscape.security.x509.X509CertImpl;
+import org.mozilla.jss.netscape.security.x509.X509CertInfo;
+
+import com.netscape.certsrv.util.JSONSerializer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Stub Certificate Transparency log server.
+ *
+ * It accepts precertificates on the add-pre-chain endpoint and returns
+ * SCTs signed with a generated log key, so the CA's CT submission can
+ * be tested without access to real CT logs. Multiple logs can be started
+ * on consecutive ports, each with its own key, and a latency can be
+ * added to each response to simulate remote logs.
+ *
+ * The CS.cfg parameters for the logs are printed on startup, and the
+ * number of SCTs issued per second is printed periodically.
+ *
+ * Usage:
+ *
+ * <pre>
+ * StubCTLogServer [-p &lt;port&gt;] [-n &lt;logs&gt;] [-l &lt;latency ms&gt;]
+ *     [-j &lt;jitter ms&gt;] [-t &lt;threads&gt;]
+ * </pre>
+ */
+public class StubCTLogServer {
+
+    static final String POISON_OID = "1.3.6.1.4.1.11129.2.4.3";
+
+    int port = 8080;
+    int logs = 1;
+    int latency;
+    int jitter;
+    int threads = 16;
+
+    AtomicLong requests = new AtomicLong();
+    Random random = new Random();
+
+    class Log {
+
+        int id;
+        KeyPair keyPair;
+        byte[] keyID;
+
+        Log(int id) throws Exception {
+            this.id = id;
+
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+            keyPair = generator.generateKeyPair();
+
+            keyID = MessageDigest.getInstance("SHA-256").digest(keyPair.getPublic().getEncoded());
+        }
+
+        void handle(HttpExchange exchange) {
+            try {
+                byte[] response = addPreChain(exchange.getRequestBody());
+
+                if (latency > 0 || jitter > 0) {
+                    Thread.sleep(latency + (jitter > 0 ? random.nextInt(jitter) : 0));
+                }
+
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, response.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(response);
+                }
+
+                requests.incrementAndGet();
+
+            } catch (Exception e) {
+                e.printStackTrace();
+                try {
+                    exchange.sendResponseHeaders(500, -1);
+                } catch (Exception ex) {
+                    // ignore
+                }
+
+            } finally {
+                exchange.close();
+            }
+        }
+
+        byte[] addPreChain(InputStream is) throws Exception {
+
+            CTRequest request = JSONSerializer.fromJSON(
+                    new String(is.readAllBytes(), StandardCharsets.UTF_8), CTRequest.class);
+            List<String> chain = request.getCerts();
+
+            // the SCT covers the precert without the poison extension
+            X509CertImpl precert = new X509CertImpl(Utils.base64decode(chain.get(0)));
+            X509CertInfo info = (X509CertInfo) precert.get(X509CertImpl.NAME + "." + X509CertImpl.INFO);
+
+            CertificateExtensions exts = (CertificateExtensions) info.get(X509CertInfo.EXTENSIONS);
+            exts.delete(POISON_OID);
+            info.delete(X509CertInfo.EXTENSIONS);
+            info.set(X509CertInfo.EXTENSIONS, exts);
+            byte[] tbsCert = info.getEncodedInfo(true);
+
+            // the issuer is the first cert in the CA chain
+            X509CertImpl issuer = new X509CertImpl(Utils.base64decode(chain.get(1)));
+            byte[] issuerKeyHash = MessageDigest.getInstance("SHA-256").digest(
+                    issuer.getPublicKey().getEncoded());
+
+            long timestamp = System.currentTimeMillis();
+
+            // RFC 6962 section 3.2: digitally-signed struct for precert_entry
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            data.write(0); // sct_version: v1
+            data.write(0); // signature_type: certificate_timestamp
+            data.write(ByteBuffer.allocate(8).putLong(timestamp).array());
+            data.write(new byte[] {0, 1}); // entry_type: precert_entry
+            data.write(issuerKeyHash);
+            data.write(tbsCert.length >> 16);
+            data.write(tbsCert.length >> 8);
+            data.write(tbsCert.length);
+            data.write(tbsCert);
+            data.write(new byte[] {0, 0}); // no extensions
+
+            Signature signer = Signature.getInstance("SHA256withECDSA");
+            signer.initSign(keyPair.getPrivate());
+            signer.update(data.toByteArray());
+            byte[] signature = signer.sign();
+
+            // DigitallySigned: hash sha256(4), signature ecdsa(3), length, signature
+            ByteArrayOutputStream digitallySigned = new ByteArrayOutputStream();
+            digitallySigned.write(4);
+            digitallySigned.write(3);
+            digitallySigned.write(signature.length >> 8);
+            digitallySigned.write(signature.length);
+            digitallySigned.write(signature);
+
+            CTResponse response = new CTResponse();
+            response.setSct_version(0);
+            response.setId(Base64.getEncoder().encodeToString(keyID));
+            response.setTimestamp(timestamp);
+            response.setExtensions("");
+            response.setSignature(Base64.getEncoder().encodeToString(digitallySigned.toByteArray()));
+
+            return response.toJSON().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    void run() throws Exception {
+
+        List<HttpServer> servers = new ArrayList<>();
+
+        System.out.println("ca.certTransparency.mode=enabled");
+
+        for (int i = 0; i < logs; i++) {
+
+            Log log = new Log(i + 1);
+            int logPort = port + i;
+
+            HttpServer server = HttpServer.create(new InetSocketAddress(logPort), 0);
+            server.createContext("/ct/v1/add-pre-chain", log::handle);
+            server.setExecutor(Executors.newFixedThreadPool(threads));
+            server.start();
+            servers.add(server);
+
+            String prefix = "ca.certTransparency.log." + log.id + ".";
+            System.out.println(prefix + "enable=true");
+            System.out.println(prefix + "pubKey="
+                    + Base64.getEncoder().encodeToString(log.keyPair.getPublic().getEncoded()));
+            System.out.println(prefix + "url=http://localhost:" + logPort + "/");
+            System.out.println(prefix + "version=1");
+        }
+
+        System.out.println("ca.certTransparency.log.num=" + logs);
+        System.out.println();
+        System.out.println("Latency: " + latency + " ms, jitter: " + jitter + " ms");
+
+        long lastCount = 0;
+        long lastTime = System.nanoTime();
+
+        while (true) {
+            Thread.sleep(10000);
+
+            long count = requests.get();
+            long time = System.nanoTime();
+
+            if (count != lastCount) {
+                System.out.println(String.format("SCTs: %d, %.0f SCTs/s",
+                        count, (count - lastCount) / ((time - lastTime) / 1e9)));
+            }
+
+            lastCount = count;
+            lastTime = time;
+        }
+    }
+
+    public static void printUsage() {
+        System.out.println(
+                "Usage: StubCTLogServer [-p <port>] [-n <logs>] [-l <latency ms>]"
+                + " [-j <jitter ms>] [-t <threads>]");
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        StubCTLogServer server = new StubCTLogServer();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+            case "-p":
+                server.port = Integer.parseInt(args[++i]);
+                break;
+            case "-n":
+                server.logs = Integer.parseInt(args[++i]);
+                break;
+            case "-l":
+                server.latency = Integer.parseInt(args[++i]);
+                break;
+            case "-j":
+                server.jitter = Integer.parseInt(args[++i]);
+                break;
+            case "-t":
+                server.threads = Integer.parseInt(args[++i]);
+                break;
+            default:
+                printUsage();
+                System.exit(1);
+            }
+        }
+
+        server.run();
+    }
+}
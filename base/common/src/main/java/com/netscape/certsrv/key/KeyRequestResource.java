@@ -1,10 +1,13 @@
 package com.netscape.certsrv.key;
 
+import java.io.InputStream;
+
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
@@ -58,6 +61,17 @@ public interface KeyRequestResource {
     @POST
     public Response submitRequest(RESTMessage data) throws Exception;
 
+    /**
+     * Archives keys in bulk. The request contains a sequence of archival
+     * requests in JSON. The response contains the result of each request
+     * in JSON, one per line, as the requests are processed.
+     */
+    @POST
+    @Path("archive")
+    @Consumes({ MediaType.APPLICATION_JSON })
+    @Produces({ MediaType.APPLICATION_JSON })
+    public Response archiveKeys(InputStream input) throws Exception;
+
     /**
      * Used to retrieve key request info for a specific request
      */
@@ -2653,6 +2653,14 @@ public class CryptoUtil {
     public static byte[] decryptUsingSymmetricKey(CryptoToken token, IVParameterSpec ivspec, byte[] encryptedData,
             SymmetricKey wrappingKey, EncryptionAlgorithm encryptionAlgorithm) throws Exception {
         Cipher decryptor = token.getCipherContext(encryptionAlgorithm);
+        return decryptUsingSymmetricKey(decryptor, ivspec, encryptedData, wrappingKey);
+    }
+
+    /**
+     * Decrypts data with an existing cipher context (e.g. from a pool).
+     */
+    public static byte[] decryptUsingSymmetricKey(Cipher decryptor, IVParameterSpec ivspec, byte[] encryptedData,
+            SymmetricKey wrappingKey) throws Exception {
         decryptor.initDecrypt(wrappingKey, ivspec);
         return decryptor.doFinal(encryptedData);
     }
@@ -2661,6 +2669,15 @@ public class CryptoUtil {
             EncryptionAlgorithm alg, IVParameterSpec ivspec)
             throws Exception {
         Cipher cipher = token.getCipherContext(alg);
+        return encryptUsingSymmetricKey(cipher, wrappingKey, data, ivspec);
+    }
+
+    /**
+     * Encrypts data with an existing cipher context (e.g. from a pool).
+     */
+    public static byte[] encryptUsingSymmetricKey(Cipher cipher, SymmetricKey wrappingKey, byte[] data,
+            IVParameterSpec ivspec)
+            throws Exception {
         cipher.initEncrypt(wrappingKey, ivspec);
         return cipher.doFinal(data);
     }
@@ -2668,6 +2685,14 @@ public class CryptoUtil {
     public static byte[] wrapUsingSymmetricKey(CryptoToken token, SymmetricKey wrappingKey, SymmetricKey data,
             IVParameterSpec ivspec, KeyWrapAlgorithm alg) throws Exception {
         KeyWrapper wrapper = token.getKeyWrapper(alg);
+        return wrapUsingSymmetricKey(wrapper, wrappingKey, data, ivspec);
+    }
+
+    /**
+     * Wraps a symmetric key with an existing key wrapper (e.g. from a pool).
+     */
+    public static byte[] wrapUsingSymmetricKey(KeyWrapper wrapper, SymmetricKey wrappingKey, SymmetricKey data,
+            IVParameterSpec ivspec) throws Exception {
         wrapper.initWrap(wrappingKey, ivspec);
         return wrapper.wrap(data);
     }
@@ -2675,14 +2700,31 @@ public class CryptoUtil {
     public static byte[] wrapUsingSymmetricKey(CryptoToken token, SymmetricKey wrappingKey, PrivateKey data,
             IVParameterSpec ivspec, KeyWrapAlgorithm alg) throws Exception {
         KeyWrapper wrapper = token.getKeyWrapper(alg);
+        return wrapUsingSymmetricKey(wrapper, wrappingKey, data, ivspec);
+    }
+
+    /**
+     * Wraps a private key with an existing key wrapper (e.g. from a pool).
+     */
+    public static byte[] wrapUsingSymmetricKey(KeyWrapper wrapper, SymmetricKey wrappingKey, PrivateKey data,
+            IVParameterSpec ivspec) throws Exception {
         wrapper.initWrap(wrappingKey, ivspec);
         return wrapper.wrap(data);
     }
 
     public static byte[] wrapUsingPublicKey(CryptoToken token, PublicKey wrappingKey, SymmetricKey data,
             KeyWrapAlgorithm alg) throws Exception {
-        String method = "CryptoUtil.wrapUsingPublicKey ";
         KeyWrapper rsaWrap = token.getKeyWrapper(alg);
+        return wrapUsingPublicKey(rsaWrap, wrappingKey, data, alg);
+    }
+
+    /**
+     * Wraps a symmetric key with a public key using an existing
+     * key wrapper (e.g. from a pool).
+     */
+    public static byte[] wrapUsingPublicKey(KeyWrapper rsaWrap, PublicKey wrappingKey, SymmetricKey data,
+            KeyWrapAlgorithm alg) throws Exception {
+        String method = "CryptoUtil.wrapUsingPublicKey ";
         logger.debug(method + " KeyWrapAlg: " + alg);
         if (alg.equals(KeyWrapAlgorithm.RSA_OAEP)) {
             OAEPParameterSpec config = new OAEPParameterSpec("SHA-256", "MGF1", MGF1ParameterSpec.SHA256,
@@ -2700,6 +2742,15 @@ public class CryptoUtil {
             int strength, SymmetricKey.Usage usage, SymmetricKey wrappingKey, byte[] wrappedData,
             KeyWrapAlgorithm wrapAlgorithm, IVParameterSpec wrappingIV) throws Exception {
         KeyWrapper wrapper = token.getKeyWrapper(wrapAlgorithm);
+        return unwrap(wrapper, keyType, strength, usage, wrappingKey, wrappedData, wrappingIV);
+    }
+
+    /**
+     * Unwraps a symmetric key with an existing key wrapper (e.g. from a pool).
+     */
+    public static SymmetricKey unwrap(KeyWrapper wrapper, SymmetricKey.Type keyType,
+            int strength, SymmetricKey.Usage usage, SymmetricKey wrappingKey, byte[] wrappedData,
+            IVParameterSpec wrappingIV) throws Exception {
         wrapper.initUnwrap(wrappingKey, wrappingIV);
         return wrapper.unwrapSymmetric(wrappedData, keyType, usage, strength / 8);
     }
@@ -2708,6 +2759,16 @@ public class CryptoUtil {
             int strength, SymmetricKey.Usage usage, PrivateKey wrappingKey, byte[] wrappedData,
             KeyWrapAlgorithm wrapAlgorithm) throws Exception {
         KeyWrapper keyWrapper = token.getKeyWrapper(wrapAlgorithm);
+        return unwrap(keyWrapper, keyType, strength, usage, wrappingKey, wrappedData, wrapAlgorithm);
+    }
+
+    /**
+     * Unwraps a symmetric key with a private key using an existing
+     * key wrapper (e.g. from a pool).
+     */
+    public static SymmetricKey unwrap(KeyWrapper keyWrapper, SymmetricKey.Type keyType,
+            int strength, SymmetricKey.Usage usage, PrivateKey wrappingKey, byte[] wrappedData,
+            KeyWrapAlgorithm wrapAlgorithm) throws Exception {
         String method = "CryptoUtil.unwrap";
         logger.debug(method + " KeyWrapAlg: " + wrapAlgorithm);
 
@@ -2726,6 +2787,15 @@ public class CryptoUtil {
             SymmetricKey wrappingKey, byte[] wrappedData, KeyWrapAlgorithm wrapAlgorithm, IVParameterSpec wrapIV)
             throws Exception {
         KeyWrapper wrapper = token.getKeyWrapper(wrapAlgorithm);
+        return unwrap(wrapper, pubKey, temporary, wrappingKey, wrappedData, wrapIV);
+    }
+
+    /**
+     * Unwraps a private key with an existing key wrapper (e.g. from a pool).
+     */
+    public static PrivateKey unwrap(KeyWrapper wrapper, PublicKey pubKey, boolean temporary,
+            SymmetricKey wrappingKey, byte[] wrappedData, IVParameterSpec wrapIV)
+            throws Exception {
         wrapper.initUnwrap(wrappingKey, wrapIV);
 
         // Get the key type for unwrapping the private key.
@@ -17,10 +17,13 @@
 // --- END COPYRIGHT BLOCK ---
 package org.dogtagpki.tps;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 import org.dogtagpki.tps.msg.TPSMessage;
 
@@ -38,12 +41,17 @@ public class TPSConnection {
     public PrintStream out;
     public boolean chunked;
 
+    // buffer for incoming messages, reused across reads
+    private byte[] frame;
+
     public TPSConnection(InputStream in, OutputStream out) {
         this(in, out, false);
     }
 
     public TPSConnection(InputStream in, OutputStream out, boolean chunked) {
-        this.in = in;
+        // buffer the input so the message header can be parsed
+        // without a call to the underlying stream for each byte
+        this.in = in instanceof BufferedInputStream ? in : new BufferedInputStream(in);
         this.out = new PrintStream(out);
         this.chunked = chunked;
     }
@@ -51,7 +59,6 @@ public class TPSConnection {
     public TPSMessage read() throws IOException {
         logger.debug("TPSConnection read()");
 
-        StringBuilder sb = new StringBuilder();
         int b;
 
         // Determine # of digits in maxMessageSize so we can limit the number of
@@ -64,57 +71,56 @@ public class TPSConnection {
         // The first char can be anything.
         if((b = in.read()) < 0)
             throw new IOException("Unexpected end of stream");
-        else
-            sb.append((char)b);
 
         // The second char must be '='.
         if((b = in.read()) != '=')
             throw new IOException("Unexpected end of stream");
-        else
-            sb.append((char)b);
 
-        // read the first parameter (not including the "s=")
+        // read and parse the message size (not including the "s=")
+        int size = 0;
+        int digits = 0;
         while ((b = in.read()) >= 0 && maxMessageSizeNumDigits-- > 0) {
-            char c = (char) b;
-            if (c == '&')
+            if (b == '&')
                 break;
-            sb.append(c);
+            if (b < '0' || b > '9')
+                throw new IOException("Invalid message size");
+            size = size * 10 + (b - '0');
+            digits++;
         }
 
         if (b < 0)
             throw new IOException("Unexpected end of stream");
         if (b != '&')
             throw new IOException("Received message size is too large.");
-
-        // parse message size
-        String nvp = sb.toString();
-        String[] s = nvp.split("=");
-        int size = Integer.parseInt(s[1]);
+        if (digits == 0)
+            throw new IOException("Invalid message size");
 
         // Validate message size
         if(size > maxMessageSize)
             throw new IOException("Received message size is too large.");
 
-        sb.append('&');
-
-        // read the rest of message
-        for (int i = 0; i < size; i++) {
+        // read the rest of message in one go into the reusable frame buffer
+        if (frame == null || frame.length < size) {
+            frame = new byte[size];
+        }
 
-            b = in.read();
-            if (b < 0)
-                throw new IOException("Unexpected end of stream");
+        if (in.readNBytes(frame, 0, size) != size)
+            throw new IOException("Unexpected end of stream");
 
-            char c = (char) b;
-            sb.append(c);
-        }
+        try {
+            if (size <= 38) // for pdu_data size is 2 and only contains status
+                logger.debug("TPSConnection.read: Reading:  s=" + size + "&"
+                        + new String(frame, 0, size, StandardCharsets.ISO_8859_1));
+            else
+                logger.debug("TPSConnection.read: Reading...");
 
-        if (size <= 38) // for pdu_data size is 2 and only contains status
-            logger.debug("TPSConnection.read: Reading:  " + sb);
-        else
-            logger.debug("TPSConnection.read: Reading...");
+            // parse the entire message
+            return TPSMessage.createMessage(frame, 0, size);
 
-        // parse the entire message
-        return TPSMessage.createMessage(sb.toString());
+        } finally {
+            // the frame may contain passwords and PINs
+            Arrays.fill(frame, 0, size, (byte) 0);
+        }
     }
 
     public void write(TPSMessage message) throws IOException {
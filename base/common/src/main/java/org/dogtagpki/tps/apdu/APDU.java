@@ -126,19 +126,20 @@ public abstract class APDU {
 
     public TPSBuffer getEncoding() {
 
+        int m_mac_size = 0;
+
+        if (mac != null) {
+            m_mac_size = mac.size();
+        }
+
         TPSBuffer encoding = new TPSBuffer();
+        encoding.ensureCapacity(5 + data.size() + m_mac_size + (trailer != null ? trailer.size() : 0));
 
         encoding.add(cla);
         encoding.add(ins);
         encoding.add(p1);
         encoding.add(p2);
 
-        int m_mac_size = 0;
-
-        if (mac != null) {
-            m_mac_size = mac.size();
-        }
-
         encoding.add((byte) (data.size() + m_mac_size));
 
         encoding.add(data);
@@ -156,6 +157,7 @@ public abstract class APDU {
 
     public TPSBuffer getDataToMAC() {
         TPSBuffer mac = new TPSBuffer();
+        mac.ensureCapacity(5 + data.size());
 
         mac.add(cla);
         mac.add(ins);
@@ -180,6 +182,7 @@ public abstract class APDU {
         TPSBuffer dataEncrypted = null;
 
         dataToEnc = new TPSBuffer();
+        dataToEnc.ensureCapacity(data.size() + 9);
 
         if(protocol == (byte) 1) {
             dataToEnc.add((byte) data.size());
@@ -216,6 +219,9 @@ public abstract class APDU {
 
         dataEncrypted = Util.encryptData(dataToEnc, encKey);
 
+        // the plain text might contain keys
+        dataToEnc.zeroize();
+
         data.set(dataEncrypted);
     }
 
@@ -20,20 +20,56 @@
 
 package org.dogtagpki.tps.main;
 
-import java.io.ByteArrayOutputStream;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.Arrays;
-
+import java.util.List;
+
+/**
+ * A growable byte buffer used to build and parse APDUs and token objects.
+ *
+ * The bytes are stored in a backing array which may be larger than the
+ * buffer (see capacity()) so that appending data only copies the buffer
+ * when the array needs to grow. The array then grows by doubling and
+ * the old array is wiped.
+ *
+ * substr() returns a view of the same backing array instead of a copy.
+ * Changing either buffer afterwards copies its data first (copy-on-write)
+ * so the buffers still behave as independent copies.
+ *
+ * toBytesArray() returns the backing array itself (trimmed to size if
+ * necessary) like before, so that array is not wiped or changed in
+ * place when the buffer grows afterwards. It is still wiped by zeroize().
+ */
 public class TPSBuffer {
 
+    private static final byte[] EMPTY = new byte[0];
+    private static final int MIN_CAPACITY = 16;
+
     private byte[] buf;
+    private int offset;
+    private int length;
+
+    // the backing array belongs to another buffer
+    private boolean view;
+
+    // the backing array is also used by views of this buffer
+    private boolean sliced;
 
-    // int res;
+    // the backing array has been returned by toBytesArray() or passed to set()
+    private boolean exported;
+
+    // the buffer that created this view
+    private TPSBuffer owner;
+
+    // the views created from this buffer
+    private List<WeakReference<TPSBuffer>> views;
 
     /**
      * Creates an empty Buffer.
      */
     public TPSBuffer() {
-        buf = new byte[0];
+        buf = EMPTY;
     }
 
     public TPSBuffer(String str) {
@@ -41,8 +77,10 @@ public class TPSBuffer {
         if (str != null) {
             buf = Util.str2ByteArray(str);
         } else {
-            buf = new byte[0];
+            buf = EMPTY;
         }
+
+        length = buf.length;
     }
 
     /**
@@ -51,6 +89,7 @@ public class TPSBuffer {
     public TPSBuffer(int len, byte b) {
         buf = new byte[len];
         Arrays.fill(buf, b);
+        length = len;
     }
 
     /**
@@ -60,6 +99,7 @@ public class TPSBuffer {
     public TPSBuffer(byte b) {
         buf = new byte[1];
         buf[0] = b;
+        length = 1;
     }
 
     /**
@@ -67,9 +107,7 @@ public class TPSBuffer {
      */
     public TPSBuffer(int len) {
         buf = new byte[len];
-        Arrays.fill(buf, (byte) 0);
-        len = 0;
-
+        length = len;
     }
 
     /**
@@ -79,43 +117,147 @@ public class TPSBuffer {
     public TPSBuffer(byte[] inBuf) {
 
         if (inBuf == null) {
-            buf = new byte[0];
+            buf = EMPTY;
+            return;
         }
 
         buf = new byte[inBuf.length];
         System.arraycopy(inBuf, 0, buf, 0, inBuf.length);
+        length = inBuf.length;
     }
 
     public TPSBuffer(TPSBuffer cpy) {
 
         if (cpy == null) {
-            buf = new byte[0];
+            buf = EMPTY;
             return;
         }
 
-        byte[] srcBytes = cpy.toBytesArray();
+        buf = Arrays.copyOfRange(cpy.buf, cpy.offset, cpy.offset + cpy.length);
+        length = cpy.length;
+    }
+
+    /**
+     * Creates a view of 'len' bytes of the given array starting at 'start'.
+     */
+    private TPSBuffer(byte[] buf, int start, int len, TPSBuffer owner) {
+        this.buf = buf;
+        this.offset = start;
+        this.length = len;
+        this.view = true;
+        this.owner = owner;
+    }
+
+    /**
+     * Registers a view of the backing array of this buffer.
+     */
+    private void addView(TPSBuffer view) {
+
+        if (views == null) {
+            views = new ArrayList<>();
+
+        } else if (views.size() >= MIN_CAPACITY) {
+            views.removeIf(ref -> ref.get() == null);
+        }
+
+        views.add(new WeakReference<>(view));
+    }
+
+    /**
+     * Moves the views that still use the backing array
+     * of this buffer into their own arrays.
+     */
+    private void detachViews() {
+
+        if (views != null) {
+            for (WeakReference<TPSBuffer> ref : views) {
+                TPSBuffer v = ref.get();
+                if (v != null && v.buf == buf) {
+                    v.reallocate(v.length);
+                }
+            }
+        }
+
+        views = null;
+        sliced = false;
+    }
+
+    /**
+     * Moves the data into a new backing array of the given capacity.
+     * The old array is wiped unless it is still used elsewhere.
+     */
+    private void reallocate(int newCapacity) {
+
+        byte[] newBuf = new byte[newCapacity];
+        System.arraycopy(buf, offset, newBuf, 0, length);
+
+        if (!view && !sliced && !exported) {
+            Arrays.fill(buf, (byte) 0);
+        }
+
+        buf = newBuf;
+        offset = 0;
+        view = false;
+        sliced = false;
+        exported = false;
+        owner = null;
+    }
+
+    /**
+     * Makes sure 'len' more bytes can be appended in place.
+     */
+    private void reserve(int len) {
 
-        int srcLen = srcBytes.length;
+        int needed = length + len;
 
-        buf = new byte[srcLen];
+        // shared arrays are never extended in place
+        if (!view && !sliced && !exported && offset + needed <= buf.length) {
+            return;
+        }
 
-        System.arraycopy(srcBytes, 0, buf, 0, srcLen);
+        reallocate(Math.max(needed, Math.max(MIN_CAPACITY, length * 2)));
+    }
 
+    /**
+     * Makes sure the existing bytes can be modified in place.
+     */
+    private void makeWritable() {
+        if (view || sliced) {
+            reallocate(length);
+        }
+    }
+
+    /**
+     * Makes sure at least 'minCapacity' bytes can be stored without
+     * growing the buffer again.
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > length) {
+            reserve(minCapacity - length);
+        }
+    }
+
+    /**
+     * The amount of space allocated for this Buffer.
+     */
+    public int capacity() {
+        return buf.length - offset;
     }
 
     public byte at(int i) {
-        if (i < 0 || i >= size()) {
+        if (i < 0 || i >= length) {
             return 0x0;
         }
 
-        return buf[i];
+        return buf[offset + i];
     }
 
     public void setAt(int i, byte value) {
-        if (i < 0 || i >= size())
+        if (i < 0 || i >= length)
             return;
 
-        buf[i] = value;
+        makeWritable();
+        buf[offset + i] = value;
     }
 
     /**
@@ -124,42 +266,54 @@ public class TPSBuffer {
      */
     public boolean equals(TPSBuffer cmp) {
 
-        byte[] cmpBytes = cmp.toBytesArray();
-
-        if (cmpBytes == null)
-            return false;
-
-        return Arrays.equals(buf, cmpBytes);
-
+        return Arrays.equals(
+                buf, offset, offset + length,
+                cmp.buf, cmp.offset, cmp.offset + cmp.length);
     }
 
     public void prepend(TPSBuffer prepend) {
         if(prepend == null)
             return;
 
-        byte [] preBytes = prepend.toBytesArray();
-        prependBytes(preBytes);
+        prependBytes(prepend.buf, prepend.offset, prepend.length);
     }
+
     public void add(TPSBuffer addend) {
 
         if (addend == null)
             return;
 
-        byte[] addBytes = addend.toBytesArray();
-        addBytes(addBytes);
+        if (addend.buf == buf) {
+            // appending a view of the same array, which might be moved
+            byte[] tmp = Arrays.copyOfRange(addend.buf, addend.offset, addend.offset + addend.length);
+            addBytes(tmp, 0, tmp.length);
+            return;
+        }
+
+        addBytes(addend.buf, addend.offset, addend.length);
     }
 
     public void set(TPSBuffer newContents) {
         if (newContents == null)
             return;
 
-        buf = newContents.toBytesArray();
+        set(newContents.toBytesArray());
     }
 
     public void set(byte [] newContents) {
         if (newContents == null)
             return;
+
+        if (!view && !sliced && !exported) {
+            Arrays.fill(buf, (byte) 0);
+        }
+
         buf = newContents;
+        offset = 0;
+        length = newContents.length;
+        view = false;
+        sliced = false;
+        exported = true;
     }
 
     /**
@@ -167,37 +321,68 @@ public class TPSBuffer {
      */
 
     public void add(byte b) {
-        byte[] addBytes = new byte[1];
-        addBytes[0] = b;
-
-        addBytes(addBytes);
+        reserve(1);
+        buf[offset + length++] = b;
     }
 
     public void prependBytes(byte [] preBytes) {
         if (preBytes == null)
             return;
 
-        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
-        bytes.write(preBytes, 0, preBytes.length);
-        bytes.write(buf, 0, buf.length);
+        prependBytes(preBytes, 0, preBytes.length);
+    }
+
+    private void prependBytes(byte[] preBytes, int start, int len) {
 
-        buf = bytes.toByteArray();
+        int newLength = length + len;
+        byte[] newBuf = new byte[Math.max(newLength, MIN_CAPACITY)];
+
+        System.arraycopy(preBytes, start, newBuf, 0, len);
+        System.arraycopy(buf, offset, newBuf, len, length);
+
+        if (!view && !sliced && !exported) {
+            Arrays.fill(buf, (byte) 0);
+        }
+
+        buf = newBuf;
+        offset = 0;
+        length = newLength;
+        view = false;
+        sliced = false;
+        exported = false;
     }
 
     public void addBytes(byte[] addBytes) {
         if (addBytes == null)
             return;
 
-        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
-
-        bytes.write(buf, 0, buf.length);
-        bytes.write(addBytes, 0, addBytes.length);
+        addBytes(addBytes, 0, addBytes.length);
+    }
 
-        buf = bytes.toByteArray();
+    /**
+     * Appends 'len' bytes of 'addBytes' starting at 'start'.
+     */
+    public void addBytes(byte[] addBytes, int start, int len) {
+        if (addBytes == null || len <= 0)
+            return;
 
+        reserve(len);
+        System.arraycopy(addBytes, start, buf, offset + length, len);
+        length += len;
     }
 
+    /**
+     * Returns the contents of this Buffer. The returned array is used
+     * by this Buffer until the Buffer is modified.
+     */
     public byte[] toBytesArray() {
+
+        if (view || sliced || offset != 0 || buf.length != length) {
+            // trim the backing array, or stop sharing it with views
+            reallocate(length);
+        }
+
+        exported = true;
         return buf;
     }
 
@@ -206,15 +391,34 @@ public class TPSBuffer {
      * higher--see capacity().
      */
     public int size() {
-        return buf.length;
+        return length;
     }
 
     /**
-     * Sets all bytes in the buffer to 0.
+     * Sets all bytes in the buffer to 0, including the unused space
+     * of the backing array and the array returned by toBytesArray().
+     * The bytes of the arrays previously used by this Buffer have been
+     * wiped when the Buffer grew, unless they have been returned by
+     * toBytesArray().
+     *
+     * The views created with substr() that still share the backing
+     * array get a copy of their data before the array is wiped. If this
+     * Buffer is itself a view, it gets a new array instead so the data
+     * of the Buffer that owns the array is not changed.
      */
     public void zeroize() {
-        Arrays.fill(buf, (byte) 0);
 
+        if (view) {
+            buf = new byte[length];
+            offset = 0;
+            view = false;
+            exported = false;
+            owner = null;
+            return;
+        }
+
+        detachViews();
+        Arrays.fill(buf, (byte) 0);
     }
 
     /**
@@ -224,32 +428,47 @@ public class TPSBuffer {
      * this is a no-op.
      */
     public void resize(int newLen) {
-        byte[] tmp = new byte[buf.length];
 
-        System.arraycopy(buf, 0, tmp, 0, buf.length);
+        if (newLen < 0 || newLen == length) {
+            return;
+        }
 
-        buf = new byte[newLen];
-        System.arraycopy(tmp, 0, buf, 0, tmp.length);
+        if (newLen < length) {
+            if (!view && !sliced && !exported) {
+                Arrays.fill(buf, offset + newLen, offset + length, (byte) 0);
+            }
+            length = newLen;
+            return;
+        }
+
+        reserve(newLen - length);
+        Arrays.fill(buf, offset + length, offset + newLen, (byte) 0);
+        length = newLen;
     }
 
     /**
      * Returns a new Buffer that is a substring of this Buffer, starting
      * from offset 'start' and continuing for 'len' bytes. This Buffer
      * must have {@Code size() >= (start + len)}.
+     *
+     * The new Buffer shares the bytes with this Buffer until either
+     * Buffer is modified.
      */
     public TPSBuffer substr(int start, int theLen) {
 
-        if (start < 0 || theLen <= 0 || ((start + theLen) > buf.length)) {
+        if (start < 0 || theLen <= 0 || ((start + theLen) > length)) {
             return null;
         }
 
-        byte[] tmp = new byte[theLen];
+        TPSBuffer root = view ? owner : this;
+        TPSBuffer sub = new TPSBuffer(buf, offset + start, theLen, root);
 
-        System.arraycopy(buf, start, tmp, 0, theLen);
-
-        TPSBuffer ret = new TPSBuffer(tmp);
+        if (!view) {
+            sliced = true;
+        }
 
-        return ret;
+        root.addView(sub);
+        return sub;
     }
 
     /**
@@ -257,7 +476,7 @@ public class TPSBuffer {
      * @param start
      */
     public TPSBuffer substr(int start) {
-        return substr(start,buf.length -2);
+        return substr(start, length - 2);
     }
 
     /**
@@ -266,8 +485,8 @@ public class TPSBuffer {
     public void dump() {
         String newLine = System.getProperty("line.separator");
         System.out.println(newLine + "Buffer Contents: " + newLine);
-        for (int i = 0; i < buf.length; i++) {
-            int val = buf[i] & 0xff;
+        for (int i = 0; i < length; i++) {
+            int val = buf[offset + i] & 0xff;
             System.out.print(Util.intToHex(val) + " ");
             if (((i % 8) == 7)) {
                 System.out.print(newLine);
@@ -280,11 +499,11 @@ public class TPSBuffer {
     public String toHexString() {
         final String HEX_DIGITS = "0123456789ABCDEF";
 
-        StringBuffer result = new StringBuffer(buf.length * 2);
+        StringBuilder result = new StringBuilder(length * 3);
 
-        for (int i = 0; i < buf.length; i++)
+        for (int i = 0; i < length; i++)
         {
-            char c = (char) buf[i];
+            int c = buf[offset + i] & 0xff;
 
             result.append(HEX_DIGITS.charAt((c & 0xF0) >> 4));
             result.append(HEX_DIGITS.charAt(c & 0x0F));
@@ -301,11 +520,11 @@ public class TPSBuffer {
     public String toHexStringPlain() {
         final String HEX_DIGITS = "0123456789ABCDEF";
 
-        StringBuffer result = new StringBuffer(buf.length * 2);
+        StringBuilder result = new StringBuilder(length * 2);
 
-        for (int i = 0; i < buf.length; i++)
+        for (int i = 0; i < length; i++)
         {
-            char c = (char) buf[i];
+            int c = buf[offset + i] & 0xff;
 
             result.append(HEX_DIGITS.charAt((c & 0xF0) >> 4));
             result.append(HEX_DIGITS.charAt(c & 0x0F));
@@ -339,16 +558,26 @@ public class TPSBuffer {
 
     public void addLong4Bytes(long value) {
 
-        this.add((byte) ((value >> 24) & 0xff));
+        reserve(4);
+
+        int i = offset + length;
+        buf[i] = (byte) ((value >> 24) & 0xff);
+        buf[i + 1] = (byte) ((value >> 16) & 0xff);
+        buf[i + 2] = (byte) ((value >> 8) & 0xff);
+        buf[i + 3] = (byte) (value & 0xff);
 
-        this.add((byte) ((value >> 16) & 0xff));
-        this.add((byte) ((value >> 8) & 0xff));
-        this.add((byte) (value & 0xff));
+        length += 4;
     }
 
     public void addInt2Bytes(int value) {
-        this.add((byte) ((value >> 8) & 0xff));
-        this.add((byte) (value & 0xff));
+
+        reserve(2);
+
+        int i = offset + length;
+        buf[i] = (byte) ((value >> 8) & 0xff);
+        buf[i + 1] = (byte) (value & 0xff);
+
+        length += 2;
     }
 
     public long getLongFrom4Bytes(int offset) {
@@ -367,7 +596,17 @@ public class TPSBuffer {
     }
 
     public void reset() {
-        buf = new byte[0];
+
+        if (!view && !sliced && !exported) {
+            Arrays.fill(buf, (byte) 0);
+        }
+
+        buf = EMPTY;
+        offset = 0;
+        length = 0;
+        view = false;
+        sliced = false;
+        exported = false;
     }
 
     public static void main(String[] args) {
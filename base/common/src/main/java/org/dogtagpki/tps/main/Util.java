@@ -128,6 +128,51 @@ public class Util {
         return result;
     }
 
+    /**
+     * Decodes a URL-encoded hex value (e.g. %90%00) stored in a byte array
+     * and appends the result directly to a buffer without creating
+     * intermediate strings.
+     *
+     * @param buff array containing the encoded value
+     * @param offset start of the encoded value
+     * @param length length of the encoded value
+     * @param output buffer to append the decoded bytes to
+     * @throws IllegalArgumentException if the value contains an invalid escape sequence
+     */
+    public static void uriDecodeFromHex(byte[] buff, int offset, int length, TPSBuffer output) {
+
+        int end = offset + length;
+
+        // each escape sequence takes 3 bytes, everything else takes 1
+        output.ensureCapacity(output.size() + length);
+
+        for (int i = offset; i < end; i++) {
+            byte b = buff[i];
+
+            if (b == '+') {
+                output.add((byte) ' ');
+
+            } else if (b == '%') {
+                if (i + 2 >= end) {
+                    throw new IllegalArgumentException("Incomplete escape sequence");
+                }
+
+                int high = hexToBin((char) buff[i + 1]);
+                int low = hexToBin((char) buff[i + 2]);
+
+                if (high < 0 || low < 0) {
+                    throw new IllegalArgumentException("Invalid escape sequence");
+                }
+
+                output.add((byte) ((high << 4) + low));
+                i += 2;
+
+            } else {
+                output.add(b);
+            }
+        }
+    }
+
     public static String uriEncodeInHex(byte[] buff) {
 
         final String HEX_DIGITS = "0123456789ABCDEF";
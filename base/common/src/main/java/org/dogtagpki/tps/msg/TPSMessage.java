@@ -18,9 +18,11 @@
 package org.dogtagpki.tps.msg;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+import org.dogtagpki.tps.main.TPSBuffer;
 import org.dogtagpki.tps.main.Util;
 
 /**
@@ -93,6 +95,9 @@ public class TPSMessage {
 
     private Map<String, String> map = new LinkedHashMap<>();
 
+    // pdu_data decoded from a binary frame, see decode(byte[], int, int)
+    private TPSBuffer pduData;
+
     public TPSMessage() {
     }
 
@@ -181,6 +186,64 @@ public class TPSMessage {
         }
     }
 
+    /**
+     * Decodes name/value pairs directly from a message frame without
+     * splitting it into intermediate strings. The pdu_data value is
+     * decoded from hex straight into a buffer and is not stored in
+     * the parameter map.
+     *
+     * @param data array containing the message
+     * @param offset start of the message
+     * @param length length of the message
+     * @throws IOException if the message is malformed
+     */
+    public void decode(byte[] data, int offset, int length) throws IOException {
+
+        int end = offset + length;
+        int start = offset;
+
+        while (start < end) {
+
+            // find the end of the current pair
+            int pairEnd = start;
+            while (pairEnd < end && data[pairEnd] != '&') {
+                pairEnd++;
+            }
+
+            // find the separator between name and value
+            int separator = start;
+            while (separator < pairEnd && data[separator] != '=') {
+                separator++;
+            }
+
+            if (separator == pairEnd) {
+                // skip empty pairs, e.g. trailing '&'
+                if (pairEnd > start) {
+                    throw new IOException("TPSMessage.decode: Missing value in message parameter");
+                }
+
+            } else {
+                String key = new String(data, start, separator - start, StandardCharsets.ISO_8859_1);
+                int valueOffset = separator + 1;
+                int valueLength = pairEnd - valueOffset;
+
+                if (key.equals(PDU_DATA_NAME)) {
+                    pduData = new TPSBuffer();
+                    try {
+                        Util.uriDecodeFromHex(data, valueOffset, valueLength, pduData);
+                    } catch (IllegalArgumentException e) {
+                        throw new IOException("TPSMessage.decode: Invalid " + PDU_DATA_NAME + ": " + e.getMessage(), e);
+                    }
+
+                } else if (!key.equals("s")) { // skip message size
+                    map.put(key, new String(data, valueOffset, valueLength, StandardCharsets.ISO_8859_1));
+                }
+            }
+
+            start = pairEnd + 1;
+        }
+    }
+
     public String encode() {
 
         StringBuilder sb = new StringBuilder();
@@ -494,7 +557,12 @@ public class TPSMessage {
         case MSG_TOKEN_PDU_REQUEST:
             break;
         case MSG_TOKEN_PDU_RESPONSE:
-            result = new TokenPDUResponseMsg(encode());
+            if (pduData != null) {
+                // already decoded from a binary frame
+                result = new TokenPDUResponseMsg(map, pduData);
+            } else {
+                result = new TokenPDUResponseMsg(encode());
+            }
             break;
         default:
             //Something was garbled with the message coming in
@@ -539,6 +607,28 @@ public class TPSMessage {
         return new_msg.createMessage();
     }
 
+    /**
+     * Creates a message from a frame received from the client. The frame
+     * contains the parameters following the message size parameter.
+     *
+     * @param data array containing the message
+     * @param offset start of the message
+     * @param length length of the message
+     * @return the message
+     * @throws IOException if the message is malformed
+     */
+    public static TPSMessage createMessage(byte[] data, int offset, int length) throws IOException {
+
+        TPSMessage new_msg = new TPSMessage();
+        new_msg.decode(data, offset, length);
+
+        // pdu_data is not stored in the map so it will not be printed
+        logger.debug("TPSMessage.createMessage: message: " + new_msg
+                + (new_msg.pduData == null ? "" : " pdu_data=<do not print>"));
+
+        return new_msg.createMessage();
+    }
+
     public MsgType getType() {
 
         int res = getInt(MSG_TYPE_NAME);
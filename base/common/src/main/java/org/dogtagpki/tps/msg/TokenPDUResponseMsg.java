@@ -17,6 +17,8 @@
 // --- END COPYRIGHT BLOCK ---
 package org.dogtagpki.tps.msg;
 
+import java.util.Map;
+
 import org.dogtagpki.tps.apdu.APDUResponse;
 import org.dogtagpki.tps.main.TPSBuffer;
 import org.dogtagpki.tps.main.Util;
@@ -47,6 +49,25 @@ public class TokenPDUResponseMsg extends TPSMessage {
 
     }
 
+    /**
+     * Creates a message from parameters and PDU data that have already
+     * been decoded from the incoming frame.
+     *
+     * @param map message parameters excluding pdu_data
+     * @param pduData decoded PDU data
+     */
+    public TokenPDUResponseMsg(Map<String, String> map, TPSBuffer pduData) {
+
+        super(map);
+        response = null;
+
+        int sizeI = getInt(PDU_SIZE_NAME);
+
+        if (pduData.size() == sizeI) {
+            response = new APDUResponse(pduData);
+        }
+    }
+
     public APDUResponse getResponseAPDU() {
         return response;
     }
@@ -0,0 +1,84 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.tps.main;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class TPSBufferTest {
+
+    byte[] data = { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08 };
+
+    @Test
+    public void testZeroize() throws Exception {
+
+        TPSBuffer buffer = new TPSBuffer(data);
+        buffer.zeroize();
+
+        assertArrayEquals(new byte[data.length], buffer.toBytesArray());
+    }
+
+    @Test
+    public void testZeroizeExported() throws Exception {
+
+        TPSBuffer buffer = new TPSBuffer(data);
+        byte[] bytes = buffer.toBytesArray();
+        assertArrayEquals(data, bytes);
+
+        buffer.zeroize();
+
+        // the array returned by toBytesArray() is wiped
+        assertArrayEquals(new byte[data.length], bytes);
+    }
+
+    @Test
+    public void testZeroizeGrown() throws Exception {
+
+        TPSBuffer buffer = new TPSBuffer();
+        buffer.addBytes(data);
+        buffer.addBytes(data);
+
+        byte[] bytes = buffer.toBytesArray();
+        buffer.zeroize();
+
+        assertArrayEquals(new byte[2 * data.length], bytes);
+    }
+
+    @Test
+    public void testZeroizeWithViews() throws Exception {
+
+        TPSBuffer buffer = new TPSBuffer(data);
+        byte[] bytes = buffer.toBytesArray();
+
+        TPSBuffer view = buffer.substr(2, 4);
+        TPSBuffer subview = view.substr(1, 2);
+
+        buffer.zeroize();
+
+        // the buffer is wiped
+        assertArrayEquals(new byte[data.length], bytes);
+
+        // the views keep their data
+        assertArrayEquals(new byte[] { 0x03, 0x04, 0x05, 0x06 }, view.toBytesArray());
+        assertArrayEquals(new byte[] { 0x04, 0x05 }, subview.toBytesArray());
+    }
+
+    @Test
+    public void testZeroizeView() throws Exception {
+
+        TPSBuffer buffer = new TPSBuffer(data);
+        TPSBuffer view = buffer.substr(2, 4);
+
+        view.zeroize();
+
+        // the view is wiped without changing the buffer
+        assertArrayEquals(new byte[4], view.toBytesArray());
+        assertArrayEquals(data, buffer.toBytesArray());
+        assertEquals(data.length, buffer.size());
+    }
+}
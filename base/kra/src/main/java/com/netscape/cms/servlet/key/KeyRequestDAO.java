@@ -19,13 +19,20 @@ package com.netscape.cms.servlet.key;
 
 import java.math.BigInteger;
 import java.security.cert.CertificateException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import javax.ws.rs.Path;
 import javax.ws.rs.core.UriBuilder;
@@ -49,6 +56,7 @@ import com.netscape.certsrv.dbs.EDBRecordNotFoundException;
 import com.netscape.certsrv.dbs.keydb.KeyId;
 import com.netscape.certsrv.key.AsymKeyGenerationRequest;
 import com.netscape.certsrv.key.KeyArchivalRequest;
+import com.netscape.certsrv.key.KeyArchivalResult;
 import com.netscape.certsrv.key.KeyData;
 import com.netscape.certsrv.key.KeyNotFoundException;
 import com.netscape.certsrv.key.KeyRecoveryRequest;
@@ -68,6 +76,7 @@ import com.netscape.cmscore.dbs.KeyRepository;
 import com.netscape.cmscore.request.KeyRequestRepository;
 import com.netscape.cmscore.request.Request;
 import com.netscape.kra.KeyRecoveryAuthority;
+import com.netscape.kra.SecurityDataProcessor;
 
 /**
  * @author alee
@@ -182,6 +191,24 @@ public class KeyRequestDAO extends CMSRequestDAO {
      */
     public KeyRequestResponse submitRequest(KeyArchivalRequest data, UriInfo uriInfo, String owner)
             throws EBaseException {
+
+        Request request = createArchivalRequest(data, owner);
+
+        if (!kra.isEphemeral(request.getRealm())) {
+            queue.processRequest(request);
+            queue.markAsServiced(request);
+        } else {
+            kra.processSynchronousRequest(request);
+        }
+
+        return createKeyRequestResponse(request, uriInfo);
+    }
+
+    /**
+     * Creates an archival request without processing it.
+     */
+    public Request createArchivalRequest(KeyArchivalRequest data, String owner)
+            throws EBaseException {
         String clientKeyId = data.getClientKeyId();
         String wrappedSecurityData = data.getWrappedPrivateData();
         String transWrappedSessionKey = data.getTransWrappedSessionKey();
@@ -230,14 +257,200 @@ public class KeyRequestDAO extends CMSRequestDAO {
             request.setRealm(realm);
         }
 
-        if (!kra.isEphemeral(realm)) {
-            queue.processRequest(request);
-            queue.markAsServiced(request);
+        return request;
+    }
+
+    /**
+     * Checks an archival request before it is processed.
+     */
+    public interface ArchivalValidator {
+        void validate(KeyArchivalRequest data) throws Exception;
+    }
+
+    /**
+     * Handles the result of each archival request.
+     */
+    public interface ArchivalResultHandler {
+        void handle(KeyArchivalResult result) throws Exception;
+    }
+
+    /**
+     * Archives keys in bulk.
+     *
+     * The archival requests are read in batches. The security data in
+     * each batch is unwrapped and re-wrapped with the storage key by the
+     * KRA archival threads, then the key records and the request records
+     * of the batch are added into the database together. The results are
+     * returned in the same order as the requests. A request that fails
+     * does not affect the other requests.
+     *
+     * @param requests archival requests
+     * @param owner owner of the requests
+     * @param validator validator for each request
+     * @param handler handler for the result of each request
+     */
+    public void archiveKeys(
+            Iterator<KeyArchivalRequest> requests,
+            String owner,
+            ArchivalValidator validator,
+            ArchivalResultHandler handler) throws Exception {
+
+        int batchSize = kra.getArchivalBatchSize();
+        List<KeyArchivalRequest> batch = new ArrayList<>(batchSize);
+
+        while (requests.hasNext()) {
+
+            batch.add(requests.next());
+
+            if (batch.size() < batchSize && requests.hasNext()) {
+                continue;
+            }
+
+            for (KeyArchivalResult result : archiveBatch(batch, owner, validator)) {
+                handler.handle(result);
+            }
+
+            batch.clear();
+        }
+    }
+
+    KeyArchivalResult[] archiveBatch(
+            List<KeyArchivalRequest> batch,
+            String owner,
+            ArchivalValidator validator) throws Exception {
+
+        logger.info("KeyRequestDAO: Archiving " + batch.size() + " key(s)");
+
+        int size = batch.size();
+        Request[] requests = new Request[size];
+        KeyRecord[] records = new KeyRecord[size];
+        KeyArchivalResult[] results = new KeyArchivalResult[size];
+
+        // client key IDs are only checked against the database,
+        // so duplicates within the batch are checked here
+        Set<String> clientKeyIds = new HashSet<>();
+        List<Future<?>> futures = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+
+            KeyArchivalRequest data = batch.get(i);
+            String clientKeyId = data.getClientKeyId();
+
+            if (clientKeyId != null && !clientKeyIds.add(clientKeyId)) {
+                results[i] = createArchivalResult(data, null, null,
+                        new BadRequestException("Duplicate client key ID: " + clientKeyId));
+                futures.add(null);
+                continue;
+            }
+
+            int index = i;
+            futures.add(kra.getArchivalExecutor().submit(() -> {
+                validator.validate(data);
+                requests[index] = createArchivalRequest(data, owner);
+                records[index] = new SecurityDataProcessor(kra).prepareArchival(requests[index]);
+                return null;
+            }));
+        }
+
+        for (int i = 0; i < size; i++) {
+
+            Future<?> future = futures.get(i);
+            if (future == null) continue;
+
+            try {
+                future.get();
+
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                logger.warn("KeyRequestDAO: Unable to archive key " + batch.get(i).getClientKeyId()
+                        + ": " + cause.getMessage(), cause);
+                results[i] = createArchivalResult(batch.get(i), requests[i], null, cause);
+                records[i] = null;
+            }
+        }
+
+        // add the key records
+
+        List<KeyRecord> newRecords = new ArrayList<>();
+        for (KeyRecord record : records) {
+            if (record != null) newRecords.add(record);
+        }
+
+        Map<BigInteger, EBaseException> recordFailures = newRecords.isEmpty() ?
+                Collections.emptyMap() : repo.addKeyRecords(newRecords);
+
+        SecurityDataProcessor processor = new SecurityDataProcessor(kra);
+        List<Request> newRequests = new ArrayList<>();
+
+        for (int i = 0; i < size; i++) {
+
+            Request request = requests[i];
+            if (request == null) continue;
+
+            KeyRecord record = records[i];
+
+            if (record == null) {
+                request.setExtData(Request.RESULT, Request.RES_ERROR);
+                request.setExtData(Request.ERROR, results[i].getError());
+                request.setRequestStatus(RequestStatus.REJECTED);
+
+            } else {
+                EBaseException exception = recordFailures.get(record.getSerialNumber());
+
+                if (exception == null) {
+                    processor.completeArchival(request, record);
+                    request.setRequestStatus(RequestStatus.COMPLETE);
+                    results[i] = createArchivalResult(batch.get(i), request, record, null);
+
+                } else {
+                    results[i] = createArchivalResult(batch.get(i), request, null, exception);
+                    processor.auditArchivalFailure(request, results[i].getError());
+                    request.setExtData(Request.RESULT, Request.RES_ERROR);
+                    request.setExtData(Request.ERROR, results[i].getError());
+                    request.setRequestStatus(RequestStatus.REJECTED);
+                }
+            }
+
+            if (!kra.isEphemeral(request.getRealm())) {
+                newRequests.add(request);
+            }
+        }
+
+        // add the request records
+
+        if (!newRequests.isEmpty()) {
+            KRAEngine engine = KRAEngine.getInstance();
+            KeyRequestRepository requestRepository = engine.getKeyRequestRepository();
+            requestRepository.addRequests(newRequests);
+        }
+
+        return results;
+    }
+
+    KeyArchivalResult createArchivalResult(
+            KeyArchivalRequest data,
+            Request request,
+            KeyRecord record,
+            Throwable exception) throws EBaseException {
+
+        KeyArchivalResult result = new KeyArchivalResult();
+        result.setClientKeyID(data.getClientKeyId());
+
+        if (request != null) {
+            result.setRequestID(request.getRequestId().toHexString());
+        }
+
+        if (exception == null) {
+            result.setKeyID(new KeyId(record.getSerialNumber()).toHexString());
+            result.setStatus(KeyArchivalResult.SUCCESS);
+
         } else {
-            kra.processSynchronousRequest(request);
+            result.setStatus(KeyArchivalResult.FAILURE);
+            String message = exception.getMessage();
+            result.setError(message == null ? exception.toString() : message);
         }
 
-        return createKeyRequestResponse(request, uriInfo);
+        return result;
     }
 
     public Request createRecoveryRequest(KeyRecoveryRequest data, UriInfo uriInfo, String requestor,
@@ -20,8 +20,11 @@ package com.netscape.cmscore.dbs;
 import java.math.BigInteger;
 import java.security.PublicKey;
 import java.security.SecureRandom;
+import java.util.Collection;
 import java.util.Date;
 import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Vector;
 
 import org.mozilla.jss.netscape.security.x509.X500Name;
@@ -254,6 +257,37 @@ public class KeyRepository extends Repository {
         }
     }
 
+    /**
+     * Archives key records using a single database session.
+     * A record that cannot be added does not prevent the
+     * remaining records from being added.
+     *
+     * @param records key records
+     * @return the serial numbers of the records that could not be added
+     * @exception EBaseException failed to create the session
+     */
+    public Map<BigInteger, EBaseException> addKeyRecords(Collection<KeyRecord> records) throws EBaseException {
+
+        Map<BigInteger, EBaseException> failures = new LinkedHashMap<>();
+
+        try (DBSSession s = dbSubsystem.createSession()) {
+            for (KeyRecord record : records) {
+                BigInteger serialNo = record.getSerialNumber();
+                String name = "cn" + "=" + serialNo.toString() + "," + getDN();
+
+                try {
+                    s.add(name, record);
+
+                } catch (EBaseException e) {
+                    logger.error("KeyRepository: Unable to add key record " + serialNo + ": " + e.getMessage(), e);
+                    failures.put(serialNo, e);
+                }
+            }
+        }
+
+        return failures;
+    }
+
     /**
      * Recovers an archived key by serial number.
      *
@@ -0,0 +1,145 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.kra;
+
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.mozilla.jss.crypto.Cipher;
+import org.mozilla.jss.crypto.CryptoToken;
+import org.mozilla.jss.crypto.EncryptionAlgorithm;
+import org.mozilla.jss.crypto.KeyWrapAlgorithm;
+import org.mozilla.jss.crypto.KeyWrapper;
+
+/**
+ * This class keeps pools of key wrapper and cipher contexts for each
+ * token and algorithm so they can be reused by the archival and
+ * recovery operations instead of being created for each operation.
+ *
+ * The contexts themselves are not thread-safe, so each context is
+ * used by one thread at a time. A context is always initialized with
+ * the key and parameters of the operation before it is used. A context
+ * is discarded if the operation fails since its state is unknown.
+ */
+public class CryptoContextPool {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(CryptoContextPool.class);
+
+    public static final int DEFAULT_MAX_IDLE = 16;
+
+    /**
+     * An operation that uses a crypto context.
+     */
+    public interface Operation<C, T> {
+        T execute(C context) throws Exception;
+    }
+
+    static class Pool<C> {
+
+        Deque<C> contexts = new ConcurrentLinkedDeque<>();
+        AtomicInteger size = new AtomicInteger();
+
+        C poll() {
+            C context = contexts.pollFirst();
+            if (context != null) {
+                size.decrementAndGet();
+            }
+            return context;
+        }
+
+        void offer(C context, int maxIdle) {
+            if (size.incrementAndGet() > maxIdle) {
+                size.decrementAndGet();
+                return;
+            }
+            contexts.offerFirst(context);
+        }
+    }
+
+    int maxIdle;
+
+    Map<String, Pool<KeyWrapper>> keyWrappers = new ConcurrentHashMap<>();
+    Map<String, Pool<Cipher>> ciphers = new ConcurrentHashMap<>();
+
+    public CryptoContextPool() {
+        this(DEFAULT_MAX_IDLE);
+    }
+
+    /**
+     * @param maxIdle maximum number of idle contexts per token and algorithm (0 to disable pooling)
+     */
+    public CryptoContextPool(int maxIdle) {
+        this.maxIdle = maxIdle;
+    }
+
+    public int getMaxIdle() {
+        return maxIdle;
+    }
+
+    String createKey(CryptoToken token, Object algorithm) throws Exception {
+        return token.getName() + ":" + algorithm;
+    }
+
+    /**
+     * Runs an operation with a key wrapper for the given token and algorithm.
+     */
+    public <T> T withKeyWrapper(
+            CryptoToken token,
+            KeyWrapAlgorithm algorithm,
+            Operation<KeyWrapper, T> operation) throws Exception {
+
+        if (maxIdle <= 0) {
+            return operation.execute(token.getKeyWrapper(algorithm));
+        }
+
+        Pool<KeyWrapper> pool = keyWrappers.computeIfAbsent(createKey(token, algorithm), k -> new Pool<>());
+
+        KeyWrapper wrapper = pool.poll();
+        if (wrapper == null) {
+            logger.debug("CryptoContextPool: Creating key wrapper for " + algorithm);
+            wrapper = token.getKeyWrapper(algorithm);
+        }
+
+        T result = operation.execute(wrapper);
+
+        pool.offer(wrapper, maxIdle);
+        return result;
+    }
+
+    /**
+     * Runs an operation with a cipher for the given token and algorithm.
+     */
+    public <T> T withCipher(
+            CryptoToken token,
+            EncryptionAlgorithm algorithm,
+            Operation<Cipher, T> operation) throws Exception {
+
+        if (maxIdle <= 0) {
+            return operation.execute(token.getCipherContext(algorithm));
+        }
+
+        Pool<Cipher> pool = ciphers.computeIfAbsent(createKey(token, algorithm), k -> new Pool<>());
+
+        Cipher cipher = pool.poll();
+        if (cipher == null) {
+            logger.debug("CryptoContextPool: Creating cipher for " + algorithm);
+            cipher = token.getCipherContext(algorithm);
+        }
+
+        T result = operation.execute(cipher);
+
+        pool.offer(cipher, maxIdle);
+        return result;
+    }
+
+    public void clear() {
+        keyWrappers.clear();
+        ciphers.clear();
+    }
+}
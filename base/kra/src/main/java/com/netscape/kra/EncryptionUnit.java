@@ -51,10 +51,21 @@ public abstract class EncryptionUnit implements IEncryptionUnit {
     public static final IVParameterSpec IV = new IVParameterSpec(iv);
     public static final IVParameterSpec IV2 = new IVParameterSpec(iv2);
 
+    // reusable key wrapper and cipher contexts
+    protected CryptoContextPool contextPool = new CryptoContextPool();
+
     public EncryptionUnit() {
         logger.debug("EncryptionUnit.EncryptionUnit this: " + this);
     }
 
+    public CryptoContextPool getContextPool() {
+        return contextPool;
+    }
+
+    public void setContextPool(CryptoContextPool contextPool) {
+        this.contextPool = contextPool;
+    }
+
     public abstract CryptoToken getToken();
 
     public abstract CryptoToken getToken(org.mozilla.jss.crypto.X509Certificate cert);
@@ -84,13 +95,15 @@ public abstract class EncryptionUnit implements IEncryptionUnit {
         if (priKeyAlgo.equals("EC"))
             params.setSkWrapAlgorithm(KeyWrapAlgorithm.AES_ECB);
 
-        return CryptoUtil.unwrap(
-                token,
+        KeyWrapAlgorithm wrapAlgorithm = params.getSkWrapAlgorithm();
+
+        return contextPool.withKeyWrapper(token, wrapAlgorithm, wrapper -> CryptoUtil.unwrap(
+                wrapper,
                 params.getSkType(),
                 params.getSkType().equals(SymmetricKey.DES3)? 0: params.getSkLength(),
                 usage, wrappingKey,
                 encSymmKey,
-                params.getSkWrapAlgorithm());
+                wrapAlgorithm));
     }
 
     /**
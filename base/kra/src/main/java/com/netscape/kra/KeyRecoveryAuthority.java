@@ -31,6 +31,10 @@ import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.StringTokenizer;
 import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.dogtagpki.legacy.kra.KRAPolicy;
 import org.dogtagpki.legacy.policy.IPolicyProcessor;
@@ -148,6 +152,10 @@ public class KeyRecoveryAuthority implements IAuthority, IKeyRecoveryAuthority {
 
     public KeyStatusUpdateTask keyStatusUpdateTask;
 
+    // worker threads for bulk key archival
+    protected ExecutorService mArchivalExecutor = null;
+    protected int mArchivalBatchSize = 100;
+
     private final static String SIGNED_AUDIT_AGENT_DELIMITER = ", ";
     /**
      * Constructs an escrow authority.
@@ -247,9 +255,6 @@ public class KeyRecoveryAuthority implements IAuthority, IKeyRecoveryAuthority {
 
         logger.info("KeyRecoveryAuthority: Key status update task:");
 
-        KRAEngine engine = KRAEngine.getInstance();
-        DBSubsystem dbSubsystem = engine.getDBSubsystem();
-
         int interval = mConfig.getInteger("keyStatusUpdateInterval", 10 * 60);
         logger.info("KeyRecoveryAuthority: - interval: " + interval);
 
@@ -257,7 +262,15 @@ public class KeyRecoveryAuthority implements IAuthority, IKeyRecoveryAuthority {
             keyStatusUpdateTask.stop();
         }
 
-        if (interval == 0 || !dbSubsystem.getEnableSerialMgmt()) {
+        if (interval == 0) {
+            logger.info("KeyRecoveryAuthority: Key status update task is disabled");
+            return;
+        }
+
+        KRAEngine engine = KRAEngine.getInstance();
+        DBSubsystem dbSubsystem = engine.getDBSubsystem();
+
+        if (!dbSubsystem.getEnableSerialMgmt()) {
             logger.info("KeyRecoveryAuthority: Key status update task is disabled");
             return;
         }
@@ -269,6 +282,48 @@ public class KeyRecoveryAuthority implements IAuthority, IKeyRecoveryAuthority {
         keyStatusUpdateTask.start();
     }
 
+    /**
+     * Creates the worker threads for bulk key archival.
+     */
+    public void initArchivalExecutor() throws EBaseException {
+
+        int archivalThreads = mConfig.getInteger("archival.bulk.threads", 4);
+        mArchivalBatchSize = mConfig.getInteger("archival.bulk.batchSize", 100);
+
+        logger.info("KeyRecoveryAuthority: Bulk archival threads: " + archivalThreads);
+        logger.info("KeyRecoveryAuthority: Bulk archival batch size: " + mArchivalBatchSize);
+
+        AtomicInteger archivalCounter = new AtomicInteger();
+        mArchivalExecutor = Executors.newFixedThreadPool(archivalThreads, r -> {
+            Thread thread = new Thread(r, "KeyArchival-" + archivalCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Stops the worker threads for bulk key archival after
+     * the pending archivals are complete.
+     */
+    public void shutdownArchivalExecutor() {
+
+        if (mArchivalExecutor == null) {
+            return;
+        }
+
+        mArchivalExecutor.shutdown();
+
+        try {
+            if (!mArchivalExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.warn("KeyRecoveryAuthority: Bulk archival threads did not terminate");
+                mArchivalExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            mArchivalExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
     /**
      * Starts this subsystem. It loads and initializes all
      * necessary components. This subsystem is started by
@@ -340,6 +395,8 @@ public class KeyRecoveryAuthority implements IAuthority, IKeyRecoveryAuthority {
             throw e;
         }
 
+        initArchivalExecutor();
+
         // setup token for server-side key generation for user enrollments
         String serverKeygenTokenName = mConfig.getString("serverKeygenTokenName", null);
         if (serverKeygenTokenName == null) {
@@ -479,6 +536,20 @@ public class KeyRecoveryAuthority implements IAuthority, IKeyRecoveryAuthority {
         }
     }
 
+    /**
+     * Returns the worker threads for bulk key archival.
+     */
+    public ExecutorService getArchivalExecutor() {
+        return mArchivalExecutor;
+    }
+
+    /**
+     * Returns the number of keys stored together in bulk key archival.
+     */
+    public int getArchivalBatchSize() {
+        return mArchivalBatchSize;
+    }
+
     /**
      * Shutdowns this subsystem.
      */
@@ -499,6 +570,8 @@ public class KeyRecoveryAuthority implements IAuthority, IKeyRecoveryAuthority {
             keyStatusUpdateTask.stop();
         }
 
+        shutdownArchivalExecutor();
+
         if (mKeyDB != null) {
             mKeyDB.shutdown();
         }
@@ -81,6 +81,23 @@ public class SecurityDataProcessor {
 
     public boolean archive(Request request)
             throws EBaseException {
+
+        KeyRecord rec = prepareArchival(request);
+
+        logger.debug("KRA adding Security Data key record " + rec.getSerialNumber());
+
+        keyRepository.addKeyRecord(rec);
+
+        completeArchival(request, rec);
+        return true;
+    }
+
+    /**
+     * Unwraps the security data in an archival request and creates
+     * the key record to store it without adding it into the database.
+     */
+    public KeyRecord prepareArchival(Request request)
+            throws EBaseException {
         RequestId requestId = request.getRequestId();
         String clientKeyId = request.getExtDataInString(Request.SECURITY_DATA_CLIENT_KEY_ID);
 
@@ -351,21 +368,42 @@ public class SecurityDataProcessor {
             throw new EBaseException(CMS.getUserMessage("CMS_KRA_INVALID_STATE"), e);
         }
 
-        logger.debug("KRA adding Security Data key record " + serialNo);
+        return rec;
+    }
+
+    /**
+     * Completes an archival request after the key record
+     * has been added into the database.
+     */
+    public void completeArchival(Request request, KeyRecord rec)
+            throws EBaseException {
 
-        keyRepository.addKeyRecord(rec);
+        BigInteger serialNo = rec.getSerialNumber();
 
         signedAuditLogger.log(SecurityDataArchivalProcessedEvent.createSuccessEvent(
-                auditSubjectID,
+                request.getExtDataInString(Request.ATTR_REQUEST_OWNER),
                 null,
-                requestId,
-                clientKeyId,
+                request.getRequestId(),
+                request.getExtDataInString(Request.SECURITY_DATA_CLIENT_KEY_ID),
                 new KeyId(serialNo),
                 null));
 
         request.setExtData(ATTR_KEY_RECORD, serialNo);
         request.setExtData(Request.RESULT, Request.RES_SUCCESS);
-        return true;
+    }
+
+    /**
+     * Logs a failed archival request.
+     */
+    public void auditArchivalFailure(Request request, String reason) {
+        signedAuditLogger.log(SecurityDataArchivalProcessedEvent.createFailureEvent(
+                request.getExtDataInString(Request.ATTR_REQUEST_OWNER),
+                null,
+                request.getRequestId(),
+                request.getExtDataInString(Request.SECURITY_DATA_CLIENT_KEY_ID),
+                null,
+                reason,
+                null));
     }
 
     public boolean recover(Request request)
@@ -93,11 +93,22 @@ public class StorageKeyUnit extends EncryptionUnit implements IStorageKeyUnit {
     private String mTokenFile = null;
     private X509Certificate mCert = null;
     private CryptoManager mManager = null;
-    private CryptoToken mToken = null;
+    private volatile CryptoToken mToken = null;
     private PrivateKey mPrivateKey = null;
     private byte mPrivateKeyData[] = null;
     private boolean mKeySplitting = false;
     private boolean useOAEPKeyWrap = false;
+
+    // cached storage private key (without key splitting)
+    private volatile PrivateKey mCachedPrivateKey = null;
+
+    // cached wrapping parameters from the configuration, the IVs
+    // are only cached if they are fixed in the configuration
+    private volatile WrappingParams mWrappingParams = null;
+
+    // lengths of the IVs generated for each operation (0 if not used)
+    private int mPayloadEncryptionIVLen;
+    private int mPayloadWrappingIVLen;
     private static final String PROP_N = "n";
     private static final String PROP_M = "m";
     private static final String PROP_UID = "uid";
@@ -109,6 +120,7 @@ public class StorageKeyUnit extends EncryptionUnit implements IStorageKeyUnit {
     public static final String PROP_CERTDB = "certdb";
     public static final String PROP_MN = "mn";
     public static final String PROP_WRAPPING_CHOICE = "wrapping.choice";
+    public static final String PROP_CONTEXT_POOL_MAX_IDLE = "contextPool.maxIdle";
 
     /**
      * Constructs this token.
@@ -135,6 +147,42 @@ public class StorageKeyUnit extends EncryptionUnit implements IStorageKeyUnit {
 
     @Override
     public WrappingParams getWrappingParams(boolean encrypt) throws Exception {
+
+        // the parameters are loaded from the configuration once,
+        // each caller gets its own copy since they can be modified
+        WrappingParams params = mWrappingParams;
+        if (params == null) {
+            params = loadWrappingParams();
+            mWrappingParams = params;
+        }
+
+        params = copyWrappingParams(params);
+
+        // IVs specified by length must be new for each operation
+        if (mPayloadEncryptionIVLen > 0) {
+            byte[] iv = CryptoUtil.getNonceData(mPayloadEncryptionIVLen);
+            params.setPayloadEncryptionIV(new IVParameterSpec(iv));
+        }
+
+        if (mPayloadWrappingIVLen > 0) {
+            byte[] iv = CryptoUtil.getNonceData(mPayloadWrappingIVLen);
+            params.setPayloadWrappingIV(new IVParameterSpec(iv));
+        }
+
+        if (encrypt) {
+            // Some HSMs have not yet implemented AES-KW.  Use AES-CBC-PAD instead
+            if (params.getPayloadWrapAlgorithm().equals(KeyWrapAlgorithm.AES_KEY_WRAP) ||
+                params.getPayloadWrapAlgorithm().equals(KeyWrapAlgorithm.AES_KEY_WRAP_PAD)) {
+                params.setPayloadWrapAlgorithm(KeyWrapAlgorithm.AES_CBC_PAD);
+                byte[] iv = CryptoUtil.getNonceData(16);
+                params.setPayloadWrappingIV(new IVParameterSpec(iv));
+            }
+        }
+
+        return params;
+    }
+
+    private WrappingParams loadWrappingParams() throws Exception {
         String choice = null;
         try {
             choice = mConfig.getString(PROP_WRAPPING_CHOICE);
@@ -172,43 +220,57 @@ public class StorageKeyUnit extends EncryptionUnit implements IStorageKeyUnit {
                 config.getInteger(KeyRecordParser.OUT_SK_LENGTH));
         }
 
-        byte [] iv = getConfigIV(
-                config, KeyRecordParser.OUT_PL_ENCRYPTION_IV,
-                KeyRecordParser.OUT_PL_ENCRYPTION_IV_LEN);
-        if (iv != null) params.setPayloadEncryptionIV(new IVParameterSpec(iv));
-
-        iv = getConfigIV(
-                config, KeyRecordParser.OUT_PL_WRAP_IV,
-                KeyRecordParser.OUT_PL_WRAP_IV_LEN);
-        if (iv != null) params.setPayloadWrappingIV(new IVParameterSpec(iv));
+        // only fixed IVs are stored in the cached parameters, the IVs
+        // specified by length are generated in getWrappingParams()
+        byte [] iv = getConfigIV(config, KeyRecordParser.OUT_PL_ENCRYPTION_IV);
+        if (iv != null) {
+            params.setPayloadEncryptionIV(new IVParameterSpec(iv));
+        } else {
+            mPayloadEncryptionIVLen = getConfigIVLen(config, KeyRecordParser.OUT_PL_ENCRYPTION_IV_LEN);
+        }
 
-        if (encrypt) {
-            // Some HSMs have not yet implemented AES-KW.  Use AES-CBC-PAD instead
-            if (params.getPayloadWrapAlgorithm().equals(KeyWrapAlgorithm.AES_KEY_WRAP) ||
-                params.getPayloadWrapAlgorithm().equals(KeyWrapAlgorithm.AES_KEY_WRAP_PAD)) {
-                params.setPayloadWrapAlgorithm(KeyWrapAlgorithm.AES_CBC_PAD);
-                iv = CryptoUtil.getNonceData(16);
-                params.setPayloadWrappingIV(new IVParameterSpec(iv));
-            }
+        iv = getConfigIV(config, KeyRecordParser.OUT_PL_WRAP_IV);
+        if (iv != null) {
+            params.setPayloadWrappingIV(new IVParameterSpec(iv));
+        } else {
+            mPayloadWrappingIVLen = getConfigIVLen(config, KeyRecordParser.OUT_PL_WRAP_IV_LEN);
         }
 
         return params;
     }
 
-    private byte[] getConfigIV(ConfigStore config, String iv_label, String len_label)
+    private static WrappingParams copyWrappingParams(WrappingParams params) {
+        return new WrappingParams(
+                params.getSkType(),
+                params.getSkKeyGenAlgorithm(),
+                params.getSkLength(),
+                params.getSkWrapAlgorithm(),
+                params.getPayloadEncryptionAlgorithm(),
+                params.getPayloadWrapAlgorithm(),
+                params.getPayloadEncryptionIV(),
+                params.getPayloadWrappingIV());
+    }
+
+    private byte[] getConfigIV(ConfigStore config, String iv_label)
             throws Exception{
         String iv_string = config.getString(iv_label, null);
-        String iv_len = config.getString(len_label, null);
 
         if (iv_string != null) {
             return Base64.decodeBase64(iv_string);
         }
 
+        return null;
+    }
+
+    private int getConfigIVLen(ConfigStore config, String len_label)
+            throws Exception{
+        String iv_len = config.getString(len_label, null);
+
         if (iv_len != null) {
-            return CryptoUtil.getNonceData(Integer.parseInt(iv_len));
+            return Integer.parseInt(iv_len);
         }
 
-        return null;
+        return 0;
     }
 
     /**
@@ -236,14 +298,30 @@ public class StorageKeyUnit extends EncryptionUnit implements IStorageKeyUnit {
             throws EBaseException {
 
         KRAEngine engine = KRAEngine.getInstance();
-        mConfig = config;
-        mKeySplitting = keySplitting;
 
         KRAEngineConfig kraCfg = null;
         kraCfg  = engine.getConfig();
 
-        useOAEPKeyWrap = kraCfg.getBoolean("keyWrap.useOAEP",false);
+        boolean useOAEPKeyWrap = kraCfg.getBoolean("keyWrap.useOAEP",false);
         logger.debug("StorageKeyUnit.init: keyWrap.useOAEP" + useOAEPKeyWrap);
+
+        init(config, keySplitting, useOAEPKeyWrap);
+    }
+
+    /**
+     * Initializes this subsystem with the given key wrapping option.
+     */
+    public void init(ConfigStore config, boolean keySplitting, boolean useOAEPKeyWrap)
+            throws EBaseException {
+
+        mConfig = config;
+        mKeySplitting = keySplitting;
+        this.useOAEPKeyWrap = useOAEPKeyWrap;
+
+        int maxIdle = config.getInteger(PROP_CONTEXT_POOL_MAX_IDLE, CryptoContextPool.DEFAULT_MAX_IDLE);
+        logger.debug("StorageKeyUnit.init: " + PROP_CONTEXT_POOL_MAX_IDLE + ": " + maxIdle);
+        contextPool = new CryptoContextPool(maxIdle);
+
         try {
             mManager = CryptoManager.getInstance();
             mToken = getToken();
@@ -399,7 +477,7 @@ public class StorageKeyUnit extends EncryptionUnit implements IStorageKeyUnit {
             mTokenFile = mConfig.getString(PROP_MN);
             try {
                 // read m, n and no of identifier
-                mStorageConfig = engine.loadConfigStore(mTokenFile);
+                mStorageConfig = KRAEngine.getInstance().loadConfigStore(mTokenFile);
             } catch (EBaseException e) {
                 logger.error(CMS.getLogMessage("CMSCORE_KRA_STORAGE_READ_MN", e.toString()), e);
                 throw new EBaseException(CMS.getUserMessage("CMS_BASE_INVALID_OPERATION"), e);
@@ -614,6 +692,8 @@ public class StorageKeyUnit extends EncryptionUnit implements IStorageKeyUnit {
 
         }
         mPrivateKey = null;
+        mCachedPrivateKey = null;
+        contextPool.clear();
     }
 
     /**
@@ -780,9 +860,17 @@ public class StorageKeyUnit extends EncryptionUnit implements IStorageKeyUnit {
 
     @Override
     public CryptoToken getToken() {
+
+        CryptoToken token = mToken;
+        if (token != null) {
+            return token;
+        }
+
         try {
             String tokenName = mConfig.getString(PROP_HARDWARE, null);
-            return CryptoUtil.getKeyStorageToken(tokenName);
+            token = CryptoUtil.getKeyStorageToken(tokenName);
+            mToken = token;
+            return token;
 
         } catch (Exception e) {
             return null;
@@ -807,11 +895,18 @@ public class StorageKeyUnit extends EncryptionUnit implements IStorageKeyUnit {
     public PrivateKey getPrivateKey() {
 
         if (!mKeySplitting) {
+            // searching the token for the key is expensive, especially on an HSM
+            PrivateKey privateKey = mCachedPrivateKey;
+            if (privateKey != null) {
+                return privateKey;
+            }
+
             try {
                 PrivateKey pk[] = getToken().getCryptoStore().getPrivateKeys();
                 for (int i = 0; i < pk.length; i++) {
                     if (arraysEqual(pk[i].getUniqueID(),
                             ((TokenCertificate) mCert).getUniqueID())) {
+                        mCachedPrivateKey = pk[i];
                         return pk[i];
                     }
                 }
@@ -1131,19 +1226,24 @@ public class StorageKeyUnit extends EncryptionUnit implements IStorageKeyUnit {
                     false);
 
             // (2) wrap private key with session key
-            byte[] pri = CryptoUtil.encryptUsingSymmetricKey(
+            byte[] pri = contextPool.withCipher(
                     internalToken,
-                    sk,
-                    priKey,
                     params.getPayloadEncryptionAlgorithm(),
-                    params.getPayloadEncryptionIV());
+                    cipher -> CryptoUtil.encryptUsingSymmetricKey(
+                            cipher,
+                            sk,
+                            priKey,
+                            params.getPayloadEncryptionIV()));
 
             // (3) wrap session with storage public
-            byte[] session = CryptoUtil.wrapUsingPublicKey(
+            byte[] session = contextPool.withKeyWrapper(
                     internalToken,
-                    getPublicKey(),
-                    sk,
-                    params.getSkWrapAlgorithm());
+                    params.getSkWrapAlgorithm(),
+                    wrapper -> CryptoUtil.wrapUsingPublicKey(
+                            wrapper,
+                            getPublicKey(),
+                            sk,
+                            params.getSkWrapAlgorithm()));
 
             // use MY own structure for now:
             // SEQUENCE {
@@ -1198,31 +1298,36 @@ public class StorageKeyUnit extends EncryptionUnit implements IStorageKeyUnit {
             // (2) wrap private key with session key
             // KeyWrapper wrapper = internalToken.getKeyWrapper(
 
-            byte pri[] = null;
-
-            if (priKey != null) {
-                pri = CryptoUtil.wrapUsingSymmetricKey(
-                        token,
-                        sk,
-                        priKey,
-                        params.getPayloadWrappingIV(),
-                        params.getPayloadWrapAlgorithm());
-            } else if (symmKey != null) {
-                pri = CryptoUtil.wrapUsingSymmetricKey(
-                        token,
-                        sk,
-                        symmKey,
-                        params.getPayloadWrappingIV(),
-                        params.getPayloadWrapAlgorithm());
-            }
+            byte pri[] = contextPool.withKeyWrapper(
+                    token,
+                    params.getPayloadWrapAlgorithm(),
+                    wrapper -> {
+                        if (priKey != null) {
+                            return CryptoUtil.wrapUsingSymmetricKey(
+                                    wrapper,
+                                    sk,
+                                    priKey,
+                                    params.getPayloadWrappingIV());
+                        } else if (symmKey != null) {
+                            return CryptoUtil.wrapUsingSymmetricKey(
+                                    wrapper,
+                                    sk,
+                                    symmKey,
+                                    params.getPayloadWrappingIV());
+                        }
+                        return null;
+                    });
 
             logger.debug("StorageKeyUnit:wrap() privKey wrapped");
 
-            byte[] session = CryptoUtil.wrapUsingPublicKey(
+            byte[] session = contextPool.withKeyWrapper(
                     token,
-                    getPublicKey(),
-                    sk,
-                    params.getSkWrapAlgorithm());
+                    params.getSkWrapAlgorithm(),
+                    wrapper -> CryptoUtil.wrapUsingPublicKey(
+                            wrapper,
+                            getPublicKey(),
+                            sk,
+                            params.getSkWrapAlgorithm()));
             logger.debug("StorageKeyUnit:wrap() session key wrapped");
 
             // use MY own structure for now:
@@ -1264,12 +1369,14 @@ public class StorageKeyUnit extends EncryptionUnit implements IStorageKeyUnit {
         SymmetricKey sk = unwrap_session_key(token, session, SymmetricKey.Usage.DECRYPT, params);
 
         // (2) decrypt the private key
-        return CryptoUtil.decryptUsingSymmetricKey(
+        return contextPool.withCipher(
                 token,
-                params.getPayloadEncryptionIV(),
-                pri,
-                sk,
-                params.getPayloadEncryptionAlgorithm());
+                params.getPayloadEncryptionAlgorithm(),
+                cipher -> CryptoUtil.decryptUsingSymmetricKey(
+                        cipher,
+                        params.getPayloadEncryptionIV(),
+                        pri,
+                        sk));
     }
 
     @Override
@@ -1288,15 +1395,17 @@ public class StorageKeyUnit extends EncryptionUnit implements IStorageKeyUnit {
         SymmetricKey sk = unwrap_session_key(token, session, SymmetricKey.Usage.UNWRAP, params);
 
         // (2) unwrap the session-wrapped-symmetric key
-        return CryptoUtil.unwrap(
+        return contextPool.withKeyWrapper(
                 token,
-                algorithm,
-                keySize,
-                SymmetricKey.Usage.UNWRAP,
-                sk,
-                pri,
                 params.getPayloadWrapAlgorithm(),
-                params.getPayloadWrappingIV());
+                wrapper -> CryptoUtil.unwrap(
+                        wrapper,
+                        algorithm,
+                        keySize,
+                        SymmetricKey.Usage.UNWRAP,
+                        sk,
+                        pri,
+                        params.getPayloadWrappingIV()));
     }
 
     @Override
@@ -1315,13 +1424,15 @@ public class StorageKeyUnit extends EncryptionUnit implements IStorageKeyUnit {
         SymmetricKey sk = unwrap_session_key(token, session, SymmetricKey.Usage.UNWRAP, params);
 
         // (2) unwrap the private key
-        return CryptoUtil.unwrap(
+        return contextPool.withKeyWrapper(
                 token,
-                pubKey,
-                temporary,
-                sk,
-                pri,
                 params.getPayloadWrapAlgorithm(),
-                params.getPayloadWrappingIV());
+                wrapper -> CryptoUtil.unwrap(
+                        wrapper,
+                        pubKey,
+                        temporary,
+                        sk,
+                        pri,
+                        params.getPayloadWrappingIV()));
     }
 }
@@ -18,6 +18,8 @@
 package com.netscape.kra;
 
 import java.security.PublicKey;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.dogtagpki.server.kra.KRAEngine;
 import org.dogtagpki.server.kra.KRAEngineConfig;
@@ -68,6 +70,9 @@ public class TransportKeyUnit extends EncryptionUnit implements
     private CryptoManager mManager = null;
     private KeyWrapAlgorithm rsaKeyWrapAlg = KeyWrapAlgorithm.RSA;
 
+    // private keys of the transport certs keyed by issuer and serial number
+    private Map<String, PrivateKey> privateKeys = new ConcurrentHashMap<>();
+
     /**
      * Constructs this token.
      */
@@ -107,6 +112,10 @@ public class TransportKeyUnit extends EncryptionUnit implements
 
             String algo = config.getString("signingAlgorithm", "SHA256withRSA");
 
+            int maxIdle = config.getInteger("contextPool.maxIdle", CryptoContextPool.DEFAULT_MAX_IDLE);
+            logger.debug("TransportKeyUnit: contextPool.maxIdle: " + maxIdle);
+            contextPool = new CryptoContextPool(maxIdle);
+
 
             KRAEngine engine = KRAEngine.getInstance();
             KRAEngineConfig kraCfg = null;
@@ -290,13 +299,19 @@ public class TransportKeyUnit extends EncryptionUnit implements
         if (cert == null) {
             cert = mCert;
         }
-        try {
-            return mManager.findPrivKeyByCert(cert);
-        } catch (TokenException e) {
-            return null;
-        } catch (ObjectNotFoundException e) {
-            return null;
-        }
+        org.mozilla.jss.crypto.X509Certificate c = cert;
+
+        // finding the key requires a token lookup, so the key is cached
+        String key = c.getIssuerDN() + ":" + c.getSerialNumber();
+        return privateKeys.computeIfAbsent(key, k -> {
+            try {
+                return mManager.findPrivKeyByCert(c);
+            } catch (TokenException e) {
+                return null;
+            } catch (ObjectNotFoundException e) {
+                return null;
+            }
+        });
     }
 
     /**
@@ -341,21 +356,27 @@ public class TransportKeyUnit extends EncryptionUnit implements
             skWrapAlgorithm = params.getSkWrapAlgorithm();
         }
 
-        SymmetricKey sk = CryptoUtil.unwrap(
+        KeyWrapAlgorithm wrapAlgorithm = skWrapAlgorithm;
+        SymmetricKey sk = contextPool.withKeyWrapper(
                 token,
-                params.getSkType(),
-                params.getSkType().equals(SymmetricKey.DES3)? 0: params.getSkLength(),
-                SymmetricKey.Usage.DECRYPT,
-                wrappingKey,
-                encSymmKey,
-                skWrapAlgorithm);
-
-        return CryptoUtil.decryptUsingSymmetricKey(
+                wrapAlgorithm,
+                wrapper -> CryptoUtil.unwrap(
+                        wrapper,
+                        params.getSkType(),
+                        params.getSkType().equals(SymmetricKey.DES3)? 0: params.getSkLength(),
+                        SymmetricKey.Usage.DECRYPT,
+                        wrappingKey,
+                        encSymmKey,
+                        wrapAlgorithm));
+
+        return contextPool.withCipher(
                 token,
-                params.getPayloadEncryptionIV(),
-                encValue,
-                sk,
-                params.getPayloadEncryptionAlgorithm());
+                params.getPayloadEncryptionAlgorithm(),
+                cipher -> CryptoUtil.decryptUsingSymmetricKey(
+                        cipher,
+                        params.getPayloadEncryptionIV(),
+                        encValue,
+                        sk));
     }
 
 
@@ -383,15 +404,17 @@ public class TransportKeyUnit extends EncryptionUnit implements
         SymmetricKey sk = unwrap_session_key(token, encSymmKey, SymmetricKey.Usage.UNWRAP, params);
 
         // (2) unwrap the session-wrapped-symmetric-key
-        return CryptoUtil.unwrap(
+        return contextPool.withKeyWrapper(
                 token,
-                algorithm,
-                strength,
-                SymmetricKey.Usage.DECRYPT,
-                sk,
-                encValue,
                 params.getPayloadWrapAlgorithm(),
-                params.getPayloadEncryptionIV());
+                wrapper -> CryptoUtil.unwrap(
+                        wrapper,
+                        algorithm,
+                        strength,
+                        SymmetricKey.Usage.DECRYPT,
+                        sk,
+                        encValue,
+                        params.getPayloadEncryptionIV()));
     }
 
     /**
@@ -422,23 +445,29 @@ public class TransportKeyUnit extends EncryptionUnit implements
             skWrapAlgorithm = params.getSkWrapAlgorithm();
         }
 
-        SymmetricKey sk = CryptoUtil.unwrap(
+        KeyWrapAlgorithm wrapAlgorithm = skWrapAlgorithm;
+        SymmetricKey sk = contextPool.withKeyWrapper(
                 token,
-                params.getSkType(),
-                params.getSkType().equals(SymmetricKey.DES3)? 0: params.getSkLength(),
-                SymmetricKey.Usage.UNWRAP,
-                wrappingKey,
-                encSymmKey,
-                skWrapAlgorithm);
+                wrapAlgorithm,
+                wrapper -> CryptoUtil.unwrap(
+                        wrapper,
+                        params.getSkType(),
+                        params.getSkType().equals(SymmetricKey.DES3)? 0: params.getSkLength(),
+                        SymmetricKey.Usage.UNWRAP,
+                        wrappingKey,
+                        encSymmKey,
+                        wrapAlgorithm));
 
         // (2) unwrap the session-wrapped-private key
-        return CryptoUtil.unwrap(
+        return contextPool.withKeyWrapper(
                 token,
-                pubKey,
-                true,
-                sk,
-                encValue,
                 params.getPayloadWrapAlgorithm(),
-                params.getPayloadWrappingIV());
+                wrapper -> CryptoUtil.unwrap(
+                        wrapper,
+                        pubKey,
+                        true,
+                        sk,
+                        encValue,
+                        params.getPayloadWrappingIV()));
     }
 }
@@ -18,6 +18,9 @@
 
 package org.dogtagpki.server.kra.rest;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -25,12 +28,16 @@ import java.security.Principal;
 import java.util.HashMap;
 import java.util.Map;
 
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.dogtagpki.server.authentication.AuthToken;
 import org.mozilla.jss.crypto.SymmetricKey;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.netscape.certsrv.authorization.EAuthzAccessDenied;
 import com.netscape.certsrv.authorization.EAuthzUnknownRealm;
 import com.netscape.certsrv.base.BadRequestException;
@@ -41,6 +48,7 @@ import com.netscape.certsrv.base.UnauthorizedException;
 import com.netscape.certsrv.dbs.keydb.KeyId;
 import com.netscape.certsrv.key.AsymKeyGenerationRequest;
 import com.netscape.certsrv.key.KeyArchivalRequest;
+import com.netscape.certsrv.key.KeyArchivalResult;
 import com.netscape.certsrv.key.KeyRecoveryRequest;
 import com.netscape.certsrv.key.KeyRequestInfo;
 import com.netscape.certsrv.key.KeyRequestInfoCollection;
@@ -122,29 +130,7 @@ public class KeyRequestService extends SubsystemService implements KeyRequestRes
 
         logger.info("Request:\n" + data.toJSON());
 
-        if (data.getClientKeyId() == null || data.getDataType() == null) {
-            throw new BadRequestException("Invalid key archival request.");
-        }
-
-        if (data.getWrappedPrivateData() != null) {
-            if (data.getTransWrappedSessionKey() == null ||
-                data.getAlgorithmOID() == null ||
-                data.getSymmetricAlgorithmParams() == null) {
-                throw new BadRequestException(
-                        "Invalid key archival request.  " +
-                        "Missing wrapped session key, algoriithmOIS or symmetric key parameters");
-            }
-        } else if (data.getPKIArchiveOptions() == null) {
-            throw new BadRequestException(
-                    "Invalid key archival request.  No data to archive");
-        }
-
-        if (data.getDataType().equals(KeyRequestResource.SYMMETRIC_KEY_TYPE)) {
-            if ((data.getKeyAlgorithm() == null) ||
-                (! SYMKEY_TYPES.containsKey(data.getKeyAlgorithm()))) {
-                throw new BadRequestException("Invalid key archival request.  Bad algorithm.");
-            }
-        }
+        validateArchivalRequest(data);
 
         KeyRequestDAO dao = new KeyRequestDAO();
         KeyRequestResponse response;
@@ -203,6 +189,102 @@ public class KeyRequestService extends SubsystemService implements KeyRequestRes
         }
     }
 
+    @Override
+    public Response archiveKeys(InputStream input) throws Exception {
+
+        String requestor = getRequestor();
+        if (requestor == null) {
+            throw new UnauthorizedException("Archival must be performed by an agent");
+        }
+
+        AuthToken authToken = getAuthToken();
+        KeyRequestDAO dao = new KeyRequestDAO();
+        ObjectMapper mapper = new ObjectMapper();
+
+        StreamingOutput so = new StreamingOutput() {
+
+            @Override
+            public void write(OutputStream out) throws IOException, WebApplicationException {
+
+                try (MappingIterator<KeyArchivalRequest> requests =
+                        mapper.readerFor(KeyArchivalRequest.class).readValues(input)) {
+
+                    dao.archiveKeys(requests, requestor, data -> {
+
+                        validateArchivalRequest(data);
+
+                        String realm = data.getRealm();
+                        if (realm != null) {
+                            authz.checkRealm(realm, authToken, null, "certServer.kra.requests.archival", "execute");
+                        }
+
+                    }, result -> {
+
+                        RequestId requestID = result.getRequestID() == null ? null : new RequestId(result.getRequestID());
+
+                        if (KeyArchivalResult.SUCCESS.equals(result.getStatus())) {
+                            signedAuditLogger.log(SecurityDataArchivalRequestEvent.createSuccessEvent(
+                                    requestor,
+                                    null,
+                                    requestID,
+                                    result.getClientKeyID()));
+                        } else {
+                            signedAuditLogger.log(SecurityDataArchivalRequestEvent.createFailureEvent(
+                                    requestor,
+                                    null,
+                                    requestID,
+                                    result.getClientKeyID(),
+                                    result.getError()));
+                        }
+
+                        out.write(mapper.writeValueAsBytes(result));
+                        out.write('\n');
+                        out.flush();
+                    });
+
+                } catch (IOException e) {
+                    throw e;
+
+                } catch (Exception e) {
+                    logger.error("KeyRequestService: Unable to archive keys: " + e.getMessage(), e);
+                    throw new WebApplicationException(e);
+                }
+            }
+        };
+
+        return createOKResponse(so);
+    }
+
+    /**
+     * Checks an archival request before it is processed.
+     */
+    public void validateArchivalRequest(KeyArchivalRequest data) {
+
+        if (data.getClientKeyId() == null || data.getDataType() == null) {
+            throw new BadRequestException("Invalid key archival request.");
+        }
+
+        if (data.getWrappedPrivateData() != null) {
+            if (data.getTransWrappedSessionKey() == null ||
+                data.getAlgorithmOID() == null ||
+                data.getSymmetricAlgorithmParams() == null) {
+                throw new BadRequestException(
+                        "Invalid key archival request.  " +
+                        "Missing wrapped session key, algoriithmOIS or symmetric key parameters");
+            }
+        } else if (data.getPKIArchiveOptions() == null) {
+            throw new BadRequestException(
+                    "Invalid key archival request.  No data to archive");
+        }
+
+        if (data.getDataType().equals(KeyRequestResource.SYMMETRIC_KEY_TYPE)) {
+            if ((data.getKeyAlgorithm() == null) ||
+                (! SYMKEY_TYPES.containsKey(data.getKeyAlgorithm()))) {
+                throw new BadRequestException("Invalid key archival request.  Bad algorithm.");
+            }
+        }
+    }
+
     public Response recoverKey(KeyRecoveryRequest data) {
         // auth and authz
 
@@ -0,0 +1,113 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cms.servlet.key;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dogtagpki.server.kra.KRAConfig;
+import org.dogtagpki.server.kra.KRAEngine;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.netscape.certsrv.key.KeyArchivalRequest;
+import com.netscape.certsrv.key.KeyArchivalResult;
+import com.netscape.cmscore.base.SimpleProperties;
+import com.netscape.kra.KeyRecoveryAuthority;
+
+public class KeyRequestDAOTest {
+
+    static class TestKRA extends KeyRecoveryAuthority {
+
+        TestKRA(KRAConfig config) {
+            mConfig = config;
+        }
+
+        void setInitialized(boolean initialized) {
+            mInitialized = initialized;
+        }
+    }
+
+    KRAEngine engine;
+    TestKRA kra;
+
+    @Before
+    public void setUp() throws Exception {
+
+        KRAConfig config = new KRAConfig("kra", new SimpleProperties());
+        config.putInteger("keyStatusUpdateInterval", 0);
+        config.putInteger("archival.bulk.threads", 2);
+        config.putInteger("archival.bulk.batchSize", 10);
+
+        engine = new KRAEngine();
+
+        kra = new TestKRA(config);
+        engine.subsystems.put(KeyRecoveryAuthority.ID, kra);
+
+        // same order as KeyRecoveryAuthority.init()
+        kra.initArchivalExecutor();
+        kra.startKeyStatusUpdate();
+        kra.setInitialized(true);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        kra.shutdown();
+    }
+
+    KeyArchivalRequest createRequest(String clientKeyId) {
+        KeyArchivalRequest request = new KeyArchivalRequest();
+        request.setClientKeyId(clientKeyId);
+        return request;
+    }
+
+    @Test
+    public void testArchiveBatchAfterInit() throws Exception {
+
+        assertFalse(kra.getArchivalExecutor().isShutdown());
+
+        List<KeyArchivalRequest> batch = new ArrayList<>();
+        batch.add(createRequest("key1"));
+        batch.add(createRequest("key2"));
+        batch.add(createRequest("key1"));
+
+        List<String> validated = new ArrayList<>();
+
+        KeyRequestDAO dao = new KeyRequestDAO();
+        KeyArchivalResult[] results = dao.archiveBatch(batch, "test", data -> {
+            synchronized (validated) {
+                validated.add(data.getClientKeyId());
+            }
+            throw new Exception("Invalid key: " + data.getClientKeyId());
+        });
+
+        // the requests were processed by the archival threads
+        assertEquals(2, validated.size());
+        assertEquals(3, results.length);
+
+        assertEquals(KeyArchivalResult.FAILURE, results[0].getStatus());
+        assertEquals("Invalid key: key1", results[0].getError());
+
+        assertEquals(KeyArchivalResult.FAILURE, results[1].getStatus());
+        assertEquals("Invalid key: key2", results[1].getError());
+
+        assertEquals(KeyArchivalResult.FAILURE, results[2].getStatus());
+        assertEquals("Duplicate client key ID: key1", results[2].getError());
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+
+        kra.shutdown();
+
+        assertTrue(kra.getArchivalExecutor().isTerminated());
+    }
+}
@@ -0,0 +1,245 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.kra;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.mozilla.jss.CryptoManager;
+import org.mozilla.jss.crypto.CryptoToken;
+import org.mozilla.jss.crypto.KeyGenAlgorithm;
+import org.mozilla.jss.crypto.SymmetricKey;
+import org.mozilla.jss.netscape.security.util.WrappingParams;
+import org.mozilla.jss.util.Password;
+
+import com.netscape.cmscore.base.ConfigStore;
+import com.netscape.cmsutil.crypto.CryptoUtil;
+
+/**
+ * Archival and recovery throughput benchmark for StorageKeyUnit.
+ *
+ * It archives and recovers symmetric keys and secrets with the
+ * storage key in an NSS database using the default KRA wrapping
+ * parameters, then reports the number of operations per second
+ * with and without the crypto context pool.
+ *
+ * Usage:
+ *
+ * <pre>
+ * KeyUnitBenchmark -d &lt;NSS database&gt; -c &lt;password&gt; -n &lt;storage cert nickname&gt;
+ *     [-t &lt;threads&gt;] [-i &lt;iterations&gt;]
+ * </pre>
+ */
+public class KeyUnitBenchmark {
+
+    String nickname;
+    int threads = 8;
+    int iterations = 10000;
+
+    ConfigStore createConfig(int maxIdle) {
+
+        ConfigStore config = new ConfigStore();
+        config.putString(StorageKeyUnit.PROP_NICKNAME, nickname);
+        config.putInteger(StorageKeyUnit.PROP_CONTEXT_POOL_MAX_IDLE, maxIdle);
+
+        // default wrapping parameters in CS.cfg
+        config.putString(StorageKeyUnit.PROP_WRAPPING_CHOICE, "1");
+        config.putString("wrapping.1.sessionKeyLength", "128");
+        config.putString("wrapping.1.sessionKeyWrapAlgorithm", "RSA");
+        config.putString("wrapping.1.payloadEncryptionPadding", "PKCS5Padding");
+        config.putString("wrapping.1.sessionKeyKeyGenAlgorithm", "AES");
+        config.putString("wrapping.1.payloadEncryptionAlgorithm", "AES");
+        config.putString("wrapping.1.payloadEncryptionMode", "CBC");
+        config.putString("wrapping.1.payloadEncryptionIVLen", "16");
+        config.putString("wrapping.1.payloadWrapAlgorithm", "AES KeyWrap/Padding");
+        config.putString("wrapping.1.sessionKeyType", "AES");
+
+        return config;
+    }
+
+    double run(String name, Runnable task) throws Exception {
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        AtomicInteger failures = new AtomicInteger();
+
+        long start = System.nanoTime();
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < iterations; i++) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        task.run();
+                    } catch (Exception e) {
+                        if (failures.incrementAndGet() == 1) {
+                            e.printStackTrace();
+                        }
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+        } finally {
+            executor.shutdown();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double ops = iterations / seconds;
+
+        System.out.println(String.format("  %s: %.2f s, failures: %d, %.0f ops/s",
+                name, seconds, failures.get(), ops));
+
+        return ops;
+    }
+
+    void run(int maxIdle) throws Exception {
+
+        StorageKeyUnit unit = new StorageKeyUnit();
+        unit.init(createConfig(maxIdle), false, false);
+
+        CryptoToken token = unit.getToken();
+
+        SymmetricKey.Usage[] usages = {
+                SymmetricKey.Usage.WRAP,
+                SymmetricKey.Usage.UNWRAP,
+                SymmetricKey.Usage.ENCRYPT,
+                SymmetricKey.Usage.DECRYPT
+        };
+
+        SymmetricKey key = CryptoUtil.generateKey(token, KeyGenAlgorithm.AES, 128, usages, true);
+
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+
+        // archive once to get the data to recover
+        WrappingParams keyParams = unit.getWrappingParams(true);
+        byte[] wrappedKey = unit.wrap(key, keyParams);
+
+        WrappingParams secretParams = unit.getWrappingParams(true);
+        byte[] encryptedSecret = unit.encryptInternalPrivate(secret, secretParams);
+
+        run("archive key", () -> {
+            try {
+                unit.wrap(key, unit.getWrappingParams(true));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        run("recover key", () -> {
+            try {
+                unit.unwrap(wrappedKey, SymmetricKey.AES, 128, copy(keyParams));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        run("archive secret", () -> {
+            try {
+                unit.encryptInternalPrivate(secret, unit.getWrappingParams(true));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        run("recover secret", () -> {
+            try {
+                unit.decryptInternalPrivate(encryptedSecret, copy(secretParams));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    static WrappingParams copy(WrappingParams params) {
+        // unwrapping may modify the parameters
+        return new WrappingParams(
+                params.getSkType(),
+                params.getSkKeyGenAlgorithm(),
+                params.getSkLength(),
+                params.getSkWrapAlgorithm(),
+                params.getPayloadEncryptionAlgorithm(),
+                params.getPayloadWrapAlgorithm(),
+                params.getPayloadEncryptionIV(),
+                params.getPayloadWrappingIV());
+    }
+
+    void run() throws Exception {
+
+        System.out.println("Iterations: " + iterations + ", threads: " + threads);
+
+        System.out.println("Without context pool:");
+        run(0);
+
+        System.out.println("With context pool:");
+        run(CryptoContextPool.DEFAULT_MAX_IDLE);
+    }
+
+    public static void printUsage() {
+        System.out.println(
+                "Usage: KeyUnitBenchmark -d <NSS database> -c <password> -n <storage cert nickname>"
+                + " [-t <threads>] [-i <iterations>]");
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        KeyUnitBenchmark benchmark = new KeyUnitBenchmark();
+
+        String database = null;
+        String password = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+            case "-d":
+                database = args[++i];
+                break;
+            case "-c":
+                password = args[++i];
+                break;
+            case "-n":
+                benchmark.nickname = args[++i];
+                break;
+            case "-t":
+                benchmark.threads = Integer.parseInt(args[++i]);
+                break;
+            case "-i":
+                benchmark.iterations = Integer.parseInt(args[++i]);
+                break;
+            default:
+                printUsage();
+                System.exit(1);
+            }
+        }
+
+        if (database == null || benchmark.nickname == null) {
+            printUsage();
+            System.exit(1);
+        }
+
+        CryptoManager.initialize(database);
+        CryptoManager cm = CryptoManager.getInstance();
+
+        if (password != null) {
+            CryptoToken token = cm.getInternalKeyStorageToken();
+            Password pass = new Password(password.toCharArray());
+            try {
+                token.login(pass);
+            } finally {
+                pass.clear();
+            }
+        }
+
+        benchmark.run();
+    }
+}
@@ -31,6 +31,7 @@ DATABASE_TYPES = {value: key for key, value in DATABASE_CLASSES.items()}
 
 # TODO: auto-populate this map from /usr/share/pki/acme/issuer
 ISSUER_CLASSES = {
+    'local': 'org.dogtagpki.acme.issuer.LocalIssuer',
     'nss': 'org.dogtagpki.acme.issuer.NSSIssuer',
     'pki': 'org.dogtagpki.acme.issuer.PKIIssuer'
 }
@@ -1025,6 +1026,32 @@ class ACMEIssuerShowCLI(pki.cli.CLI):
             if profile:
                 print('  Certificate Profile: %s' % profile)
 
+        elif issuer_type == 'local':
+
+            ca = config.get('ca')
+            if ca:
+                print('  CA Subsystem: %s' % ca)
+
+            nickname = config.get('nickname')
+            if nickname:
+                print('  Client Certificate: %s' % nickname)
+
+            username = config.get('username')
+            if username:
+                print('  Agent Username: %s' % username)
+
+            password = config.get('password')
+            if password:
+                print('  Agent Password: ********')
+
+            password_file = config.get('passwordFile')
+            if password_file:
+                print('  Password file: %s' % password_file)
+
+            profile = config.get('profile')
+            if profile:
+                print('  Certificate Profile: %s' % profile)
+
 
 class ACMEIssuerModifyCLI(pki.cli.CLI):
 
@@ -1212,6 +1239,54 @@ class ACMEIssuerModifyCLI(pki.cli.CLI):
             profile = pki.util.read_text('  Certificate Profile', default=profile, required=True)
             pki.util.set_property(config, 'profile', profile)
 
+        elif issuer_type == 'local':
+
+            print()
+            print('Enter the name of the CA subsystem in this server (e.g. ca).')
+            ca = config.get('ca')
+            ca = pki.util.read_text('  CA Subsystem', default=ca, required=True)
+            pki.util.set_property(config, 'ca', ca)
+
+            print()
+            print('Enter the certificate nickname for client authentication.')
+            print('This might be the CA agent certificate.')
+            print('Enter blank to use basic authentication.')
+            nickname = config.get('nickname')
+            nickname = pki.util.read_text('  Client Certificate', default=nickname)
+            pki.util.set_property(config, 'nickname', nickname)
+
+            print()
+            print('Enter the username of the CA agent for basic authentication.')
+            print('Enter blank if a CA agent certificate is used for client authentication.')
+            username = config.get('username')
+            username = pki.util.read_text('  Agent Username', default=username)
+            pki.util.set_property(config, 'username', username)
+
+            print()
+            print('Enter the CA agent password for basic authentication.')
+            print('Enter blank if the password is already stored in a separate property file')
+            print('or if a CA agent certificate is used for client authentication.')
+            password = config.get('password')
+            password = pki.util.read_text('  Agent Password', default=password, password=True)
+            pki.util.set_property(config, 'password', password)
+
+            if password:
+                config.pop('passwordFile', None)
+            else:
+                print()
+                print('Enter the property file that stores the CA agent password.')
+                print('The password must be stored under acmeUserPassword property.')
+                password_file = config.get('passwordFile')
+                password_file = pki.util.read_text('  Password File', default=password_file)
+                pki.util.set_property(config, 'passwordFile', password_file)
+
+            print()
+            print('Enter the certificate profile for issuing ACME certificates '
+                  '(e.g. acmeServerCert).')
+            profile = config.get('profile')
+            profile = pki.util.read_text('  Certificate Profile', default=profile, required=True)
+            pki.util.set_property(config, 'profile', profile)
+
         instance.store_properties(issuer_conf, config)
 
 
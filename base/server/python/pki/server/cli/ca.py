@@ -58,6 +58,7 @@ class CACLI(pki.cli.CLI):
         self.add_module(pki.server.cli.db.SubsystemDBCLI(self))
         self.add_module(pki.server.cli.group.GroupCLI(self))
         self.add_module(CAProfileCLI())
+        self.add_module(CAPublishingCLI())
         self.add_module(pki.server.cli.range.RangeCLI(self))
         self.add_module(pki.server.cli.user.UserCLI(self))
 
@@ -919,3 +920,292 @@ class CAProfileImportCLI(pki.cli.CLI):
         subsystem.import_profiles(
             input_folder=input_folder,
             as_current_user=as_current_user)
+
+
+class CAPublishingCLI(pki.cli.CLI):
+
+    def __init__(self):
+        super().__init__('publishing', 'CA publishing management commands')
+
+        self.add_module(CAPublishingQueueCLI())
+
+
+class CAPublishingQueueCLI(pki.cli.CLI):
+
+    def __init__(self):
+        super().__init__('queue', 'CA asynchronous publishing queue management commands')
+
+        self.add_module(CAPublishingQueueFindCLI())
+        self.add_module(CAPublishingQueueReplayCLI())
+        self.add_module(CAPublishingQueueRemoveCLI())
+
+    @staticmethod
+    def print_task(task):
+        print('  Task ID: %s' % task['id'])
+        print('  Status: %s' % task['status'])
+        print('  Operation: %s' % task.get('operation', 'publish'))
+        print('  Serial Number: %s' % task.get('serialNumber'))
+        print('  Subject DN: %s' % task.get('subjectDN'))
+
+        if task.get('requestID'):
+            print('  Request ID: %s' % task['requestID'])
+
+        print('  Rules: %s' % task.get('rules'))
+        print('  Attempts: %s' % task.get('attempts'))
+
+        if task.get('error'):
+            print('  Error: %s' % task['error'])
+
+
+class CAPublishingQueueFindCLI(pki.cli.CLI):
+
+    def __init__(self):
+        super().__init__('find', 'Find tasks in CA asynchronous publishing queue')
+
+    def print_help(self):
+        print('Usage: pki-server ca-publishing-queue-find [OPTIONS]')
+        print()
+        print('  -i, --instance <instance ID>       Instance ID (default: pki-tomcat).')
+        print('      --status <status>              Task status: pending, failed (default: all).')
+        print('  -v, --verbose                      Run in verbose mode.')
+        print('      --debug                        Run in debug mode.')
+        print('      --help                         Show help message.')
+        print()
+
+    def execute(self, argv):
+
+        try:
+            opts, _ = getopt.gnu_getopt(argv, 'i:v', [
+                'instance=', 'status=',
+                'verbose', 'debug', 'help'])
+
+        except getopt.GetoptError as e:
+            logger.error(e)
+            self.print_help()
+            sys.exit(1)
+
+        instance_name = 'pki-tomcat'
+        status = None
+
+        for o, a in opts:
+            if o in ('-i', '--instance'):
+                instance_name = a
+
+            elif o == '--status':
+                if a not in ('pending', 'failed'):
+                    logger.error('Invalid status: %s', a)
+                    self.print_help()
+                    sys.exit(1)
+                status = a
+
+            elif o in ('-v', '--verbose'):
+                logging.getLogger().setLevel(logging.INFO)
+
+            elif o == '--debug':
+                logging.getLogger().setLevel(logging.DEBUG)
+
+            elif o == '--help':
+                self.print_help()
+                sys.exit()
+
+            else:
+                logger.error('Invalid option: %s', o)
+                self.print_help()
+                sys.exit(1)
+
+        instance = pki.server.instance.PKIServerFactory.create(instance_name)
+        if not instance.exists():
+            logger.error('Invalid instance: %s', instance_name)
+            sys.exit(1)
+
+        instance.load()
+
+        subsystem = instance.get_subsystem('ca')
+        if not subsystem:
+            logger.error('No CA subsystem in instance %s', instance_name)
+            sys.exit(1)
+
+        tasks = subsystem.find_publishing_tasks(status=status)
+
+        self.print_message('%s entries matched' % len(tasks))
+
+        first = True
+        for task in tasks:
+            if first:
+                first = False
+            else:
+                print()
+
+            CAPublishingQueueCLI.print_task(task)
+
+
+class CAPublishingQueueReplayCLI(pki.cli.CLI):
+
+    def __init__(self):
+        super().__init__('replay', 'Replay failed tasks in CA asynchronous publishing queue')
+
+    def print_help(self):
+        print('Usage: pki-server ca-publishing-queue-replay [OPTIONS] [<task ID>...]')
+        print()
+        print('  -i, --instance <instance ID>       Instance ID (default: pki-tomcat).')
+        print('      --all                          Replay all failed tasks.')
+        print('  -v, --verbose                      Run in verbose mode.')
+        print('      --debug                        Run in debug mode.')
+        print('      --help                         Show help message.')
+        print()
+
+    def execute(self, argv):
+
+        try:
+            opts, args = getopt.gnu_getopt(argv, 'i:v', [
+                'instance=', 'all',
+                'verbose', 'debug', 'help'])
+
+        except getopt.GetoptError as e:
+            logger.error(e)
+            self.print_help()
+            sys.exit(1)
+
+        instance_name = 'pki-tomcat'
+        replay_all = False
+
+        for o, a in opts:
+            if o in ('-i', '--instance'):
+                instance_name = a
+
+            elif o == '--all':
+                replay_all = True
+
+            elif o in ('-v', '--verbose'):
+                logging.getLogger().setLevel(logging.INFO)
+
+            elif o == '--debug':
+                logging.getLogger().setLevel(logging.DEBUG)
+
+            elif o == '--help':
+                self.print_help()
+                sys.exit()
+
+            else:
+                logger.error('Invalid option: %s', o)
+                self.print_help()
+                sys.exit(1)
+
+        if not replay_all and not args:
+            logger.error('Missing task ID')
+            self.print_help()
+            sys.exit(1)
+
+        instance = pki.server.instance.PKIServerFactory.create(instance_name)
+        if not instance.exists():
+            logger.error('Invalid instance: %s', instance_name)
+            sys.exit(1)
+
+        instance.load()
+
+        subsystem = instance.get_subsystem('ca')
+        if not subsystem:
+            logger.error('No CA subsystem in instance %s', instance_name)
+            sys.exit(1)
+
+        if replay_all:
+            task_ids = [task['id'] for task in subsystem.find_publishing_tasks(status='failed')]
+        else:
+            task_ids = args
+
+        for task_id in task_ids:
+
+            if not subsystem.get_publishing_task(task_id):
+                logger.error('Failed task not found: %s', task_id)
+                sys.exit(1)
+
+            logger.info('Replaying task %s', task_id)
+            subsystem.replay_publishing_task(task_id)
+
+        self.print_message('Replayed %s task(s)' % len(task_ids))
+
+
+class CAPublishingQueueRemoveCLI(pki.cli.CLI):
+
+    def __init__(self):
+        super().__init__('del', 'Remove failed tasks from CA asynchronous publishing queue')
+
+    def print_help(self):
+        print('Usage: pki-server ca-publishing-queue-del [OPTIONS] [<task ID>...]')
+        print()
+        print('  -i, --instance <instance ID>       Instance ID (default: pki-tomcat).')
+        print('      --all                          Remove all failed tasks.')
+        print('  -v, --verbose                      Run in verbose mode.')
+        print('      --debug                        Run in debug mode.')
+        print('      --help                         Show help message.')
+        print()
+
+    def execute(self, argv):
+
+        try:
+            opts, args = getopt.gnu_getopt(argv, 'i:v', [
+                'instance=', 'all',
+                'verbose', 'debug', 'help'])
+
+        except getopt.GetoptError as e:
+            logger.error(e)
+            self.print_help()
+            sys.exit(1)
+
+        instance_name = 'pki-tomcat'
+        remove_all = False
+
+        for o, a in opts:
+            if o in ('-i', '--instance'):
+                instance_name = a
+
+            elif o == '--all':
+                remove_all = True
+
+            elif o in ('-v', '--verbose'):
+                logging.getLogger().setLevel(logging.INFO)
+
+            elif o == '--debug':
+                logging.getLogger().setLevel(logging.DEBUG)
+
+            elif o == '--help':
+                self.print_help()
+                sys.exit()
+
+            else:
+                logger.error('Invalid option: %s', o)
+                self.print_help()
+                sys.exit(1)
+
+        if not remove_all and not args:
+            logger.error('Missing task ID')
+            self.print_help()
+            sys.exit(1)
+
+        instance = pki.server.instance.PKIServerFactory.create(instance_name)
+        if not instance.exists():
+            logger.error('Invalid instance: %s', instance_name)
+            sys.exit(1)
+
+        instance.load()
+
+        subsystem = instance.get_subsystem('ca')
+        if not subsystem:
+            logger.error('No CA subsystem in instance %s', instance_name)
+            sys.exit(1)
+
+        if remove_all:
+            task_ids = [task['id'] for task in subsystem.find_publishing_tasks(status='failed')]
+        else:
+            task_ids = args
+
+        for task_id in task_ids:
+
+            if not subsystem.get_publishing_task(task_id):
+                logger.error('Failed task not found: %s', task_id)
+                sys.exit(1)
+
+            logger.info('Removing task %s', task_id)
+            subsystem.remove_publishing_task(task_id)
+
+        self.print_message('Removed %s task(s)' % len(task_ids))
@@ -2016,6 +2016,97 @@ class CASubsystem(PKISubsystem):
             subsystem_number = m.group(1)
             self.config['subsystem.%s.enabled' % subsystem_number] = 'false'
 
+    def get_publishing_queue_dir(self):
+
+        publishing_dir = self.config.get('ca.publish.async.directory')
+        if not publishing_dir:
+            publishing_dir = os.path.join(self.base_dir, 'publishing')
+
+        return publishing_dir
+
+    def find_publishing_tasks(self, status=None):
+        '''
+        Find tasks in the asynchronous publishing queue.
+
+        :param status: pending, failed, or None for all tasks
+        '''
+
+        statuses = [status] if status else ['pending', 'failed']
+        publishing_dir = self.get_publishing_queue_dir()
+
+        tasks = []
+        for task_status in statuses:
+
+            task_dir = os.path.join(publishing_dir, task_status)
+            if not os.path.isdir(task_dir):
+                continue
+
+            for filename in sorted(os.listdir(task_dir)):
+                if not filename.endswith('.task'):
+                    continue
+
+                tasks.append(self.load_publishing_task(task_dir, filename, task_status))
+
+        return tasks
+
+    def get_publishing_task(self, task_id, status='failed'):
+
+        task_dir = os.path.join(self.get_publishing_queue_dir(), status)
+        filename = task_id + '.task'
+
+        if not os.path.exists(os.path.join(task_dir, filename)):
+            return None
+
+        return self.load_publishing_task(task_dir, filename, status)
+
+    def load_publishing_task(self, task_dir, filename, status):
+
+        task = {}
+        pki.util.load_properties(os.path.join(task_dir, filename), task)
+
+        task['id'] = filename[:-len('.task')]
+        task['status'] = status
+
+        return task
+
+    def replay_publishing_task(self, task_id):
+        '''
+        Move a failed task back into the pending directory. The server
+        will publish the certificate again the next time it checks the
+        pending directory.
+        '''
+
+        publishing_dir = self.get_publishing_queue_dir()
+        filename = task_id + '.task'
+
+        failed_file = os.path.join(publishing_dir, 'failed', filename)
+        pending_file = os.path.join(publishing_dir, 'pending', filename)
+        tmp_file = pending_file + '.tmp'
+
+        task = {}
+        pki.util.load_properties(failed_file, task)
+
+        task['attempts'] = '0'
+        task['error'] = ''
+
+        pki.util.store_properties(tmp_file, task)
+
+        # keep the file owned by the server
+        stat = os.stat(failed_file)
+        os.chown(tmp_file, stat.st_uid, stat.st_gid)
+
+        os.rename(tmp_file, pending_file)
+        os.remove(failed_file)
+
+    def remove_publishing_task(self, task_id, status='failed'):
+
+        task_file = os.path.join(
+            self.get_publishing_queue_dir(),
+            status,
+            task_id + '.task')
+
+        os.remove(task_file)
+
 
 class KRASubsystem(PKISubsystem):
 
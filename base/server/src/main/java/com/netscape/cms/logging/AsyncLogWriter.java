@@ -0,0 +1,403 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cms.logging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.netscape.certsrv.logging.ELogException;
+import com.netscape.certsrv.logging.ILogEvent;
+
+/**
+ * This class writes log events into a LogFile asynchronously.
+ *
+ * Request threads put the events into a lock-free ring buffer and
+ * return immediately (or wait until the event is committed if
+ * configured). A single writer thread takes the events from the
+ * buffer in batches, formats and signs them while holding the
+ * LogFile lock once per batch, then commits the batch according
+ * to the durability policy (group commit).
+ *
+ * Any thread that already holds the LogFile lock (e.g. flush(),
+ * rotate(), shutdown()) can drain the buffer itself, so the events
+ * are always written in order.
+ *
+ * If an event cannot be written or committed, the thread waiting for
+ * that event gets the exception, like when writing synchronously.
+ */
+public class AsyncLogWriter implements Runnable {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(AsyncLogWriter.class);
+
+    public enum Durability {
+
+        /**
+         * Events are written into the LogFile buffer which
+         * will be flushed based on bufferSize and flushInterval.
+         */
+        NONE,
+
+        /**
+         * Each batch is flushed to the operating system.
+         */
+        FLUSH,
+
+        /**
+         * Each batch is flushed and synced to the disk.
+         */
+        SYNC;
+
+        public static Durability fromString(String value) {
+            return valueOf(value.trim().toUpperCase());
+        }
+    }
+
+    static class Entry {
+
+        ILogEvent event;
+        String threadName;
+
+        // set by the writer once the event has been processed
+        volatile boolean done;
+        volatile ELogException error;
+
+        Entry(ILogEvent event, String threadName) {
+            this.event = event;
+            this.threadName = threadName;
+        }
+    }
+
+    // how long the writer sleeps when there is nothing to do
+    static final long IDLE_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(100);
+
+    // how long a producer backs off when the buffer is full
+    static final long BACKOFF_TIMEOUT = TimeUnit.MICROSECONDS.toNanos(50);
+
+    LogFile logFile;
+    LogRingBuffer<Entry> buffer;
+    int batchSize;
+    Durability durability;
+    boolean wait;
+
+    Thread thread;
+    volatile boolean running;
+    volatile boolean sleeping;
+
+    // all events before this position have been processed,
+    // i.e. committed or failed
+    volatile long processed;
+    Object commitLock = new Object();
+
+    // guarded by the LogFile lock
+    boolean draining;
+
+    public AsyncLogWriter(
+            LogFile logFile,
+            int bufferSize,
+            int batchSize,
+            Durability durability,
+            boolean wait) {
+
+        this.logFile = logFile;
+        this.buffer = new LogRingBuffer<>(bufferSize);
+        this.batchSize = batchSize;
+        this.durability = durability;
+        this.wait = wait;
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    public void start() {
+
+        logger.info("AsyncLogWriter: Starting writer for " + logFile.getName());
+        logger.info("AsyncLogWriter: - buffer size: " + buffer.getCapacity());
+        logger.info("AsyncLogWriter: - batch size: " + batchSize);
+        logger.info("AsyncLogWriter: - durability: " + durability);
+        logger.info("AsyncLogWriter: - wait: " + wait);
+
+        running = true;
+
+        thread = new Thread(this, logFile.getName() + ".writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Adds an event into the buffer. If the writer is configured to wait,
+     * this method returns after the event has been committed.
+     *
+     * @return the position of the event
+     * @exception ELogException if the writer waited for the event
+     *            and the event could not be written or committed
+     */
+    public long write(ILogEvent event) throws ELogException {
+
+        Entry entry = new Entry(event, Thread.currentThread().getName());
+
+        long position;
+        while ((position = buffer.offer(entry)) < 0) {
+            // buffer full, make sure the writer is awake then back off
+            LockSupport.unpark(thread);
+            LockSupport.parkNanos(this, BACKOFF_TIMEOUT);
+        }
+
+        if (!running) {
+            // the writer has been stopped, write the event directly
+            synchronized (logFile) {
+                drain();
+            }
+            if (entry.error != null) {
+                throw entry.error;
+            }
+            return position;
+        }
+
+        if (sleeping) {
+            LockSupport.unpark(thread);
+        }
+
+        if (wait) {
+            await(entry);
+        }
+
+        return position;
+    }
+
+    /**
+     * Waits until the event has been processed.
+     *
+     * @exception ELogException if the event could not be written or committed
+     */
+    void await(Entry entry) throws ELogException {
+
+        if (Thread.currentThread() == thread) {
+            // the writer cannot wait for itself
+            return;
+        }
+
+        if (!entry.done) {
+
+            LockSupport.unpark(thread);
+
+            synchronized (commitLock) {
+                while (!entry.done && running) {
+                    try {
+                        commitLock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new ELogException("Interrupted while waiting for log event", e);
+                    }
+                }
+            }
+
+            if (!entry.done) {
+                // the writer has been stopped, write the remaining events directly
+                synchronized (logFile) {
+                    drain();
+                }
+            }
+        }
+
+        if (entry.error != null) {
+            throw entry.error;
+        }
+    }
+
+    /**
+     * Waits until the event at the given position has been processed.
+     * Failures are reported to the threads that logged the events.
+     */
+    public void await(long position) {
+
+        if (Thread.currentThread() == thread) {
+            // the writer cannot wait for itself
+            return;
+        }
+
+        if (processed > position) {
+            return;
+        }
+
+        LockSupport.unpark(thread);
+
+        synchronized (commitLock) {
+            while (processed <= position && running) {
+                try {
+                    commitLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits until all events added so far have been processed.
+     */
+    public void sync() {
+        long position = buffer.getTail() - 1;
+        if (position >= 0) {
+            await(position);
+        }
+    }
+
+    @Override
+    public void run() {
+
+        while (running) {
+
+            if (buffer.isEmpty()) {
+                sleeping = true;
+
+                // check again in case an event was added before
+                // the producer could see the flag
+                if (buffer.isEmpty() && running) {
+                    LockSupport.parkNanos(this, IDLE_TIMEOUT);
+                }
+
+                sleeping = false;
+                continue;
+            }
+
+            synchronized (logFile) {
+                writeBatch();
+            }
+        }
+
+        logger.info("AsyncLogWriter: Stopped writer for " + logFile.getName());
+    }
+
+    /**
+     * Writes all pending events. The caller must hold the LogFile lock.
+     */
+    void drain() {
+        while (writeBatch() > 0) {
+            // keep writing
+        }
+    }
+
+    /**
+     * Writes and commits up to one batch of events. The caller
+     * must hold the LogFile lock.
+     *
+     * @return the number of events written
+     */
+    int writeBatch() {
+
+        if (draining) {
+            // called recursively (e.g. logging an error while writing)
+            return 0;
+        }
+
+        draining = true;
+        List<Entry> entries = new ArrayList<>();
+
+        try {
+            Entry entry;
+            while (entries.size() < batchSize && (entry = buffer.poll()) != null) {
+                entries.add(entry);
+                try {
+                    logFile.doLog(entry.event, entry.threadName);
+
+                } catch (ELogException e) {
+                    logger.error("AsyncLogWriter: Unable to write log event: " + e.getMessage(), e);
+                    entry.error = e;
+
+                } catch (RuntimeException e) {
+                    logger.error("AsyncLogWriter: Unable to write log event: " + e.getMessage(), e);
+                    entry.error = new ELogException("Unable to write log event: " + e.getMessage(), e);
+                }
+            }
+
+            if (!entries.isEmpty()) {
+                commit(entries);
+            }
+
+        } finally {
+            draining = false;
+
+            // release the waiting threads even if the batch failed
+            for (Entry entry : entries) {
+                entry.done = true;
+            }
+        }
+
+        if (!entries.isEmpty()) {
+            processed = buffer.getHead();
+            synchronized (commitLock) {
+                commitLock.notifyAll();
+            }
+        }
+
+        return entries.size();
+    }
+
+    /**
+     * Commits the batch. If an event could not be written or the batch
+     * could not be committed, the events are reported as failed and the
+     * LogFile applies its failure policy (e.g. disabling the subsystem
+     * for signed audit logs).
+     */
+    void commit(List<Entry> entries) {
+
+        ELogException error = null;
+
+        try {
+            if (!logFile.commit(durability)) {
+                error = new ELogException("Unable to commit log events to " + logFile.getName());
+            }
+
+        } catch (RuntimeException e) {
+            logger.error("AsyncLogWriter: Unable to commit log events: " + e.getMessage(), e);
+            error = new ELogException("Unable to commit log events: " + e.getMessage(), e);
+        }
+
+        boolean failed = false;
+
+        for (Entry entry : entries) {
+            if (error != null && entry.error == null) {
+                entry.error = error;
+            }
+            failed |= entry.error != null;
+        }
+
+        if (failed) {
+            logFile.writeFailed();
+        }
+    }
+
+    /**
+     * Stops the writer thread and writes the remaining events.
+     * The caller must not hold the LogFile lock.
+     */
+    public void stop() {
+
+        logger.info("AsyncLogWriter: Stopping writer for " + logFile.getName());
+
+        running = false;
+        LockSupport.unpark(thread);
+
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (logFile) {
+            drain();
+        }
+
+        // release threads that might still be waiting
+        synchronized (commitLock) {
+            commitLock.notifyAll();
+        }
+    }
+}
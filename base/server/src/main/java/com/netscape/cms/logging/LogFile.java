@@ -23,6 +23,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.CharArrayReader;
 import java.io.CharArrayWriter;
 import java.io.File;
+import java.io.FileDescriptor;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.FileWriter;
@@ -116,6 +117,11 @@ public class LogFile implements ILogEventListener, IExtendedPluginInfo {
     static final String PROP_LAST_HASH_FILE_NAME = "lastHashFileName";
     static final String PROP_BUFFER_SIZE = "bufferSize";
     static final String PROP_FLUSH_INTERVAL = "flushInterval";
+    static final String PROP_ASYNC_ENABLE = "async.enable";
+    static final String PROP_ASYNC_BUFFER_SIZE = "async.bufferSize";
+    static final String PROP_ASYNC_BATCH_SIZE = "async.batchSize";
+    static final String PROP_ASYNC_DURABILITY = "async.durability";
+    static final String PROP_ASYNC_WAIT = "async.wait";
 
     private final static String LOG_SIGNED_AUDIT_EXCEPTION =
                                "LOG_SIGNED_AUDIT_EXCEPTION_1";
@@ -140,6 +146,16 @@ public class LogFile implements ILogEventListener, IExtendedPluginInfo {
      */
     static final int FLUSH_INTERVAL = 5;
 
+    /**
+     * The default number of events in the asynchronous writer buffer
+     */
+    static final int ASYNC_BUFFER_SIZE = 8192;
+
+    /**
+     * The default maximum number of events per asynchronous write
+     */
+    static final int ASYNC_BATCH_SIZE = 256;
+
     /**
      * The log file
      */
@@ -155,6 +171,16 @@ public class LogFile implements ILogEventListener, IExtendedPluginInfo {
      */
     protected BufferedWriter mLogWriter = null;
 
+    /**
+     * The log file descriptor, used to sync the log to the disk
+     */
+    private FileDescriptor mFileDescriptor = null;
+
+    /**
+     * The asynchronous writer, or null if events are written synchronously
+     */
+    protected AsyncLogWriter mAsyncWriter = null;
+
     /**
      * The log date entry format pattern
      */
@@ -348,6 +374,43 @@ public class LogFile implements ILogEventListener, IExtendedPluginInfo {
                 throw e;
             }
         }
+
+        if (mOn && config.getBoolean(PROP_ASYNC_ENABLE, false)) {
+            startAsyncWriter(config);
+        }
+    }
+
+    /**
+     * Start writing the events with an asynchronous writer thread.
+     *
+     * @param config The property config store to find values in
+     */
+    protected void startAsyncWriter(ConfigStore config) throws EBaseException {
+
+        if (mTrace) {
+            // trace needs the stack of the thread that logged the event
+            logger.warn("LogFile: Asynchronous writer is not supported with trace enabled");
+            return;
+        }
+
+        String durability = config.getString(PROP_ASYNC_DURABILITY, "none");
+
+        try {
+            mAsyncWriter = new AsyncLogWriter(
+                    this,
+                    config.getInteger(PROP_ASYNC_BUFFER_SIZE, ASYNC_BUFFER_SIZE),
+                    config.getInteger(PROP_ASYNC_BATCH_SIZE, ASYNC_BATCH_SIZE),
+                    AsyncLogWriter.Durability.fromString(durability),
+                    config.getBoolean(PROP_ASYNC_WAIT, false));
+
+        } catch (IllegalArgumentException e) {
+            String message = CMS.getUserMessage("CMS_BASE_GET_PROPERTY_FAILED",
+                    config.getName() + "." + PROP_ASYNC_DURABILITY);
+            logger.error("LogFile: " + message + ": " + durability);
+            throw new ELogException(message, e);
+        }
+
+        mAsyncWriter.start();
     }
 
     /**
@@ -699,7 +762,7 @@ public class LogFile implements ILogEventListener, IExtendedPluginInfo {
                 o,
                 ILogger.L_SINGLELINE);
 
-        doLog(ev, true);
+        doLog(ev, Thread.currentThread().getName(), true);
     }
 
     private static String getLastSignature(File f) throws IOException {
@@ -736,8 +799,9 @@ public class LogFile implements ILogEventListener, IExtendedPluginInfo {
                     logger.warn(message, e);
                 }
             }
+            mFileDescriptor = out.getFD();
             mLogWriter = new BufferedWriter(
-                        new FileWriter(out.getFD()), mBufferSize);
+                        new FileWriter(mFileDescriptor), mBufferSize);
 
             // The first time we open, mSignature will not have been
             // initialized yet. That's ok, we will push our first signature
@@ -774,6 +838,12 @@ public class LogFile implements ILogEventListener, IExtendedPluginInfo {
      */
     @Override
     public synchronized void flush() {
+
+        if (mAsyncWriter != null) {
+            // write pending events before pushing the signature
+            mAsyncWriter.drain();
+        }
+
         try {
             if (mLogSigning) {
                 pushSignature();
@@ -821,7 +891,7 @@ public class LogFile implements ILogEventListener, IExtendedPluginInfo {
      * </ul>
      */
     @Override
-    public synchronized void shutdown() {
+    public void shutdown() {
 
         logger.info("Destroying LogFile(" + mFileName + ")");
 
@@ -837,9 +907,32 @@ public class LogFile implements ILogEventListener, IExtendedPluginInfo {
 
         signedAuditLogger.log(auditMessage);
 
+        AsyncLogWriter asyncWriter = mAsyncWriter;
+        if (asyncWriter != null) {
+            // subsequent events will be written synchronously
+            mAsyncWriter = null;
+            asyncWriter.stop();
+        }
+
         close();
     }
 
+    /**
+     * Block until all events logged so far are committed according to
+     * the durability policy of the asynchronous writer. If the events are
+     * written synchronously, flush the log.
+     */
+    public void sync() {
+
+        AsyncLogWriter asyncWriter = mAsyncWriter;
+        if (asyncWriter == null || Thread.holdsLock(this)) {
+            flush();
+            return;
+        }
+
+        asyncWriter.sync();
+    }
+
     /**
      * Set the flush interval
      * <P>
@@ -907,7 +1000,113 @@ public class LogFile implements ILogEventListener, IExtendedPluginInfo {
      * @param event The log event
      */
     protected synchronized void doLog(ILogEvent event) throws ELogException {
-        doLog(event, false);
+
+        if (mAsyncWriter != null) {
+            // write pending events first to keep the order
+            mAsyncWriter.drain();
+        }
+
+        doLog(event, Thread.currentThread().getName(), false);
+    }
+
+    /**
+     * Write an event logged by another thread. Called by the asynchronous
+     * writer while holding the lock.
+     *
+     * @param event The log event
+     * @param threadName The name of the thread that logged the event
+     */
+    synchronized void doLog(ILogEvent event, String threadName) throws ELogException {
+        doLog(event, threadName, true);
+    }
+
+    /**
+     * Write an event to the log file either asynchronously if the
+     * asynchronous writer is enabled, or synchronously otherwise.
+     *
+     * @param event The log event
+     */
+    protected void write(ILogEvent event) throws ELogException {
+
+        AsyncLogWriter asyncWriter = mAsyncWriter;
+
+        // threads holding the lock (e.g. while rotating or signing)
+        // cannot wait for the writer thread, so write synchronously
+        if (asyncWriter == null || Thread.holdsLock(this)) {
+            doLog(event);
+            return;
+        }
+
+        asyncWriter.write(event);
+    }
+
+    /**
+     * Commit a batch of events written by the asynchronous writer.
+     * Called by the asynchronous writer while holding the lock.
+     *
+     * @param durability The durability policy
+     * @return false if the events could not be flushed or synced
+     */
+    synchronized boolean commit(AsyncLogWriter.Durability durability) {
+
+        boolean success = true;
+
+        if (mBufferSize > 0 && mBytesUnflushed > mBufferSize) {
+            flush();
+
+        } else if (durability != AsyncLogWriter.Durability.NONE && mLogWriter != null) {
+            try {
+                mLogWriter.flush();
+            } catch (IOException e) {
+                String message = CMS.getUserMessage("CMS_LOG_FLUSH_LOG_FAILED", mFileName, e.getMessage());
+                logger.error("LogFile: " + message, e);
+                System.err.println(message);
+                if (mLogSigning) {
+                    shutdownCMS();
+                }
+                success = false;
+            }
+        }
+
+        if (durability == AsyncLogWriter.Durability.SYNC && mFileDescriptor != null) {
+            try {
+                mFileDescriptor.sync();
+            } catch (IOException e) {
+                String message = CMS.getUserMessage("CMS_LOG_FLUSH_LOG_FAILED", mFileName, e.getMessage());
+                logger.error("LogFile: " + message, e);
+                System.err.println(message);
+                if (mLogSigning) {
+                    shutdownCMS();
+                }
+                success = false;
+            }
+        }
+
+        try {
+            batchWritten();
+        } catch (ELogException e) {
+            logger.error("LogFile: " + e.getMessage(), e);
+        }
+
+        return success;
+    }
+
+    /**
+     * Called by the asynchronous writer while holding the lock if some
+     * events of a batch could not be written or committed.
+     */
+    synchronized void writeFailed() {
+        if (mLogSigning) {
+            // Failed to write to audit log, shut down CMS
+            shutdownCMS();
+        }
+    }
+
+    /**
+     * Called after the asynchronous writer has committed a batch of
+     * events while holding the lock.
+     */
+    protected void batchWritten() throws ELogException {
     }
 
     // Standard line separator byte. We always sign this line separator,
@@ -920,10 +1119,10 @@ public class LogFile implements ILogEventListener, IExtendedPluginInfo {
      * by subclasses, so you can call it and know that it will do exactly
      * what you see below.
      */
-    private synchronized void doLog(ILogEvent event, boolean noFlush)
+    private synchronized void doLog(ILogEvent event, String threadName, boolean noFlush)
             throws ELogException {
 
-        String entry = logEvt2String(event);
+        String entry = logEvt2String(event, threadName);
 
         if (mLogWriter == null) {
             String[] params = { mFileName, entry };
@@ -1061,7 +1260,7 @@ public class LogFile implements ILogEventListener, IExtendedPluginInfo {
         // If no type specified in property file, then treated as selected
         String type = ev.getEventType();
         if (type == null) {
-            doLog(ev);
+            write(ev);
             return;
         }
 
@@ -1086,7 +1285,7 @@ public class LogFile implements ILogEventListener, IExtendedPluginInfo {
 
         if (filter == null) {
             // filter not defined for this event type
-            doLog(ev);
+            write(ev);
             return;
         }
 
@@ -1102,7 +1301,7 @@ public class LogFile implements ILogEventListener, IExtendedPluginInfo {
         }
 
         // log event
-        doLog(ev);
+        write(ev);
     }
 
     public boolean eval(SignedAuditEvent event, JDAPFilter filter) {
@@ -1225,6 +1424,10 @@ public class LogFile implements ILogEventListener, IExtendedPluginInfo {
     }
 
     public String logEvt2String(ILogEvent ev) {
+        return logEvt2String(ev, Thread.currentThread().getName());
+    }
+
+    public String logEvt2String(ILogEvent ev, String threadName) {
         String entry = null;
 
         // Hmm.. multiple threads could hit this and reset the time.
@@ -1237,12 +1440,12 @@ public class LogFile implements ILogEventListener, IExtendedPluginInfo {
         // This should follow the Common Log Format which still needs
         // some work.
         if (ev.getMultiline() == ILogger.L_MULTILINE) {
-            entry = engine.getPID() + "." + Thread.currentThread().getName() + " - ["
+            entry = engine.getPID() + "." + threadName + " - ["
                     + mLogDateFormat.format(mDate) + "] [" +
                     ev.getSource().value() + "] [" + Integer.toString(ev.getLevel())
                     + "] " + prepareMultiline(ev.toString());
         } else {
-            entry = engine.getPID() + "." + Thread.currentThread().getName() + " - ["
+            entry = engine.getPID() + "." + threadName + " - ["
                     + mLogDateFormat.format(mDate) + "] [" +
                     ev.getSource().value() + "] [" + Integer.toString(ev.getLevel())
                     + "] " + ev.toString();
@@ -17,7 +17,7 @@
 // --- END COPYRIGHT BLOCK ---
 package com.netscape.cms.logging;
 
-import java.util.Vector;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.netscape.certsrv.logging.ILogEvent;
 import com.netscape.certsrv.logging.ILogEventListener;
@@ -35,7 +35,10 @@ import com.netscape.cmscore.apps.CMS;
 public class LogQueue {
 
     private static LogQueue mLogQueue = new LogQueue();
-    protected Vector<ILogEventListener> mListeners = new Vector<>();
+
+    // listeners rarely change but are read on every event,
+    // so iterate over a snapshot without locking
+    protected CopyOnWriteArrayList<ILogEventListener> mListeners = new CopyOnWriteArrayList<>();
 
     /**
      * Constructs a log queue.
@@ -59,8 +62,7 @@ public class LogQueue {
      * Stops this log queue: shuts down all registered listeners.
      */
     public void shutdown() {
-        for (int i = 0; i < mListeners.size(); i++) {
-            ILogEventListener listener = mListeners.elementAt(i);
+        for (ILogEventListener listener : mListeners) {
             listener.shutdown();
         }
     }
@@ -73,9 +75,7 @@ public class LogQueue {
      */
     public void addLogEventListener(ILogEventListener listener) {
         //Make sure we don't have duplicated listener
-        if (!mListeners.contains(listener)) {
-            mListeners.addElement(listener);
-        }
+        mListeners.addIfAbsent(listener);
     }
 
     /**
@@ -84,7 +84,7 @@ public class LogQueue {
      * @param listener The log event listener to be removed from this queue.
      */
     public void removeLogEventListener(ILogEventListener listener) {
-        mListeners.removeElement(listener);
+        mListeners.remove(listener);
     }
 
     /**
@@ -93,15 +93,11 @@ public class LogQueue {
      * @param event the log event
      */
     public void log(ILogEvent event) {
-        for (int i = 0; i < mListeners.size(); i++) {
+        boolean isAudit = event instanceof SignedAuditEvent;
 
-            boolean isAudit = false;
-
-            if( event instanceof SignedAuditEvent) {
-                isAudit = true;
-            }
+        for (ILogEventListener listener : mListeners) {
             try {
-                mListeners.elementAt(i).log(event);
+                listener.log(event);
             } catch (Exception e) {//Try to catch ELogException or possible RuntimeExceptions if thrown
                 //Last resort log to the system for failed audit log attempt
                 if(isAudit == true) {
@@ -116,8 +112,8 @@ public class LogQueue {
      * Messages should be written to their destination.
      */
     public void flush() {
-        for (int i = 0; i < mListeners.size(); i++) {
-            mListeners.elementAt(i).flush();
+        for (ILogEventListener listener : mListeners) {
+            listener.flush();
         }
     }
 }
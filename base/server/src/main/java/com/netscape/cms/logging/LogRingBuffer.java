@@ -0,0 +1,139 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cms.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded lock-free ring buffer for multiple producers and
+ * a single consumer.
+ *
+ * Each slot has a sequence number which tells whether the slot
+ * is free for the producer claiming that position or contains
+ * a published element for the consumer. Producers claim positions
+ * with a CAS on the tail, so they never block each other.
+ *
+ * Only one thread at a time may call {@link #poll()}.
+ */
+public class LogRingBuffer<E> {
+
+    final int capacity;
+    final int mask;
+
+    final AtomicReferenceArray<E> elements;
+    final AtomicLongArray sequences;
+
+    // next position to be claimed by a producer
+    final AtomicLong tail = new AtomicLong();
+
+    // next position to be read by the consumer
+    volatile long head;
+
+    /**
+     * @param capacity minimum capacity, rounded up to a power of two
+     */
+    public LogRingBuffer(int capacity) {
+
+        if (capacity < 2) {
+            capacity = 2;
+        }
+
+        this.capacity = Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+
+        elements = new AtomicReferenceArray<>(this.capacity);
+        sequences = new AtomicLongArray(this.capacity);
+
+        for (int i = 0; i < this.capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Adds an element to the buffer.
+     *
+     * @return the position of the element, or -1 if the buffer is full
+     */
+    public long offer(E element) {
+
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long diff = sequences.get(index) - position;
+
+            if (diff == 0) {
+                // slot is free, try to claim it
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.set(index, element);
+                    sequences.set(index, position + 1); // publish
+                    return position;
+                }
+
+            } else if (diff < 0) {
+                // slot still holds an element from the previous round
+                return -1;
+            }
+
+            // another producer claimed the slot, retry
+        }
+    }
+
+    /**
+     * Removes the next published element. Must only be called by
+     * a single consumer at a time.
+     *
+     * @return the element, or null if the next element is not
+     * published yet
+     */
+    public E poll() {
+
+        long position = head;
+        int index = (int) position & mask;
+
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+
+        E element = elements.get(index);
+        elements.set(index, null);
+
+        // release the slot for the next round
+        sequences.set(index, position + capacity);
+        head = position + 1;
+
+        return element;
+    }
+
+    /**
+     * Returns the position of the next element to be consumed.
+     * All elements before this position have been consumed.
+     */
+    public long getHead() {
+        return head;
+    }
+
+    /**
+     * Returns the position of the next element to be produced.
+     */
+    public long getTail() {
+        return tail.get();
+    }
+
+    public boolean isEmpty() {
+        long position = head;
+        return sequences.get((int) position & mask) != position + 1;
+    }
+
+    public int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+}
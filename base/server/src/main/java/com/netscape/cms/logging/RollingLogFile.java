@@ -137,7 +137,7 @@ public class RollingLogFile extends LogFile {
      * Shutdown this log file.
      */
     @Override
-    public synchronized void shutdown() {
+    public void shutdown() {
         logger.debug("Destroying RollingLogFile(" + mFileName + ")");
         setRolloverTime("0");
         setExpirationTime("0");
@@ -492,9 +492,30 @@ public class RollingLogFile extends LogFile {
      * @param ev The event to be logged.
      **/
     @Override
-    public synchronized void log(ILogEvent ev) throws ELogException {
-        //xxx, Shall we log first without checking if it exceed the maximum?
-        super.log(ev); // Will increment mBytesWritten
+    public void log(ILogEvent ev) throws ELogException {
+
+        if (mAsyncWriter != null) {
+            // the writer thread will check the file size after each batch
+            super.log(ev);
+            return;
+        }
+
+        synchronized (this) {
+            //xxx, Shall we log first without checking if it exceed the maximum?
+            super.log(ev); // Will increment mBytesWritten
+            checkFileSize();
+        }
+    }
+
+    @Override
+    protected void batchWritten() throws ELogException {
+        checkFileSize();
+    }
+
+    /**
+     * Rotate the log if it exceeds the maximum file size.
+     */
+    protected synchronized void checkFileSize() throws ELogException {
 
         if ((0 != mMaxFileSize) && (mBytesWritten > mMaxFileSize)) {
             flush();
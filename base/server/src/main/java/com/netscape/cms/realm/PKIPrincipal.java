@@ -1,5 +1,6 @@
 package com.netscape.cms.realm;
 
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.catalina.realm.GenericPrincipal;
@@ -26,6 +27,19 @@ public class PKIPrincipal extends GenericPrincipal {
         this.authToken = authToken;
     }
 
+    /**
+     * Constructs a copy of a principal so that the user and the
+     * authentication token can be modified without affecting the
+     * original principal.
+     */
+    public PKIPrincipal(PKIPrincipal principal) {
+        this(
+            new User(principal.user),
+            principal.getPassword(),
+            Arrays.asList(principal.getRoles()),
+            principal.authToken == null ? null : new AuthToken(principal.authToken));
+    }
+
     public User getUser() {
         return user;
     }
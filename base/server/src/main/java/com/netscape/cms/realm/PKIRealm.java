@@ -25,7 +25,10 @@ import com.netscape.cms.logging.SignedAuditLogger;
 import com.netscape.cmscore.apps.CMS;
 import com.netscape.cmscore.apps.CMSEngine;
 import com.netscape.cmscore.authentication.AuthSubsystem;
+import com.netscape.cmscore.authentication.AuthenticationCache;
 import com.netscape.cmscore.authentication.CertUserDBAuthentication;
+import com.netscape.cmscore.authentication.VerifiedCert;
+import com.netscape.cmscore.authentication.VerifiedCerts;
 import com.netscape.cmscore.usrgrp.Group;
 import com.netscape.cmscore.usrgrp.UGSubsystem;
 import com.netscape.cmscore.usrgrp.User;
@@ -119,6 +122,10 @@ public class PKIRealm extends RealmBase {
         String auditSubjectID = getAuditUserfromCert(certs[0]);
         String attemptedAuditUID = auditSubjectID;
 
+        AuthSubsystem authSub = engine.getAuthSubsystem();
+        AuthenticationCache cache = authSub.getAuthenticationCache();
+        String cacheKey = null;
+
         try {
             X509CertImpl certImpls[] = new X509CertImpl[certs.length];
             for (int i=0; i<certs.length; i++) {
@@ -126,7 +133,21 @@ public class PKIRealm extends RealmBase {
                 certImpls[i] = new X509CertImpl(cert.getEncoded());
             }
 
-            AuthSubsystem authSub = engine.getAuthSubsystem();
+            if (cache != null) {
+                cacheKey = cache.createKey(certs);
+                Principal principal = getCachedPrincipal(engine, cache, cacheKey, certImpls[0]);
+
+                if (principal != null) {
+                    logger.info("PKIRealm: User " + principal.getName() + " authenticated with cached credentials");
+
+                    signedAuditLogger.log(AuthEvent.createSuccessEvent(
+                                ((PKIPrincipal) principal).getAuthToken().getInString(AuthToken.USER_ID),
+                                AuthSubsystem.CERTUSERDB_AUTHMGR_ID));
+
+                    return principal;
+                }
+            }
+
             AuthManager authMgr = authSub.getAuthManager(AuthSubsystem.CERTUSERDB_AUTHMGR_ID);
 
             AuthCredentials creds = new AuthCredentials();
@@ -145,7 +166,14 @@ public class PKIRealm extends RealmBase {
                         auditSubjectID,
                         AuthSubsystem.CERTUSERDB_AUTHMGR_ID));
 
-            return getPrincipal(username, authToken);
+            Principal principal = getPrincipal(username, authToken);
+
+            if (cache != null) {
+                // cache a copy so the returned principal can be modified
+                cache.put(cacheKey, certs[0], username, new PKIPrincipal((PKIPrincipal) principal));
+            }
+
+            return principal;
 
         } catch (EMissingCredential | EInvalidCredentials e) { // authentication failure
 
@@ -171,6 +199,33 @@ public class PKIRealm extends RealmBase {
         }
     }
 
+    /**
+     * Returns a copy of the cached principal for the certificate chain
+     * unless the certificate has been found to be revoked since then.
+     */
+    protected Principal getCachedPrincipal(
+            CMSEngine engine,
+            AuthenticationCache cache,
+            String cacheKey,
+            X509CertImpl cert) {
+
+        Principal principal = cache.get(cacheKey);
+
+        if (principal == null) {
+            return null;
+        }
+
+        VerifiedCerts verifiedCerts = engine.mVCList;
+        if (verifiedCerts != null && verifiedCerts.check(cert) == VerifiedCert.REVOKED) {
+            logger.info("PKIRealm: Certificate " + cert.getSerialNumber() + " has been revoked");
+            cache.remove(cacheKey);
+            return null;
+        }
+
+        // each request gets its own copy of the principal
+        return new PKIPrincipal((PKIPrincipal) principal);
+    }
+
     private String getAuditUserfromCert(X509Certificate clientCert) {
         String certUID = clientCert.getSubjectDN().getName();
         return StringUtils.stripToNull(certUID);
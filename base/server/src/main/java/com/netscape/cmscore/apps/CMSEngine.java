@@ -679,6 +679,7 @@ public class CMSEngine {
         IPasswordStore passwordStore = getPasswordStore();
 
         ugSubsystem.init(ldapConfig, socketConfig, passwordStore);
+        ugSubsystem.initCache(ugConfig.getCacheConfig());
     }
 
     public void initOIDLoaderSubsystem() throws Exception {
@@ -1620,9 +1621,13 @@ public class CMSEngine {
     private int mVCListSize = 0;
 
     public void setListOfVerifiedCerts(int size, long interval, long unknownStateInterval) {
+        setListOfVerifiedCerts(size, interval, interval, unknownStateInterval);
+    }
+
+    public void setListOfVerifiedCerts(int size, long interval, long revokedInterval, long unknownStateInterval) {
         if (size > 0 && mVCListSize == 0) {
             mVCListSize = size;
-            mVCList = new VerifiedCerts(size, interval, unknownStateInterval);
+            mVCList = new VerifiedCerts(size, interval, revokedInterval, unknownStateInterval);
         }
     }
 
@@ -26,6 +26,7 @@ import org.dogtagpki.server.authentication.AuthManagerConfig;
 import org.dogtagpki.server.authentication.AuthManagerProxy;
 import org.dogtagpki.server.authentication.AuthManagersConfig;
 import org.dogtagpki.server.authentication.AuthToken;
+import org.dogtagpki.server.authentication.AuthenticationCacheConfig;
 import org.dogtagpki.server.authentication.AuthenticationConfig;
 
 import com.netscape.certsrv.authentication.AuthCredentials;
@@ -42,6 +43,7 @@ import com.netscape.cmscore.apps.CMS;
 import com.netscape.cmscore.apps.CMSEngine;
 import com.netscape.cmscore.apps.EngineConfig;
 import com.netscape.cmscore.base.ConfigStore;
+import com.netscape.cmscore.usrgrp.UGSubsystem;
 
 /**
  * Default authentication subsystem
@@ -130,6 +132,7 @@ public class AuthSubsystem implements ISubsystem {
     public Hashtable<String, AuthManagerProxy> mAuthMgrInsts = new Hashtable<>();
     private String mId = "auths";
     private AuthenticationConfig mConfig;
+    private AuthenticationCache mCache;
 
     public AuthSubsystem() {
     }
@@ -308,6 +311,7 @@ public class AuthSubsystem implements ISubsystem {
 
             loadAuthManagerPlugins();
             loadAuthManagerInstances();
+            initCache();
 
         } catch (EBaseException e) {
             logger.error("Unable to initialize AuthSubsystem: " + e.getMessage(), e);
@@ -319,6 +323,36 @@ public class AuthSubsystem implements ISubsystem {
         }
     }
 
+    /**
+     * Creates the authentication cache if enabled.
+     */
+    public void initCache() throws EBaseException {
+
+        AuthenticationCacheConfig cacheConfig = mConfig.getCacheConfig();
+
+        if (!cacheConfig.isEnabled()) {
+            logger.info("AuthSubsystem: Authentication cache disabled");
+            return;
+        }
+
+        int lifetime = cacheConfig.getLifetime();
+        int size = cacheConfig.getSize();
+        logger.info("AuthSubsystem: Authentication cache enabled with lifetime " + lifetime + "s and size " + size);
+
+        mCache = new AuthenticationCache(lifetime, size);
+
+        CMSEngine engine = CMS.getCMSEngine();
+        UGSubsystem ugSubsystem = engine.getUGSubsystem();
+        ugSubsystem.addListener(mCache);
+    }
+
+    /**
+     * Returns the authentication cache, or null if disabled.
+     */
+    public AuthenticationCache getAuthenticationCache() {
+        return mCache;
+    }
+
     /**
      * Authenticate to the named authentication manager instance
      * <p>
@@ -532,6 +566,12 @@ public class AuthSubsystem implements ISubsystem {
         }
         mAuthMgrPlugins.clear();
         mAuthMgrInsts.clear();
+
+        if (mCache != null) {
+            CMSEngine engine = CMS.getCMSEngine();
+            engine.getUGSubsystem().removeListener(mCache);
+            mCache.clear();
+        }
     }
 
     /**
@@ -0,0 +1,189 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.authentication;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.Principal;
+import java.security.cert.X509Certificate;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.mozilla.jss.netscape.security.util.Utils;
+
+import com.netscape.cmscore.usrgrp.UGListener;
+
+/**
+ * This class caches the results of client certificate authentication
+ * so that subsequent requests with the same certificate chain (e.g.
+ * on a kept-alive TLS connection) do not need to repeat certificate
+ * validation, revocation checking, and user lookup.
+ *
+ * Entries expire after a configurable lifetime. They are invalidated
+ * when the user or group is modified in UGSubsystem, or when the
+ * certificate is revoked. The invalidation only applies to this JVM,
+ * so changes made by other subsystems or clones take effect when the
+ * entries expire.
+ */
+public class AuthenticationCache implements UGListener {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(AuthenticationCache.class);
+
+    public static class Entry {
+
+        Principal principal;
+        String userID;
+        BigInteger serialNumber;
+        long expiration;
+
+        public Entry(Principal principal, String userID, BigInteger serialNumber, long expiration) {
+            this.principal = principal;
+            this.userID = userID;
+            this.serialNumber = serialNumber;
+            this.expiration = expiration;
+        }
+
+        public Principal getPrincipal() {
+            return principal;
+        }
+
+        public String getUserID() {
+            return userID;
+        }
+
+        public BigInteger getSerialNumber() {
+            return serialNumber;
+        }
+
+        public boolean isExpired() {
+            return System.currentTimeMillis() >= expiration;
+        }
+    }
+
+    long lifetime;
+    int size;
+
+    Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param lifetime entry lifetime in seconds
+     * @param size maximum number of entries
+     */
+    public AuthenticationCache(int lifetime, int size) {
+        this.lifetime = lifetime * 1000L;
+        this.size = size;
+    }
+
+    /**
+     * Creates the cache key from the DER encoding of the certificate chain.
+     */
+    public String createKey(X509Certificate[] certs) throws Exception {
+
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        for (X509Certificate cert : certs) {
+            md.update(cert.getEncoded());
+        }
+
+        return Utils.HexEncode(md.digest());
+    }
+
+    public Principal get(String key) {
+
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        if (entry.isExpired()) {
+            entries.remove(key, entry);
+            return null;
+        }
+
+        return entry.principal;
+    }
+
+    public void put(String key, X509Certificate cert, String userID, Principal principal) {
+
+        if (entries.size() >= size) {
+            purge();
+        }
+
+        entries.put(key, new Entry(
+                principal,
+                userID,
+                cert.getSerialNumber(),
+                System.currentTimeMillis() + lifetime));
+    }
+
+    public void remove(String key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Removes expired entries. If the cache is still full,
+     * removes entries in iteration order until there is room.
+     */
+    public void purge() {
+
+        Iterator<Entry> i = entries.values().iterator();
+        while (i.hasNext()) {
+            if (i.next().isExpired()) i.remove();
+        }
+
+        i = entries.values().iterator();
+        while (entries.size() >= size && i.hasNext()) {
+            i.next();
+            i.remove();
+        }
+    }
+
+    /**
+     * Removes entries authenticated with the given certificate.
+     */
+    public void invalidateCert(BigInteger serialNumber) {
+
+        logger.debug("AuthenticationCache: Invalidating certificate " + serialNumber);
+
+        Iterator<Entry> i = entries.values().iterator();
+        while (i.hasNext()) {
+            if (serialNumber.equals(i.next().serialNumber)) i.remove();
+        }
+    }
+
+    public void invalidateCert(X509Certificate cert) {
+        invalidateCert(cert.getSerialNumber());
+    }
+
+    /**
+     * Removes entries of the given user.
+     */
+    public void invalidateUser(String userID) {
+
+        logger.debug("AuthenticationCache: Invalidating user " + userID);
+
+        Iterator<Entry> i = entries.values().iterator();
+        while (i.hasNext()) {
+            if (userID.equalsIgnoreCase(i.next().userID)) i.remove();
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public void userModified(String userID) {
+        invalidateUser(userID);
+    }
+
+    @Override
+    public void groupModified(String groupID) {
+        // cached principals contain roles, membership might have changed
+        logger.debug("AuthenticationCache: Group " + groupID + " modified, clearing cache");
+        clear();
+    }
+}
@@ -114,10 +114,11 @@ public class CertUserDBAuthentication implements AuthManager {
             if (mRevocationCheckingEnabled) {
                 int size = mRevocationChecking.getInteger("bufferSize", 0);
                 long interval = mRevocationChecking.getInteger("validityInterval", 28800);
+                long revokedInterval = mRevocationChecking.getInteger("revokedInterval", (int) interval);
                 long unknownStateInterval = mRevocationChecking.getInteger("unknownStateInterval", 1800);
 
                 if (size > 0)
-                    engine.setListOfVerifiedCerts(size, interval, unknownStateInterval);
+                    engine.setListOfVerifiedCerts(size, interval, revokedInterval, unknownStateInterval);
             }
         }
 
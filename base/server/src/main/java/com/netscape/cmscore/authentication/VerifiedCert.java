@@ -18,7 +18,7 @@
 package com.netscape.cmscore.authentication;
 
 import java.math.BigInteger;
-import java.util.Date;
+import java.util.Arrays;
 
 /**
  * class storing verified certificate.
@@ -34,55 +34,61 @@ public class VerifiedCert {
     public static final int UNKNOWN = 0;
 
     private int mStatus = UNKNOWN;
-    private Date mCreated = null;
+    private long mExpiration = 0;
     private BigInteger mSerialNumber = null;
-    private byte[] mCertEncoded = null;
+    private byte[] mCertDigest = null;
 
     /**
      * Constructs verified certiificate record
+     *
+     * @param serialNumber certificate serial number
+     * @param certDigest certificate digest, or null if not available
+     * @param status verification status
+     * @param expiration time (in milliseconds) when the record expires
      */
 
-    public VerifiedCert(BigInteger serialNumber, byte[] certEncoded,
-            int status) {
+    public VerifiedCert(BigInteger serialNumber, byte[] certDigest,
+            int status, long expiration) {
         mStatus = status;
         mSerialNumber = serialNumber;
-        mCertEncoded = certEncoded;
-        mCreated = new Date();
+        mCertDigest = certDigest;
+        mExpiration = expiration;
     }
 
-    public int check(BigInteger serialNumber, byte[] certEncoded,
-            long interval, long unknownStateInterval) {
-        int status = UNKNOWN;
+    public BigInteger getSerialNumber() {
+        return mSerialNumber;
+    }
 
-        if (mSerialNumber.equals(serialNumber)) {
-            if (mCertEncoded != null) {
-                if (certEncoded != null &&
-                        mCertEncoded.length == certEncoded.length) {
-                    int i;
+    public int getStatus() {
+        return mStatus;
+    }
 
-                    for (i = 0; i < mCertEncoded.length; i++) {
-                        if (mCertEncoded[i] != certEncoded[i])
-                            break;
-                    }
-                    if (i >= mCertEncoded.length) {
-                        Date expires = new Date(mCreated.getTime() + (interval * 1000));
-                        Date now = new Date();
+    public long getExpiration() {
+        return mExpiration;
+    }
+
+    public boolean isExpired(long now) {
+        return now > mExpiration;
+    }
 
-                        if (now.after(expires))
-                            mStatus = EXPIRED;
-                        status = mStatus;
-                    }
-                }
-            } else if (unknownStateInterval > 0) {
-                Date expires = new Date(mCreated.getTime() + (unknownStateInterval * 1000));
-                Date now = new Date();
+    /**
+     * Checks the record against a certificate digest.
+     *
+     * @return the record status if the digest matches and the record
+     * has not expired, EXPIRED if the record has expired, or UNKNOWN
+     * if the digest does not match
+     */
+    public int check(byte[] certDigest, long now) {
+
+        if (mCertDigest != null
+                && (certDigest == null || !Arrays.equals(mCertDigest, certDigest))) {
+            return UNKNOWN;
+        }
 
-                if (now.after(expires))
-                    mStatus = EXPIRED;
-                status = mStatus; // CHECKED
-            }
+        if (isExpired(now)) {
+            return EXPIRED;
         }
 
-        return status;
+        return mStatus;
     }
 }
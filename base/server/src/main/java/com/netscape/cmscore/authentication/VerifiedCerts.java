@@ -18,42 +18,118 @@
 package com.netscape.cmscore.authentication;
 
 import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.mozilla.jss.netscape.security.x509.X509CertImpl;
 
 /**
  * class storing verified certificates.
  *
+ * The records are stored in a concurrent map keyed by issuer and
+ * serial number. Each record holds a digest of the certificate so
+ * a different certificate with the same issuer and serial number
+ * will not match. Records expire individually based on their status
+ * and the oldest records are evicted when the size limit is reached.
+ *
  * @version $Revision$, $Date$
  */
 
 public class VerifiedCerts {
 
-    /* the value type of the dn component */
-    private int mFirst = 0;
-    private int mLast = 0;
-    private int mNext = 0;
-    private VerifiedCert[] mVCerts = null;
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(VerifiedCerts.class);
+
+    public static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private static final ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    });
+
+    /**
+     * Record key consisting of issuer DN and serial number.
+     */
+    static class Key {
+
+        String issuer;
+        BigInteger serialNumber;
+
+        Key(String issuer, BigInteger serialNumber) {
+            this.issuer = issuer;
+            this.serialNumber = serialNumber;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(issuer, serialNumber);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null || getClass() != obj.getClass())
+                return false;
+            Key other = (Key) obj;
+            return Objects.equals(issuer, other.issuer)
+                    && Objects.equals(serialNumber, other.serialNumber);
+        }
+    }
+
+    private int mSize = 0;
     private long mInterval = 0;
+    private long mRevokedInterval = 0;
     private long mUnknownStateInterval = 0;
 
+    private Map<Key, VerifiedCert> mVCerts = new ConcurrentHashMap<>();
+
+    // insertion order for eviction, may contain replaced records
+    private Queue<Map.Entry<Key, VerifiedCert>> mRecords = new ConcurrentLinkedQueue<>();
+    private AtomicInteger mRecordCount = new AtomicInteger();
+
     /**
      * Constructs verified certiificates list
      */
 
     public VerifiedCerts(int size, long interval) {
-        mVCerts = new VerifiedCert[size];
-        mInterval = interval;
-        mUnknownStateInterval = interval;
+        this(size, interval, interval);
     }
 
     public VerifiedCerts(int size, long interval, long unknownStateInterval) {
-        mVCerts = new VerifiedCert[size];
+        this(size, interval, interval, unknownStateInterval);
+    }
+
+    /**
+     * Constructs verified certificates list.
+     *
+     * @param size maximum number of records
+     * @param interval validity (in seconds) of not-revoked records
+     * @param revokedInterval validity (in seconds) of revoked records
+     * @param unknownStateInterval validity (in seconds) of records
+     *        whose revocation status could not be determined
+     */
+    public VerifiedCerts(int size, long interval, long revokedInterval, long unknownStateInterval) {
+        mSize = size;
         mInterval = interval;
+        mRevokedInterval = revokedInterval;
         mUnknownStateInterval = unknownStateInterval;
     }
 
-    public synchronized void update(X509CertImpl cert, int status) {
+    public int size() {
+        return mVCerts.size();
+    }
+
+    public void update(X509CertImpl cert, int status) {
         if (cert != null) {
             byte[] certEncoded = null;
 
@@ -64,36 +140,49 @@ public class VerifiedCerts {
             if ((certEncoded != null ||
                     (status == VerifiedCert.CHECKED && mUnknownStateInterval > 0))
                     && mInterval > 0) {
-                update(cert.getSerialNumber(), certEncoded, status);
+                update(getIssuer(cert), cert.getSerialNumber(), certEncoded, status);
             }
         }
     }
 
-    public synchronized void update(BigInteger serialNumber, byte[] certEncoded, int status) {
-        if ((status == VerifiedCert.NOT_REVOKED ||
-                status == VerifiedCert.REVOKED ||
-                (status == VerifiedCert.CHECKED && mUnknownStateInterval > 0))
-                && mInterval > 0) {
-            if (mLast == mNext && mFirst == mNext) { // empty
-                mVCerts[mNext] = new VerifiedCert(serialNumber, certEncoded, status);
-                mNext = next(mNext);
-            } else if (mFirst == mNext) { // full
-                mFirst = next(mFirst);
-                mVCerts[mNext] = new VerifiedCert(serialNumber, certEncoded, status);
-                mLast = mNext;
-                mNext = next(mNext);
-            } else {
-                mVCerts[mNext] = new VerifiedCert(serialNumber, certEncoded, status);
-                mLast = mNext;
-                mNext = next(mNext);
-            }
+    public void update(BigInteger serialNumber, byte[] certEncoded, int status) {
+        update(null, serialNumber, certEncoded, status);
+    }
+
+    public void update(String issuer, BigInteger serialNumber, byte[] certEncoded, int status) {
+
+        if (mInterval <= 0 || mSize <= 0) {
+            return;
+        }
+
+        long interval;
+        if (status == VerifiedCert.NOT_REVOKED) {
+            interval = mInterval;
+        } else if (status == VerifiedCert.REVOKED) {
+            interval = mRevokedInterval;
+        } else if (status == VerifiedCert.CHECKED && mUnknownStateInterval > 0) {
+            interval = mUnknownStateInterval;
+        } else {
+            return;
         }
+
+        byte[] certDigest = certEncoded == null ? null : digest(certEncoded);
+        long expiration = System.currentTimeMillis() + interval * 1000;
+
+        Key key = new Key(issuer, serialNumber);
+        VerifiedCert vcert = new VerifiedCert(serialNumber, certDigest, status, expiration);
+        mVCerts.put(key, vcert);
+
+        mRecords.add(new AbstractMap.SimpleImmutableEntry<>(key, vcert));
+        mRecordCount.incrementAndGet();
+
+        evict();
     }
 
-    public synchronized int check(X509CertImpl cert) {
+    public int check(X509CertImpl cert) {
         int status = VerifiedCert.UNKNOWN;
 
-        if (mLast != mNext && mInterval > 0) { // if not empty and
+        if (!mVCerts.isEmpty() && mInterval > 0) { // if not empty and
             if (cert != null) {
                 byte[] certEncoded = null;
 
@@ -102,7 +191,7 @@ public class VerifiedCerts {
                 } catch (Exception e) {
                 }
                 if (certEncoded != null) {
-                    status = check(cert.getSerialNumber(), certEncoded);
+                    status = check(getIssuer(cert), cert.getSerialNumber(), certEncoded);
                 }
             }
         }
@@ -110,49 +199,79 @@ public class VerifiedCerts {
         return status;
     }
 
-    public synchronized int check(BigInteger serialNumber, byte[] certEncoded) {
-        int status = VerifiedCert.UNKNOWN;
-        int i = mLast;
-
-        if (mVCerts != null && mLast != mNext && mInterval > 0) { // if not empty and
-            while (status == VerifiedCert.UNKNOWN) {
-                if (mVCerts[i] == null)
-                    return status;
-                status = mVCerts[i].check(serialNumber, certEncoded,
-                            mInterval, mUnknownStateInterval);
-                if (status == VerifiedCert.EXPIRED) {
-                    if (mFirst == mLast)
-                        mNext = mLast;
-                    else
-                        mFirst = next(i);
-                    break;
-                } else if (mFirst == i) {
-                    break;
-                } else {
-                    i = previous(i);
-                }
-            }
-            if (status == VerifiedCert.UNKNOWN)
-                status = mVCerts[i].check(serialNumber, certEncoded,
-                            mInterval, mUnknownStateInterval);
+    public int check(BigInteger serialNumber, byte[] certEncoded) {
+        return check(null, serialNumber, certEncoded);
+    }
+
+    public int check(String issuer, BigInteger serialNumber, byte[] certEncoded) {
+
+        if (mInterval <= 0) {
+            return VerifiedCert.UNKNOWN;
+        }
+
+        Key key = new Key(issuer, serialNumber);
+        VerifiedCert vcert = mVCerts.get(key);
+
+        if (vcert == null) {
+            return VerifiedCert.UNKNOWN;
+        }
+
+        byte[] certDigest = certEncoded == null ? null : digest(certEncoded);
+        int status = vcert.check(certDigest, System.currentTimeMillis());
+
+        if (status == VerifiedCert.EXPIRED) {
+            mVCerts.remove(key, vcert);
         }
 
         return status;
     }
 
-    private int next(int i) {
-        i++;
-        if (i >= mVCerts.length)
-            i = 0;
+    /**
+     * Removes the record of a certificate, e.g. after revocation.
+     */
+    public void remove(X509CertImpl cert) {
+        if (cert == null) return;
+        mVCerts.remove(new Key(getIssuer(cert), cert.getSerialNumber()));
+    }
+
+    /**
+     * Evicts the oldest records until the number of records is within
+     * the size limit. Queue entries of records that have been replaced
+     * or removed are discarded along the way.
+     */
+    private void evict() {
+
+        int attempts = mRecordCount.get();
+
+        while ((mVCerts.size() > mSize || mRecordCount.get() > 2 * mSize) && attempts-- > 0) {
 
-        return i;
+            Map.Entry<Key, VerifiedCert> record = mRecords.poll();
+            if (record == null) break;
+
+            mRecordCount.decrementAndGet();
+
+            Key key = record.getKey();
+            VerifiedCert vcert = record.getValue();
+
+            if (mVCerts.get(key) != vcert) continue; // replaced or removed
+
+            if (mVCerts.size() > mSize || vcert.isExpired(System.currentTimeMillis())) {
+                mVCerts.remove(key, vcert);
+            } else {
+                // still valid, put it back at the end of the queue
+                mRecords.add(record);
+                mRecordCount.incrementAndGet();
+            }
+        }
     }
 
-    private int previous(int i) {
-        if (i <= 0)
-            i = mVCerts.length;
-        i--;
+    private static String getIssuer(X509CertImpl cert) {
+        return cert.getIssuerDN() == null ? null : cert.getIssuerDN().toString();
+    }
 
-        return i;
+    private static byte[] digest(byte[] data) {
+        MessageDigest md = digests.get();
+        md.reset();
+        return md.digest(data);
     }
 }
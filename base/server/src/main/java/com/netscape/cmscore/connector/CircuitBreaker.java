@@ -0,0 +1,129 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.connector;
+
+/**
+ * This class keeps track of consecutive failures of a remote
+ * subsystem so that requests can fail fast while it is down
+ * instead of tying up threads until each request times out.
+ *
+ * The breaker starts closed. After a number of consecutive failures
+ * it opens and rejects requests. After the open timeout it becomes
+ * half-open and lets a single trial request through: if it succeeds
+ * the breaker closes, otherwise it opens again.
+ */
+public class CircuitBreaker {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    String name;
+    int failureThreshold;
+    long openTimeout;
+
+    State state = State.CLOSED;
+    int failures;
+    long openedTime;
+    boolean trialInProgress;
+
+    /**
+     * @param name name of the remote subsystem
+     * @param failureThreshold number of consecutive failures before opening (0 to disable)
+     * @param openTimeout how long to stay open in milliseconds
+     */
+    public CircuitBreaker(String name, int failureThreshold, long openTimeout) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openTimeout = openTimeout;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Returns true if a request may be sent now.
+     */
+    public synchronized boolean allowRequest() {
+
+        if (failureThreshold <= 0) {
+            return true;
+        }
+
+        switch (state) {
+        case CLOSED:
+            return true;
+
+        case OPEN:
+            if (currentTimeMillis() - openedTime < openTimeout) {
+                return false;
+            }
+            logger.info("CircuitBreaker: " + name + " half-open, sending trial request");
+            state = State.HALF_OPEN;
+            trialInProgress = true;
+            return true;
+
+        case HALF_OPEN:
+        default:
+            // only one trial request at a time
+            if (trialInProgress) {
+                return false;
+            }
+            trialInProgress = true;
+            return true;
+        }
+    }
+
+    public synchronized void recordSuccess() {
+
+        if (state != State.CLOSED) {
+            logger.info("CircuitBreaker: " + name + " closed");
+        }
+
+        state = State.CLOSED;
+        failures = 0;
+        trialInProgress = false;
+    }
+
+    public synchronized void recordFailure() {
+
+        if (failureThreshold <= 0) {
+            return;
+        }
+
+        failures++;
+        trialInProgress = false;
+
+        if (state == State.HALF_OPEN || failures >= failureThreshold) {
+            if (state != State.OPEN) {
+                logger.warn("CircuitBreaker: " + name + " opened after " + failures + " failure(s)");
+            }
+            state = State.OPEN;
+            openedTime = currentTimeMillis();
+        }
+    }
+
+    /**
+     * Releases the request allowed by allowRequest() if it could not be
+     * sent, so it is not counted as a success or a failure.
+     */
+    public synchronized void release() {
+        trialInProgress = false;
+    }
+
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,471 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.connector;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpTimeoutException;
+import java.security.Principal;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509ExtendedKeyManager;
+import javax.net.ssl.X509KeyManager;
+
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.certsrv.connector.Connector;
+import com.netscape.cmscore.apps.CMS;
+import com.netscape.cmscore.base.ConfigStore;
+import com.netscape.cmscore.request.Request;
+import com.netscape.cmsutil.crypto.CryptoUtil;
+import com.netscape.cmsutil.http.HttpResponse;
+
+/**
+ * This class implements a connector that multiplexes requests to a
+ * remote authority over a small number of long-lived connections.
+ *
+ * Unlike HttpConnector, which holds a pooled socket for the whole
+ * duration of each request, this connector uses HTTP/2 (negotiated
+ * with ALPN) so that many requests can be in flight on the same
+ * connection. If the remote server does not support HTTP/2 it falls
+ * back to HTTP/1.1 with persistent connections.
+ *
+ * Each operation has a deadline (tps.connector.<id>.timeout, or
+ * tps.connector.<id>.opTimeout.<op> for a specific operation), and
+ * a circuit breaker stops sending requests to the remote authority
+ * for a while after a number of consecutive failures.
+ *
+ * Like HttpConnector, this connector only supports the multi-uri
+ * send(op, msg) operation. It returns null if the request fails.
+ */
+public class Http2Connector extends Connector {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(Http2Connector.class);
+
+    public static final String NSS_X509 = "NssX509";
+    public static final String JSS_PROVIDER = "Mozilla-JSS";
+
+    protected RemoteAuthority mDest;
+    protected ConfigStore mConfig;
+
+    List<InetSocketAddress> targets;
+
+    // index of the last target that worked
+    AtomicInteger currentTarget = new AtomicInteger();
+
+    int timeout; // seconds
+    Semaphore inflight;
+    CircuitBreaker circuitBreaker;
+
+    ExecutorService executor;
+    HttpClient client;
+
+    public Http2Connector(
+            String nickName,
+            String clientCiphers,
+            RemoteAuthority dest,
+            ConfigStore config) throws EBaseException {
+
+        this(dest, createSSLContext(nickName, clientCiphers), config);
+    }
+
+    Http2Connector(
+            RemoteAuthority dest,
+            SSLContext sslContext,
+            ConfigStore config) throws EBaseException {
+
+        mDest = dest;
+        mConfig = config;
+
+        targets = parseTarget(dest.getHost(), dest.getPort());
+        timeout = dest.getTimeout();
+
+        int maxConcurrentRequests = config.getInteger("maxConcurrentRequests", 100);
+        int threads = config.getInteger("threads", 4);
+        int failureThreshold = config.getInteger("failureThreshold", 5);
+        int openTimeout = config.getInteger("openTimeout", 30);
+
+        logger.info("Http2Connector: Creating connector for " + dest.getHost());
+        logger.info("Http2Connector: - timeout: " + timeout + "s");
+        logger.info("Http2Connector: - max concurrent requests: " + maxConcurrentRequests);
+        logger.info("Http2Connector: - threads: " + threads);
+        logger.info("Http2Connector: - failure threshold: " + failureThreshold);
+        logger.info("Http2Connector: - open timeout: " + openTimeout + "s");
+
+        inflight = new Semaphore(maxConcurrentRequests);
+        circuitBreaker = new CircuitBreaker(dest.getHost(), failureThreshold, openTimeout * 1000L);
+
+        AtomicInteger counter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "Http2Connector-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .sslContext(sslContext)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .executor(executor);
+
+        if (timeout > 0) {
+            builder.connectTimeout(Duration.ofSeconds(timeout));
+        }
+
+        client = builder.build();
+    }
+
+    /**
+     * Creates an SSL context backed by the NSS database which
+     * authenticates with the given certificate.
+     */
+    public static SSLContext createSSLContext(
+            String nickName,
+            String clientCiphers) throws EBaseException {
+
+        try {
+            if (clientCiphers != null && !clientCiphers.trim().isEmpty()) {
+                CryptoUtil.setClientCiphers(clientCiphers.trim());
+            }
+
+            KeyManagerFactory kmf = KeyManagerFactory.getInstance(NSS_X509, JSS_PROVIDER);
+            KeyManager[] keyManagers = kmf.getKeyManagers();
+
+            if (nickName != null) {
+                for (int i = 0; i < keyManagers.length; i++) {
+                    if (keyManagers[i] instanceof X509KeyManager km) {
+                        keyManagers[i] = new NicknameKeyManager(km, nickName);
+                    }
+                }
+            }
+
+            TrustManagerFactory tmf = TrustManagerFactory.getInstance(NSS_X509, JSS_PROVIDER);
+
+            SSLContext sslContext = SSLContext.getInstance("TLS", JSS_PROVIDER);
+            sslContext.init(keyManagers, tmf.getTrustManagers(), null);
+
+            return sslContext;
+
+        } catch (Exception e) {
+            throw new EBaseException("Unable to create SSL context: " + e.getMessage(), e);
+        }
+    }
+
+    List<InetSocketAddress> parseTarget(String target, int port) {
+
+        List<InetSocketAddress> results = new ArrayList<>();
+
+        if (target == null || target.indexOf(' ') < 0) {
+            results.add(InetSocketAddress.createUnresolved(target, port));
+            return results;
+        }
+
+        // failover list, for example:
+        // "server1.example.com:8443 server2.example.com:8443"
+
+        for (String hostnamePort : target.split(" ")) {
+            String[] parts = hostnamePort.split(":");
+            results.add(InetSocketAddress.createUnresolved(parts[0], Integer.parseInt(parts[1])));
+        }
+
+        return results;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Returns the deadline of an operation in seconds (0 means none).
+     */
+    int getTimeout(String op) throws EBaseException {
+        return mConfig.getInteger("opTimeout." + op, timeout);
+    }
+
+    @Override
+    public boolean send(Request req) throws EBaseException {
+        throw new EBaseException(CMS.getUserMessage("CMS_BASE_INVALID_ATTRIBUTE",
+                "Http2Connector.send(): request queue not supported"));
+    }
+
+    @Override
+    public HttpResponse send(String op, String msg) throws EBaseException {
+
+        logger.debug("Http2Connector: send(): begins");
+
+        try {
+            return sendAsync(op, msg).get();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Http2Connector: send(): interrupted");
+
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            logger.warn("Http2Connector: send(): " + cause.getMessage(), cause);
+        }
+
+        return null;
+    }
+
+    /**
+     * Sends the message to the remote authority without waiting for the
+     * response. Multiple requests can be in flight at the same time, up
+     * to tps.connector.<id>.maxConcurrentRequests.
+     *
+     * @param op operation to determine receiving servlet
+     * @param msg message to forward to the remote authority
+     * @return future response; completes exceptionally if the request fails
+     */
+    public CompletableFuture<HttpResponse> sendAsync(String op, String msg) throws EBaseException {
+
+        if (op == null) {
+            throw new EBaseException(CMS.getUserMessage("CMS_BASE_INVALID_ATTRIBUTE", "Http2Connector.send(): op null"));
+        }
+
+        String uri = mDest.getURI(op);
+        if (uri == null) {
+            throw new EBaseException(CMS.getUserMessage("CMS_BASE_INVALID_ATTRIBUTE", "Http2Connector.send(): cannot find uri for op"));
+        }
+
+        if (msg == null || msg.equals("")) {
+            throw new EBaseException("Http2Connector.send(): null or empty content");
+        }
+
+        if (!circuitBreaker.allowRequest()) {
+            return CompletableFuture.failedFuture(new EBaseException(CMS.getUserMessage(
+                    "CMS_BASE_CONN_FAILED", mDest.getHost() + " unavailable (circuit breaker open)")));
+        }
+
+        boolean acquired = false;
+
+        try {
+            int opTimeout = getTimeout(op);
+            long deadline = opTimeout > 0 ? System.nanoTime() + TimeUnit.SECONDS.toNanos(opTimeout) : 0;
+
+            // bound the number of requests waiting on the remote authority
+            if (opTimeout > 0) {
+                if (!inflight.tryAcquire(opTimeout, TimeUnit.SECONDS)) {
+                    circuitBreaker.recordFailure();
+                    return CompletableFuture.failedFuture(new EBaseException(CMS.getUserMessage(
+                            "CMS_BASE_CONN_FAILED", "too many requests in flight to " + mDest.getHost())));
+                }
+            } else {
+                inflight.acquire();
+            }
+
+            acquired = true;
+            int start = currentTarget.get();
+
+            CompletableFuture<HttpResponse> future = sendAsync(uri, msg, start, 0, deadline);
+
+            // the permit and the trial request are now released when the request completes
+            acquired = false;
+
+            return future.whenComplete((resp, e) -> {
+
+                inflight.release();
+
+                Throwable cause = e == null ? null : unwrap(e);
+
+                if (cause == null || cause instanceof StatusException se && se.statusCode < 500) {
+                    // the remote authority responded
+                    circuitBreaker.recordSuccess();
+                    return;
+                }
+
+                // the remote authority is unreachable, slow, or broken
+                circuitBreaker.recordFailure();
+            });
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            circuitBreaker.release();
+            return CompletableFuture.failedFuture(e);
+
+        } catch (EBaseException | RuntimeException e) {
+            circuitBreaker.release();
+            throw e;
+
+        } finally {
+            if (acquired) {
+                inflight.release();
+            }
+        }
+    }
+
+    CompletableFuture<HttpResponse> sendAsync(
+            String uri,
+            String msg,
+            int start,
+            int attempt,
+            long deadline) {
+
+        int index = (start + attempt) % targets.size();
+        InetSocketAddress target = targets.get(index);
+        String url = "https://" + target.getHostString() + ":" + target.getPort() + uri;
+
+        logger.info("Http2Connector: Sending request to " + url);
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", mDest.getContentType())
+                .POST(HttpRequest.BodyPublishers.ofString(msg));
+
+        if (deadline > 0) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return CompletableFuture.failedFuture(new HttpTimeoutException("Request timed out: " + url));
+            }
+            builder.timeout(Duration.ofNanos(remaining));
+        }
+
+        return client.sendAsync(builder.build(), java.net.http.HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> {
+                    currentTarget.set(index);
+                    return toHttpResponse(url, response);
+                })
+                .exceptionallyCompose(e -> {
+
+                    Throwable cause = unwrap(e);
+                    if (cause instanceof StatusException) {
+                        return CompletableFuture.failedFuture(cause);
+                    }
+
+                    logger.warn("Http2Connector: Unable to send request to " + url + ": " + cause.getMessage());
+
+                    // try the next target immediately unless the deadline has passed
+                    if (cause instanceof IOException
+                            && !(cause instanceof HttpTimeoutException)
+                            && attempt + 1 < targets.size()) {
+                        return sendAsync(uri, msg, start, attempt + 1, deadline);
+                    }
+
+                    return CompletableFuture.failedFuture(cause);
+                });
+    }
+
+    static Throwable unwrap(Throwable e) {
+        while (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+
+    HttpResponse toHttpResponse(String url, java.net.http.HttpResponse<String> response) {
+
+        int statusCode = response.statusCode();
+        logger.debug("Http2Connector: " + url + " returned status " + statusCode + " (" + response.version() + ")");
+
+        if (statusCode != 200) {
+            throw new CompletionException(new StatusException(statusCode,
+                    "Http2Connector: request no good " + statusCode));
+        }
+
+        HttpResponse resp = new HttpResponse();
+        resp.setStatusCode(statusCode);
+        resp.setReasonPhrase("OK");
+        response.headers().firstValue("Content-Type").ifPresent(value -> resp.setHeader("Content-Type", value));
+        resp.setContent(response.body());
+
+        return resp;
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() {
+        logger.debug("Stopping Http2Connector for " + mDest.getHost());
+        executor.shutdownNow();
+    }
+
+    static class StatusException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        int statusCode;
+
+        StatusException(int statusCode, String message) {
+            super(message);
+            this.statusCode = statusCode;
+        }
+    }
+
+    /**
+     * Key manager that always presents the configured certificate.
+     */
+    static class NicknameKeyManager extends X509ExtendedKeyManager {
+
+        X509KeyManager delegate;
+        String nickName;
+
+        NicknameKeyManager(X509KeyManager delegate, String nickName) {
+            this.delegate = delegate;
+            this.nickName = nickName;
+        }
+
+        @Override
+        public String chooseClientAlias(String[] keyType, Principal[] issuers, Socket socket) {
+            return nickName;
+        }
+
+        @Override
+        public String chooseEngineClientAlias(String[] keyType, Principal[] issuers, SSLEngine engine) {
+            return nickName;
+        }
+
+        @Override
+        public String[] getClientAliases(String keyType, Principal[] issuers) {
+            return delegate.getClientAliases(keyType, issuers);
+        }
+
+        @Override
+        public String[] getServerAliases(String keyType, Principal[] issuers) {
+            return delegate.getServerAliases(keyType, issuers);
+        }
+
+        @Override
+        public String chooseServerAlias(String keyType, Principal[] issuers, Socket socket) {
+            return nickName;
+        }
+
+        @Override
+        public String chooseEngineServerAlias(String keyType, Principal[] issuers, SSLEngine engine) {
+            return nickName;
+        }
+
+        @Override
+        public X509Certificate[] getCertificateChain(String alias) {
+            return delegate.getCertificateChain(alias);
+        }
+
+        @Override
+        public PrivateKey getPrivateKey(String alias) {
+            return delegate.getPrivateKey(alias);
+        }
+    }
+}
@@ -19,8 +19,11 @@ package com.netscape.cmscore.request;
 
 import java.math.BigInteger;
 import java.security.SecureRandom;
+import java.util.Collection;
 import java.util.Date;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.base.SessionContext;
@@ -233,6 +236,47 @@ public class RequestRepository extends Repository {
         }
     }
 
+    /**
+     * Adds new requests using a single database session.
+     * A request that cannot be added does not prevent the
+     * remaining requests from being added.
+     *
+     * @param requests the requests to add
+     * @return the requests that could not be added
+     */
+    public Map<RequestId, EBaseException> addRequests(Collection<Request> requests) throws EBaseException {
+
+        Map<RequestId, EBaseException> failures = new LinkedHashMap<>();
+        String name = getUserIdentity();
+
+        try (DBSSession dbs = dbSubsystem.createSession()) {
+            for (Request request : requests) {
+
+                if (name != null) {
+                    request.setExtData(Request.UPDATED_BY, name);
+                }
+
+                request.mModificationTime = new Date();
+                request.setExtData("dbStatus", "UPDATED");
+
+                RequestRecord requestRecord = new RequestRecord();
+                requestRecord.add(request);
+
+                String dn = "cn=" + requestRecord.mRequestId + "," + mBaseDN;
+
+                try {
+                    dbs.add(dn, requestRecord);
+
+                } catch (EBaseException e) {
+                    logger.error("RequestRepository: Unable to add request " + request.getRequestId() + ": " + e.getMessage(), e);
+                    failures.put(request.getRequestId(), e);
+                }
+            }
+        }
+
+        return failures;
+    }
+
     public Request readRequest(RequestId id) throws EBaseException {
 
         String name = "cn=" + id + "," + mBaseDN;
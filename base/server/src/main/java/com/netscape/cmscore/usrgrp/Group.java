@@ -74,6 +74,15 @@ public class Group implements IAttrSet {
         mName = name;
     }
 
+    /**
+     * Constructs a copy of the given group.
+     */
+    Group(Group group) {
+        mName = group.mName;
+        mDescription = group.mDescription;
+        mMembers = new Vector<>(group.mMembers);
+    }
+
     /**
      * Retrieves the group name.
      *
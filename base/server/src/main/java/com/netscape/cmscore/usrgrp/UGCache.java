@@ -0,0 +1,334 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.usrgrp;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import netscape.ldap.LDAPDN;
+
+/**
+ * This class provides an in-memory cache for UGSubsystem lookups:
+ * <ul>
+ * <li>certificate to user
+ * <li>user DN to user
+ * <li>user to groups (membership results)
+ * <li>group to members
+ * </ul>
+ *
+ * Entries expire after a configurable TTL and are explicitly
+ * invalidated by UGSubsystem when users or groups are modified.
+ * Cached objects are copied on the way in and on the way out
+ * so callers cannot modify the cached data.
+ */
+public class UGCache {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(UGCache.class);
+
+    /**
+     * A single cache region with TTL, size limit, and hit/miss counters.
+     */
+    public static class Region<V> {
+
+        String name;
+        long ttl;
+        int size;
+
+        Map<String, Entry<V>> entries = new ConcurrentHashMap<>();
+
+        AtomicLong hits = new AtomicLong();
+        AtomicLong misses = new AtomicLong();
+
+        public Region(String name, long ttl, int size) {
+            this.name = name;
+            this.ttl = ttl;
+            this.size = size;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public V get(String key) {
+
+            Entry<V> entry = entries.get(key);
+
+            if (entry == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+
+            if (entry.isExpired()) {
+                entries.remove(key, entry);
+                misses.incrementAndGet();
+                return null;
+            }
+
+            hits.incrementAndGet();
+            return entry.value;
+        }
+
+        public void put(String key, V value) {
+
+            if (entries.size() >= size && !entries.containsKey(key)) {
+                purge();
+            }
+
+            entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttl));
+        }
+
+        /**
+         * Returns the value of the key, or atomically stores and returns
+         * a new value if the key is not cached or has expired.
+         */
+        public V computeIfAbsent(String key, Supplier<V> supplier) {
+
+            if (entries.size() >= size && !entries.containsKey(key)) {
+                purge();
+            }
+
+            return entries.compute(key, (k, entry) -> {
+                if (entry != null && !entry.isExpired()) return entry;
+                return new Entry<>(supplier.get(), System.currentTimeMillis() + ttl);
+            }).value;
+        }
+
+        public void remove(String key) {
+            entries.remove(key);
+        }
+
+        public Iterator<Map.Entry<String, Entry<V>>> iterator() {
+            return entries.entrySet().iterator();
+        }
+
+        public void clear() {
+            entries.clear();
+        }
+
+        /**
+         * Removes expired entries. If the region is still full,
+         * removes entries in iteration order until there is room.
+         */
+        public void purge() {
+
+            Iterator<Entry<V>> i = entries.values().iterator();
+            while (i.hasNext()) {
+                if (i.next().isExpired()) i.remove();
+            }
+
+            i = entries.values().iterator();
+            while (entries.size() >= size && i.hasNext()) {
+                i.next();
+                i.remove();
+            }
+        }
+
+        public long getHits() {
+            return hits.get();
+        }
+
+        public long getMisses() {
+            return misses.get();
+        }
+
+        public double getHitRatio() {
+            long h = hits.get();
+            long total = h + misses.get();
+            return total == 0 ? 0 : (double) h / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%s: %d entries, %d hits, %d misses, hit ratio %.2f%%",
+                    name, entries.size(), getHits(), getMisses(), getHitRatio() * 100);
+        }
+    }
+
+    public static class Entry<V> {
+
+        V value;
+        long expiration;
+
+        public Entry(V value, long expiration) {
+            this.value = value;
+            this.expiration = expiration;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public boolean isExpired() {
+            return System.currentTimeMillis() >= expiration;
+        }
+    }
+
+    Region<User> users;
+    Region<User> certUsers;
+    Region<Map<String, Boolean>> memberships;
+    Region<Group> groups;
+
+    public UGCache(int ttl, int size) {
+
+        long ttlMillis = ttl * 1000L;
+
+        users = new Region<>("users", ttlMillis, size);
+        certUsers = new Region<>("cert users", ttlMillis, size);
+        memberships = new Region<>("memberships", ttlMillis, size);
+        groups = new Region<>("groups", ttlMillis, size);
+    }
+
+    public static String normalizeDN(String dn) {
+        return LDAPDN.normalize(dn).toLowerCase();
+    }
+
+    public User getUser(String userDN) {
+        return copy(users.get(normalizeDN(userDN)));
+    }
+
+    public void putUser(User user) {
+        if (user == null || user.getUserDN() == null) return;
+        users.put(normalizeDN(user.getUserDN()), copy(user));
+    }
+
+    /**
+     * Returns the user that was found with the given certificate
+     * lookup key (certificate string or cert-to-user filter).
+     */
+    public User getCertUser(String key) {
+        return copy(certUsers.get(key));
+    }
+
+    public void putCertUser(String key, User user) {
+        if (user == null) return;
+        certUsers.put(key, copy(user));
+    }
+
+    /**
+     * Returns the cached membership result of the user in the group,
+     * or null if it is not cached.
+     */
+    public Boolean isMemberOf(String userDN, String groupName) {
+
+        Map<String, Boolean> groupMap = memberships.get(normalizeDN(userDN));
+        if (groupMap == null) return null;
+
+        return groupMap.get(groupName.toLowerCase());
+    }
+
+    public void putMembership(String userDN, String groupName, boolean member) {
+
+        String key = normalizeDN(userDN);
+
+        // do not replace a map that has been created or invalidated concurrently
+        Map<String, Boolean> groupMap = memberships.computeIfAbsent(key, ConcurrentHashMap::new);
+        groupMap.put(groupName.toLowerCase(), member);
+    }
+
+    public Group getGroup(String groupDN) {
+        return copy(groups.get(normalizeDN(groupDN)));
+    }
+
+    public void putGroup(String groupDN, Group group) {
+        if (group == null) return;
+        groups.put(normalizeDN(groupDN), copy(group));
+    }
+
+    /**
+     * Removes all cached data about the given user.
+     */
+    public void invalidateUser(String userID, String userDN) {
+
+        logger.debug("UGCache: Invalidating user " + userDN);
+
+        String key = normalizeDN(userDN);
+        users.remove(key);
+        memberships.remove(key);
+
+        Iterator<Map.Entry<String, Entry<User>>> i = certUsers.iterator();
+        while (i.hasNext()) {
+            User user = i.next().getValue().getValue();
+            if (userID.equalsIgnoreCase(user.getUserID())
+                    || user.getUserDN() != null && key.equals(normalizeDN(user.getUserDN()))) {
+                i.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all cached data about the given group.
+     */
+    public void invalidateGroup(String groupName, String groupDN) {
+
+        logger.debug("UGCache: Invalidating group " + groupDN);
+
+        groups.remove(normalizeDN(groupDN));
+
+        String name = groupName.toLowerCase();
+        Iterator<Map.Entry<String, Entry<Map<String, Boolean>>>> i = memberships.iterator();
+        while (i.hasNext()) {
+            i.next().getValue().getValue().remove(name);
+        }
+    }
+
+    public void clear() {
+        users.clear();
+        certUsers.clear();
+        memberships.clear();
+        groups.clear();
+    }
+
+    public Iterable<Region<?>> getRegions() {
+        ArrayList<Region<?>> regions = new ArrayList<>();
+        regions.add(users);
+        regions.add(certUsers);
+        regions.add(memberships);
+        regions.add(groups);
+        return regions;
+    }
+
+    public void logStatistics() {
+        for (Region<?> region : getRegions()) {
+            logger.info("UGCache: " + region);
+        }
+    }
+
+    static User copy(User user) {
+
+        if (user == null) return null;
+
+        User copy = new User();
+        copy.setUserID(user.getUserID());
+        copy.setUserDN(user.getUserDN());
+        copy.setFullName(user.getFullName());
+        copy.setPassword(user.getPassword());
+        copy.setEmail(user.getEmail());
+        copy.setPhone(user.getPhone());
+        copy.setState(user.getState());
+        copy.setCertDN(user.getCertDN());
+        copy.setUserType(user.getUserType());
+
+        if (user.getX509Certificates() != null) {
+            copy.setX509Certificates(user.getX509Certificates().clone());
+        }
+
+        if (user.getTpsProfiles() != null) {
+            copy.setTpsProfiles(new ArrayList<>(user.getTpsProfiles()));
+        }
+
+        return copy;
+    }
+
+    static Group copy(Group group) {
+        if (group == null) return null;
+        return new Group(group);
+    }
+}
@@ -0,0 +1,67 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.usrgrp;
+
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.cmscore.base.ConfigStorage;
+import com.netscape.cmscore.base.ConfigStore;
+import com.netscape.cmscore.base.SimpleProperties;
+
+/**
+ * Provides usrgrp.cache.* parameters.
+ */
+public class UGCacheConfig extends ConfigStore {
+
+    public UGCacheConfig(ConfigStorage storage) {
+        super(storage);
+    }
+
+    public UGCacheConfig(String name, SimpleProperties source) {
+        super(name, source);
+    }
+
+    /**
+     * Returns usrgrp.cache.enable parameter.
+     */
+    public boolean isEnabled() throws EBaseException {
+        return getBoolean("enable", false);
+    }
+
+    /**
+     * Returns usrgrp.cache.ttl parameter (in seconds).
+     */
+    public int getTTL() throws EBaseException {
+        return getInteger("ttl", 60);
+    }
+
+    /**
+     * Returns usrgrp.cache.size parameter (max entries per cache).
+     */
+    public int getSize() throws EBaseException {
+        return getInteger("size", 10000);
+    }
+
+    /**
+     * Returns usrgrp.cache.monitor.enable parameter.
+     *
+     * If enabled, a persistent search on the user and group
+     * subtrees will invalidate the cache when entries are
+     * modified by other servers (e.g. clones).
+     */
+    public boolean isMonitorEnabled() throws EBaseException {
+        return getBoolean("monitor.enable", false);
+    }
+
+    /**
+     * Returns usrgrp.cache.statsInterval parameter (in seconds).
+     *
+     * If positive, the cache hit ratios will be logged
+     * periodically. The ratios are always logged on shutdown.
+     */
+    public int getStatsInterval() throws EBaseException {
+        return getInteger("statsInterval", 0);
+    }
+}
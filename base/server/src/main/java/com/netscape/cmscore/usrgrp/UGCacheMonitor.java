@@ -0,0 +1,187 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.usrgrp;
+
+import com.netscape.certsrv.ldap.ELdapException;
+import com.netscape.cmscore.ldapconn.LdapBoundConnFactory;
+import com.netscape.cmsutil.ldap.LDAPUtil;
+
+import netscape.ldap.LDAPConnection;
+import netscape.ldap.LDAPDN;
+import netscape.ldap.LDAPEntry;
+import netscape.ldap.LDAPException;
+import netscape.ldap.LDAPSearchConstraints;
+import netscape.ldap.LDAPSearchResults;
+import netscape.ldap.controls.LDAPEntryChangeControl;
+import netscape.ldap.controls.LDAPPersistSearchControl;
+
+/**
+ * This class runs a persistent search on the user and group
+ * subtrees and invalidates the UGCache entries that are modified
+ * by other servers (e.g. clones sharing a replicated database).
+ *
+ * The persistent search runs on a dedicated connection so it does
+ * not hold a connection of the UGSubsystem pool. The search is
+ * abandoned and the connection is closed when the monitor is stopped.
+ */
+public class UGCacheMonitor implements Runnable {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(UGCacheMonitor.class);
+
+    UGSubsystem ugSubsystem;
+    UGCache cache;
+    LdapBoundConnFactory connFactory;
+    LDAPPersistSearchControl searchControl;
+    volatile boolean running;
+
+    // current persistent search
+    volatile LDAPConnection conn;
+    volatile LDAPSearchResults results;
+
+    public UGCacheMonitor(UGSubsystem ugSubsystem, UGCache cache, LdapBoundConnFactory connFactory) {
+
+        this.ugSubsystem = ugSubsystem;
+        this.cache = cache;
+        this.connFactory = connFactory;
+
+        int op = LDAPPersistSearchControl.ADD
+                | LDAPPersistSearchControl.MODIFY
+                | LDAPPersistSearchControl.DELETE
+                | LDAPPersistSearchControl.MODDN;
+
+        searchControl = new LDAPPersistSearchControl(
+                op,
+                true,  // return changes only
+                true,  // return controls
+                true); // persistent search control is critical
+    }
+
+    @Override
+    public void run() {
+
+        running = true;
+
+        while (running) { // restart persistent search in case it's interrupted
+
+            LDAPConnection conn = null;
+            try {
+                conn = connFactory.getConn();
+                this.conn = conn;
+
+                if (!running) break;
+
+                LDAPSearchConstraints searchConstraints = conn.getSearchConstraints();
+                searchConstraints.setServerControls(searchControl);
+                searchConstraints.setBatchSize(1);
+                searchConstraints.setServerTimeLimit(0);
+
+                logger.info("UGCacheMonitor: Start monitoring users and groups");
+
+                LDAPSearchResults results = conn.search(
+                        ugSubsystem.mBaseDN,
+                        LDAPConnection.SCOPE_SUB,
+                        "(|(objectClass=inetOrgPerson)(objectClass=groupOfUniqueNames))",
+                        new String[] { "uid", "cn" },
+                        false,
+                        searchConstraints);
+
+                this.results = results;
+
+                while (running && results.hasMoreElements()) {
+
+                    LDAPEntry entry = results.next();
+
+                    LDAPEntryChangeControl changeControl = (LDAPEntryChangeControl)
+                            LDAPUtil.getControl(LDAPEntryChangeControl.class, results.getResponseControls());
+
+                    if (changeControl != null
+                            && changeControl.getChangeType() == LDAPPersistSearchControl.MODDN) {
+                        logger.info("UGCacheMonitor: " + changeControl.getPreviousDN() + " renamed, clearing cache");
+                        cache.clear();
+                        continue;
+                    }
+
+                    invalidate(entry.getDN());
+                }
+
+                logger.info("UGCacheMonitor: Stop monitoring users and groups");
+
+            } catch (ELdapException | LDAPException e) {
+
+                if (!running) break;
+
+                logger.warn("UGCacheMonitor: Unable to monitor users and groups: " + e.getMessage(), e);
+
+                // changes might have been missed, so start over
+                cache.clear();
+
+                try {
+                    Thread.sleep(10 * 1000); // wait 10s then restart persistent search
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+
+            } finally {
+                this.results = null;
+                this.conn = null;
+
+                if (conn != null) {
+                    connFactory.returnConn(conn);
+                }
+            }
+        }
+    }
+
+    void invalidate(String dn) {
+
+        String[] rdns = LDAPDN.explodeDN(dn, false);
+        String[] values = LDAPDN.explodeDN(dn, true);
+
+        if (rdns.length < 2) {
+            return;
+        }
+
+        String container = rdns[1];
+
+        if (container.equalsIgnoreCase("ou=People")) {
+            ugSubsystem.invalidateUser(values[0]);
+
+        } else if (container.equalsIgnoreCase("ou=Groups")) {
+            ugSubsystem.invalidateGroup(values[0]);
+        }
+    }
+
+    /**
+     * Stops the monitor. The persistent search is abandoned and the
+     * connection is disconnected so the monitor thread does not stay
+     * blocked waiting for the next change.
+     */
+    public void stop() {
+
+        running = false; // terminate the loop gracefully
+
+        LDAPConnection conn = this.conn;
+        if (conn == null) {
+            return;
+        }
+
+        LDAPSearchResults results = this.results;
+        if (results != null) {
+            try {
+                conn.abandon(results);
+            } catch (LDAPException e) {
+                logger.warn("UGCacheMonitor: Unable to abandon persistent search: " + e.getMessage(), e);
+            }
+        }
+
+        try {
+            conn.disconnect();
+        } catch (LDAPException e) {
+            logger.warn("UGCacheMonitor: Unable to disconnect: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.usrgrp;
+
+/**
+ * Listener for user and group modifications in UGSubsystem.
+ */
+public interface UGListener {
+
+    /**
+     * Called after a user (including its certificates)
+     * has been modified or removed.
+     */
+    void userModified(String userID);
+
+    /**
+     * Called after a group (including its members)
+     * has been modified or removed.
+     */
+    void groupModified(String groupID);
+}
@@ -25,6 +25,10 @@ import java.util.Collections;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.StringUtils;
 import org.mozilla.jss.netscape.security.x509.X509CertImpl;
@@ -81,6 +85,16 @@ public class UGSubsystem {
     protected transient LdapBoundConnFactory mLdapConnFactory = null;
     protected String mBaseDN = null;
 
+    protected PKISocketConfig socketConfig;
+
+    protected UGCache cache;
+    protected LdapBoundConnFactory cacheMonitorConnFactory;
+    protected UGCacheMonitor cacheMonitor;
+    protected Thread cacheMonitorThread;
+    protected ScheduledExecutorService cacheStatsService;
+
+    protected List<UGListener> listeners = new CopyOnWriteArrayList<>();
+
     /**
      * Constructs LDAP based usr/grp management
      */
@@ -93,15 +107,98 @@ public class UGSubsystem {
             IPasswordStore passwordStore) throws Exception {
 
         mBaseDN = ldapConfig.getBaseDN();
+        this.socketConfig = socketConfig;
 
         mLdapConnFactory = new LdapBoundConnFactory("UGSubsystem");
         mLdapConnFactory.init(socketConfig, ldapConfig, passwordStore);
     }
 
+    /**
+     * Enables the user/group lookup cache if configured.
+     */
+    public void initCache(UGCacheConfig cacheConfig) throws Exception {
+
+        if (!cacheConfig.isEnabled()) {
+            logger.info("UGSubsystem: Cache disabled");
+            return;
+        }
+
+        int ttl = cacheConfig.getTTL();
+        int size = cacheConfig.getSize();
+        logger.info("UGSubsystem: Cache enabled with TTL " + ttl + "s and size " + size);
+
+        cache = new UGCache(ttl, size);
+
+        if (cacheConfig.isMonitorEnabled()) {
+
+            // the persistent search needs a dedicated connection
+            cacheMonitorConnFactory = new LdapBoundConnFactory(
+                    "UGCacheMonitor",
+                    1,
+                    1,
+                    mLdapConnFactory.getConnInfo(),
+                    mLdapConnFactory.getAuthInfo());
+            cacheMonitorConnFactory.init(socketConfig, mLdapConnFactory.getPasswordStore());
+
+            cacheMonitor = new UGCacheMonitor(this, cache, cacheMonitorConnFactory);
+            cacheMonitorThread = new Thread(cacheMonitor, "UGCacheMonitor");
+            cacheMonitorThread.setDaemon(true);
+            cacheMonitorThread.start();
+        }
+
+        int statsInterval = cacheConfig.getStatsInterval();
+        if (statsInterval > 0) {
+            cacheStatsService = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "UGCacheStatistics");
+                thread.setDaemon(true);
+                return thread;
+            });
+            cacheStatsService.scheduleWithFixedDelay(
+                    cache::logStatistics, statsInterval, statsInterval, TimeUnit.SECONDS);
+        }
+    }
+
+    public UGCache getCache() {
+        return cache;
+    }
+
+    public void addListener(UGListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(UGListener listener) {
+        listeners.remove(listener);
+    }
+
     /**
      * Disconnects usr/grp manager from the LDAP
      */
     public void shutdown() {
+
+        if (cacheMonitor != null) {
+            cacheMonitor.stop();
+
+            try {
+                cacheMonitorThread.join(10 * 1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            try {
+                cacheMonitorConnFactory.shutdown();
+            } catch (ELdapException e) {
+                logger.warn("Unable to shutdown cache monitor connection: " + e.getMessage(), e);
+            }
+        }
+
+        if (cacheStatsService != null) {
+            cacheStatsService.shutdown();
+        }
+
+        if (cache != null) {
+            cache.logStatistics();
+        }
+
         try {
             if (mLdapConnFactory != null) {
                 mLdapConnFactory.reset();
@@ -140,6 +237,14 @@ public class UGSubsystem {
             userDN = userID;
         }
 
+        if (cache != null) {
+            User user = cache.getUser(userDN);
+            if (user != null) {
+                logger.debug("UGSubsystem: Found cached user " + userDN);
+                return user;
+            }
+        }
+
         LDAPConnection ldapconn = null;
 
         try {
@@ -158,7 +263,13 @@ public class UGSubsystem {
             Enumeration<User> e = buildUsers(res);
 
             // user found
-            return e.nextElement();
+            User user = e.nextElement();
+
+            if (cache != null) {
+                cache.putUser(user);
+            }
+
+            return user;
 
         } catch (ELdapException e) {
             throw new EUsrGrpException("Unable to retrieve user: " + userID + ": " + e.getMessage(), e);
@@ -185,17 +296,33 @@ public class UGSubsystem {
             return null;
         }
 
+        String certString = getCertificateString(cert);
+        String cacheKey = "cert:" + certString;
+
+        if (cache != null) {
+            User user = cache.getCertUser(cacheKey);
+            if (user != null) {
+                return user;
+            }
+        }
+
         LDAPConnection ldapconn = null;
 
         try {
             ldapconn = getConn();
-            String filter = LDAP_ATTR_USER_CERT_STRING + "=" + LDAPUtil.escapeFilter(getCertificateString(cert));
+            String filter = LDAP_ATTR_USER_CERT_STRING + "=" + LDAPUtil.escapeFilter(certString);
             LDAPSearchResults res =
                     ldapconn.search(getUserBaseDN(),
                             LDAPConnection.SCOPE_SUB, filter, null, false);
             Enumeration<User> e = buildUsers(res);
 
-            return e.nextElement();
+            User user = e.nextElement();
+
+            if (cache != null) {
+                cache.putCertUser(cacheKey, user);
+            }
+
+            return user;
 
         } catch (LDAPException e) {
             logger.warn("Unable to find user: " + e.getMessage(), e);
@@ -237,6 +364,15 @@ public class UGSubsystem {
             filter = stripped.toString() + up;
         }
 
+        String cacheKey = "filter:" + filter;
+
+        if (cache != null) {
+            User user = cache.getCertUser(cacheKey);
+            if (user != null) {
+                return user;
+            }
+        }
+
         LDAPConnection ldapconn = null;
 
         try {
@@ -247,7 +383,13 @@ public class UGSubsystem {
 
             Enumeration<User> e = buildUsers(res);
 
-            return e.nextElement();
+            User user = e.nextElement();
+
+            if (cache != null) {
+                cache.putCertUser(cacheKey, user);
+            }
+
+            return user;
 
         } catch (LDAPException e) {
             logger.warn("Unable to find user by certificate: " + e.getMessage(), e);
@@ -776,6 +918,7 @@ public class UGSubsystem {
             if (ldapconn != null) {
                 returnConn(ldapconn);
             }
+            invalidateUser(userID);
         }
     }
 
@@ -818,6 +961,7 @@ public class UGSubsystem {
             if (ldapconn != null) {
                 returnConn(ldapconn);
             }
+            invalidateUser(userID);
         }
     }
 
@@ -860,6 +1004,7 @@ public class UGSubsystem {
             if (ldapconn != null) {
                 returnConn(ldapconn);
             }
+            invalidateUser(userID);
         }
     }
 
@@ -971,6 +1116,7 @@ public class UGSubsystem {
             } finally {
                 if (ldapconn != null)
                     returnConn(ldapconn);
+                invalidateUser(user.getUserID());
             }
         }
 
@@ -1004,6 +1150,8 @@ public class UGSubsystem {
         } finally {
             if (ldapconn != null)
                 returnConn(ldapconn);
+            invalidateGroup(grp.getGroupID());
+            invalidateUser(userid);
         }
     }
 
@@ -1032,6 +1180,8 @@ public class UGSubsystem {
         } finally {
             if (ldapconn != null)
                 returnConn(ldapconn);
+            invalidateGroup(grp.getGroupID());
+            invalidateUser(userid);
         }
     }
 
@@ -1067,6 +1217,7 @@ public class UGSubsystem {
         } finally {
             if (ldapconn != null)
                 returnConn(ldapconn);
+            invalidateUser(userid);
         }
     }
 
@@ -1203,6 +1354,7 @@ public class UGSubsystem {
         } finally {
             if (ldapconn != null)
                 returnConn(ldapconn);
+            invalidateUser(user.getUserID());
         }
     }
 
@@ -1454,6 +1606,13 @@ public class UGSubsystem {
             return null;
         }
 
+        if (cache != null) {
+            Group group = cache.getGroup(groupDN);
+            if (group != null) {
+                return group;
+            }
+        }
+
         LDAPConnection ldapconn = null;
 
         try {
@@ -1465,7 +1624,14 @@ public class UGSubsystem {
 
             if (e == null || e.hasMoreElements() == false)
                 return null;
-            return e.nextElement();
+
+            Group group = e.nextElement();
+
+            if (cache != null) {
+                cache.putGroup(groupDN, group);
+            }
+
+            return group;
 
         } catch (Exception e) {
             logger.warn("Unable to get group: " + e.getMessage(), e);
@@ -1552,6 +1718,15 @@ public class UGSubsystem {
      */
     protected boolean isMemberOfLdapGroup(String userid, String groupname) {
         String basedn = "cn=" + LDAPUtil.escapeRDNValue(groupname) + ",ou=groups," + mBaseDN;
+
+        if (cache != null) {
+            Boolean member = cache.isMemberOf(userid, groupname);
+            if (member != null) {
+                logger.trace("cached authorization result: " + member);
+                return member;
+            }
+        }
+
         LDAPConnection ldapconn = null;
         boolean founduser = false;
         try {
@@ -1579,6 +1754,11 @@ public class UGSubsystem {
                 founduser = true;
             }
             logger.trace("authorization result: " + founduser);
+
+            if (cache != null) {
+                cache.putMembership(userid, groupname, founduser);
+            }
+
         } catch (LDAPException e) {
             String errMsg =
                     "isMemberOfLdapGroup: could not find group " + groupname + ". Error " + e;
@@ -1660,6 +1840,7 @@ public class UGSubsystem {
         } finally {
             if (ldapconn != null)
                 returnConn(ldapconn);
+            invalidateGroup(grp.getGroupID());
         }
     }
 
@@ -1688,6 +1869,7 @@ public class UGSubsystem {
         } finally {
             if (ldapconn != null)
                 returnConn(ldapconn);
+            invalidateGroup(name);
         }
     }
 
@@ -1748,6 +1930,7 @@ public class UGSubsystem {
         } finally {
             if (ldapconn != null)
                 returnConn(ldapconn);
+            invalidateGroup(grp.getGroupID());
         }
     }
 
@@ -1869,6 +2052,38 @@ public class UGSubsystem {
         return "ou=Groups," + mBaseDN;
     }
 
+    /**
+     * Removes cached data about the given user and notifies listeners.
+     */
+    protected void invalidateUser(String userID) {
+
+        if (userID == null) return;
+
+        if (cache != null) {
+            cache.invalidateUser(userID, getUserDN(userID));
+        }
+
+        for (UGListener listener : listeners) {
+            listener.userModified(userID);
+        }
+    }
+
+    /**
+     * Removes cached data about the given group and notifies listeners.
+     */
+    protected void invalidateGroup(String groupID) {
+
+        if (groupID == null) return;
+
+        if (cache != null) {
+            cache.invalidateGroup(groupID, "cn=" + LDAPUtil.escapeRDNValue(groupID) + "," + getGroupBaseDN());
+        }
+
+        for (UGListener listener : listeners) {
+            listener.groupModified(groupID);
+        }
+    }
+
     protected LDAPConnection getConn() throws ELdapException {
         if (mLdapConnFactory != null) {
             LDAPConnection conn = mLdapConnFactory.getConn();
@@ -108,6 +108,15 @@ public class AuthToken {
     public AuthToken() {
     }
 
+    /**
+     * Constructs a copy of an authentication token.
+     *
+     * @param token The authentication token to copy.
+     */
+    public AuthToken(AuthToken token) {
+        mAttrs = new Hashtable<>(token.mAttrs);
+    }
+
     /**
      * Constructs an instance of a authentication token.
      * The token by default contains the following attributes: <br>
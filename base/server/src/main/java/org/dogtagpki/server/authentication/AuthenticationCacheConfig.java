@@ -0,0 +1,53 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.server.authentication;
+
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.cmscore.base.ConfigStorage;
+import com.netscape.cmscore.base.ConfigStore;
+import com.netscape.cmscore.base.SimpleProperties;
+
+/**
+ * Provides auths.cache.* parameters.
+ */
+public class AuthenticationCacheConfig extends ConfigStore {
+
+    public AuthenticationCacheConfig(ConfigStorage storage) {
+        super(storage);
+    }
+
+    public AuthenticationCacheConfig(String name, SimpleProperties source) {
+        super(name, source);
+    }
+
+    /**
+     * Returns auths.cache.enable parameter.
+     *
+     * Revocations are only applied to the cache in the CA that revoked
+     * the certificate. In other subsystems and CA clones a revoked
+     * certificate can be accepted until its entry expires.
+     */
+    public boolean isEnabled() throws EBaseException {
+        return getBoolean("enable", false);
+    }
+
+    /**
+     * Returns auths.cache.lifetime parameter (in seconds).
+     *
+     * This is the maximum time a revoked certificate or a removed
+     * user can be accepted outside the CA JVM that made the change.
+     */
+    public int getLifetime() throws EBaseException {
+        return getInteger("lifetime", 60);
+    }
+
+    /**
+     * Returns auths.cache.size parameter.
+     */
+    public int getSize() throws EBaseException {
+        return getInteger("size", 1000);
+    }
+}
@@ -22,4 +22,8 @@ public class AuthenticationConfig extends ConfigStore {
     public AuthManagersConfig getAuthManagersConfig() {
         return getSubStore("instance", AuthManagersConfig.class);
     }
+
+    public AuthenticationCacheConfig getCacheConfig() {
+        return getSubStore("cache", AuthenticationCacheConfig.class);
+    }
 }
@@ -38,6 +38,7 @@ public interface IRemoteRequest {
     public static final String CHANNEL_PROTOCOL = "protocol";
     public static final String SEQUENCE_COUNTER = "sequenceCounter";
     public static final String DERIVATION_CONSTANT = "derivationConstant";
+    public static final String DERIVATION_CONSTANTS = "derivationConstants";
     public static final String SERVER_SIDE_KEYGEN = "serversideKeygen";
     public static final String TOKEN_CARD_CHALLENGE = "card_challenge";
     public static final String TOKEN_HOST_CHALLENGE = "host_challenge";
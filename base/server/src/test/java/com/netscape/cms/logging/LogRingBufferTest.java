@@ -0,0 +1,92 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cms.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class LogRingBufferTest {
+
+    @Test
+    public void testOfferAndPoll() throws Exception {
+
+        LogRingBuffer<String> buffer = new LogRingBuffer<>(3);
+        assertEquals(4, buffer.getCapacity());
+        assertTrue(buffer.isEmpty());
+
+        assertEquals(0, buffer.offer("a"));
+        assertEquals(1, buffer.offer("b"));
+        assertEquals(2, buffer.offer("c"));
+        assertEquals(3, buffer.offer("d"));
+
+        // buffer full
+        assertEquals(-1, buffer.offer("e"));
+
+        assertEquals("a", buffer.poll());
+        assertEquals(1, buffer.getHead());
+
+        // slot released for the next round
+        assertEquals(4, buffer.offer("e"));
+
+        assertEquals("b", buffer.poll());
+        assertEquals("c", buffer.poll());
+        assertEquals("d", buffer.poll());
+        assertEquals("e", buffer.poll());
+        assertNull(buffer.poll());
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void testMultipleProducers() throws Exception {
+
+        int producers = 4;
+        int events = 10000;
+
+        LogRingBuffer<Integer> buffer = new LogRingBuffer<>(64);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int id = p;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < events; i++) {
+                    while (buffer.offer(id * events + i) < 0) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        // each producer's events must arrive in order
+        int[] next = new int[producers];
+        int count = 0;
+
+        while (count < producers * events) {
+            Integer value = buffer.poll();
+            if (value == null) {
+                Thread.yield();
+                continue;
+            }
+            int id = value / events;
+            assertEquals(next[id], value % events);
+            next[id]++;
+            count++;
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(buffer.isEmpty());
+    }
+}
@@ -0,0 +1,85 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.authentication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+
+import org.junit.Test;
+
+public class VerifiedCertsTest {
+
+    static final String ISSUER = "CN=CA Signing Certificate";
+
+    @Test
+    public void testCheck() throws Exception {
+
+        VerifiedCerts vcerts = new VerifiedCerts(10, 60, 0);
+
+        byte[] good = new byte[] { 1, 2, 3 };
+        byte[] revoked = new byte[] { 4, 5, 6 };
+
+        assertEquals(VerifiedCert.UNKNOWN, vcerts.check(ISSUER, BigInteger.ONE, good));
+
+        vcerts.update(ISSUER, BigInteger.ONE, good, VerifiedCert.NOT_REVOKED);
+        vcerts.update(ISSUER, BigInteger.TWO, revoked, VerifiedCert.REVOKED);
+
+        assertEquals(VerifiedCert.NOT_REVOKED, vcerts.check(ISSUER, BigInteger.ONE, good));
+        assertEquals(VerifiedCert.REVOKED, vcerts.check(ISSUER, BigInteger.TWO, revoked));
+
+        // same serial number from a different issuer
+        assertEquals(VerifiedCert.UNKNOWN, vcerts.check("CN=Other CA", BigInteger.ONE, good));
+
+        // same issuer and serial number but different certificate
+        assertEquals(VerifiedCert.UNKNOWN, vcerts.check(ISSUER, BigInteger.ONE, revoked));
+    }
+
+    @Test
+    public void testUnknownStateDisabled() throws Exception {
+
+        VerifiedCerts vcerts = new VerifiedCerts(10, 60, 0);
+
+        vcerts.update(ISSUER, BigInteger.ONE, new byte[] { 1 }, VerifiedCert.CHECKED);
+
+        assertEquals(0, vcerts.size());
+    }
+
+    @Test
+    public void testExpiration() throws Exception {
+
+        VerifiedCerts vcerts = new VerifiedCerts(10, 60, 0, 60);
+
+        byte[] cert = new byte[] { 1, 2, 3 };
+        vcerts.update(ISSUER, BigInteger.ONE, cert, VerifiedCert.REVOKED);
+
+        Thread.sleep(10);
+
+        assertEquals(VerifiedCert.EXPIRED, vcerts.check(ISSUER, BigInteger.ONE, cert));
+        assertEquals(VerifiedCert.UNKNOWN, vcerts.check(ISSUER, BigInteger.ONE, cert));
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+
+        VerifiedCerts vcerts = new VerifiedCerts(3, 60, 0);
+
+        for (int i = 0; i < 10; i++) {
+            byte[] cert = new byte[] { (byte) i };
+            vcerts.update(ISSUER, BigInteger.valueOf(i), cert, VerifiedCert.NOT_REVOKED);
+
+            // replace record to create stale queue entries
+            vcerts.update(ISSUER, BigInteger.valueOf(i), cert, VerifiedCert.NOT_REVOKED);
+        }
+
+        assertTrue(vcerts.size() <= 3);
+
+        // oldest records are evicted first
+        assertEquals(VerifiedCert.UNKNOWN, vcerts.check(ISSUER, BigInteger.ZERO, new byte[] { 0 }));
+        assertEquals(VerifiedCert.NOT_REVOKED, vcerts.check(ISSUER, BigInteger.valueOf(9), new byte[] { 9 }));
+    }
+}
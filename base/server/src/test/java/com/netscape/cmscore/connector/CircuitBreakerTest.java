@@ -0,0 +1,113 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.connector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+    static class TestCircuitBreaker extends CircuitBreaker {
+
+        long time;
+
+        TestCircuitBreaker(int failureThreshold, long openTimeout) {
+            super("test", failureThreshold, openTimeout);
+        }
+
+        @Override
+        long currentTimeMillis() {
+            return time;
+        }
+    }
+
+    @Test
+    public void testOpenAfterFailures() throws Exception {
+
+        TestCircuitBreaker breaker = new TestCircuitBreaker(3, 1000);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertTrue(breaker.allowRequest());
+
+        // a success resets the count
+        breaker.recordSuccess();
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void testHalfOpen() throws Exception {
+
+        TestCircuitBreaker breaker = new TestCircuitBreaker(1, 1000);
+
+        breaker.recordFailure();
+        assertFalse(breaker.allowRequest());
+
+        breaker.time = 1000;
+
+        // only a single trial request is allowed
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        // trial request failed
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        breaker.time = 2000;
+        assertTrue(breaker.allowRequest());
+
+        // trial request succeeded
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void testReleaseTrial() throws Exception {
+
+        TestCircuitBreaker breaker = new TestCircuitBreaker(1, 1000);
+
+        breaker.recordFailure();
+        breaker.time = 1000;
+
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+
+        // trial request could not be sent
+        breaker.release();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        // another trial request is allowed
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+
+        TestCircuitBreaker breaker = new TestCircuitBreaker(0, 1000);
+
+        for (int i = 0; i < 10; i++) {
+            breaker.recordFailure();
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+    }
+}
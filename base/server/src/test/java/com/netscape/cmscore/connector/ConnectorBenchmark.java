@@ -0,0 +1,302 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.connector;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.SSLContext;
+
+import org.mozilla.jss.CryptoManager;
+import org.mozilla.jss.crypto.CryptoToken;
+import org.mozilla.jss.util.Password;
+
+import com.netscape.certsrv.connector.Connector;
+import com.netscape.cmscore.base.ConfigStore;
+import com.netscape.cmsutil.http.HttpResponse;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+/**
+ * Loopback benchmark for the TPS connectors.
+ *
+ * It starts a local HTTPS server that answers every request after
+ * a simulated processing latency, then measures the number of
+ * operations per second with HttpConnector (pooled blocking
+ * connections) and Http2Connector (blocking and pipelined).
+ *
+ * The local server only speaks HTTP/1.1, so Http2Connector falls
+ * back to persistent HTTP/1.1 connections. To measure HTTP/2, run
+ * the benchmark against a server with HTTP/2 enabled using -h/-P/-u.
+ *
+ * Usage:
+ *
+ * <pre>
+ * ConnectorBenchmark -d &lt;NSS database&gt; -c &lt;password&gt; -n &lt;nickname&gt;
+ *     [-t &lt;threads&gt;] [-r &lt;requests&gt;] [-l &lt;latency in ms&gt;]
+ *     [-h &lt;host&gt; -P &lt;port&gt; -u &lt;uri&gt;]
+ * </pre>
+ *
+ * The nickname is used as the server certificate of the local
+ * server, and as the client certificate of the connectors.
+ */
+public class ConnectorBenchmark {
+
+    static final String OP = "benchmark";
+
+    String host = "localhost";
+    int port;
+    String uri = "/benchmark";
+
+    int threads = 16;
+    int requests = 10000;
+    int latency = 5;
+
+    String nickname;
+    SSLContext sslContext;
+
+    HttpsServer server;
+
+    void startServer() throws Exception {
+
+        server = HttpsServer.create(new InetSocketAddress(host, 0), 1024);
+        server.setHttpsConfigurator(new HttpsConfigurator(sslContext));
+        server.setExecutor(Executors.newFixedThreadPool(threads * 2));
+
+        server.createContext(uri, exchange -> {
+
+            try (InputStream in = exchange.getRequestBody()) {
+                in.readAllBytes();
+            }
+
+            if (latency > 0) {
+                try {
+                    Thread.sleep(latency);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            byte[] response = "status=0&sessionKey=00".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain");
+            exchange.sendResponseHeaders(200, response.length);
+
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+
+        server.start();
+        port = server.getAddress().getPort();
+
+        System.out.println("Server listening at https://" + host + ":" + port + uri);
+    }
+
+    RemoteAuthority createRemoteAuthority() {
+        Hashtable<String, String> uris = new Hashtable<>();
+        uris.put(OP, uri);
+        return new RemoteAuthority(host, port, uris, 30, "application/x-www-form-urlencoded");
+    }
+
+    /**
+     * Sends the requests from multiple threads, one request
+     * at a time per thread.
+     */
+    double runBlocking(Connector connector) throws Exception {
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        AtomicInteger failures = new AtomicInteger();
+
+        long start = System.nanoTime();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int count = requests / threads;
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < count; j++) {
+                    try {
+                        HttpResponse resp = connector.send(OP, "request=" + j);
+                        if (resp == null) failures.incrementAndGet();
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        long time = System.nanoTime() - start;
+        executor.shutdown();
+
+        return report(time, failures.get());
+    }
+
+    /**
+     * Sends all requests without waiting for the responses.
+     * The connector limits the number of requests in flight.
+     */
+    double runPipelined(Http2Connector connector) throws Exception {
+
+        AtomicInteger failures = new AtomicInteger();
+
+        long start = System.nanoTime();
+
+        List<CompletableFuture<HttpResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            futures.add(connector.sendAsync(OP, "request=" + i).exceptionally(e -> {
+                failures.incrementAndGet();
+                return null;
+            }));
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        long time = System.nanoTime() - start;
+
+        return report(time, failures.get());
+    }
+
+    double report(long time, int failures) {
+
+        double seconds = time / 1e9;
+        double ops = requests / seconds;
+
+        System.out.println(String.format("  time: %.2f s, failures: %d, %.0f ops/s", seconds, failures, ops));
+
+        return ops;
+    }
+
+    void run() throws Exception {
+
+        RemoteAuthority dest = createRemoteAuthority();
+
+        System.out.println("Requests: " + requests + ", threads: " + threads + ", latency: " + latency + " ms");
+
+        ConfigStore httpConfig = new ConfigStore();
+        httpConfig.putInteger("minHttpConns", 1);
+        httpConfig.putInteger("maxHttpConns", threads);
+
+        HttpConnector httpConnector = new HttpConnector(nickname, null, dest, -1, httpConfig, 30);
+
+        System.out.println("HttpConnector (blocking):");
+        runBlocking(httpConnector);
+
+        ConfigStore http2Config = new ConfigStore();
+        http2Config.putInteger("maxConcurrentRequests", threads * 4);
+
+        Http2Connector http2Connector = new Http2Connector(dest, sslContext, http2Config);
+
+        try {
+            System.out.println("Http2Connector (blocking):");
+            runBlocking(http2Connector);
+
+            System.out.println("Http2Connector (pipelined):");
+            runPipelined(http2Connector);
+
+        } finally {
+            http2Connector.stop();
+        }
+    }
+
+    public static void printUsage() {
+        System.out.println(
+                "Usage: ConnectorBenchmark -d <NSS database> -c <password> -n <nickname>"
+                + " [-t <threads>] [-r <requests>] [-l <latency in ms>]"
+                + " [-h <host> -P <port> -u <uri>]");
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        ConnectorBenchmark benchmark = new ConnectorBenchmark();
+
+        String database = null;
+        String password = null;
+        boolean external = false;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+            case "-d":
+                database = args[++i];
+                break;
+            case "-c":
+                password = args[++i];
+                break;
+            case "-n":
+                benchmark.nickname = args[++i];
+                break;
+            case "-t":
+                benchmark.threads = Integer.parseInt(args[++i]);
+                break;
+            case "-r":
+                benchmark.requests = Integer.parseInt(args[++i]);
+                break;
+            case "-l":
+                benchmark.latency = Integer.parseInt(args[++i]);
+                break;
+            case "-h":
+                benchmark.host = args[++i];
+                external = true;
+                break;
+            case "-P":
+                benchmark.port = Integer.parseInt(args[++i]);
+                break;
+            case "-u":
+                benchmark.uri = args[++i];
+                break;
+            default:
+                printUsage();
+                System.exit(1);
+            }
+        }
+
+        if (database == null || benchmark.nickname == null) {
+            printUsage();
+            System.exit(1);
+        }
+
+        CryptoManager.initialize(database);
+        CryptoManager cm = CryptoManager.getInstance();
+
+        if (password != null) {
+            CryptoToken token = cm.getInternalKeyStorageToken();
+            Password pass = new Password(password.toCharArray());
+            try {
+                token.login(pass);
+            } finally {
+                pass.clear();
+            }
+        }
+
+        benchmark.sslContext = Http2Connector.createSSLContext(benchmark.nickname, null);
+
+        if (!external) {
+            benchmark.startServer();
+        }
+
+        try {
+            benchmark.run();
+
+        } finally {
+            if (benchmark.server != null) {
+                benchmark.server.stop(0);
+                ((ExecutorService) benchmark.server.getExecutor()).shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,259 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.server.tks;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.mozilla.jss.crypto.CryptoToken;
+import org.mozilla.jss.crypto.SymmetricKey;
+import org.mozilla.jss.crypto.X509Certificate;
+import org.mozilla.jss.netscape.security.util.Utils;
+
+import com.netscape.certsrv.base.EBaseException;
+
+/**
+ * This class caches the PKCS #11 handles used by TokenServlet so that
+ * each request does not need to look up the token, search the token for
+ * the master key or shared secret by nickname, or find the DRM transport
+ * certificate again.
+ *
+ * Master key nicknames are mapped from the keyset and key version
+ * (tks.<keySet>.mk_mappings.<keyInfo>), so the symmetric keys are cached
+ * per token, keyset, and key version. The handles expire after a
+ * configurable lifetime, and can be invalidated explicitly when a key
+ * is replaced.
+ *
+ * Optionally, the keys diversified for a card (by KDD and key version)
+ * can be cached for a short time so that consecutive requests for the
+ * same card do not need to derive them again.
+ */
+public class KeyCache {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(KeyCache.class);
+
+    public interface Loader<T, E extends Exception> {
+        T load() throws E;
+    }
+
+    static class Entry<T> {
+
+        T value;
+        long expiration;
+
+        Entry(T value, long expiration) {
+            this.value = value;
+            this.expiration = expiration;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expiration;
+        }
+    }
+
+    boolean enabled;
+    long lifetime;
+
+    boolean cardKeysEnabled;
+    long cardKeysLifetime;
+    int cardKeysSize;
+
+    Map<String, Entry<CryptoToken>> tokens = new ConcurrentHashMap<>();
+    Map<String, Entry<SymmetricKey>> keys = new ConcurrentHashMap<>();
+    Map<String, Entry<X509Certificate>> certs = new ConcurrentHashMap<>();
+    Map<String, Entry<SymmetricKey>> cardKeys = new ConcurrentHashMap<>();
+
+    public void init(KeyCacheConfig config) throws EBaseException {
+
+        enabled = config.isEnabled();
+        lifetime = config.getLifetime() * 1000L;
+
+        cardKeysEnabled = config.isCardKeysEnabled();
+        cardKeysLifetime = config.getCardKeysLifetime() * 1000L;
+        cardKeysSize = config.getCardKeysSize();
+
+        logger.info("KeyCache: Key handle cache enabled: " + enabled);
+        if (enabled) {
+            logger.info("KeyCache: - lifetime: " + lifetime / 1000 + "s");
+        }
+
+        logger.info("KeyCache: Card key cache enabled: " + cardKeysEnabled);
+        if (cardKeysEnabled) {
+            logger.info("KeyCache: - lifetime: " + cardKeysLifetime / 1000 + "s");
+            logger.info("KeyCache: - size: " + cardKeysSize);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isCardKeysEnabled() {
+        return cardKeysEnabled;
+    }
+
+    <T, E extends Exception> T get(
+            Map<String, Entry<T>> map,
+            String key,
+            long lifetime,
+            Loader<T, E> loader) throws E {
+
+        Entry<T> entry = map.get(key);
+        if (entry != null) {
+            if (!entry.isExpired()) {
+                return entry.value;
+            }
+            map.remove(key, entry);
+        }
+
+        T value = loader.load();
+
+        // do not cache missing objects, they might be created later
+        if (value != null) {
+            map.put(key, new Entry<>(value, System.currentTimeMillis() + lifetime));
+        }
+
+        return value;
+    }
+
+    /**
+     * Returns the token with the given name.
+     */
+    public <E extends Exception> CryptoToken getToken(
+            String name,
+            Loader<CryptoToken, E> loader) throws E {
+
+        if (!enabled || name == null) {
+            return loader.load();
+        }
+
+        return get(tokens, name, lifetime, loader);
+    }
+
+    /**
+     * Returns the symmetric key (e.g. master key or shared secret)
+     * with the given nickname on the given token.
+     */
+    public <E extends Exception> SymmetricKey getSymKey(
+            String tokenName,
+            String nickname,
+            Loader<SymmetricKey, E> loader) throws E {
+
+        if (!enabled || tokenName == null || nickname == null) {
+            return loader.load();
+        }
+
+        return get(keys, tokenName + ":" + nickname, lifetime, loader);
+    }
+
+    /**
+     * Returns the certificate with the given nickname.
+     */
+    public <E extends Exception> X509Certificate getCert(
+            String nickname,
+            Loader<X509Certificate, E> loader) throws E {
+
+        if (!enabled || nickname == null) {
+            return loader.load();
+        }
+
+        return get(certs, nickname, lifetime, loader);
+    }
+
+    /**
+     * Returns the card key diversified from the given master key
+     * with the given diversification data.
+     *
+     * @param tokenName token of the master key
+     * @param masterKeyName master key nickname (identifies keyset and key version)
+     * @param kdd key diversification data of the card
+     * @param keyType key type (e.g. enc, mac, kek)
+     * @param method diversification method
+     */
+    public <E extends Exception> SymmetricKey getCardKey(
+            String tokenName,
+            String masterKeyName,
+            byte[] kdd,
+            String keyType,
+            String method,
+            Loader<SymmetricKey, E> loader) throws E {
+
+        if (!cardKeysEnabled || tokenName == null || masterKeyName == null || kdd == null) {
+            return loader.load();
+        }
+
+        if (cardKeys.size() >= cardKeysSize) {
+            purgeCardKeys();
+        }
+
+        String key = Utils.HexEncode(kdd) + ":" + tokenName + ":" + masterKeyName + ":" + keyType + ":" + method;
+        return get(cardKeys, key, cardKeysLifetime, loader);
+    }
+
+    /**
+     * Removes expired card keys. If the cache is still full,
+     * removes entries in iteration order until there is room.
+     */
+    public void purgeCardKeys() {
+
+        Iterator<Entry<SymmetricKey>> i = cardKeys.values().iterator();
+        while (i.hasNext()) {
+            if (i.next().isExpired()) i.remove();
+        }
+
+        i = cardKeys.values().iterator();
+        while (cardKeys.size() >= cardKeysSize && i.hasNext()) {
+            i.next();
+            i.remove();
+        }
+    }
+
+    /**
+     * Removes the keys diversified for the given card, for example
+     * after the card keys have been changed.
+     */
+    public void invalidateCardKeys(byte[] kdd) {
+
+        if (kdd == null) return;
+
+        String prefix = Utils.HexEncode(kdd) + ":";
+        cardKeys.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    /**
+     * Removes the symmetric key with the given nickname from all tokens,
+     * for example after the key has been replaced or deleted.
+     */
+    public void invalidateSymKey(String nickname) {
+
+        logger.info("KeyCache: Invalidating symmetric key " + nickname);
+
+        String suffix = ":" + nickname;
+        keys.keySet().removeIf(key -> key.endsWith(suffix));
+
+        // keys derived from this key are no longer valid either
+        cardKeys.keySet().removeIf(key -> key.contains(suffix + ":"));
+    }
+
+    public void invalidateCert(String nickname) {
+        logger.info("KeyCache: Invalidating certificate " + nickname);
+        certs.remove(nickname);
+    }
+
+    /**
+     * Removes all cached handles, for example after a key rollover.
+     */
+    public void clear() {
+
+        logger.info("KeyCache: Clearing cache");
+
+        tokens.clear();
+        keys.clear();
+        certs.clear();
+        cardKeys.clear();
+    }
+}
@@ -0,0 +1,63 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.server.tks;
+
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.cmscore.base.ConfigStorage;
+import com.netscape.cmscore.base.ConfigStore;
+import com.netscape.cmscore.base.SimpleProperties;
+
+/**
+ * Provides tks.keyCache.* parameters.
+ */
+public class KeyCacheConfig extends ConfigStore {
+
+    public KeyCacheConfig(ConfigStorage storage) {
+        super(storage);
+    }
+
+    public KeyCacheConfig(String name, SimpleProperties source) {
+        super(name, source);
+    }
+
+    /**
+     * Returns tks.keyCache.enable parameter.
+     */
+    public boolean isEnabled() throws EBaseException {
+        return getBoolean("enable", false);
+    }
+
+    /**
+     * Returns tks.keyCache.lifetime parameter (in seconds).
+     *
+     * Token, master key, shared secret, and transport certificate
+     * handles are looked up again after this time.
+     */
+    public int getLifetime() throws EBaseException {
+        return getInteger("lifetime", 300);
+    }
+
+    /**
+     * Returns tks.keyCache.cardKeys.enable parameter.
+     */
+    public boolean isCardKeysEnabled() throws EBaseException {
+        return getBoolean("cardKeys.enable", false);
+    }
+
+    /**
+     * Returns tks.keyCache.cardKeys.lifetime parameter (in seconds).
+     */
+    public int getCardKeysLifetime() throws EBaseException {
+        return getInteger("cardKeys.lifetime", 30);
+    }
+
+    /**
+     * Returns tks.keyCache.cardKeys.size parameter (max entries).
+     */
+    public int getCardKeysSize() throws EBaseException {
+        return getInteger("cardKeys.size", 1000);
+    }
+}
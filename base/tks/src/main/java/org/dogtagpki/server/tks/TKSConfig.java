@@ -18,4 +18,11 @@ public class TKSConfig extends ConfigStore {
     public TKSConfig(String name, SimpleProperties source) {
         super(name, source);
     }
+
+    /**
+     * Returns tks.keyCache.* parameters.
+     */
+    public KeyCacheConfig getKeyCacheConfig() {
+        return getSubStore("keyCache", KeyCacheConfig.class);
+    }
 }
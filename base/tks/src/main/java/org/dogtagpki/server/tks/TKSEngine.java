@@ -27,6 +27,8 @@ import com.netscape.tks.TKSAuthority;
 
 public class TKSEngine extends CMSEngine {
 
+    protected KeyCache keyCache;
+
     public TKSEngine() {
         super("TKS");
     }
@@ -55,4 +57,34 @@ public class TKSEngine extends CMSEngine {
 
         super.initSubsystem(subsystem, subsystemConfig);
     }
+
+    public KeyCache getKeyCache() {
+        return keyCache;
+    }
+
+    public void initKeyCache() throws Exception {
+
+        KeyCacheConfig keyCacheConfig = getConfig().getTKSConfig().getKeyCacheConfig();
+
+        keyCache = new KeyCache();
+        keyCache.init(keyCacheConfig);
+    }
+
+    @Override
+    public void initSubsystems() throws Exception {
+
+        super.initSubsystems();
+
+        initKeyCache();
+    }
+
+    @Override
+    protected void shutdownSubsystems() {
+
+        if (keyCache != null) {
+            keyCache.clear();
+        }
+
+        super.shutdownSubsystems();
+    }
 }
@@ -12,6 +12,7 @@ import java.util.TreeSet;
 import javax.ws.rs.core.Response;
 
 import org.apache.commons.lang3.StringUtils;
+import org.dogtagpki.server.tks.KeyCache;
 import org.dogtagpki.server.tks.TKSEngine;
 import org.dogtagpki.server.tks.TKSEngineConfig;
 import org.dogtagpki.server.tks.TPSConnectorConfig;
@@ -375,6 +376,7 @@ public class TPSConnectorService extends PKIService implements TPSConnectorResou
             X509Certificate[] certs = user.getX509Certificates();
 
             CryptoUtil.deleteSharedSecret(nickname);
+            invalidateSharedSecret(nickname);
             CryptoUtil.createSharedSecret(nickname);
 
             //Create des3 session sym key to wrap the shared secret.
@@ -401,6 +403,13 @@ public class TPSConnectorService extends PKIService implements TPSConnectorResou
         }
     }
 
+    void invalidateSharedSecret(String nickname) {
+        KeyCache keyCache = engine.getKeyCache();
+        if (keyCache != null) {
+            keyCache.invalidateSymKey(nickname);
+        }
+    }
+
     @Override
     public Response deleteSharedSecret(String id) {
 
@@ -427,6 +436,7 @@ public class TPSConnectorService extends PKIService implements TPSConnectorResou
                 return createNoContentResponse();
             }
             CryptoUtil.deleteSharedSecret(nickname);
+            invalidateSharedSecret(nickname);
 
             tpsConfig.setNickname("");
             cs.commit(true);
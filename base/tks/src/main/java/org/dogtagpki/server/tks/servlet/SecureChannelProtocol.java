@@ -9,6 +9,7 @@ import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.Map;
 
+import org.dogtagpki.server.tks.KeyCache;
 import org.dogtagpki.server.tks.TKSEngine;
 import org.mozilla.jss.CryptoManager;
 import org.mozilla.jss.NoSuchTokenException;
@@ -387,18 +388,33 @@ public class SecureChannelProtocol {
             } else if (params.isDiversVisa2()) {
                 keyDiversified = KDF.getDiversificationData_VISA2(xKDD, keyType);
             }
+            CryptoToken finalToken = token;
+            SymmetricKey finalMasterKey = masterKey;
+            byte[] finalKeyDiversified = keyDiversified;
+            byte finalConstant_gpkmc = constant_gpkmc;
+
+            KeyCache.Loader<SymmetricKey, EBaseException> loader = () -> {
+                if(GPParams.AES.equalsIgnoreCase(masterKeyType)) {
+                    logger.debug(method + " master key case with AES type.");
+                    if(params.isDiversGPKMC()) {
+                        logger.debug(method + " GPKMC diversification requested.");
+                        return nistKdf.diversifyAESKey(finalMasterKey, xCUID, finalConstant_gpkmc, finalToken);
+                    }
+                    return finalMasterKey;
+                }
+                return standard.computeCardKey_SCP03_WithDES3(finalMasterKey, finalKeyDiversified, finalToken);
+            };
+
+            KeyCache keyCache = getKeyCache();
             SymmetricKey divKey = null;
 
-            if(GPParams.AES.equalsIgnoreCase(masterKeyType)) {
-                logger.debug(method + " master key case with AES type.");
-                if(params.isDiversGPKMC()) {
-                    logger.debug(method + " GPKMC diversification requested.");
-                    divKey = nistKdf.diversifyAESKey(masterKey, xCUID, constant_gpkmc, token);
-                } else {
-                    divKey = masterKey;
-                }
+            if (keyCache == null) {
+                divKey = loader.load();
             } else {
-                divKey = standard.computeCardKey_SCP03_WithDES3(masterKey, keyDiversified, token);
+                // GPKMC diversifies with the CUID, the other methods with the KDD
+                divKey = keyCache.getCardKey(token.getName(), keyNameStr,
+                        params.isDiversGPKMC() ? xCUID : xKDD, keyType,
+                        "scp03-" + masterKeyType + "-" + params.getDiversificationScheme(), loader);
             }
 
             // The kek session key does not call for derivation
@@ -554,7 +570,31 @@ public class SecureChannelProtocol {
 
             masterKey = getSymKeyByName(token, keyNameStr);
 
-            if (NistSP800_108KDF.useThisKDF(nistSP800_108KdfOnKeyVersion, keyInfo[0])) {
+            devKey = computeCardKey_SCP01(token, masterKey, keyNameStr, keyType, keyInfo,
+                    nistSP800_108KdfOnKeyVersion, context);
+
+            if (noDerive == true) {
+                sessionKey = devKey;
+            } else {
+                sessionKey = deriveKey_SCP01(token, devKey, host_challenge, card_challenge);
+            }
+        }
+
+        return sessionKey;
+    }
+
+    private SymmetricKey computeCardKey_SCP01(CryptoToken token, SymmetricKey masterKey, String masterKeyName,
+            String keyType, byte[] keyInfo, byte nistSP800_108KdfOnKeyVersion, byte[] context)
+            throws EBaseException {
+
+        String method = "SecureChannelProtocol.computeCardKey_SCP01:";
+
+        boolean useNistKDF = NistSP800_108KDF.useThisKDF(nistSP800_108KdfOnKeyVersion, keyInfo[0]);
+        KeyCache keyCache = getKeyCache();
+
+        KeyCache.Loader<SymmetricKey, EBaseException> loader = () -> {
+
+            if (useNistKDF) {
                 logger.debug(method + " ComputeSessionKey NistSP800_108KDF code: Using NIST SP800-108 KDF.");
 
                 NistSP800_108KDF nistKDF = new NistSP800_108KDF(this);
@@ -567,23 +607,21 @@ public class SecureChannelProtocol {
                     throw e;
                 }
 
-                devKey = keys.get(keyType);
-
-            } else {
-                StandardKDF standardKDF = new StandardKDF(this);
-                logger.debug(method + " ComputeSessionKey NistSP800_108KDF code: Using original KDF.");
-                byte[] data = KDF.getDiversificationData_VISA2(context, keyType);
-                devKey = standardKDF.computeCardKey(masterKey, data, token, PROTOCOL_ONE);
+                return keys.get(keyType);
             }
 
-            if (noDerive == true) {
-                sessionKey = devKey;
-            } else {
-                sessionKey = deriveKey_SCP01(token, devKey, host_challenge, card_challenge);
-            }
+            StandardKDF standardKDF = new StandardKDF(this);
+            logger.debug(method + " ComputeSessionKey NistSP800_108KDF code: Using original KDF.");
+            byte[] data = KDF.getDiversificationData_VISA2(context, keyType);
+            return standardKDF.computeCardKey(masterKey, data, token, PROTOCOL_ONE);
+        };
+
+        if (keyCache == null) {
+            return loader.load();
         }
 
-        return sessionKey;
+        return keyCache.getCardKey(token.getName(), masterKeyName, context, keyType,
+                useNistKDF ? "scp01-nist" : "scp01-visa2", loader);
     }
 
     private SymmetricKey deriveKey_SCP01(CryptoToken token, SymmetricKey cardKey, byte[] host_challenge,
@@ -1139,12 +1177,29 @@ public class SecureChannelProtocol {
         return unwrapped;
     }
 
+    static KeyCache getKeyCache() {
+        TKSEngine engine = TKSEngine.getInstance();
+        return engine == null ? null : engine.getKeyCache();
+    }
+
     public static SymmetricKey getSymKeyByName(CryptoToken token, String name) throws EBaseException {
 
         String method = "SecureChannelProtocol.getSymKeyByName:";
         if (token == null || name == null) {
             throw new EBaseException(method + "Invalid input data!");
         }
+
+        KeyCache keyCache = getKeyCache();
+        if (keyCache == null) {
+            return findSymKeyByName(token, name);
+        }
+
+        return keyCache.getSymKey(token.getName(), name, () -> findSymKeyByName(token, name));
+    }
+
+    static SymmetricKey findSymKeyByName(CryptoToken token, String name) throws EBaseException {
+
+        String method = "SecureChannelProtocol.getSymKeyByName:";
         SymmetricKey[] keys;
 
         logger.debug(method + "Searching for sym key: " + name);
@@ -1174,7 +1229,12 @@ public class SecureChannelProtocol {
         if (name == null || manager == null)
             throw new NoSuchTokenException();
 
-        return CryptoUtil.getKeyStorageToken(name);
+        KeyCache keyCache = getKeyCache();
+        if (keyCache == null) {
+            return CryptoUtil.getKeyStorageToken(name);
+        }
+
+        return keyCache.getToken(name, () -> CryptoUtil.getKeyStorageToken(name));
     }
 
     public static byte[] makeDes3FromDes2(byte[] des2) {
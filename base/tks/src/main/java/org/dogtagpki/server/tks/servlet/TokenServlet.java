@@ -37,6 +37,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.dogtagpki.server.authentication.AuthToken;
 import org.dogtagpki.server.authorization.AuthzToken;
 import org.dogtagpki.server.connector.IRemoteRequest;
+import org.dogtagpki.server.tks.KeyCache;
 import org.dogtagpki.server.tks.TKSEngine;
 import org.dogtagpki.server.tks.TKSEngineConfig;
 import org.dogtagpki.server.tks.TPSConnectorConfig;
@@ -315,6 +316,9 @@ public class TokenServlet extends CMSServlet {
 
     /* Compute Session Key for SCP02
      *  For simplicity compute just one session key,unless it is the DEK key case.
+     *  If the derivationConstants parameter is provided, compute the session keys
+     *  for all the listed derivation constants in one request and return them in
+     *  the same order as sessionKey_<n>.
      */
 
     private void processComputeSessionKeySCP02(HttpServletRequest req, HttpServletResponse resp) throws EBaseException {
@@ -365,8 +369,15 @@ public class TokenServlet extends CMSServlet {
         boolean serversideKeygen = false;
 
         String rDerivationConstant = req.getParameter(IRemoteRequest.DERIVATION_CONSTANT);
+        String rDerivationConstants = req.getParameter(IRemoteRequest.DERIVATION_CONSTANTS);
         String rSequenceCounter = req.getParameter(IRemoteRequest.SEQUENCE_COUNTER);
 
+        boolean batch = rDerivationConstants != null && !rDerivationConstants.equals("");
+        if (batch) {
+            logger.debug("TokenServlet.processComputeSessionKeySCP02: computing session keys for: " + rDerivationConstants);
+            rDerivationConstant = rDerivationConstants;
+        }
+
         if ((rDerivationConstant == null) || (rDerivationConstant.equals(""))) {
             badParams += " derivation_constant,";
             logger.debug("TokenServlet.processComputeSessionKeySCP02(): missing request parameter: derivation constant.");
@@ -522,6 +533,8 @@ public class TokenServlet extends CMSServlet {
         byte macKeyArray[] = null;
         byte sequenceCounter[] = null;
         byte derivationConstant[] = null;
+        String[] derivationConstants = null;
+        byte[][] session_keys = null;
 
         boolean errorFound = false;
 
@@ -534,157 +547,165 @@ public class TokenServlet extends CMSServlet {
                         + keySet + ".mac_key"));
 
                 sequenceCounter = org.mozilla.jss.netscape.security.util.Utils.SpecialDecode(rSequenceCounter);
-                derivationConstant = org.mozilla.jss.netscape.security.util.Utils.SpecialDecode(rDerivationConstant);
+                derivationConstants = rDerivationConstant.split(",");
+                session_keys = new byte[derivationConstants.length][];
 
-                //Use old style for the moment.
-                //ToDo: We need to use the nistXP800 params we have collected and send them down to symkey
-                //Perform in next ticket to fully implement nistXP800
+                for (int i = 0; i < derivationConstants.length; i++) {
 
-                session_key = SessionKey.ComputeSessionKeySCP02(
-                        selectedToken, keyNickName,
-                        keyInfo,
-                        nistSP800_108KdfOnKeyVersion, // AC: KDF SPEC CHANGE - pass in configuration file value
-                        nistSP800_108KdfUseCuidAsKdd, xCUID, xKDD, macKeyArray, sequenceCounter, derivationConstant,
-                        useSoftToken_s, keySet,
-                        transportKeyName);
+                    derivationConstant = org.mozilla.jss.netscape.security.util.Utils.SpecialDecode(derivationConstants[i]);
 
-                if (session_key == null) {
-                    logger.warn("TokenServlet.computeSessionKeySCP02:Tried ComputeSessionKey, got NULL ");
-                    throw new EBaseException("Can't compute session key for SCP02!");
+                    //Use old style for the moment.
+                    //ToDo: We need to use the nistXP800 params we have collected and send them down to symkey
+                    //Perform in next ticket to fully implement nistXP800
 
-                }
+                    session_key = SessionKey.ComputeSessionKeySCP02(
+                            selectedToken, keyNickName,
+                            keyInfo,
+                            nistSP800_108KdfOnKeyVersion, // AC: KDF SPEC CHANGE - pass in configuration file value
+                            nistSP800_108KdfUseCuidAsKdd, xCUID, xKDD, macKeyArray, sequenceCounter, derivationConstant,
+                            useSoftToken_s, keySet,
+                            transportKeyName);
 
-                //Only do this for the dekSessionKey and if we are in the server side keygen case.
-                if (derivationConstant[0] == DEKDerivationConstant[0]
-                        && derivationConstant[1] == DEKDerivationConstant[1] && serversideKeygen == true) {
+                    if (session_key == null) {
+                        logger.warn("TokenServlet.computeSessionKeySCP02:Tried ComputeSessionKey, got NULL ");
+                        throw new EBaseException("Can't compute session key for SCP02!");
 
-                    logger.debug("TokenServlet.computeSessionKeySCP02: We have the server side keygen case while generating the dek session key, wrap and return symkeys for the drm and token.");
+                    }
 
-                    /**
-                     * 0. generate des key
-                     * 1. encrypt des key with dek key
-                     * 2. encrypt des key with DRM transport key
-                     * These two wrapped items are to be sent back to
-                     * TPS. 2nd item is to DRM
-                     **/
+                    session_keys[i] = session_key;
 
-                    PK11SymKey desKey = null;
-                    PK11SymKey dekKey = null;
+                    //Only do this for the dekSessionKey and if we are in the server side keygen case.
+                    if (derivationConstant[0] == DEKDerivationConstant[0]
+                            && derivationConstant[1] == DEKDerivationConstant[1] && serversideKeygen == true) {
 
-                    /*generate it on whichever token the master key is at*/
-                    if (useSoftToken_s.equals("true")) {
-                        logger.debug("TokenServlet.computeSessionKeySCP02: key encryption key generated on internal");
+                        logger.debug("TokenServlet.computeSessionKeySCP02: We have the server side keygen case while generating the dek session key, wrap and return symkeys for the drm and token.");
 
-                        desKey = SessionKey.GenerateSymkey(CryptoUtil.INTERNAL_TOKEN_NAME);
+                        /**
+                         * 0. generate des key
+                         * 1. encrypt des key with dek key
+                         * 2. encrypt des key with DRM transport key
+                         * These two wrapped items are to be sent back to
+                         * TPS. 2nd item is to DRM
+                         **/
 
-                    } else {
-                        logger.debug("TokenServlet.computeSessionKeySCP02: key encryption key generated on "
-                                + selectedToken);
-                        desKey = SessionKey.GenerateSymkey(selectedToken);
-                    }
-                    if (desKey != null)
-                        logger.debug("TokenServlet.computeSessionKeySCP02: key encryption key generated for " + rCUID);
-                    else {
-                        logger.error("TokenServlet.computeSessionKeySCP02: key encryption key generation failed for "
-                                + rCUID);
-                        throw new EBaseException(
-                                "TokenServlet.computeSessionKeySCP02: can't generate key encryption key");
-                    }
+                        PK11SymKey desKey = null;
+                        PK11SymKey dekKey = null;
 
-                    CryptoToken token = null;
-                    if (useSoftToken_s.equals("true")) {
-                        token = CryptoUtil.getCryptoToken(null);
-                    } else {
-                        token = CryptoUtil.getCryptoToken(selectedToken);
-                    }
+                        /*generate it on whichever token the master key is at*/
+                        if (useSoftToken_s.equals("true")) {
+                            logger.debug("TokenServlet.computeSessionKeySCP02: key encryption key generated on internal");
 
-                    //Now we have to create a sym key object for the wrapped session_key (dekKey)
-                    // session_key wrapped by the shared Secret
+                            desKey = SessionKey.GenerateSymkey(CryptoUtil.INTERNAL_TOKEN_NAME);
 
-                    PK11SymKey sharedSecret = getSharedSecretKey();
+                        } else {
+                            logger.debug("TokenServlet.computeSessionKeySCP02: key encryption key generated on "
+                                    + selectedToken);
+                            desKey = SessionKey.GenerateSymkey(selectedToken);
+                        }
+                        if (desKey != null)
+                            logger.debug("TokenServlet.computeSessionKeySCP02: key encryption key generated for " + rCUID);
+                        else {
+                            logger.error("TokenServlet.computeSessionKeySCP02: key encryption key generation failed for "
+                                    + rCUID);
+                            throw new EBaseException(
+                                    "TokenServlet.computeSessionKeySCP02: can't generate key encryption key");
+                        }
 
-                    if (sharedSecret == null) {
-                        throw new EBaseException(
-                                "TokenServlet.computeSessionKeySCP02: Can't find share secret sym key!");
-                    }
+                        CryptoToken token = null;
+                        if (useSoftToken_s.equals("true")) {
+                            token = CryptoUtil.getCryptoToken(null);
+                        } else {
+                            token = CryptoUtil.getCryptoToken(selectedToken);
+                        }
 
-                    dekKey = SessionKey.UnwrapSessionKeyWithSharedSecret(token.getName(), sharedSecret,
-                            session_key);
+                        //Now we have to create a sym key object for the wrapped session_key (dekKey)
+                        // session_key wrapped by the shared Secret
 
-                    if (dekKey == null) {
-                        throw new EBaseException(
-                                "TokenServlet.computeSessionKeySCP02: Can't unwrap DEK key onto the token!");
-                    }
+                        PK11SymKey sharedSecret = getSharedSecretKey();
 
-                    /*
-                     * ECBencrypt actually takes the 24 byte DES2 key
-                     * and discard the last 8 bytes before it encrypts.
-                     * This is done so that the applet can digest it
-                     */
-                    byte[] encDesKey =
-                            SessionKey.ECBencrypt(dekKey,
-                                    desKey);
-
-                    if (encDesKey == null) {
-                        throw new EBaseException("TokenServlet.computeSessionKeySCP02: Can't encrypt DEK key!");
-                    }
+                        if (sharedSecret == null) {
+                            throw new EBaseException(
+                                    "TokenServlet.computeSessionKeySCP02: Can't find share secret sym key!");
+                        }
 
-                    dek_wrapped_desKeyString =
-                            org.mozilla.jss.netscape.security.util.Utils.SpecialEncode(encDesKey);
+                        dekKey = SessionKey.UnwrapSessionKeyWithSharedSecret(token.getName(), sharedSecret,
+                                session_key);
 
-                    byte[] keycheck =
-                            SessionKey.ComputeKeyCheck(desKey);
+                        if (dekKey == null) {
+                            throw new EBaseException(
+                                    "TokenServlet.computeSessionKeySCP02: Can't unwrap DEK key onto the token!");
+                        }
 
-                    if (keycheck == null) {
-                        throw new EBaseException(
-                                "TokenServlet.computeSessionKeySCP02: Can't compute key check for encrypted DEK key!");
-                    }
+                        /*
+                         * ECBencrypt actually takes the 24 byte DES2 key
+                         * and discard the last 8 bytes before it encrypts.
+                         * This is done so that the applet can digest it
+                         */
+                        byte[] encDesKey =
+                                SessionKey.ECBencrypt(dekKey,
+                                        desKey);
+
+                        if (encDesKey == null) {
+                            throw new EBaseException("TokenServlet.computeSessionKeySCP02: Can't encrypt DEK key!");
+                        }
 
-                    keycheck_s =
-                            org.mozilla.jss.netscape.security.util.Utils.SpecialEncode(keycheck);
+                        dek_wrapped_desKeyString =
+                                org.mozilla.jss.netscape.security.util.Utils.SpecialEncode(encDesKey);
 
-                    //use DRM transport cert to wrap desKey
-                    String drmTransNickname = config.getString("tks.drm_transport_cert_nickname", "");
+                        byte[] keycheck =
+                                SessionKey.ComputeKeyCheck(desKey);
 
-                    if ((drmTransNickname == null) || (drmTransNickname == "")) {
-                        logger.error("TokenServlet.computeSessionKeySCP02:did not find DRM transport certificate nickname");
-                        throw new EBaseException("can't find DRM transport certificate nickname");
-                    } else {
-                        logger.debug("TokenServlet.computeSessionKeySCP02:drmtransport_cert_nickname=" + drmTransNickname);
-                    }
+                        if (keycheck == null) {
+                            throw new EBaseException(
+                                    "TokenServlet.computeSessionKeySCP02: Can't compute key check for encrypted DEK key!");
+                        }
+
+                        keycheck_s =
+                                org.mozilla.jss.netscape.security.util.Utils.SpecialEncode(keycheck);
+
+                        //use DRM transport cert to wrap desKey
+                        String drmTransNickname = config.getString("tks.drm_transport_cert_nickname", "");
 
-                    X509Certificate drmTransCert = null;
-                    drmTransCert = CryptoManager.getInstance().findCertByNickname(drmTransNickname);
-                    // wrap kek session key with DRM transport public key
-
-                    PublicKey pubKey = drmTransCert.getPublicKey();
-                    String pubKeyAlgo = pubKey.getAlgorithm();
-
-                    KeyWrapper keyWrapper = null;
-                    //For wrapping symmetric keys don't need IV, use ECB
-                    if (pubKeyAlgo.equals("EC")) {
-                        keyWrapper = token.getKeyWrapper(KeyWrapAlgorithm.AES_ECB);
-                        keyWrapper.initWrap(pubKey, null);
-                    } else {
-                        boolean useOAEP = config.getBoolean("keyWrap.useOAEP",false);
-                        KeyWrapAlgorithm wrapAlg = KeyWrapAlgorithm.RSA;
-                        if(useOAEP == true) {
-                            wrapAlg = KeyWrapAlgorithm.RSA_OAEP;
+                        if ((drmTransNickname == null) || (drmTransNickname == "")) {
+                            logger.error("TokenServlet.computeSessionKeySCP02:did not find DRM transport certificate nickname");
+                            throw new EBaseException("can't find DRM transport certificate nickname");
+                        } else {
+                            logger.debug("TokenServlet.computeSessionKeySCP02:drmtransport_cert_nickname=" + drmTransNickname);
                         }
-                        keyWrapper = token.getKeyWrapper(wrapAlg);
 
-                        OAEPParameterSpec params =  null;
-                        if(useOAEP) {
-                            params = new OAEPParameterSpec("SHA-256", "MGF1", MGF1ParameterSpec.SHA256, PSource.PSpecified.DEFAULT);
+                        X509Certificate drmTransCert = null;
+                        drmTransCert = findTransportCert(drmTransNickname);
+                        // wrap kek session key with DRM transport public key
+
+                        PublicKey pubKey = drmTransCert.getPublicKey();
+                        String pubKeyAlgo = pubKey.getAlgorithm();
+
+                        KeyWrapper keyWrapper = null;
+                        //For wrapping symmetric keys don't need IV, use ECB
+                        if (pubKeyAlgo.equals("EC")) {
+                            keyWrapper = token.getKeyWrapper(KeyWrapAlgorithm.AES_ECB);
+                            keyWrapper.initWrap(pubKey, null);
+                        } else {
+                            boolean useOAEP = config.getBoolean("keyWrap.useOAEP",false);
+                            KeyWrapAlgorithm wrapAlg = KeyWrapAlgorithm.RSA;
+                            if(useOAEP == true) {
+                                wrapAlg = KeyWrapAlgorithm.RSA_OAEP;
+                            }
+                            keyWrapper = token.getKeyWrapper(wrapAlg);
+
+                            OAEPParameterSpec params =  null;
+                            if(useOAEP) {
+                                params = new OAEPParameterSpec("SHA-256", "MGF1", MGF1ParameterSpec.SHA256, PSource.PSpecified.DEFAULT);
+                            }
+                            keyWrapper.initWrap(pubKey, params);
                         }
-                        keyWrapper.initWrap(pubKey, params);
-                    }
 
-                    drm_trans_wrapped_desKey = keyWrapper.wrap(desKey);
-                    logger.debug("computeSessionKey.computeSessionKeySCP02:desKey wrapped with drm transportation key.");
+                        drm_trans_wrapped_desKey = keyWrapper.wrap(desKey);
+                        logger.debug("computeSessionKey.computeSessionKeySCP02:desKey wrapped with drm transportation key.");
 
-                    logger.debug("computeSessionKey.computeSessionKeySCP02:desKey: Just unwrapped the dekKey onto the token to be wrapped on the way out.");
+                        logger.debug("computeSessionKey.computeSessionKeySCP02:desKey: Just unwrapped the dekKey onto the token to be wrapped on the way out.");
 
+                    }
                 }
 
             } catch (Exception e) {
@@ -702,8 +723,20 @@ public class TokenServlet extends CMSServlet {
         boolean statusDeclared = false;
 
         if (session_key != null && session_key.length > 0 && errorFound == false) {
-            outputString =
-                    org.mozilla.jss.netscape.security.util.Utils.SpecialEncode(session_key);
+            if (batch) {
+                StringBuffer sb = new StringBuffer();
+                for (int i = 0; i < session_keys.length; i++) {
+                    if (i > 0) {
+                        sb.append("&");
+                    }
+                    sb.append(IRemoteRequest.TKS_RESPONSE_SessionKey + "_" + i + "=");
+                    sb.append(org.mozilla.jss.netscape.security.util.Utils.SpecialEncode(session_keys[i]));
+                }
+                outputString = sb.toString();
+            } else {
+                outputString = IRemoteRequest.TKS_RESPONSE_SessionKey + "=" +
+                        org.mozilla.jss.netscape.security.util.Utils.SpecialEncode(session_key);
+            }
         } else {
 
             status = "1";
@@ -761,7 +794,6 @@ public class TokenServlet extends CMSServlet {
 
                 StringBuffer sb = new StringBuffer();
                 sb.append(IRemoteRequest.RESPONSE_STATUS + "=0&");
-                sb.append(IRemoteRequest.TKS_RESPONSE_SessionKey + "=");
                 sb.append(outputString);
 
                 //Now add the trans wrapped des key
@@ -785,7 +817,6 @@ public class TokenServlet extends CMSServlet {
             } else {
                 StringBuffer sb = new StringBuffer();
                 sb.append(IRemoteRequest.RESPONSE_STATUS + "=0&");
-                sb.append(IRemoteRequest.TKS_RESPONSE_SessionKey + "=");
                 sb.append(outputString);
                 value = sb.toString();
             }
@@ -1222,7 +1253,7 @@ public class TokenServlet extends CMSServlet {
                         }
 
                         X509Certificate drmTransCert = null;
-                        drmTransCert = CryptoManager.getInstance().findCertByNickname(drmTransNickname);
+                        drmTransCert = findTransportCert(drmTransNickname);
                         // wrap kek session key with DRM transport public key
                         CryptoToken token = null;
                         if (useSoftToken_s.equals("true")) {
@@ -1890,6 +1921,13 @@ public class TokenServlet extends CMSServlet {
 
         if (status.equals("0")) {
 
+            // the card will be updated with new keys
+            KeyCache keyCache = engine.getKeyCache();
+            if (keyCache != null) {
+                keyCache.invalidateCardKeys(xKDD);
+                keyCache.invalidateCardKeys(xCUID);
+            }
+
             // AC: KDF SPEC CHANGE - Log both CUID and KDD
             //                       Also added TKSKeyset, OldKeyInfo_KeyVersion, NewKeyInfo_KeyVersion, NistSP800_108KdfOnKeyVersion, NistSP800_108KdfUseCuidAsKdd
             //                       Finally, log CUID and KDD in ASCII-HEX format, as long as special-decoded version is available.
@@ -2448,6 +2486,7 @@ public class TokenServlet extends CMSServlet {
         String temp = req.getParameter(IRemoteRequest.TOKEN_CARD_CHALLENGE);
         String protocol = req.getParameter(IRemoteRequest.CHANNEL_PROTOCOL);
         String derivationConstant = req.getParameter(IRemoteRequest.DERIVATION_CONSTANT);
+        String derivationConstants = req.getParameter(IRemoteRequest.DERIVATION_CONSTANTS);
         //logger.debug("Protocol: " + protocol + " temp: " + temp);
 
         setDefaultSlotAndKeyName(req);
@@ -2459,8 +2498,9 @@ public class TokenServlet extends CMSServlet {
             processDiversifyKey(req, resp);
         } else if (req.getParameter(IRemoteRequest.TOKEN_DATA_NUM_BYTES) != null) {
             processComputeRandomData(req, resp);
-        } else if (protocol != null && protocol.contains("2") && (derivationConstant != null)) {
-            //SCP02 compute one session key.
+        } else if (protocol != null && protocol.contains("2")
+                && (derivationConstant != null || derivationConstants != null)) {
+            //SCP02 compute one session key, or all the requested session keys at once.
             processComputeSessionKeySCP02(req, resp);
 
         }  else if (protocol != null && protocol.contains("3") ) {
@@ -2983,6 +3023,16 @@ public class TokenServlet extends CMSServlet {
         super.service(req, resp);
     }
 
+    private X509Certificate findTransportCert(String nickname) throws Exception {
+
+        KeyCache keyCache = TKSEngine.getInstance().getKeyCache();
+        if (keyCache == null) {
+            return CryptoManager.getInstance().findCertByNickname(nickname);
+        }
+
+        return keyCache.getCert(nickname, () -> CryptoManager.getInstance().findCertByNickname(nickname));
+    }
+
     private PK11SymKey getSharedSecretKey() throws EBaseException, NotInitializedException {
 
         TKSEngine engine = TKSEngine.getInstance();
@@ -3000,6 +3050,18 @@ public class TokenServlet extends CMSServlet {
 
         logger.debug("TokenServlet.getSharedSecretTransportKey: calculated key name: " + sharedSecretName);
 
+        KeyCache keyCache = engine.getKeyCache();
+        if (keyCache == null) {
+            return findSharedSecretKey(sharedSecretName);
+        }
+
+        String name = sharedSecretName;
+        return (PK11SymKey) keyCache.getSymKey(CryptoUtil.INTERNAL_TOKEN_FULL_NAME, sharedSecretName,
+                () -> findSharedSecretKey(name));
+    }
+
+    private PK11SymKey findSharedSecretKey(String sharedSecretName) throws EBaseException {
+
         String symmKeys = null;
         boolean keyPresent = false;
         try {
@@ -3126,7 +3188,7 @@ public class TokenServlet extends CMSServlet {
         X509Certificate drmTransCert = null;
         try {
 
-            drmTransCert = CryptoManager.getInstance().findCertByNickname(drmTransNickname);
+            drmTransCert = findTransportCert(drmTransNickname);
             // wrap kek session key with DRM transport public key
             CryptoToken token = null;
             if (useSoftToken.equals("true")) {
@@ -0,0 +1,68 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.tomcat;
+
+import java.math.BigInteger;
+import java.security.Principal;
+import java.security.cert.X509Certificate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This interface provides access to a CA running in the same server
+ * to other webapps (e.g. ACME) without going through the REST API.
+ *
+ * The webapps are loaded by separate class loaders, so the methods
+ * only use classes from the JDK. The principal returned by the
+ * authenticate() methods is opaque to the caller and it must be
+ * passed back to the CA to perform operations as that user.
+ *
+ * The CA registers its instance when it is started and unregisters
+ * it when it is shut down.
+ */
+public interface LocalCA {
+
+    Map<String, LocalCA> instances = new ConcurrentHashMap<>();
+
+    static void register(String id, LocalCA ca) {
+        instances.put(id, ca);
+    }
+
+    static void unregister(String id) {
+        instances.remove(id);
+    }
+
+    /**
+     * Returns the CA with the specified ID (e.g. ca), or null if the
+     * CA is not running in this server.
+     */
+    static LocalCA getInstance(String id) {
+        return instances.get(id);
+    }
+
+    Principal authenticate(String username, String password) throws Exception;
+
+    Principal authenticate(X509Certificate[] certs) throws Exception;
+
+    /**
+     * Submits a PKCS #10 request with the specified profile on behalf
+     * of the user. The user must be authorized by the profile.
+     *
+     * @return the serial number of the issued certificate
+     */
+    BigInteger enrollCertificate(Principal principal, String profileID, byte[] pkcs10) throws Exception;
+
+    /**
+     * Returns the certificate chain sorted from leaf to root.
+     */
+    X509Certificate[] getCertificateChain(BigInteger serialNumber) throws Exception;
+
+    /**
+     * Revokes a certificate issued by this CA on behalf of the user.
+     * The certificate must match the one stored in the CA.
+     */
+    void revokeCertificate(Principal principal, byte[] certificate, int reason) throws Exception;
+}
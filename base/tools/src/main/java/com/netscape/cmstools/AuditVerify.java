@@ -21,14 +21,31 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.security.PublicKey;
 import java.security.Signature;
+import java.security.SignatureException;
 import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Properties;
 import java.util.StringTokenizer;
 import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.mozilla.jss.CryptoManager;
 import org.mozilla.jss.InitializationValues;
@@ -43,6 +60,12 @@ import org.mozilla.jss.netscape.security.x509.X509CertImpl;
 /**
  * Tool for verifying signed audit logs
  *
+ * The log files are scanned sequentially using memory-mapped buffers
+ * and split at each signature. The segments between signatures are
+ * verified in parallel, then the results are reported in log order.
+ * The progress can be saved in a checkpoint file so that an interrupted
+ * verification can be resumed from the last verified signature.
+ *
  * @version $Revision$, $Date$
  */
 public class AuditVerify {
@@ -54,8 +77,23 @@ public class AuditVerify {
     // signature verification be platform-independent.
     private static final byte LINE_SEP_BYTE = 0x0a;
 
+    // Event type of the signature entries. It has no repeated prefix,
+    // so it can be matched byte by byte without backtracking.
+    private static final byte[] SIGNATURE_EVENT = "AUDIT_LOG_SIGNING".getBytes(StandardCharsets.US_ASCII);
+
+    // size of each memory-mapped region of a log file
+    static final long REGION_SIZE = 1L << 30;
+
+    // number of verified signatures between checkpoints
+    static final int CHECKPOINT_INTERVAL = 1000;
+
     boolean verbose;
     X509Certificate signingCert;
+    PublicKey publicKey;
+    String sigAlgorithm;
+    String provider;
+    int threads = Runtime.getRuntime().availableProcessors();
+    File checkpointFile;
 
     public AuditVerify() {
     }
@@ -64,6 +102,14 @@ public class AuditVerify {
         this.verbose = verbose;
     }
 
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public void setCheckpointFile(File checkpointFile) {
+        this.checkpointFile = checkpointFile;
+    }
+
     public void setSigningCert(X509Certificate signingCert) throws Exception {
 
         // verify audit signing certificate
@@ -88,12 +134,42 @@ public class AuditVerify {
             throw new Exception("Invalid signing certificate key usage");
         }
 
+        PublicKey pubk = signingCert.getPublicKey();
+
+        if (pubk instanceof RSAPublicKey) {
+            sigAlgorithm = "SHA-256/RSA";
+        } else if (pubk instanceof PK11ECPublicKey) {
+            sigAlgorithm = "SHA-256/EC";
+        } else {
+            throw new Exception("Unknown signing certificate key type: " + pubk.getAlgorithm());
+        }
+
         this.signingCert = signingCert;
+        this.publicKey = pubk;
+        this.provider = CRYPTO_PROVIDER;
+    }
+
+    /**
+     * Uses a public key from the default security providers to verify
+     * the logs (e.g. software keys for testing and benchmarking).
+     */
+    public void setPublicKey(PublicKey publicKey) throws Exception {
+
+        if ("RSA".equals(publicKey.getAlgorithm())) {
+            sigAlgorithm = "SHA256withRSA";
+        } else if ("EC".equals(publicKey.getAlgorithm())) {
+            sigAlgorithm = "SHA256withECDSA";
+        } else {
+            throw new Exception("Unknown public key type: " + publicKey.getAlgorithm());
+        }
+
+        this.publicKey = publicKey;
+        this.provider = null;
     }
 
     private static void usage() {
         System.out
-                .println("Usage: AuditVerify -d <dbdir> -n <signing certificate nickname> -a <log list file> [-P <cert/key db prefix>] [-v]");
+                .println("Usage: AuditVerify -d <dbdir> -n <signing certificate nickname> -a <log list file> [-P <cert/key db prefix>] [-t <threads>] [-c <checkpoint file>] [-v]");
         System.exit(1);
     }
 
@@ -101,12 +177,20 @@ public class AuditVerify {
         return Utils.base64decode(input);
     }
 
+    private static String formatLine(int linenum, String mesg) {
+        return "Line " + linenum + ": " + mesg;
+    }
+
+    private static String formatFile(String curfileName) {
+        return "======\nFile: " + curfileName + "\n======";
+    }
+
     private static void output(int linenum, String mesg) throws IOException {
-        System.out.println("Line " + linenum + ": " + mesg);
+        System.out.println(formatLine(linenum, mesg));
     }
 
     private static void writeFile(String curfileName) {
-        System.out.println("======\nFile: " + curfileName + "\n======");
+        System.out.println(formatFile(curfileName));
     }
 
     private static void writeSigStatus(int linenum, String sigStartFile,
@@ -154,146 +238,552 @@ public class AuditVerify {
         public int signedLines;
     }
 
-    public Result verify(List<String> logFiles) throws Exception {
+    /**
+     * A log file mapped into memory in regions of up to REGION_SIZE bytes.
+     */
+    static class MappedLogFile {
 
-        PublicKey pubk = signingCert.getPublicKey();
+        String name;
+        long size;
+        MappedByteBuffer[] regions;
 
-        String sigAlgorithm = null;
-        if (pubk instanceof RSAPublicKey) {
-            sigAlgorithm = "SHA-256/RSA";
-        } else if (pubk instanceof PK11ECPublicKey) {
-            sigAlgorithm = "SHA-256/EC";
-        } else {
-            throw new Exception("Unknown signing certificate key type: " + pubk.getAlgorithm());
+        MappedLogFile(String name) throws IOException {
+
+            this.name = name;
+
+            try (FileChannel channel = FileChannel.open(Paths.get(name), StandardOpenOption.READ)) {
+
+                size = channel.size();
+
+                int count = (int) ((size + REGION_SIZE - 1) / REGION_SIZE);
+                regions = new MappedByteBuffer[count];
+
+                for (int i = 0; i < count; i++) {
+                    long offset = i * REGION_SIZE;
+                    regions[i] = channel.map(
+                            FileChannel.MapMode.READ_ONLY,
+                            offset,
+                            Math.min(REGION_SIZE, size - offset));
+                }
+            }
         }
 
+        /**
+         * Feeds the bytes between start (inclusive) and end (exclusive)
+         * into the signature. Safe to call from multiple threads.
+         */
+        void update(Signature sig, long start, long end) throws SignatureException {
+            while (start < end) {
+                int index = (int) (start / REGION_SIZE);
+                int offset = (int) (start % REGION_SIZE);
+                int length = (int) Math.min(end - start, REGION_SIZE - offset);
+                sig.update(regions[index].slice(offset, length));
+                start += length;
+            }
+        }
+
+        String getString(long start, long end) {
+            byte[] bytes = new byte[(int) (end - start)];
+            for (int i = 0; i < bytes.length; i++) {
+                long position = start + i;
+                bytes[i] = regions[(int) (position / REGION_SIZE)].get((int) (position % REGION_SIZE));
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * A range of signed bytes in a log file. If newline is true,
+     * the range does not include the line separator, so it has to
+     * be added separately.
+     */
+    static class Range {
+
+        MappedLogFile file;
+        long start;
+        long end;
+        boolean newline;
+
+        Range(MappedLogFile file, long start, long end, boolean newline) {
+            this.file = file;
+            this.start = start;
+            this.end = end;
+            this.newline = newline;
+        }
+    }
+
+    /**
+     * The log entries signed by a single signature, starting
+     * with the previous signature.
+     */
+    static class Segment {
+
+        List<Range> ranges = new ArrayList<>();
+
+        String startFile;
+        int startLine;
+        String stopFile;
+        int stopLine;
+
+        int sigFileIndex;
+        String sigFile;
+        int sigLine;
+        long sigOffset;
+        String signature;
+
+        // messages to display before the result
+        List<String> messages = new ArrayList<>();
+
+        Future<Boolean> result;
+
+        void add(MappedLogFile file, long start, long end, boolean newline) {
+
+            if (!ranges.isEmpty()) {
+                Range last = ranges.get(ranges.size() - 1);
+
+                // merge adjacent lines that end with 0x0a
+                if (last.file == file && !last.newline && last.end == start) {
+                    last.end = end;
+                    last.newline = newline;
+                    return;
+                }
+            }
+
+            ranges.add(new Range(file, start, end, newline));
+        }
+    }
+
+    Signature createSignature() throws Exception {
+        if (provider == null) {
+            return Signature.getInstance(sigAlgorithm);
+        }
+        return Signature.getInstance(sigAlgorithm, provider);
+    }
+
+    public Result verify(List<String> logFiles) throws Exception {
+
         if (verbose) {
             System.out.println("AuditVerify: Signing algorithm: " + sigAlgorithm);
+            System.out.println("AuditVerify: Threads: " + threads);
+        }
+
+        // fail early if the algorithm is not supported
+        createSignature();
+
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "AuditVerify-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            return new Verification(logFiles, executor).run();
+
+        } finally {
+            executor.shutdownNow();
         }
+    }
+
+    /**
+     * The state of a single verification run.
+     */
+    class Verification {
+
+        List<String> logFiles;
+        ExecutorService executor;
+
+        ThreadLocal<Signature> signatures = ThreadLocal.withInitial(() -> {
+            try {
+                return createSignature();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        // segments in log order, waiting to be reported
+        ArrayDeque<Segment> queue = new ArrayDeque<>();
+
+        // messages to display before the next segment
+        List<String> pending = new ArrayList<>();
 
-        Signature sig = Signature.getInstance(sigAlgorithm, CRYPTO_PROVIDER);
+        Segment current;
+        Segment lastVerified;
+        int verifiedCount;
 
-        int goodSigCount = 0;
-        int badSigCount = 0;
+        int goodSigCount;
+        int badSigCount;
 
         int lastFileWritten = -1;
 
         int sigStartLine = 1;
         int sigStopLine = 1;
-        String sigStartFile = logFiles.get(0);
-        String sigStopFile = null;
+        String sigStartFile;
+        String sigStopFile;
         int signedLines = 1;
 
         // don't start verification before the first signature
-        boolean verifySignature = false;
+        boolean verifySignature;
 
-        for (int curfile = 0; curfile < logFiles.size(); ++curfile) {
+        // resume verification at the checkpoint signature
+        boolean resuming;
 
-            String curfileName = logFiles.get(curfile);
-            BufferedReader br = new BufferedReader(new FileReader(curfileName));
+        Verification(List<String> logFiles, ExecutorService executor) {
+            this.logFiles = logFiles;
+            this.executor = executor;
+            this.sigStartFile = logFiles.get(0);
+        }
 
-            if (verbose) {
-                writeFile(curfileName);
-                lastFileWritten = curfile;
+        Result run() throws Exception {
+
+            int firstFile = 0;
+            long firstOffset = 0;
+            int firstLine = 0;
+
+            Properties checkpoint = loadCheckpoint();
+
+            if (checkpoint != null) {
+
+                String file = checkpoint.getProperty("file");
+                int line = Integer.parseInt(checkpoint.getProperty("line"));
+
+                firstFile = logFiles.indexOf(file);
+                if (firstFile < 0) {
+                    throw new Exception("Checkpoint file not in log list: " + file);
+                }
+
+                firstOffset = Long.parseLong(checkpoint.getProperty("offset"));
+                firstLine = line - 1;
+
+                goodSigCount = Integer.parseInt(checkpoint.getProperty("goodSigCount"));
+                badSigCount = Integer.parseInt(checkpoint.getProperty("badSigCount"));
+
+                System.out.println("Resuming verification from " + file + ":" + line);
+                resuming = true;
             }
 
-            String curLine;
-            int linenum = 0;
+            for (int curfile = firstFile; curfile < logFiles.size(); ++curfile) {
 
-            while ((curLine = br.readLine()) != null) {
+                String curfileName = logFiles.get(curfile);
 
-                ++linenum;
+                if (verbose) {
+                    pending.add(formatFile(curfileName));
+                    lastFileWritten = curfile;
+                }
 
-                if (curLine.indexOf("AUDIT_LOG_SIGNING") != -1) { // found signature
+                MappedLogFile file = new MappedLogFile(curfileName);
 
-                    if (!verifySignature) { // found first signature
+                if (curfile == firstFile) {
+                    scan(curfile, file, firstOffset, firstLine);
+                } else {
+                    scan(curfile, file, 0, 0);
+                }
+            }
 
-                        // Ignore the first signature of the first file,
-                        // since it signs data we don't have access to.
-                        if (verbose) {
-                            output(linenum, "Ignoring first signature of log series");
-                        }
+            if (resuming) {
+                throw new Exception("Checkpoint signature not found");
+            }
+
+            while (!queue.isEmpty()) {
+                report();
+            }
+
+            for (String message : pending) {
+                System.out.println(message);
+            }
+
+            if (lastVerified != null) {
+                saveCheckpoint(lastVerified);
+            }
+
+            Result result = new Result();
+            result.goodSigCount = goodSigCount;
+            result.badSigCount = badSigCount;
+            result.sigStartLine = sigStartLine;
+            result.sigStopLine = sigStopLine;
+            result.sigStartFile = sigStartFile;
+            result.sigStopFile = sigStopFile;
+            result.signedLines = signedLines;
 
-                        // start verification after the first signature
-                        verifySignature = true;
+            return result;
+        }
+
+        /**
+         * Splits the log file into lines and segments starting
+         * from the given offset.
+         */
+        void scan(int fileIndex, MappedLogFile file, long offset, int linenum) throws Exception {
+
+            long lineStart = offset;
+            int matched = 0;
+            boolean cr = false;
 
-                    } else { // found another signature
+            for (int r = (int) (offset / REGION_SIZE); r < file.regions.length; r++) {
 
-                        int sigStart = curLine.indexOf("sig: ");
+                MappedByteBuffer region = file.regions[r];
+                long base = r * REGION_SIZE;
+                int limit = region.limit();
 
-                        if (sigStart < 0) {
-                            output(linenum, "INVALID SIGNATURE");
-                            ++badSigCount;
+                for (int i = (int) Math.max(0, offset - base); i < limit; i++) {
+
+                    byte b = region.get(i);
+                    long position = base + i;
+
+                    if (cr) {
+                        cr = false;
+                        if (b == '\n') { // CRLF
+                            lineStart = position + 1;
+                            continue;
+                        }
+                    }
 
+                    if (b == '\n') {
+                        // signed bytes are the same as the raw bytes
+                        processLine(fileIndex, file, ++linenum, lineStart, position, position + 1, false,
+                                matched == SIGNATURE_EVENT.length);
+                        lineStart = position + 1;
+                        matched = 0;
+
+                    } else if (b == '\r') {
+                        // line separator has to be replaced with 0x0a
+                        processLine(fileIndex, file, ++linenum, lineStart, position, position, true,
+                                matched == SIGNATURE_EVENT.length);
+                        lineStart = position + 1;
+                        matched = 0;
+                        cr = true;
+
+                    } else if (matched < SIGNATURE_EVENT.length) {
+                        if (b == SIGNATURE_EVENT[matched]) {
+                            matched++;
                         } else {
+                            matched = b == SIGNATURE_EVENT[0] ? 1 : 0;
+                        }
+                    }
+                }
+            }
+
+            if (lineStart < file.size) { // last line without line separator
+                processLine(fileIndex, file, ++linenum, lineStart, file.size, file.size, true,
+                        matched == SIGNATURE_EVENT.length);
+            }
+        }
+
+        void processLine(
+                int fileIndex,
+                MappedLogFile file,
+                int linenum,
+                long lineStart,
+                long lineEnd,
+                long rangeEnd,
+                boolean newline,
+                boolean signature) throws Exception {
 
-                            String signature = curLine.substring(sigStart + 5);
+            if (signature) { // found signature
 
-                            if (verbose) {
-                                System.out.println("AuditVerify: Signature: " + signature);
-                            }
+                if (resuming) { // found checkpoint signature
 
-                            byte[] logSig = base64decode(signature);
+                    // the checkpoint signature has been verified,
+                    // start verification after this signature
+                    resuming = false;
+                    verifySignature = true;
 
-                            // verify the signature
-                            if (sig.verify(logSig)) {
+                } else if (!verifySignature) { // found first signature
 
-                                // signature verifies correctly
-                                if (verbose) {
-                                    writeSigStatus(linenum, sigStartFile,
-                                            sigStartLine, sigStopFile, sigStopLine,
-                                            "verification succeeded");
-                                }
+                    // Ignore the first signature of the first file,
+                    // since it signs data we don't have access to.
+                    if (verbose) {
+                        pending.add(formatLine(linenum, "Ignoring first signature of log series"));
+                    }
 
-                                ++goodSigCount;
+                    // start verification after the first signature
+                    verifySignature = true;
 
-                            } else {
+                } else { // found another signature
 
-                                if (lastFileWritten < curfile) {
-                                    writeFile(curfileName);
-                                    lastFileWritten = curfile;
-                                }
+                    String line = file.getString(lineStart, lineEnd);
+                    int sigStart = line.indexOf("sig: ");
 
-                                writeSigStatus(linenum, sigStartFile,
-                                        sigStartLine, sigStopFile, sigStopLine,
-                                        "VERIFICATION FAILED");
+                    current.sigFileIndex = fileIndex;
+                    current.sigFile = file.name;
+                    current.sigLine = linenum;
+                    current.sigOffset = lineStart;
 
-                                ++badSigCount;
-                            }
-                        }
+                    if (sigStart >= 0) {
+                        current.signature = line.substring(sigStart + 5);
                     }
 
-                    // initialize verifier for the next signature
-                    sig.initVerify(pubk);
-                    signedLines = 0;
-                    sigStartLine = linenum;
-                    sigStartFile = curfileName;
+                    submit(current);
                 }
 
-                if (verifySignature) { // update verifier only after the first signature
+                // initialize segment for the next signature
+                current = new Segment();
+                current.startFile = file.name;
+                current.startLine = linenum;
+
+                signedLines = 0;
+                sigStartLine = linenum;
+                sigStartFile = file.name;
+
+            } else if (resuming) {
+                throw new Exception("Invalid checkpoint: " + file.name + ":" + linenum + " is not a signature");
+            }
+
+            if (verifySignature) { // add lines only after the first signature
+
+                current.add(file, lineStart, rangeEnd, newline);
+                current.stopFile = file.name;
+                current.stopLine = linenum;
+
+                ++signedLines;
+                sigStopLine = linenum;
+                sigStopFile = file.name;
+            }
+        }
+
+        void submit(Segment segment) throws Exception {
+
+            segment.messages.addAll(pending);
+            pending.clear();
+
+            if (segment.signature != null) {
+                segment.result = executor.submit(() -> verifySegment(segment));
+            }
+
+            queue.add(segment);
 
-                    byte[] lineBytes = curLine.getBytes("UTF-8");
-                    sig.update(lineBytes);
+            // limit the number of segments in memory
+            while (queue.size() >= threads * 8) {
+                report();
+            }
+        }
+
+        boolean verifySegment(Segment segment) throws Exception {
+
+            Signature sig = signatures.get();
+            sig.initVerify(publicKey);
+
+            for (Range range : segment.ranges) {
+                range.file.update(sig, range.start, range.end);
+                if (range.newline) {
                     sig.update(LINE_SEP_BYTE);
-                    ++signedLines;
-                    sigStopLine = linenum;
-                    sigStopFile = curfileName;
                 }
             }
 
-            br.close();
+            byte[] logSig = base64decode(segment.signature);
+            return sig.verify(logSig);
+        }
+
+        /**
+         * Waits for the oldest segment and reports the result.
+         */
+        void report() throws Exception {
+
+            Segment segment = queue.remove();
+
+            for (String message : segment.messages) {
+                System.out.println(message);
+            }
+
+            if (segment.signature == null) {
+                output(segment.sigLine, "INVALID SIGNATURE");
+                ++badSigCount;
+
+            } else {
+
+                if (verbose) {
+                    System.out.println("AuditVerify: Signature: " + segment.signature);
+                }
+
+                boolean valid;
+                try {
+                    valid = segment.result.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Exception) {
+                        throw (Exception) cause;
+                    }
+                    throw e;
+                }
+
+                if (valid) {
+
+                    // signature verifies correctly
+                    if (verbose) {
+                        writeSigStatus(segment.sigLine, segment.startFile,
+                                segment.startLine, segment.stopFile, segment.stopLine,
+                                "verification succeeded");
+                    }
+
+                    ++goodSigCount;
+
+                } else {
+
+                    if (lastFileWritten < segment.sigFileIndex) {
+                        writeFile(segment.sigFile);
+                        lastFileWritten = segment.sigFileIndex;
+                    }
+
+                    writeSigStatus(segment.sigLine, segment.startFile,
+                            segment.startLine, segment.stopFile, segment.stopLine,
+                            "VERIFICATION FAILED");
+
+                    ++badSigCount;
+                }
+            }
+
+            // release the mapped files
+            segment.ranges = null;
+
+            lastVerified = segment;
+
+            if (++verifiedCount % CHECKPOINT_INTERVAL == 0) {
+                saveCheckpoint(segment);
+            }
+        }
+
+        Properties loadCheckpoint() throws Exception {
+
+            if (checkpointFile == null || !checkpointFile.exists()) {
+                return null;
+            }
+
+            Properties checkpoint = new Properties();
+            try (FileReader reader = new FileReader(checkpointFile)) {
+                checkpoint.load(reader);
+            }
+
+            return checkpoint;
         }
 
-        Result result = new Result();
-        result.goodSigCount = goodSigCount;
-        result.badSigCount = badSigCount;
-        result.sigStartLine = sigStartLine;
-        result.sigStopLine = sigStopLine;
-        result.sigStartFile = sigStartFile;
-        result.sigStopFile = sigStopFile;
-        result.signedLines = signedLines;
+        /**
+         * Stores the position of the last reported signature
+         * and the current counters in the checkpoint file.
+         */
+        void saveCheckpoint(Segment segment) throws Exception {
+
+            if (checkpointFile == null) {
+                return;
+            }
+
+            Properties checkpoint = new Properties();
+            checkpoint.setProperty("file", segment.sigFile);
+            checkpoint.setProperty("line", Integer.toString(segment.sigLine));
+            checkpoint.setProperty("offset", Long.toString(segment.sigOffset));
+            checkpoint.setProperty("goodSigCount", Integer.toString(goodSigCount));
+            checkpoint.setProperty("badSigCount", Integer.toString(badSigCount));
+
+            // replace the checkpoint atomically
+            File tmpFile = new File(checkpointFile.getPath() + ".tmp");
+            try (FileWriter writer = new FileWriter(tmpFile)) {
+                checkpoint.store(writer, "AuditVerify checkpoint");
+            }
 
-        return result;
+            Files.move(
+                    tmpFile.toPath(),
+                    checkpointFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
     }
 
     public static void main(String args[]) {
@@ -303,6 +793,8 @@ public class AuditVerify {
             String logListFile = null;
             String signerNick = null;
             String prefix = null;
+            String checkpointFile = null;
+            int threads = 0;
             boolean verbose = false;
 
             for (int i = 0; i < args.length; ++i) {
@@ -322,6 +814,14 @@ public class AuditVerify {
                     if (++i >= args.length)
                         usage();
                     prefix = args[i];
+                } else if (args[i].equals("-t")) {
+                    if (++i >= args.length)
+                        usage();
+                    threads = Integer.parseInt(args[i]);
+                } else if (args[i].equals("-c")) {
+                    if (++i >= args.length)
+                        usage();
+                    checkpointFile = args[i];
                 } else if (args[i].equals("-v")) {
                     verbose = true;
                 } else {
@@ -382,6 +882,14 @@ public class AuditVerify {
             verifier.setVerbose(verbose);
             verifier.setSigningCert(signerCert);
 
+            if (threads > 0) {
+                verifier.setThreads(threads);
+            }
+
+            if (checkpointFile != null) {
+                verifier.setCheckpointFile(new File(checkpointFile));
+            }
+
             Result result = verifier.verify(logFiles);
 
             // Make sure there were no unsigned log entries at the end.
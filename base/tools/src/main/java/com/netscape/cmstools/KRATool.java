@@ -18,17 +18,26 @@
 package com.netscape.cmstools;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
 import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.security.GeneralSecurityException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
@@ -40,7 +49,17 @@ import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.Properties;
 import java.util.Vector;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.PatternSyntaxException;
 
 import javax.crypto.spec.OAEPParameterSpec;
@@ -695,6 +714,17 @@ public class KRATool {
 
     private static final String KEY_UNWRAP_ALGORITHM_DESCRIPTION = "  <key unwrap algorithm> (default: DES3)";
 
+    // Constants:  Command-line Options (Conversion)
+    private static final String THREADS = "-threads";
+
+    private static final String THREADS_DESCRIPTION = "  <number of threads used to convert "
+                                 + "LDIF records> (default: number of CPUs)";
+
+    private static final String RESUME = "-resume";
+
+    private static final String RESUME_DESCRIPTION = "  (resume an interrupted conversion "
+                                 + "from the last checkpoint)";
+
     // Constants:  KRATOOL Config File
     private static final String KRATOOL_CFG_PREFIX = "kratool.ldif";
     private static final String KRATOOL_CFG_ENROLLMENT = "caEnrollmentRequest";
@@ -926,6 +956,15 @@ public class KRATool {
 
     // Constants:  KRA LDIF Record Values
     private static final int INITIAL_LDIF_RECORD_CAPACITY = 0;
+
+    // Constants:  Target LDIF File Checkpoint
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+    private static final String CHECKPOINT_RECORDS = "records";
+    private static final String CHECKPOINT_OFFSET = "offset";
+    private static final int CHECKPOINT_INTERVAL = 1000;
+
+    // Constants:  Number of converted LDIF records queued per thread
+    private static final int LDIF_RECORD_QUEUE_CAPACITY = 16;
     private static final int EXTDATA_REQUEST_NOTES_FIRST_LINE_DATA_LENGTH = 56;
     private static final int PRIVATE_KEY_DATA_FIRST_LINE_DATA_LENGTH = 60;
     private static final String KRA_LDIF_RECORD = "Generic";
@@ -1009,13 +1048,15 @@ public class KRATool {
     private static Hashtable<String, Boolean> kratoolCfg = null;
 
     // Variables:  KRATOOL LDIF File Parameters of Interest
-    private static Vector<String> record = null;
-    private static Iterator<String> ldif_record = null;
+    private static ThreadLocal<Iterator<String>> ldif_record = new ThreadLocal<>();
+
+    // Variables:  Command-Line Values (Conversion)
+    private static int mThreads = Runtime.getRuntime().availableProcessors();
+    private static boolean mResumeFlag = false;
 
     // Variables:  Logging
     private static boolean mDebug = false; // set 'true' for debug messages
     private static PrintWriter logger = null;
-    private static String current_date_and_time = null;
 
     // Variables:  PKCS #11 Information
     private static CryptoToken mSourceToken = null;
@@ -1365,6 +1406,27 @@ public class KRATool {
                           + "        "
                           + PROCESS_REQUESTS_AND_KEY_RECORDS_ONLY
                           + NEWLINE);
+
+        System.out.println("Conversion options (may be combined with "
+                          + "any of the above):"
+                          + NEWLINE
+                          + NEWLINE
+                          + "        "
+                          + "["
+                          + THREADS
+                          + NEWLINE
+                          + "        "
+                          + THREADS_DESCRIPTION
+                          + "]"
+                          + NEWLINE
+                          + "        "
+                          + "["
+                          + RESUME
+                          + NEWLINE
+                          + "        "
+                          + RESUME_DESCRIPTION
+                          + "]"
+                          + NEWLINE);
     }
 
     /*******************/
@@ -1379,9 +1441,10 @@ public class KRATool {
      */
     private static void open_log(String logfile) {
         try {
+            // append to the log file of an interrupted conversion
             logger = new PrintWriter(
                          new BufferedWriter(
-                                 new FileWriter(logfile)));
+                                 new FileWriter(logfile, mResumeFlag)));
         } catch (IOException eFile) {
             System.err.println("ERROR:  Unable to open file '"
                               + logfile
@@ -1411,8 +1474,8 @@ public class KRATool {
      * @param msg string containing the message to be written to the log file
      * @param stderr boolean which also writes the message to 'stderr' if 'true'
      */
-    private static void log(String msg, boolean stderr) {
-        current_date_and_time = now(LOGGING_DATE_PATTERN);
+    private static synchronized void log(String msg, boolean stderr) {
+        String current_date_and_time = now(LOGGING_DATE_PATTERN);
         if (stderr) {
             System.err.println(msg);
         }
@@ -2949,7 +3012,7 @@ public class KRATool {
                     ).trim());
         }
 
-        while ((line = ldif_record.next()) != null) {
+        while ((line = ldif_record.get().next()) != null) {
             if (line.startsWith(SPACE)) {
                 // Do NOT use "trim()";
                 // remove single leading space and
@@ -4150,7 +4213,7 @@ public class KRATool {
                                 KRA_LDIF_PRIVATE_KEY_DATA.length() + 1
                                 ).trim());
 
-                        while ((line = ldif_record.next()) != null) {
+                        while ((line = ldif_record.get().next()) != null) {
                             if (line.startsWith(SPACE)) {
                                 data.append(line.trim());
                             } else {
@@ -4224,7 +4287,7 @@ public class KRATool {
                                    KRA_LDIF_PRIVATE_KEY_DATA.length() + 1
                                 ).trim());
 
-                        while ((line = ldif_record.next()) != null) {
+                        while ((line = ldif_record.get().next()) != null) {
                             if (line.startsWith(SPACE)) {
                                 data.append(line.trim());
                             } else {
@@ -4505,9 +4568,298 @@ public class KRATool {
         return output;
     }
 
+    /**
+     * This method converts a single LDIF record from the "source" LDIF
+     * file into the corresponding lines of the "target" LDIF file.
+     *
+     * This method may be called concurrently for different records.
+     * <P>
+     *
+     * @param record the lines of the LDIF record including the
+     *        terminating empty line
+     * @param record_type the type of the LDIF record
+     * @param previous_line the last line written before this record,
+     *        or null if this is the first record
+     * @return the converted LDIF record, or null on failure
+     */
+    private static String convert_ldif_record(Vector<String> record,
+                                              String record_type,
+                                              String previous_line) {
+        StringWriter buffer = new StringWriter();
+        PrintWriter writer = new PrintWriter(buffer);
+        Iterator<String> iterator = record.iterator();
+        String line = null;
+        String output = null;
+
+        // the output methods read the continuation
+        // lines of an attribute from this iterator
+        ldif_record.set(iterator);
+
+        try {
+            // Process each line of the record:
+            //   * If LDIF Record Type for this line is 'valid'
+            //     * If KRATOOL Configuration File Parameter is 'true'
+            //       * Process this data
+            //     * Else If KRATOOL Configuration File Parameter is 'false'
+            //       * Pass through this data unchanged
+            //   * Else If LDIF Record Type for this line is 'invalid'
+            //     * Log error and leave method returning 'null'
+            while (iterator.hasNext()) {
+
+                line = iterator.next();
+
+                if (line.startsWith(KRA_LDIF_CN)) {
+                    output = output_cn(record_type, line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else if (line.startsWith(KRA_LDIF_DATE_OF_MODIFY)) {
+                    output = output_date_of_modify(record_type, line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else if (line.startsWith(KRA_LDIF_DN)) {
+                    output = output_dn(record_type, line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else if (line.startsWith(KRA_LDIF_EXTDATA_KEY_RECORD)) {
+                    output = output_extdata_key_record(record_type,
+                                                        line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else if (line.startsWith(KRA_LDIF_EXTDATA_REQUEST_ID)) {
+                    output = output_extdata_request_id(record_type,
+                                                        line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else if (line.startsWith(KRA_LDIF_EXTDATA_REQUEST_NOTES)) {
+                    output = output_extdata_request_notes(record_type,
+                                                           line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else if (line.startsWith(KRA_LDIF_EXTDATA_REQUEST_TYPE)) {
+                    // if one is not already present,
+                    // compose and write out the missing
+                    // 'extdata_requestnotes' line
+                    if (previous_line != null) {
+                        create_extdata_request_notes(record_type,
+                                previous_line,
+                                writer);
+                    } else {
+                        return null;
+                    }
+
+                    // ALWAYS pass through the original
+                    // 'extdata-requesttype' line UNCHANGED
+                    // so that it is ALWAYS written
+                    output = line;
+                } else if (line.startsWith(KRA_LDIF_EXTDATA_SERIAL_NUMBER)) {
+                    output = output_extdata_serial_number(record_type,
+                                                           line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else if (line.startsWith(KRA_LDIF_PRIVATE_KEY_DATA)) {
+                    output = output_private_key_data(record_type,
+                                                      line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else if (line.startsWith(KRA_LDIF_REQUEST_ID)) {
+                    output = output_request_id(record_type, line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else if (line.startsWith(KRA_LDIF_SERIAL_NO)) {
+                    output = output_serial_no(record_type, line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else if (previous_line != null &&
+                           previous_line.startsWith(
+                                   KRA_LDIF_EXTDATA_AUTH_TOKEN_USER)) {
+                    output = output_extdata_auth_token_user(record_type,
+                                                             line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else if (previous_line != null &&
+                           previous_line.startsWith(
+                                   KRA_LDIF_EXTDATA_AUTH_TOKEN_USER_DN)) {
+                    output = output_extdata_auth_token_user_dn(record_type,
+                                                                line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else {
+                    // Pass through line unchanged
+                    output = line;
+                }
+
+                // Always save a copy of this line
+                previous_line = output;
+
+                // Always write out the output line
+                writer.write(output + NEWLINE);
+                System.out.print(".");
+            }
+        } finally {
+            ldif_record.remove();
+        }
+
+        writer.flush();
+        return buffer.toString();
+    }
+
+    /**
+     * This method reads the checkpoint of an interrupted conversion.
+     * <P>
+     *
+     * @return the checkpoint properties, or null if there is no checkpoint
+     */
+    private static Properties read_checkpoint() throws IOException {
+        File checkpointFile = new File(mTargetLdifFilename + CHECKPOINT_SUFFIX);
+        if (!checkpointFile.exists()) {
+            return null;
+        }
+
+        Properties checkpoint = new Properties();
+        try (FileInputStream in = new FileInputStream(checkpointFile)) {
+            checkpoint.load(in);
+        }
+
+        return checkpoint;
+    }
+
+    /**
+     * This method replaces the checkpoint of the conversion.
+     * <P>
+     *
+     * @param records number of source LDIF records that have been processed
+     * @param offset size of the target LDIF file containing these records
+     */
+    private static void write_checkpoint(long records, long offset)
+            throws IOException {
+        Properties checkpoint = new Properties();
+        checkpoint.setProperty(CHECKPOINT_RECORDS, Long.toString(records));
+        checkpoint.setProperty(CHECKPOINT_OFFSET, Long.toString(offset));
+
+        Path checkpointFile = Paths.get(mTargetLdifFilename + CHECKPOINT_SUFFIX);
+        Path tmpFile = Paths.get(mTargetLdifFilename + CHECKPOINT_SUFFIX + ".tmp");
+
+        try (FileOutputStream out = new FileOutputStream(tmpFile.toFile())) {
+            checkpoint.store(out, KRA_TOOL);
+            out.getFD().sync();
+        }
+
+        Files.move(tmpFile, checkpointFile,
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * This class writes the converted LDIF records into the "target"
+     * LDIF file in the same order as they were read from the "source"
+     * LDIF file, and records a checkpoint after every
+     * CHECKPOINT_INTERVAL records so that an interrupted conversion
+     * can be resumed.
+     */
+    private static class TargetLdifWriter implements Callable<Boolean> {
+
+        private static final Future<String> END_OF_RECORDS =
+                CompletableFuture.completedFuture(null);
+
+        private BlockingQueue<Future<String>> queue;
+        private FileOutputStream file;
+        private long records;
+        private long offset;
+
+        private TargetLdifWriter(BlockingQueue<Future<String>> queue,
+                                 FileOutputStream file,
+                                 long records,
+                                 long offset) {
+            this.queue = queue;
+            this.file = file;
+            this.records = records;
+            this.offset = offset;
+        }
+
+        @Override
+        public Boolean call() throws Exception {
+            try (OutputStream out = new BufferedOutputStream(file)) {
+                while (true) {
+                    Future<String> future = queue.take();
+                    if (future == END_OF_RECORDS) {
+                        break;
+                    }
+
+                    String output = null;
+                    try {
+                        output = future.get();
+                    } catch (ExecutionException exConvert) {
+                        log("ERROR:  Converting LDIF record "
+                                + (records + 1)
+                                + " - Exception: '"
+                                + exConvert.getCause().toString()
+                                + "'"
+                                + NEWLINE, true);
+                    }
+
+                    if (output == null) {
+                        return FAILURE;
+                    }
+
+                    byte[] bytes = output.getBytes();
+                    out.write(bytes);
+                    offset += bytes.length;
+                    records++;
+
+                    // Mark the end of the LDIF record
+                    System.out.print("!");
+
+                    if (records % CHECKPOINT_INTERVAL == 0) {
+                        out.flush();
+                        file.getFD().sync();
+                        write_checkpoint(records, offset);
+                    }
+                }
+            }
+
+            return SUCCESS;
+        }
+    }
+
+    /**
+     * This method queues a converted LDIF record for the target LDIF
+     * writer, waiting while the queue is full.
+     * <P>
+     *
+     * @return false if the writer has stopped
+     */
+    private static boolean queue_ldif_record(BlockingQueue<Future<String>> queue,
+                                             Future<String> future,
+                                             Future<Boolean> writerResult)
+            throws InterruptedException {
+        while (!queue.offer(future, 1, TimeUnit.SECONDS)) {
+            if (writerResult.isDone()) {
+                return FAILURE;
+            }
+        }
+        return SUCCESS;
+    }
+
     /**
      * This method performs the actual parsing of the "source" LDIF file
      * and produces the "target" LDIF file.
+     *
+     * The records are read by the calling thread, converted by a pool
+     * of mThreads threads, and written in their original order by a
+     * separate writer thread. The number of records in progress is
+     * bounded by the queue between the reader and the writer.
      * <P>
      *
      * @return true if the "target" LDIF file is successfully created
@@ -4515,13 +4867,19 @@ public class KRATool {
     private static boolean convert_source_ldif_to_target_ldif() {
         boolean success = false;
         BufferedReader reader = null;
-        PrintWriter writer = null;
         String input = null;
-        String line = null;
-        String previous_line = null;
-        String output = null;
         String data = null;
         String record_type = null;
+        Vector<String> record = null;
+        boolean first_record = true;
+        long records = 0;
+        long skipped_records = 0;
+        long offset = 0;
+        FileOutputStream file = null;
+        ExecutorService converters = null;
+        ExecutorService writerExecutor = null;
+        BlockingQueue<Future<String>> queue = null;
+        Future<Boolean> writerResult = null;
 
         if (mRewrapFlag) {
             success = obtain_RSA_rewrapping_keys();
@@ -4536,14 +4894,55 @@ public class KRATool {
         // Process each line in the source LDIF file
         // and store it in the target LDIF file
         try {
+            // Resume after the last checkpoint if requested
+            Properties checkpoint = null;
+            if (mResumeFlag) {
+                checkpoint = read_checkpoint();
+            }
+
+            if (checkpoint != null) {
+                skipped_records = Long.parseLong(
+                        checkpoint.getProperty(CHECKPOINT_RECORDS));
+                offset = Long.parseLong(
+                        checkpoint.getProperty(CHECKPOINT_OFFSET));
+
+                log("INFO:  Resuming after "
+                        + skipped_records
+                        + " LDIF records ("
+                        + offset
+                        + " bytes) of the target LDIF file"
+                        + NEWLINE, true);
+
+                // Discard anything written after the checkpoint
+                try (RandomAccessFile target = new RandomAccessFile(
+                        mTargetLdifFilename, "rw")) {
+                    target.setLength(offset);
+                }
+            }
+
             // Open source LDIF file for reading
             reader = new BufferedReader(
                          new FileReader(mSourceLdifFilename));
 
             // Open target LDIF file for writing
-            writer = new PrintWriter(
-                         new BufferedWriter(
-                                 new FileWriter(mTargetLdifFilename)));
+            file = new FileOutputStream(mTargetLdifFilename, checkpoint != null);
+
+            converters = Executors.newFixedThreadPool(mThreads, r -> {
+                Thread thread = new Thread(r, "KRATool-convert");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+            writerExecutor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "KRATool-write");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+            queue = new ArrayBlockingQueue<>(mThreads * LDIF_RECORD_QUEUE_CAPACITY);
+            writerResult = writerExecutor.submit(
+                    new TargetLdifWriter(queue, file, skipped_records, offset));
+            file = null;
 
             System.out.print("PROCESSING: ");
             while ((input = reader.readLine()) != null) {
@@ -4632,137 +5031,74 @@ public class KRATool {
                     record_type = KRA_LDIF_RECORD;
                 }
 
-                ldif_record = record.iterator();
+                records++;
 
-                // Process each line of the record:
-                //   * If LDIF Record Type for this line is 'valid'
-                //     * If KRATOOL Configuration File Parameter is 'true'
-                //       * Process this data
-                //     * Else If KRATOOL Configuration File Parameter is 'false'
-                //       * Pass through this data unchanged
-                //   * Else If LDIF Record Type for this line is 'invalid'
-                //     * Log error and leave method returning 'false'
-                while (ldif_record.hasNext()) {
+                // Skip the records written before the checkpoint
+                if (records <= skipped_records) {
+                    first_record = false;
+                    record.clear();
+                    continue;
+                }
 
-                    line = ldif_record.next();
+                // Convert the record in one of the converter threads
+                // and queue it for the writer in its original order
+                Vector<String> current_record = record;
+                String current_record_type = record_type;
+                String previous_line = first_record ? null : "";
+                success = queue_ldif_record(queue,
+                        converters.submit(() -> convert_ldif_record(
+                                current_record,
+                                current_record_type,
+                                previous_line)),
+                        writerResult);
+                if (!success) {
+                    break;
+                }
 
-                    if (line.startsWith(KRA_LDIF_CN)) {
-                        output = output_cn(record_type, line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else if (line.startsWith(KRA_LDIF_DATE_OF_MODIFY)) {
-                        output = output_date_of_modify(record_type, line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else if (line.startsWith(KRA_LDIF_DN)) {
-                        output = output_dn(record_type, line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else if (line.startsWith(KRA_LDIF_EXTDATA_KEY_RECORD)) {
-                        output = output_extdata_key_record(record_type,
-                                                            line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else if (line.startsWith(KRA_LDIF_EXTDATA_REQUEST_ID)) {
-                        output = output_extdata_request_id(record_type,
-                                                            line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else if (line.startsWith(KRA_LDIF_EXTDATA_REQUEST_NOTES)) {
-                        output = output_extdata_request_notes(record_type,
-                                                               line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else if (line.startsWith(KRA_LDIF_EXTDATA_REQUEST_TYPE)) {
-                        // if one is not already present,
-                        // compose and write out the missing
-                        // 'extdata_requestnotes' line
-                        if (previous_line != null) {
-                            create_extdata_request_notes(record_type,
-                                    previous_line,
-                                    writer);
-                        } else {
-                            return FAILURE;
-                        }
+                first_record = false;
 
-                        // ALWAYS pass through the original
-                        // 'extdata-requesttype' line UNCHANGED
-                        // so that it is ALWAYS written
-                        output = line;
-                    } else if (line.startsWith(KRA_LDIF_EXTDATA_SERIAL_NUMBER)) {
-                        output = output_extdata_serial_number(record_type,
-                                                               line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else if (line.startsWith(KRA_LDIF_PRIVATE_KEY_DATA)) {
-                        output = output_private_key_data(record_type,
-                                                          line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else if (line.startsWith(KRA_LDIF_REQUEST_ID)) {
-                        output = output_request_id(record_type, line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else if (line.startsWith(KRA_LDIF_SERIAL_NO)) {
-                        output = output_serial_no(record_type, line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else if (previous_line != null &&
-                               previous_line.startsWith(
-                                       KRA_LDIF_EXTDATA_AUTH_TOKEN_USER)) {
-                        output = output_extdata_auth_token_user(record_type,
-                                                                 line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else if (previous_line != null &&
-                               previous_line.startsWith(
-                                       KRA_LDIF_EXTDATA_AUTH_TOKEN_USER_DN)) {
-                        output = output_extdata_auth_token_user_dn(record_type,
-                                                                    line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else {
-                        // Pass through line unchanged
-                        output = line;
-                    }
-
-                    // Always save a copy of this line
-                    previous_line = output;
+                // begin adding input lines into a new record
+                record = new Vector<>(INITIAL_LDIF_RECORD_CAPACITY);
+            }
 
-                    // Always write out the output line and flush the buffer
-                    writer.write(output + NEWLINE);
-                    writer.flush();
-                    System.out.print(".");
-                }
-                // Mark the end of the LDIF record
-                System.out.print("!");
+            if (success) {
+                success = queue_ldif_record(queue,
+                                            TargetLdifWriter.END_OF_RECORDS,
+                                            writerResult);
+            }
 
-                // clear this LDIF record from the record vector
-                record.clear();
+            if (!success || !writerResult.get()) {
+                return FAILURE;
             }
+
             System.out.println(" FINISHED." + NEWLINE);
+
+            // The conversion is complete
+            Files.deleteIfExists(Paths.get(mTargetLdifFilename + CHECKPOINT_SUFFIX));
+
         } catch (IOException exIO) {
             log("ERROR:  line='"
-                    + line
-                    + "' OR output='"
-                    + output
+                    + input
                     + "' IOException: '"
                     + exIO.toString()
                     + "'"
                     + NEWLINE, true);
             return FAILURE;
+        } catch (NumberFormatException exCheckpoint) {
+            log("ERROR:  Invalid checkpoint '"
+                    + mTargetLdifFilename
+                    + CHECKPOINT_SUFFIX
+                    + "' NumberFormatException: '"
+                    + exCheckpoint.toString()
+                    + "'"
+                    + NEWLINE, true);
+            return FAILURE;
+        } catch (InterruptedException | ExecutionException exWrite) {
+            log("ERROR:  Writing target LDIF file - Exception: '"
+                    + exWrite.toString()
+                    + "'"
+                    + NEWLINE, true);
+            return FAILURE;
         } finally {
             if (reader != null) {
                 try {
@@ -4771,8 +5107,18 @@ public class KRATool {
                     e.printStackTrace();
                 }
             }
-            if (writer != null) {
-                writer.close();
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            if (converters != null) {
+                converters.shutdownNow();
+            }
+            if (writerExecutor != null) {
+                writerExecutor.shutdownNow();
             }
         }
 
@@ -4907,6 +5253,42 @@ public class KRATool {
     /* KRA Tool */
     /************/
 
+    /**
+     * This method processes the OPTIONAL conversion options and
+     * returns the remaining command-line arguments.
+     * <P>
+     *
+     * @param args KRATool options
+     * @return KRATool options without the conversion options
+     */
+    private static String[] process_conversion_options(String[] args) {
+        Vector<String> remaining = new Vector<>(args.length);
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals(THREADS) && i + 1 < args.length) {
+                try {
+                    mThreads = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException exThreads) {
+                    mThreads = 0;
+                }
+                if (mThreads < 1) {
+                    System.err.println("ERROR:  Invalid number of threads '"
+                                      + args[i]
+                                      + "'!"
+                                      + NEWLINE);
+                    printUsage();
+                    System.exit(0);
+                }
+            } else if (args[i].equals(RESUME)) {
+                mResumeFlag = true;
+            } else {
+                remaining.add(args[i]);
+            }
+        }
+
+        return remaining.toArray(new String[remaining.size()]);
+    }
+
     /**
      * The main KRATool method.
      * <P>
@@ -4927,12 +5309,17 @@ public class KRATool {
         File sourceDBPwdfile = null;
         File targetStorageCertFile = null;
         File targetFile = null;
+        File checkpointFile = null;
         File logFile = null;
         boolean success = false;
 
         // Get current date and time
         mDateOfModify = now(DATE_OF_MODIFY_PATTERN);
 
+        // Remove the OPTIONAL conversion options which
+        // may be combined with any of the other options
+        args = process_conversion_options(args);
+
         // Check that the correct number of arguments were
         // submitted to the program
         if ((args.length != ID_OFFSET_ARGS) &&
@@ -5068,8 +5455,11 @@ public class KRATool {
             }
 
             // Check that the target LDIF file does NOT exist
+            // unless it is being resumed from a checkpoint
             targetFile = new File(mTargetLdifFilename);
-            if (targetFile.exists()) {
+            checkpointFile = new File(mTargetLdifFilename + CHECKPOINT_SUFFIX);
+            if (targetFile.exists() &&
+                    !(mResumeFlag && checkpointFile.exists())) {
                 System.err.println("ERROR:  '"
                                   + mTargetLdifFilename
                                   + "' ALREADY exists!"
@@ -5079,8 +5469,9 @@ public class KRATool {
             }
 
             // Check that the log file does NOT exist
+            // unless a conversion is being resumed
             logFile = new File(mLogFilename);
-            if (logFile.exists()) {
+            if (logFile.exists() && !mResumeFlag) {
                 System.err.println("ERROR:  '"
                                   + mLogFilename
                                   + "' ALREADY exists!"
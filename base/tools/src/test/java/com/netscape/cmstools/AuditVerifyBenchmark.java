@@ -0,0 +1,255 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmstools;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Benchmark for AuditVerify.
+ *
+ * It generates signed audit logs with a software RSA key,
+ * then measures the verification throughput with a single
+ * thread and with multiple threads.
+ *
+ * Usage:
+ *
+ * <pre>
+ * AuditVerifyBenchmark [-s &lt;total size in MB&gt;] [-f &lt;file size in MB&gt;]
+ *     [-e &lt;entries per signature&gt;] [-t &lt;threads&gt;] [-d &lt;directory&gt;] [-k]
+ * </pre>
+ */
+public class AuditVerifyBenchmark {
+
+    static final long MB = 1024 * 1024;
+
+    File dir;
+    long totalSize = 1024 * MB;
+    long fileSize = 256 * MB;
+    int entriesPerSignature = 100;
+
+    KeyPair keyPair;
+    Signature signer;
+    SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MMM/yyyy:HH:mm:ss z");
+
+    long bytesWritten;
+    long entriesWritten;
+    long signaturesWritten;
+
+    public AuditVerifyBenchmark(File dir) throws Exception {
+
+        this.dir = dir;
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keyPair = generator.generateKeyPair();
+
+        signer = Signature.getInstance("SHA256withRSA");
+        signer.initSign(keyPair.getPrivate());
+    }
+
+    void writeLine(OutputStream out, String line) throws Exception {
+
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+
+        out.write(bytes);
+        out.write('\n');
+
+        signer.update(bytes);
+        signer.update((byte) '\n');
+
+        bytesWritten += bytes.length + 1;
+    }
+
+    /**
+     * Signs the entries since the previous signature, then writes
+     * the signature which also starts the next signed block, the
+     * same way LogFile does.
+     */
+    void writeSignature(OutputStream out, String date) throws Exception {
+
+        byte[] sig = signer.sign();
+
+        PrivateKey privateKey = keyPair.getPrivate();
+        signer.initSign(privateKey);
+
+        writeLine(out, "0.Flush - [" + date + "] [14] [6] "
+                + "[AuditEvent=AUDIT_LOG_SIGNING][SubjectID=$System$][Outcome=Success] "
+                + "signature of audit buffer just flushed: sig: "
+                + Base64.getEncoder().encodeToString(sig));
+
+        signaturesWritten++;
+    }
+
+    void writeEntry(OutputStream out, String date) throws Exception {
+
+        long id = entriesWritten++;
+
+        writeLine(out, "0.https-jsse-nio-8443-exec-" + (id % 25) + " - [" + date + "] [14] [6] "
+                + "[AuditEvent=CERT_REQUEST_PROCESSED][SubjectID=caadmin][Outcome=Success]"
+                + "[ReqID=" + id + "][InfoName=certificate][InfoValue=" + Long.toHexString(id * 7919) + "] "
+                + "certificate request processed");
+    }
+
+    public List<String> generate() throws Exception {
+
+        List<String> logFiles = new ArrayList<>();
+        String date = dateFormat.format(new Date());
+
+        for (int fileIndex = 0; bytesWritten < totalSize; fileIndex++) {
+
+            File file = new File(dir, "ca_audit." + String.format("%05d", fileIndex));
+            logFiles.add(file.getPath());
+
+            long fileEnd = Math.min(bytesWritten + fileSize, totalSize);
+
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), (int) MB)) {
+
+                if (fileIndex == 0) {
+                    // the first signature is not verified
+                    writeSignature(out, date);
+                }
+
+                while (bytesWritten < fileEnd) {
+
+                    if (entriesWritten % 10000 == 0) {
+                        date = dateFormat.format(new Date());
+                    }
+
+                    writeEntry(out, date);
+
+                    if (entriesWritten % entriesPerSignature == 0) {
+                        writeSignature(out, date);
+                    }
+                }
+
+                if (bytesWritten >= totalSize && entriesWritten % entriesPerSignature != 0) {
+                    // sign the remaining entries
+                    writeSignature(out, date);
+                }
+            }
+        }
+
+        return logFiles;
+    }
+
+    public void verify(List<String> logFiles, int threads) throws Exception {
+
+        AuditVerify verifier = new AuditVerify();
+        verifier.setPublicKey(keyPair.getPublic());
+        verifier.setThreads(threads);
+
+        long start = System.nanoTime();
+        AuditVerify.Result result = verifier.verify(logFiles);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println(String.format(
+                "Threads: %d, time: %.2f s, throughput: %.1f MB/s, valid: %d, invalid: %d",
+                threads,
+                seconds,
+                bytesWritten / MB / seconds,
+                result.goodSigCount,
+                result.badSigCount));
+
+        if (result.badSigCount > 0 || result.signedLines > 1) {
+            throw new Exception("Verification failed");
+        }
+    }
+
+    static void usage() {
+        System.out.println("Usage: AuditVerifyBenchmark [-s <total size in MB>] [-f <file size in MB>]"
+                + " [-e <entries per signature>] [-t <threads>] [-d <directory>] [-k]");
+        System.exit(1);
+    }
+
+    static void delete(File dir) throws IOException {
+        for (File file : dir.listFiles()) {
+            Files.delete(file.toPath());
+        }
+        Files.delete(dir.toPath());
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        long totalSize = 1024;
+        long fileSize = 256;
+        int entriesPerSignature = 100;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String dirName = null;
+        boolean keep = false;
+
+        for (int i = 0; i < args.length; ++i) {
+            if (args[i].equals("-s") && i + 1 < args.length) {
+                totalSize = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-f") && i + 1 < args.length) {
+                fileSize = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-e") && i + 1 < args.length) {
+                entriesPerSignature = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-t") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-d") && i + 1 < args.length) {
+                dirName = args[++i];
+            } else if (args[i].equals("-k")) {
+                keep = true;
+            } else {
+                usage();
+            }
+        }
+
+        File dir;
+        if (dirName == null) {
+            dir = Files.createTempDirectory("AuditVerifyBenchmark").toFile();
+        } else {
+            dir = new File(dirName);
+            dir.mkdirs();
+        }
+
+        AuditVerifyBenchmark benchmark = new AuditVerifyBenchmark(dir);
+        benchmark.totalSize = totalSize * MB;
+        benchmark.fileSize = fileSize * MB;
+        benchmark.entriesPerSignature = entriesPerSignature;
+
+        try {
+            System.out.println("Generating " + totalSize + " MB of signed audit logs in " + dir);
+
+            long start = System.nanoTime();
+            List<String> logFiles = benchmark.generate();
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.println(String.format(
+                    "Files: %d, entries: %d, signatures: %d, time: %.2f s",
+                    logFiles.size(),
+                    benchmark.entriesWritten,
+                    benchmark.signaturesWritten,
+                    seconds));
+
+            benchmark.verify(logFiles, 1);
+
+            if (threads > 1) {
+                benchmark.verify(logFiles, threads);
+            }
+
+        } finally {
+            if (!keep) {
+                delete(dir);
+            }
+        }
+    }
+}
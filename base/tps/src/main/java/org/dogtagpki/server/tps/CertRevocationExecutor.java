@@ -0,0 +1,234 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.server.tps;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.dogtagpki.server.tps.cms.CARemoteRequestHandler;
+import org.dogtagpki.server.tps.cms.CARevokeCertResponse;
+import org.dogtagpki.server.tps.cms.RemoteConnectionException;
+import org.dogtagpki.server.tps.dbs.TPSCertRecord;
+import org.mozilla.jss.netscape.security.x509.RevocationReason;
+
+import com.netscape.certsrv.base.EBaseException;
+
+/**
+ * This class sends certificate revocation and unrevocation requests
+ * to the CAs concurrently.
+ *
+ * Each CA connector has its own pool of threads so the number of
+ * concurrent requests sent to a CA is bounded regardless of how many
+ * tokens are being processed at the same time. Requests that fail
+ * because the CA could not be reached are retried after all other
+ * requests have completed. Other failures (e.g. an invalid serial
+ * number) are permanent and are reported without retrying.
+ */
+public class CertRevocationExecutor {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(CertRevocationExecutor.class);
+
+    /**
+     * A revocation or unrevocation of a single certificate.
+     */
+    public static class CertRevocation {
+
+        TPSCertRecord cert;
+        String connID;
+        boolean revoke;
+        RevocationReason reason;
+        String newStatus;
+
+        CARevokeCertResponse response;
+        Exception exception;
+        int attempts;
+
+        public CertRevocation(
+                TPSCertRecord cert,
+                String connID,
+                boolean revoke,
+                RevocationReason reason,
+                String newStatus) {
+
+            this.cert = cert;
+            this.connID = connID;
+            this.revoke = revoke;
+            this.reason = reason;
+            this.newStatus = newStatus;
+        }
+
+        public TPSCertRecord getCert() {
+            return cert;
+        }
+
+        public boolean isRevoke() {
+            return revoke;
+        }
+
+        public RevocationReason getReason() {
+            return reason;
+        }
+
+        /**
+         * The cert record status after a successful request.
+         */
+        public String getNewStatus() {
+            return newStatus;
+        }
+
+        public CARevokeCertResponse getResponse() {
+            return response;
+        }
+
+        public Exception getException() {
+            return exception;
+        }
+
+        public boolean isSuccessful() {
+            return exception == null;
+        }
+
+        /**
+         * Returns true if the request failed because the CA could not
+         * be reached, so sending it again may succeed.
+         */
+        public boolean isRetryable() {
+            return exception != null && isTransient(exception);
+        }
+    }
+
+    TPSEngineConfig config;
+    int retries;
+    long retryDelay;
+
+    Map<String, ExecutorService> executors = new ConcurrentHashMap<>();
+
+    public CertRevocationExecutor(TPSEngineConfig config) throws EBaseException {
+
+        this.config = config;
+
+        retries = config.getInteger("tokendb.revocation.retries", 2);
+        retryDelay = config.getInteger("tokendb.revocation.retryDelay", 1000);
+
+        logger.debug("CertRevocationExecutor: retries: " + retries);
+        logger.debug("CertRevocationExecutor: retry delay: " + retryDelay + " ms");
+    }
+
+    ExecutorService getExecutor(String connID) {
+        return executors.computeIfAbsent(connID, id -> {
+
+            int threads;
+            try {
+                threads = config.getInteger("tps.connector." + id + ".revocationThreads", 4);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+
+            logger.info("CertRevocationExecutor: Creating " + threads + " revocation thread(s) for " + id);
+
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "CertRevocation-" + id + "-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        });
+    }
+
+    static boolean isTransient(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof RemoteConnectionException || t instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sends all requests concurrently and waits until they have completed,
+     * retrying the requests that failed due to connection problems. The result of each request is stored
+     * in the request itself.
+     */
+    public void execute(Collection<CertRevocation> revocations) throws InterruptedException {
+
+        List<CertRevocation> pending = new ArrayList<>(revocations);
+
+        while (true) {
+
+            List<Future<?>> futures = new ArrayList<>(pending.size());
+            for (CertRevocation revocation : pending) {
+                futures.add(getExecutor(revocation.connID).submit(() -> send(revocation)));
+            }
+
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    // send() stores the exception in the request
+                    logger.warn("CertRevocationExecutor: " + e.getMessage(), e);
+                }
+            }
+
+            List<CertRevocation> failed = new ArrayList<>();
+            for (CertRevocation revocation : pending) {
+                if (revocation.isRetryable() && revocation.attempts <= retries) {
+                    failed.add(revocation);
+                }
+            }
+
+            if (failed.isEmpty()) {
+                break;
+            }
+
+            logger.info("CertRevocationExecutor: Retrying " + failed.size() + " request(s) in " + retryDelay + " ms");
+            Thread.sleep(retryDelay);
+
+            pending = failed;
+        }
+    }
+
+    void send(CertRevocation revocation) {
+
+        String method = "CertRevocationExecutor.send";
+        TPSCertRecord cert = revocation.cert;
+        String serialStr = cert.getSerialNumberInBigInteger().toString();
+
+        revocation.attempts++;
+        revocation.response = null;
+        revocation.exception = null;
+
+        logger.debug(method + ": " + (revocation.revoke ? "revoking" : "unrevoking")
+                + " cert " + cert.getSerialNumber() + " with " + revocation.connID
+                + " (attempt " + revocation.attempts + ")");
+
+        try {
+            CARemoteRequestHandler caRH = new CARemoteRequestHandler(revocation.connID);
+            revocation.response = caRH.revokeCertificate(
+                    revocation.revoke, serialStr, cert.getCertificate(), revocation.reason);
+            logger.debug(method + ": response status: " + revocation.response.getStatus());
+
+        } catch (Exception e) {
+            logger.warn(method + ": cert " + cert.getSerialNumber() + ": " + e.getMessage(), e);
+            revocation.exception = e;
+        }
+    }
+
+    public void shutdown() {
+        for (ExecutorService executor : executors.values()) {
+            executor.shutdown();
+        }
+        executors.clear();
+    }
+}
@@ -31,6 +31,7 @@ import org.dogtagpki.server.tps.config.ConnectorDatabase;
 import org.dogtagpki.server.tps.config.ProfileDatabase;
 import org.dogtagpki.server.tps.config.ProfileMappingDatabase;
 import org.dogtagpki.server.tps.dbs.ActivityDatabase;
+import org.dogtagpki.server.tps.dbs.ActivityWriter;
 import org.dogtagpki.server.tps.dbs.TPSCertDatabase;
 import org.dogtagpki.server.tps.dbs.TPSCertRecord;
 import org.dogtagpki.server.tps.dbs.TokenDatabase;
@@ -69,6 +70,7 @@ public class TPSSubsystem implements IAuthority {
     public TPSConfig config;
 
     public ActivityDatabase activityDatabase;
+    public ActivityWriter activityWriter;
     public AuthenticatorDatabase authenticatorDatabase;
     public TPSCertDatabase certDatabase;
     public ConfigDatabase configDatabase;
@@ -112,6 +114,16 @@ public class TPSSubsystem implements IAuthority {
         String activityDatabaseDN = cs.getString("tokendb.activityBaseDN");
         activityDatabase = new ActivityDatabase(dbSubsystem, activityDatabaseDN);
 
+        boolean asyncActivity = cs.getBoolean("tokendb.activity.async.enable", true);
+        logger.info("TPSSubsystem: Asynchronous activity logging: " + asyncActivity);
+
+        if (asyncActivity) {
+            int queueSize = cs.getInteger("tokendb.activity.async.queueSize", 1000);
+            int batchSize = cs.getInteger("tokendb.activity.async.batchSize", 100);
+            activityWriter = new ActivityWriter(activityDatabase, queueSize, batchSize);
+            activityWriter.start();
+        }
+
         String certDatabaseDN = cs.getString("tokendb.certBaseDN");
         certDatabase = new TPSCertDatabase(dbSubsystem, certDatabaseDN);
 
@@ -307,6 +319,14 @@ public class TPSSubsystem implements IAuthority {
 
     @Override
     public void shutdown() {
+
+        if (tdb != null) {
+            tdb.shutdown();
+        }
+
+        if (activityWriter != null) {
+            activityWriter.stop();
+        }
     }
 
     @Override
@@ -24,11 +24,18 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-
-import org.dogtagpki.server.tps.cms.CARemoteRequestHandler;
-import org.dogtagpki.server.tps.cms.CARevokeCertResponse;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.dogtagpki.server.tps.CertRevocationExecutor.CertRevocation;
 import org.dogtagpki.server.tps.dbs.ActivityDatabase;
+import org.dogtagpki.server.tps.dbs.ActivityRecord;
 import org.dogtagpki.server.tps.dbs.TPSCertRecord;
 import org.dogtagpki.server.tps.dbs.TokenCertStatus;
 import org.dogtagpki.server.tps.dbs.TokenRecord;
@@ -50,6 +57,12 @@ public class TPSTokendb {
 
     private TPSSubsystem tps;
 
+    // executes cert record updates of a token concurrently
+    private ExecutorService certUpdateExecutor;
+
+    // sends revocation requests to the CAs concurrently
+    private CertRevocationExecutor revocationExecutor;
+
     public TPSTokendb(TPSSubsystem tps) throws EBaseException {
         if (tps == null) {
             String msg = "TPStokendb.TPSTokendb: tps cannot be null";
@@ -57,6 +70,84 @@ public class TPSTokendb {
             throw new EBaseException(msg);
         }
         this.tps = tps;
+
+        TPSEngine engine = TPSEngine.getInstance();
+        TPSEngineConfig configStore = engine.getConfig();
+
+        int threads = configStore.getInteger("tokendb.certUpdate.threads", 4);
+        logger.debug("TPSTokendb: cert update threads: " + threads);
+
+        if (threads > 1) {
+            AtomicInteger counter = new AtomicInteger();
+            certUpdateExecutor = Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "TPSTokendb-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        revocationExecutor = new CertRevocationExecutor(configStore);
+    }
+
+    public void shutdown() {
+        if (certUpdateExecutor != null) {
+            certUpdateExecutor.shutdown();
+        }
+
+        revocationExecutor.shutdown();
+    }
+
+    /**
+     * Runs database update tasks concurrently and waits until all of them
+     * have completed. If any of the tasks fails, the first exception is
+     * thrown after all tasks have completed.
+     */
+    void runTasks(List<Callable<Void>> tasks) throws Exception {
+
+        Exception exception = null;
+
+        if (certUpdateExecutor == null || tasks.size() <= 1) {
+            for (Callable<Void> task : tasks) {
+                try {
+                    task.call();
+                } catch (Exception e) {
+                    if (exception == null) exception = e;
+                }
+            }
+
+        } else {
+            for (Future<Void> future : certUpdateExecutor.invokeAll(tasks)) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (exception == null) {
+                        exception = cause instanceof Exception ? (Exception) cause : e;
+                    }
+                }
+            }
+        }
+
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    /**
+     * Adds an activity record using the asynchronous writer if enabled.
+     */
+    void logActivity(
+            String ip, String tokenID, String op, String result,
+            String msg, String userID, String tokenType) throws Exception {
+
+        if (tps.activityWriter == null) {
+            tps.activityDatabase.log(ip, tokenID, op, result, msg, userID, tokenType);
+            return;
+        }
+
+        ActivityRecord activityRecord = tps.activityDatabase.createRecord(
+                ip, tokenID, op, result, msg, userID, tokenType);
+        tps.activityWriter.write(activityRecord);
     }
 
     public boolean isTransitionAllowed(TokenRecord tokenRecord, TokenStatus newState) throws Exception {
@@ -84,7 +175,7 @@ public class TPSTokendb {
     public void tdbActivity(
             String op, TokenRecord tokenRecord, String ip, String msg, String result) {
         try {
-            tps.activityDatabase.log(
+            logActivity(
                     ip,
                     (tokenRecord != null)? tokenRecord.getId():null,
                     op,
@@ -103,7 +194,7 @@ public class TPSTokendb {
     public void tdbActivity(
             String op, TokenRecord tokenRecord, String ip, String msg, String result, String uid) {
         try {
-            tps.activityDatabase.log(
+            logActivity(
                     ip,
                     (tokenRecord != null)? tokenRecord.getId():null,
                     op,
@@ -280,31 +371,44 @@ public class TPSTokendb {
            testAddCertsFailure = false;
         }
 
+        boolean testFailure = testAddCertsFailure;
+
         try {
-	    int count = 0;
+            // the certs are added concurrently
+            AtomicInteger count = new AtomicInteger();
+            List<Callable<Void>> tasks = new ArrayList<>(certs.size());
+
             for (TPSCertRecord cert : certs) {
-                try {
-                    if (!isCertOnToken(cert, cuid)) {
-                        logger.debug(method + " adding cert with serial: " + cert.getSerialNumber());
-			// After at least one cert is added correctly, perform the test of a failure
-                        // if so configured.
-                        if(count > 0 && testAddCertsFailure == true) {
-                            throw new Exception(method + ": "+ "Failed to add certificate to token db, as part of a test of failure condition.");
+                tasks.add(() -> {
+                    try {
+                        if (!isCertOnToken(cert, cuid)) {
+                            logger.debug(method + " adding cert with serial: " + cert.getSerialNumber());
+                            // After at least one cert is added correctly, perform the test of a failure
+                            // if so configured.
+                            if(count.get() > 0 && testFailure == true) {
+                                throw new Exception(method + ": "+ "Failed to add certificate to token db, as part of a test of failure condition.");
+                            }
+                            tps.certDatabase.addRecord(cert.getId(), cert);
+                        } else {
+                            // cert already on token
+                            logger.debug(method + "retain and skip adding with serial:" + cert.getSerialNumber());
+                        }
+                        // Successfully added cert or verified it was already there, so remove
+                        // it from the 'remaining' list
+                        synchronized (cnIssuerPairsRemaining) {
+                            cnIssuerPairsRemaining.removeIf(p -> (p.cn == cert.getId() && p.issuer == cert.getIssuedBy()));
                         }
-                        tps.certDatabase.addRecord(cert.getId(), cert);
-                    } else {
-                        // cert already on token
-                        logger.debug(method + "retain and skip adding with serial:" + cert.getSerialNumber());
+                        count.incrementAndGet();
+                    } catch (Exception e) {
+                        logger.warn(method + "Exception after isCertOnToken call: "+ e.getMessage(), e);
+                        // ignore; go to next;
                     }
-		    // Successfully added cert or verified it was already there, so remove
-                    // it from the 'remaining' list
-                    cnIssuerPairsRemaining.removeIf(p -> (p.cn == cert.getId() && p.issuer == cert.getIssuedBy()));
-                    count ++ ;
-                } catch (Exception e) {
-                    logger.warn(method + "Exception after isCertOnToken call: "+ e.getMessage(), e);
-                    // ignore; go to next;
-                }
+                    return null;
+                });
             }
+
+            runTasks(tasks);
+
         } catch (Exception e) {
             logger.error(method + e.getMessage(), e);
 	     String subjectDn = certs.get(0).getSubject();
@@ -615,10 +719,13 @@ public class TPSTokendb {
         return true;
     }
 
-    private void revokeCert(TokenRecord tokenRecord, TPSCertRecord cert, String tokenReason,
+    /**
+     * Checks whether a cert can be revoked and creates the revocation request.
+     */
+    private CertRevocation prepareRevocation(TokenRecord tokenRecord, TPSCertRecord cert, String tokenReason,
             String ipAddress, String remoteUser) throws Exception {
 
-        String method = "TPSTokendb.revokeCert";
+        String method = "TPSTokendb.prepareRevocation";
         String logMsg;
 
         logger.debug(method + "begins: tokenReason=" + tokenReason);
@@ -647,30 +754,15 @@ public class TPSTokendb {
             int reasonInt = configStore.getInteger(config, 0);
             revokeReason = RevocationReason.valueOf(reasonInt);
 
-            CARemoteRequestHandler caRH = new CARemoteRequestHandler(connID);
-            BigInteger bInt = cert.getSerialNumberInBigInteger();
-            String serialStr = bInt.toString();
-            logger.debug(method + ": found cert hex serial: " + cert.getSerialNumber() +
-                    " dec serial: " + serialStr);
-            CARevokeCertResponse response =
-                    caRH.revokeCertificate(true, serialStr, cert.getCertificate(),
-                            revokeReason);
-            logger.debug(method + ": response status: " + response.getStatus());
-
-            // update certificate status
+            // certificate status after revocation
+            String newStatus;
             if (revokeReason == RevocationReason.CERTIFICATE_HOLD) {
-                updateCertsStatus(cert.getSerialNumber(), cert.getIssuedBy(),
-                        TokenCertStatus.ONHOLD.toString());
+                newStatus = TokenCertStatus.ONHOLD.toString();
             } else {
-                updateCertsStatus(cert.getSerialNumber(), cert.getIssuedBy(),
-                        TokenCertStatus.REVOKED.toString());
+                newStatus = TokenCertStatus.REVOKED.toString();
             }
 
-            logMsg = "certificate revoked: " + cert.getSerialNumber();
-            logger.debug(method + ": " + logMsg);
-
-            tdbActivity(ActivityDatabase.OP_CERT_REVOCATION, tokenRecord,
-                    ipAddress, logMsg, "success", remoteUser);
+            return new CertRevocation(cert, connID, true, revokeReason, newStatus);
 
         } catch (Exception e) {
             logMsg = "certificate not revoked: " + cert.getSerialNumber() + ": " + e.getMessage();
@@ -679,17 +771,21 @@ public class TPSTokendb {
             tdbActivity(ActivityDatabase.OP_CERT_REVOCATION, tokenRecord,
                     ipAddress, e.getMessage(), "failure", remoteUser);
 
-            // bail out if revocation failed; This will allow the token
-            // status info to be consistent with that of the certs on the
-            // CA
+            // bail out before sending any revocation request; This will
+            // allow the token status info to be consistent with that of
+            // the certs on the CA
             throw e;
         }
     }
 
-    private void unrevokeCert(TokenRecord tokenRecord, TPSCertRecord cert, String tokenReason,
+    /**
+     * Checks whether a cert can be unrevoked and creates the unrevocation
+     * request. Returns null if the cert is not on hold.
+     */
+    private CertRevocation prepareUnrevocation(TokenRecord tokenRecord, TPSCertRecord cert,
             String ipAddress, String remoteUser) throws Exception {
 
-        String method = "TPSTokendb.unrevokeCert";
+        String method = "TPSTokendb.prepareUnrevocation";
         String logMsg;
 
         org.dogtagpki.server.tps.TPSEngine engine = org.dogtagpki.server.tps.TPSEngine.getInstance();
@@ -708,28 +804,10 @@ public class TPSTokendb {
             if (!cert.getStatus().equalsIgnoreCase(TokenCertStatus.ONHOLD.toString())) {
                 logMsg = "certificate record current status is not revoked_on_hold; cannot unrevoke";
                 logger.warn(method + ": " + logMsg);
-                return; // TODO: continue or bail?
+                return null; // TODO: continue or bail?
             }
 
-            CARemoteRequestHandler caRH = new CARemoteRequestHandler(connID);
-            BigInteger bInt = cert.getSerialNumberInBigInteger();
-            String serialStr = bInt.toString();
-            logger.debug(method + ": found cert hex serial: " + cert.getSerialNumber() +
-                    " dec serial: " + serialStr);
-            CARevokeCertResponse response =
-                    caRH.revokeCertificate(false, serialStr, cert.getCertificate(),
-                            revokeReason);
-            logger.debug(method + ": response status: " + response.getStatus());
-
-            // update certificate status
-            updateCertsStatus(cert.getSerialNumber(), cert.getIssuedBy(),
-                    TokenCertStatus.ACTIVE.toString());
-
-            logMsg = "certificate unrevoked: " + cert.getSerialNumber();
-            logger.debug(method + ": " + logMsg);
-
-            tdbActivity(ActivityDatabase.OP_CERT_RESTORATION, tokenRecord,
-                    ipAddress, logMsg, "success", remoteUser);
+            return new CertRevocation(cert, connID, false, revokeReason, TokenCertStatus.ACTIVE.toString());
 
         } catch (Exception e) {
             logMsg = "certificate not unrevoked: " + cert.getSerialNumber() + " : " + e.getMessage();
@@ -738,9 +816,6 @@ public class TPSTokendb {
             tdbActivity(ActivityDatabase.OP_CERT_RESTORATION, tokenRecord,
                     ipAddress, e.getMessage(), "failure", remoteUser);
 
-            // bail out if unrevocation failed; This will allow the token
-            // status info to be consistent with that of the certs on the
-            // CA
             throw e;
         }
     }
@@ -861,22 +936,107 @@ public class TPSTokendb {
             }
         }
 
+        // check all certs before sending any request to the CA
+        List<CertRevocation> revocations = new ArrayList<>();
         for (TPSCertRecord cert : certRecords) {
+            CertRevocation revocation;
             if (isRevoke) {
-                revokeCert(tokenRecord, cert, tokenReason, ipAddress, remoteUser);
+                revocation = prepareRevocation(tokenRecord, cert, tokenReason, ipAddress, remoteUser);
             } else {
-                unrevokeCert(tokenRecord, cert, tokenReason, ipAddress, remoteUser);
+                revocation = prepareUnrevocation(tokenRecord, cert, ipAddress, remoteUser);
+            }
+            if (revocation != null) {
+                revocations.add(revocation);
+            }
+        }
+
+        if (revocations.isEmpty()) {
+            return;
+        }
+
+        // send the requests to the CAs concurrently
+        logger.debug(method + ": sending " + revocations.size() + " request(s)");
+        revocationExecutor.execute(revocations);
+
+        // update the status of the revoked certs in a single batch
+        String op = isRevoke ? ActivityDatabase.OP_CERT_REVOCATION : ActivityDatabase.OP_CERT_RESTORATION;
+        List<TPSCertRecord> updatedRecords = new ArrayList<>();
+        List<CertRevocation> failures = new ArrayList<>();
+
+        for (CertRevocation revocation : revocations) {
+            TPSCertRecord cert = revocation.getCert();
+
+            if (!revocation.isSuccessful()) {
+                Exception e = revocation.getException();
+                logMsg = "certificate not " + (isRevoke ? "revoked" : "unrevoked") + ": "
+                        + cert.getSerialNumber() + ": " + e.getMessage();
+                logger.warn(method + ": " + logMsg, e);
+
+                tdbActivity(op, tokenRecord, ipAddress, e.getMessage(), "failure", remoteUser);
+                failures.add(revocation);
+                continue;
+            }
+
+            for (TPSCertRecord certRecord : tdbGetCertRecordsByCert(cert.getSerialNumber(), cert.getIssuedBy())) {
+                certRecord.setStatus(revocation.getNewStatus());
+                updatedRecords.add(certRecord);
             }
         }
+
+        updateCertRecords(updatedRecords);
+
+        for (CertRevocation revocation : revocations) {
+            if (!revocation.isSuccessful()) {
+                continue;
+            }
+
+            logMsg = "certificate " + (isRevoke ? "revoked" : "unrevoked") + ": " + revocation.getCert().getSerialNumber();
+            logger.debug(method + ": " + logMsg);
+
+            tdbActivity(op, tokenRecord, ipAddress, logMsg, "success", remoteUser);
+        }
+
+        if (!failures.isEmpty()) {
+            // This will allow the token status info to be consistent
+            // with that of the certs on the CA
+            StringBuilder sb = new StringBuilder();
+            for (CertRevocation revocation : failures) {
+                if (sb.length() > 0) sb.append(", ");
+                sb.append(revocation.getCert().getSerialNumber());
+            }
+
+            logMsg = failures.size() + " certificate(s) not " + (isRevoke ? "revoked" : "unrevoked") + ": " + sb;
+            logger.error(method + ": " + logMsg);
+            throw new TPSException(method + ": " + logMsg, failures.get(0).getException());
+        }
     }
 
     public void updateCertsStatus(String serial, String issuer, String status) throws Exception {
         ArrayList<TPSCertRecord> certRecords = tps.getTokendb().tdbGetCertRecordsByCert(serial, issuer);
 
+        // the same cert may be stored on multiple tokens
         for (TPSCertRecord certRecord : certRecords) {
             certRecord.setStatus(status);
-            tps.certDatabase.updateRecord(certRecord.getId(), certRecord);
         }
+
+        updateCertRecords(certRecords);
+    }
+
+    /**
+     * Updates cert records concurrently.
+     */
+    void updateCertRecords(List<TPSCertRecord> certRecords) throws Exception {
+
+        List<Callable<Void>> tasks = new ArrayList<>(certRecords.size());
+
+        for (TPSCertRecord certRecord : certRecords) {
+            tasks.add(() -> {
+                tps.certDatabase.updateRecord(certRecord.getId(), certRecord);
+                return null;
+            });
+        }
+
+        runTasks(tasks);
     }
 
     public void tdbAddCertEntry(TPSCertRecord certRecord, String status)
@@ -39,7 +39,7 @@ import org.mozilla.jss.netscape.security.x509.X509CertImpl;
 
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.base.EPropertyNotFound;
-import com.netscape.cmscore.connector.HttpConnector;
+import com.netscape.certsrv.connector.Connector;
 import com.netscape.cmsutil.http.HttpResponse;
 import com.netscape.cmsutil.xml.XMLObject;
 
@@ -111,10 +111,10 @@ public class CARemoteRequestHandler extends RemoteRequestHandler
                         keyType + ".ca.profileId");
 
         TPSSubsystem subsystem = (TPSSubsystem) engine.getSubsystem(TPSSubsystem.ID);
-        HttpConnector conn =
-                (HttpConnector) subsystem.getConnectionManager().getConnector(connid);
+        Connector conn =
+                subsystem.getConnectionManager().getConnector(connid);
         if (conn == null) {
-            throw new EBaseException(method + " to connid: " + connid + ": HttpConnector conn null.");
+            throw new EBaseException(method + " to connid: " + connid + ": Connector conn null.");
         }
         logger.debug(method + ": sending request to CA");
         String encodedPubKey = null;
@@ -316,10 +316,10 @@ public class CARemoteRequestHandler extends RemoteRequestHandler
         */
 
         TPSSubsystem subsystem = (TPSSubsystem) engine.getSubsystem(TPSSubsystem.ID);
-        HttpConnector conn =
-                (HttpConnector) subsystem.getConnectionManager().getConnector(connid);
+        Connector conn =
+                subsystem.getConnectionManager().getConnector(connid);
         if (conn == null) {
-            throw new EBaseException(method + " to connid: " + connid + ": HttpConnector conn null.");
+            throw new EBaseException(method + " to connid: " + connid + ": Connector conn null.");
         }
         logger.debug(method + ": sending request to CA");
         HttpResponse resp =
@@ -423,10 +423,10 @@ public class CARemoteRequestHandler extends RemoteRequestHandler
                         keyType + ".ca.profileId");
 
         TPSSubsystem subsystem = (TPSSubsystem) engine.getSubsystem(TPSSubsystem.ID);
-        HttpConnector conn =
-                (HttpConnector) subsystem.getConnectionManager().getConnector(connid);
+        Connector conn =
+                subsystem.getConnectionManager().getConnector(connid);
         if (conn == null) {
-            throw new EBaseException(method + " to connid: " + connid + ": HttpConnector conn null.");
+            throw new EBaseException(method + " to connid: " + connid + ": Connector conn null.");
         }
         logger.debug(method + ": sending request to CA");
         HttpResponse resp =
@@ -555,10 +555,10 @@ public class CARemoteRequestHandler extends RemoteRequestHandler
         // ConfigStore conf = CMS.getConfigStore();
 
         TPSSubsystem subsystem = (TPSSubsystem) engine.getSubsystem(TPSSubsystem.ID);
-        HttpConnector conn =
-                (HttpConnector) subsystem.getConnectionManager().getConnector(revCAid);
+        Connector conn =
+                subsystem.getConnectionManager().getConnector(revCAid);
         if (conn == null) {
-            throw new EBaseException(method +" to connid: " + revCAid + ": HttpConnector conn null.");
+            throw new EBaseException(method +" to connid: " + revCAid + ": Connector conn null.");
         }
         logger.debug(method +": sending request to CA");
         HttpResponse resp =
@@ -569,7 +569,7 @@ public class CARemoteRequestHandler extends RemoteRequestHandler
                                 IRemoteRequest.CA_REVOKE_SERIAL + "=" + serialno + ")&" +
                                 IRemoteRequest.CA_REVOKE_COUNT + "=1");
         if (resp == null) {
-            throw new EBaseException(method +" to connid: " + revCAid + ": response null.");
+            throw new RemoteConnectionException(method +" to connid: " + revCAid + ": response null.");
         }
         String content = resp.getContent();
 
@@ -642,17 +642,17 @@ public class CARemoteRequestHandler extends RemoteRequestHandler
 
         org.dogtagpki.server.tps.TPSEngine engine = org.dogtagpki.server.tps.TPSEngine.getInstance();
         TPSSubsystem subsystem = (TPSSubsystem) engine.getSubsystem(TPSSubsystem.ID);
-        HttpConnector conn =
-                (HttpConnector) subsystem.getConnectionManager().getConnector(unrevCAid);
+        Connector conn =
+                subsystem.getConnectionManager().getConnector(unrevCAid);
         if (conn == null) {
-            throw new EBaseException(method + " to connid: " + unrevCAid + ": HttpConnector conn null.");
+            throw new EBaseException(method + " to connid: " + unrevCAid + ": Connector conn null.");
         }
         logger.debug(method + ": sending request to CA");
         HttpResponse resp =
                 conn.send("unrevoke",
                         IRemoteRequest.CA_UNREVOKE_SERIAL + "=" + serialno);
         if (resp == null) {
-            throw new EBaseException(method + " to connid: " + unrevCAid + ": response null.");
+            throw new RemoteConnectionException(method + " to connid: " + unrevCAid + ": response null.");
         }
         String content = resp.getContent();
 
@@ -764,6 +764,9 @@ public class CARemoteRequestHandler extends RemoteRequestHandler
         }
         if (exception == null) {
             throw new EBaseException(method + ": signing ca not found");
+        } else if (exception instanceof RemoteConnectionException) {
+            // keep the exception type so the request can be retried
+            throw new RemoteConnectionException(method + exception.toString(), exception);
         } else {
             throw new EBaseException(method + exception.toString());
         }
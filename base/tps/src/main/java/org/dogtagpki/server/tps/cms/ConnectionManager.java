@@ -32,6 +32,7 @@ import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.base.EPropertyNotFound;
 import com.netscape.certsrv.connector.Connector;
 import com.netscape.cmscore.base.ConfigStore;
+import com.netscape.cmscore.connector.Http2Connector;
 import com.netscape.cmscore.connector.HttpConnector;
 import com.netscape.cmscore.connector.RemoteAuthority;
 
@@ -86,6 +87,8 @@ public class ConnectionManager
      *   tps.connector.ca1.port=<port number; unused if for failover case>
      *   tps.connector.ca1.nickName=subsystemCert cert-pki-tomcat TPS
      *   tps.connector.ca1.timeout=30
+     *   # optional: multiplex requests over HTTP/2 (default: http)
+     *   tps.connector.ca1.type=http2
      *   # In the example below,
      *   #   "enrollment", "getcert", "renewal", "revoke", and "unrevoke"
      *   #   are what's being referred to as "op" in the multi-uri support code
@@ -194,11 +197,22 @@ public class ConnectionManager
         RemoteAuthority remauthority =
                 new RemoteAuthority(host, port, uris, timeout, MediaType.APPLICATION_FORM_URLENCODED);
 
-        logger.debug("ConnectionManager: createConnector(): establishing HttpConnector");
-        if (timeout == 0) {
+        /*
+         * tps.connector.<id>.type=http2 selects the multiplexing connector
+         * which sends concurrent requests over a few HTTP/2 connections
+         */
+        String type = conf.getString("type", "http");
+
+        if ("http2".equalsIgnoreCase(type)) {
+            logger.debug("ConnectionManager: createConnector(): establishing Http2Connector");
+            connector = new Http2Connector(nickname, clientCiphers, remauthority, conf);
+
+        } else if (timeout == 0) {
+            logger.debug("ConnectionManager: createConnector(): establishing HttpConnector");
             connector =
                     new HttpConnector(nickname, clientCiphers, remauthority, resendInterval, conf);
         } else {
+            logger.debug("ConnectionManager: createConnector(): establishing HttpConnector");
             connector =
                     new HttpConnector(nickname, clientCiphers, remauthority, resendInterval, conf, timeout);
         }
@@ -216,8 +230,8 @@ public class ConnectionManager
      *       in initConnectors():
      *
      *   TPSSubsystem subsystem = (TPSSubsystem)CMS.getSubsystem(TPSSubsystem.ID);
-     *   HttpConnector testConn =
-     *       (HttpConnector) subsystem.getConnectionManager().getConnector(connectionID);
+     *   Connector testConn =
+     *       subsystem.getConnectionManager().getConnector(connectionID);
      *   HttpResponse resp =
      *     testConn.send("renewal",
      *       "serial_num=6&profileId=caTokenUserEncryptionKeyRenewal&renewal=true");
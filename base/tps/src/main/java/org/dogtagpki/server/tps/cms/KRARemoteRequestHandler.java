@@ -25,7 +25,7 @@ import org.dogtagpki.server.connector.IRemoteRequest;
 import org.dogtagpki.server.tps.TPSSubsystem;
 
 import com.netscape.certsrv.base.EBaseException;
-import com.netscape.cmscore.connector.HttpConnector;
+import com.netscape.certsrv.connector.Connector;
 import com.netscape.cmsutil.http.HttpResponse;
 
 /**
@@ -75,8 +75,8 @@ public class KRARemoteRequestHandler extends RemoteRequestHandler
 
         org.dogtagpki.server.tps.TPSEngine engine = org.dogtagpki.server.tps.TPSEngine.getInstance();
         TPSSubsystem subsystem = (TPSSubsystem) engine.getSubsystem(TPSSubsystem.ID);
-        HttpConnector conn =
-                (HttpConnector) subsystem.getConnectionManager().getConnector(connid);
+        Connector conn =
+                subsystem.getConnectionManager().getConnector(connid);
         logger.debug("KRARemoteRequestHandler: serverSideKeyGen(): sending request to KRA");
         HttpResponse resp;
         String request;
@@ -254,8 +254,8 @@ public class KRARemoteRequestHandler extends RemoteRequestHandler
         org.dogtagpki.server.tps.TPSEngine engine = org.dogtagpki.server.tps.TPSEngine.getInstance();
         TPSSubsystem subsystem = (TPSSubsystem) engine.getSubsystem(TPSSubsystem.ID);
         logger.debug("KRARemoteRequestHandler: getting conn id: " + connid);
-        HttpConnector conn =
-                (HttpConnector) subsystem.getConnectionManager().getConnector(connid);
+        Connector conn =
+                subsystem.getConnectionManager().getConnector(connid);
         if (conn == null) {
             logger.error("KRARemoteRequestHandler: recoverKey(): conn null");
             throw new EBaseException("KRARemoteRequestHandler: recoverKey(): conn null");
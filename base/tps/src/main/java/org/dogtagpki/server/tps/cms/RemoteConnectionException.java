@@ -0,0 +1,26 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.server.tps.cms;
+
+import com.netscape.certsrv.base.EBaseException;
+
+/**
+ * This exception indicates that the remote authority could not be
+ * reached or did not return a response. Unlike other failures the
+ * request may succeed if it is sent again.
+ */
+public class RemoteConnectionException extends EBaseException {
+
+    private static final long serialVersionUID = 1L;
+
+    public RemoteConnectionException(String message) {
+        super(message);
+    }
+
+    public RemoteConnectionException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -43,6 +43,14 @@ public class TKSComputeSessionKeyResponse extends RemoteResponse
         return (TPSBuffer) nameValTable.get(IRemoteRequest.TKS_RESPONSE_SessionKey);
     }
 
+    /**
+     * Returns the session key for the derivation constant at the given
+     * index of a batched SCP02 request.
+     */
+    public TPSBuffer getSessionKey(int index) {
+        return (TPSBuffer) nameValTable.get(IRemoteRequest.TKS_RESPONSE_SessionKey + "_" + index);
+    }
+
     public TPSBuffer getEncSessionKey() {
         return (TPSBuffer) nameValTable.get(IRemoteRequest.TKS_RESPONSE_EncSessionKey);
     }
@@ -28,7 +28,7 @@ import org.dogtagpki.tps.main.TPSBuffer;
 import org.dogtagpki.tps.main.Util;
 
 import com.netscape.certsrv.base.EBaseException;
-import com.netscape.cmscore.connector.HttpConnector;
+import com.netscape.certsrv.connector.Connector;
 import com.netscape.cmsutil.http.HttpResponse;
 
 /**
@@ -135,8 +135,8 @@ public class TKSRemoteRequestHandler extends RemoteRequestHandler
             keySet = conf.getString("tps.connector." + connid + ".keySet", "defKeySet");
 
         TPSSubsystem subsystem = (TPSSubsystem) engine.getSubsystem(TPSSubsystem.ID);
-        HttpConnector conn =
-                (HttpConnector) subsystem.getConnectionManager().getConnector(connid);
+        Connector conn =
+                subsystem.getConnectionManager().getConnector(connid);
 
         String requestString = IRemoteRequest.SERVER_SIDE_KEYGEN + "=" + serverKeygen +
                 "&" + IRemoteRequest.TOKEN_KDD + "=" + Util.specialURLEncode(kdd) +
@@ -285,8 +285,8 @@ public class TKSRemoteRequestHandler extends RemoteRequestHandler
             keySet = conf.getString("tps.connector." + connid + ".keySet", "defKeySet");
 
         TPSSubsystem subsystem = (TPSSubsystem) engine.getSubsystem(TPSSubsystem.ID);
-        HttpConnector conn =
-                (HttpConnector) subsystem.getConnectionManager().getConnector(connid);
+        Connector conn =
+                subsystem.getConnectionManager().getConnector(connid);
 
         String requestString = IRemoteRequest.SERVER_SIDE_KEYGEN + "=" + serverKeygen +
                 "&" + IRemoteRequest.TOKEN_KDD + "=" + Util.specialURLEncode(kdd) +
@@ -439,11 +439,57 @@ public class TKSRemoteRequestHandler extends RemoteRequestHandler
             String tokenType)
             throws EBaseException {
 
+        if (derivationConstant == null) {
+            throw new EBaseException("TKSRemoteRequestHandler: computeSessionKeySCP02(): input parameter null.");
+        }
+
+        return computeSessionKeysSCP02(kdd, cuid, keyInfo, sequenceCounter,
+                new TPSBuffer[] { derivationConstant }, tokenType);
+    }
+
+    /*
+     * computeSessionKeysSCP02
+     *
+     * Computes the SCP02 session keys for all the derivation constants
+     * in a single request to the TKS. The TKS must support the
+     * derivationConstants parameter (see tps.connector.<id>.batchSessionKeys).
+     *
+     * Usage Example:
+     *   TKSRemoteRequestHandler tksReq = new TKSRemoteRequestHandler("tks1");
+     *   TKSComputeSessionKeyResponse responseObj =
+     *     tksReq.computeSessionKeysSCP02(
+     *      kdd,
+     *      cuid,
+     *      keyInfo,
+     *      sequenceCounter,
+     *      derivationConstants,
+     *      String tokenType)
+     *   - on success return, one can say
+     *    TPSBuffer value = responseObj.getSessionKey(i);
+     *      to get the session key for derivationConstants[i]
+     *
+     * @param kdd key derivation data
+     * @param cuid token cuid
+     * @param keyInfo keyInfo
+     * @param sequenceCounter
+     * @param derivationConstants
+     * @param tokenType
+     * @return response TKSComputeSessionKeyResponse class object
+     */
+    public TKSComputeSessionKeyResponse computeSessionKeysSCP02(
+            TPSBuffer kdd,
+            TPSBuffer cuid,
+            TPSBuffer keyInfo,
+            TPSBuffer sequenceCounter,
+            TPSBuffer[] derivationConstants,
+            String tokenType)
+            throws EBaseException {
+
         String method = "TKSRemoteRequestHandler: computeSessionKeySCP02(): ";
         logger.debug(method + " begins.");
         if (cuid == null || kdd == null || keyInfo == null ||
                 sequenceCounter == null
-                || derivationConstant == null) {
+                || derivationConstants == null || derivationConstants.length == 0) {
             throw new EBaseException("TKSRemoteRequestHandler: computeSessionKeySCP02(): input parameter null.");
         }
 
@@ -470,8 +516,8 @@ public class TKSRemoteRequestHandler extends RemoteRequestHandler
             keySet = conf.getString("tps.connector." + connid + ".keySet", "defKeySet");
 
         TPSSubsystem subsystem = (TPSSubsystem) engine.getSubsystem(TPSSubsystem.ID);
-        HttpConnector conn =
-                (HttpConnector) subsystem.getConnectionManager().getConnector(connid);
+        Connector conn =
+                subsystem.getConnectionManager().getConnector(connid);
 
         String requestString = IRemoteRequest.SERVER_SIDE_KEYGEN + "=" + serverKeygen +
                 "&" + IRemoteRequest.TOKEN_KDD + "=" + Util.specialURLEncode(kdd) +
@@ -479,8 +525,23 @@ public class TKSRemoteRequestHandler extends RemoteRequestHandler
                 "&" + IRemoteRequest.TOKEN_KEYINFO + "=" + Util.specialURLEncode(keyInfo) +
                 "&" + IRemoteRequest.TOKEN_KEYSET + "=" + keySet +
                 "&" + IRemoteRequest.CHANNEL_PROTOCOL + "=" + SecureChannel.SECURE_PROTO_02 +
-                "&" + IRemoteRequest.SEQUENCE_COUNTER + "=" + Util.specialURLEncode(sequenceCounter) +
-                "&" + IRemoteRequest.DERIVATION_CONSTANT + "=" + Util.specialURLEncode(derivationConstant);
+                "&" + IRemoteRequest.SEQUENCE_COUNTER + "=" + Util.specialURLEncode(sequenceCounter);
+
+        boolean batch = derivationConstants.length > 1;
+
+        if (batch) {
+            StringBuffer sb = new StringBuffer();
+            for (TPSBuffer derivationConstant : derivationConstants) {
+                if (sb.length() > 0) {
+                    sb.append(",");
+                }
+                sb.append(Util.specialURLEncode(derivationConstant));
+            }
+            requestString += "&" + IRemoteRequest.DERIVATION_CONSTANTS + "=" + sb;
+        } else {
+            requestString += "&" + IRemoteRequest.DERIVATION_CONSTANT + "=" +
+                    Util.specialURLEncode(derivationConstants[0]);
+        }
 
         HttpResponse resp =
                 conn.send("computeSessionKey",
@@ -519,6 +580,18 @@ public class TKSRemoteRequestHandler extends RemoteRequestHandler
                 response.put(IRemoteRequest.TKS_RESPONSE_SessionKey, Util.specialDecode(value));
             }
 
+            for (int i = 0; batch && i < derivationConstants.length; i++) {
+                String name = IRemoteRequest.TKS_RESPONSE_SessionKey + "_" + i;
+                value = (String) response.get(name);
+                if (value == null) {
+                    logger.debug("TKSRemoteRequestHandler: computeSessionKeySCP02(): response missing name-value pair for: " +
+                            name);
+                } else {
+                    logger.debug("TKSRemoteRequestHandler: computeSessionKeySCP02(): got " + name);
+                    response.put(name, Util.specialDecode(value));
+                }
+            }
+
             value = (String) response.get(IRemoteRequest.TKS_RESPONSE_DRM_Trans_DesKey);
             if (value == null) {
                 logger.debug("TKSRemoteRequestHandler: computeSessionKeySCP02(): response missing name-value pair for: " +
@@ -594,8 +667,8 @@ public class TKSRemoteRequestHandler extends RemoteRequestHandler
             keySet = conf.getString("tps.connector." + connid + ".keySet", "defKeySet");
 
         TPSSubsystem subsystem = (TPSSubsystem) engine.getSubsystem(TPSSubsystem.ID);
-        HttpConnector conn =
-                (HttpConnector) subsystem.getConnectionManager().getConnector(connid);
+        Connector conn =
+                subsystem.getConnectionManager().getConnector(connid);
         logger.debug("TKSRemoteRequestHandler: createKeySetData(): sending request to tks.");
 
         String command = IRemoteRequest.TOKEN_NEW_KEYINFO + "=" + Util.specialURLEncode(NewMasterVer) +
@@ -685,8 +758,8 @@ public class TKSRemoteRequestHandler extends RemoteRequestHandler
 
         org.dogtagpki.server.tps.TPSEngine engine = org.dogtagpki.server.tps.TPSEngine.getInstance();
         TPSSubsystem subsystem = (TPSSubsystem) engine.getSubsystem(TPSSubsystem.ID);
-        HttpConnector conn =
-                (HttpConnector) subsystem.getConnectionManager().getConnector(connid);
+        Connector conn =
+                subsystem.getConnectionManager().getConnector(connid);
         HttpResponse resp =
                 conn.send("computeRandomData",
                         IRemoteRequest.TOKEN_DATA_NUM_BYTES + "=" + dataSize);
@@ -767,8 +840,8 @@ public class TKSRemoteRequestHandler extends RemoteRequestHandler
             keySet = conf.getString("tps.connector." + connid + ".keySet", "defKeySet");
 
         TPSSubsystem subsystem = (TPSSubsystem) engine.getSubsystem(TPSSubsystem.ID);
-        HttpConnector conn =
-                (HttpConnector) subsystem.getConnectionManager().getConnector(connid);
+        Connector conn =
+                subsystem.getConnectionManager().getConnector(connid);
         logger.debug("TKSRemoteRequestHandler: encryptData(): sending request to tks.");
         HttpResponse resp =
                 conn.send("encryptData",
@@ -19,12 +19,14 @@
 package org.dogtagpki.server.tps.dbs;
 
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
 import java.util.Map;
 
 import org.dogtagpki.tps.main.Util;
 
 import com.netscape.certsrv.base.EBaseException;
+import com.netscape.cmscore.dbs.DBSSession;
 import com.netscape.cmscore.dbs.DBSubsystem;
 import com.netscape.cmscore.dbs.LDAPDatabase;
 import com.netscape.cmsutil.ldap.LDAPUtil;
@@ -37,6 +39,8 @@ import com.netscape.cmsutil.ldap.LDAPUtil;
  */
 public class ActivityDatabase extends LDAPDatabase<ActivityRecord> {
 
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ActivityDatabase.class);
+
     public final static String OP_ADD = "add"; // add a token
     public final static String OP_DELETE = "delete"; // delete a token
     //public final static String OP_MODIFY_AUDIT_SIGNING = "modify_audit_signing";
@@ -61,6 +65,22 @@ public class ActivityDatabase extends LDAPDatabase<ActivityRecord> {
     public ActivityRecord log(
             String ip, String tokenID, String operation, String result,
             String message, String userID, String tokenType) throws Exception {
+
+        ActivityRecord activityRecord = createRecord(
+                ip, tokenID, operation, result, message, userID, tokenType);
+
+        super.addRecord(activityRecord.getId(), activityRecord);
+
+        return activityRecord;
+    }
+
+    /**
+     * Creates an activity record without adding it into the database.
+     * The record ID and date are generated in the calling thread.
+     */
+    public ActivityRecord createRecord(
+            String ip, String tokenID, String operation, String result,
+            String message, String userID, String tokenType) {
         Calendar c = Calendar.getInstance();
 
         String timeString = Util.getTimeStampString(true);
@@ -79,11 +99,28 @@ public class ActivityDatabase extends LDAPDatabase<ActivityRecord> {
         activityRecord.setType(tokenType);
         activityRecord.setDate(c.getTime());
 
-        super.addRecord(id, activityRecord);
-
         return activityRecord;
     }
 
+    /**
+     * Adds activity records created with createRecord() using a single
+     * database session. A record that cannot be added does not prevent
+     * the remaining records from being added.
+     */
+    public void addRecords(Collection<ActivityRecord> activityRecords) throws Exception {
+
+        try (DBSSession session = dbSubsystem.createSession()) {
+            for (ActivityRecord activityRecord : activityRecords) {
+                String id = activityRecord.getId();
+                try {
+                    session.add(createDN(id), activityRecord);
+                } catch (Exception e) {
+                    logger.warn("ActivityDatabase: Unable to add activity " + id + ": " + e.getMessage(), e);
+                }
+            }
+        }
+    }
+
     @Override
     public void addRecord(String id, ActivityRecord activityRecord) throws Exception {
         activityRecord.setDate(new Date());
@@ -0,0 +1,160 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.server.tps.dbs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This class writes token activity records into the activity
+ * database asynchronously so that token operations do not wait
+ * for LDAP.
+ *
+ * The records are put into a bounded queue. A single writer thread
+ * takes the records from the queue in batches and adds each batch
+ * using a single database session. If the queue is full or the
+ * writer has been stopped, the record is written by the calling
+ * thread instead, so no records are dropped.
+ */
+public class ActivityWriter implements Runnable {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ActivityWriter.class);
+
+    // how long the writer waits for new records before checking
+    // whether it has been stopped
+    static final long POLL_TIMEOUT = 1000; // milliseconds
+
+    ActivityDatabase database;
+    BlockingQueue<ActivityRecord> queue;
+    int batchSize;
+
+    Thread thread;
+    volatile boolean running;
+
+    // guards the running flag so that no record can be queued
+    // after stop() has drained the queue
+    ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public ActivityWriter(ActivityDatabase database, int queueSize, int batchSize) {
+        this.database = database;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.batchSize = batchSize;
+    }
+
+    public void start() {
+
+        logger.info("ActivityWriter: Starting activity writer");
+        logger.info("ActivityWriter: - queue size: " + queue.remainingCapacity());
+        logger.info("ActivityWriter: - batch size: " + batchSize);
+
+        setRunning(true);
+
+        thread = new Thread(this, "ActivityWriter");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Adds an activity record into the queue. If the writer is
+     * stopping the record is written synchronously.
+     */
+    public void write(ActivityRecord record) throws Exception {
+
+        lock.readLock().lock();
+        try {
+            if (running && queue.offer(record)) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        logger.debug("ActivityWriter: Writing activity " + record.getId() + " directly");
+        database.addRecords(List.of(record));
+    }
+
+    @Override
+    public void run() {
+
+        List<ActivityRecord> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+
+            try {
+                ActivityRecord record = queue.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+                if (record == null) {
+                    continue;
+                }
+
+                batch.add(record);
+                queue.drainTo(batch, batchSize - 1);
+
+                writeBatch(batch);
+
+            } catch (InterruptedException e) {
+                // write the remaining records and exit
+                setRunning(false);
+
+            } finally {
+                batch.clear();
+            }
+        }
+
+        logger.info("ActivityWriter: Stopped activity writer");
+    }
+
+    void setRunning(boolean running) {
+        lock.writeLock().lock();
+        try {
+            this.running = running;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void writeBatch(List<ActivityRecord> batch) {
+
+        logger.debug("ActivityWriter: Writing " + batch.size() + " activity record(s)");
+
+        try {
+            database.addRecords(batch);
+
+        } catch (Exception e) {
+            logger.warn("ActivityWriter: Unable to write " + batch.size()
+                    + " activity record(s): " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Stops the writer thread and writes the remaining records.
+     */
+    public void stop() {
+
+        logger.info("ActivityWriter: Stopping activity writer");
+
+        // once this returns no more records will be queued
+        setRunning(false);
+
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // write any records left in the queue
+        List<ActivityRecord> batch = new ArrayList<>();
+        queue.drainTo(batch);
+
+        if (!batch.isEmpty()) {
+            writeBatch(batch);
+        }
+    }
+}
@@ -260,6 +260,46 @@ public class TPSEngine {
 
     }
 
+    // Compute all the SCP02 session keys for the given derivation constants in one shot
+    public TKSComputeSessionKeyResponse computeSessionKeysSCP02(
+            TPSBuffer kdd,
+            TPSBuffer cuid,
+            TPSBuffer keyInfo,
+            TPSBuffer sequenceCounter,
+            TPSBuffer[] derivationConstants,
+            String connId,
+            String tokenType, String inKeySet)
+            throws TPSException {
+
+        if (cuid == null || kdd == null || keyInfo == null || sequenceCounter == null || derivationConstants == null
+                || tokenType == null) {
+            throw new TPSException("TPSEngine.computeSessionKeysSCP02: Invalid input data!",
+                    TPSStatus.STATUS_ERROR_SECURE_CHANNEL);
+        }
+
+        logger.debug("TPSEngine.computeSessionKeysSCP02");
+
+        TKSRemoteRequestHandler tks = null;
+
+        TKSComputeSessionKeyResponse resp = null;
+        try {
+            tks = new TKSRemoteRequestHandler(connId, inKeySet);
+            resp = tks.computeSessionKeysSCP02(kdd, cuid, keyInfo, sequenceCounter, derivationConstants, tokenType);
+        } catch (EBaseException e) {
+            throw new TPSException("TPSEngine.computeSessionKeysSCP02: Error computing session keys!" + e,
+                    TPSStatus.STATUS_ERROR_SECURE_CHANNEL);
+        }
+
+        int status = resp.getStatus();
+        if (status != 0) {
+            logger.error("TPSEngine.computeSessionKeysSCP02: Non zero status result: " + status);
+            throw new TPSException("TPSEngine.computeSessionKeysSCP02: invalid returned status: " + status,
+                    TPSStatus.STATUS_ERROR_SECURE_CHANNEL);
+        }
+
+        return resp;
+    }
+
     // Compute 3 session keys enc, mac, and kek / dek in one shot and return the results
     public TKSComputeSessionKeyResponse computeSessionKeysSCP03(TPSBuffer kdd, TPSBuffer cuid,
             TPSBuffer keyInfo,
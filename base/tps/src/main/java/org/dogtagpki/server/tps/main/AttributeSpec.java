@@ -34,6 +34,26 @@ public class AttributeSpec {
 
     public TPSBuffer getData() {
         TPSBuffer theData = new TPSBuffer();
+        theData.ensureCapacity(getDataSize());
+        writeData(theData);
+        return theData;
+    }
+
+    /**
+     * Returns the size of the encoded attribute.
+     */
+    int getDataSize() {
+        int size = 4 + 1 + (data == null ? 0 : data.size());
+        if (type == 0) { /* String */
+            size += 2;
+        }
+        return size;
+    }
+
+    /**
+     * Appends the encoded attribute to the given buffer.
+     */
+    void writeData(TPSBuffer theData) {
         theData.addLong4Bytes(id);
         theData.add(type);
 
@@ -41,7 +61,6 @@ public class AttributeSpec {
             theData.addInt2Bytes(data.size());
         }
         theData.add(data);
-        return theData;
     }
 
     public TPSBuffer getValue() {
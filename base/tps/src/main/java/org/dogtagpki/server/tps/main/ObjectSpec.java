@@ -434,16 +434,23 @@ public class ObjectSpec {
 
     TPSBuffer getData()
     {
+        int attributeCount = getAttributeSpecCount();
+
+        int size = 10;
+        for (int i = 0; i < attributeCount; i++) {
+            size += getAttributeSpec(i).getDataSize();
+        }
+
         TPSBuffer data = new TPSBuffer();
+        data.ensureCapacity(size);
 
         data.addLong4Bytes(objectID);
         data.addLong4Bytes(fixedAttributes);
 
-        int attributeCount = getAttributeSpecCount();
         data.addInt2Bytes(attributeCount);
         for (int i = 0; i < attributeCount; i++) {
             AttributeSpec spec = getAttributeSpec(i);
-            data.add(spec.getData());
+            spec.writeData(data);
         }
 
         return data;
@@ -62,10 +62,7 @@ public class PKCS11Obj {
         } else if (compressionType == 1) { /* zlib */
             TPSBuffer compressedData = b.substr(offset + dataOffset, dataSize);
 
-            TPSBuffer uncompressedData = uncompress(
-                    compressedData);
-
-            data = new TPSBuffer(uncompressedData);
+            data = uncompress(compressedData);
         } else {
             throw new TPSException("PKCS11Obj.parse: error parsing object data!");
         }
@@ -239,24 +236,22 @@ public class PKCS11Obj {
     private TPSBuffer getRawHeaderData(int compressionType, TPSBuffer data) {
         TPSBuffer header = new TPSBuffer();
 
+        // reserve space for the data that will be appended to the header
+        header.ensureCapacity(20 + data.size());
+
         logger.debug("PKCS11Obj.getRawHeaderData: " + " formatVersion: " + formatVersion + " objectVersion: "
                 + objectVersion);
-        header.add((byte) ((formatVersion >> 8) & 0xff));
-        header.add((byte) (formatVersion & 0xff));
-        header.add((byte) ((objectVersion >> 8) & 0xff));
-        header.add((byte) (objectVersion & 0xff));
+        header.addInt2Bytes(formatVersion);
+        header.addInt2Bytes(objectVersion);
         header.add(cuid);
         // COMP_NONE = 0x00
         // COMP_ZLIB = 0x01
 
-        header.add((byte) ((compressionType >> 8) & 0xff));
-        header.add((byte) (compressionType & 0xff));
+        header.addInt2Bytes(compressionType);
         int compressedDataSize = data.size();
-        header.add((byte) ((compressedDataSize >> 8) & 0xff));
-        header.add((byte) (compressedDataSize & 0xff));
+        header.addInt2Bytes(compressedDataSize);
         int compressedDataOffset = 20;
-        header.add((byte) ((compressedDataOffset >> 8) & 0xff));
-        header.add((byte) (compressedDataOffset & 0xff));
+        header.addInt2Bytes(compressedDataOffset);
 
         logger.debug("PKCS11Obj.getRawHeaderData: returning: " + header.toHexString());
 
@@ -339,8 +334,7 @@ public class PKCS11Obj {
 
         int objectOffset = tokenName.size() + 2 + 3;
 
-        data.add((byte) ((objectOffset >> 8) & 0xff));
-        data.add((byte) (objectOffset & 0xff));
+        data.addInt2Bytes(objectOffset);
         int objectCount = getObjectSpecCount();
         int objectCountX = objectCount;
         if (objectCountX == 0) {
@@ -349,8 +343,7 @@ public class PKCS11Obj {
             objectCountX = objectCountX - (objectCountX / 4);
         }
 
-        data.add((byte) ((objectCountX >> 8) & 0xff));
-        data.add((byte) (objectCountX & 0xff));
+        data.addInt2Bytes(objectCountX);
         data.add((byte) (tokenName.size() & 0xff));
         data.add(tokenName);
 
@@ -431,9 +424,7 @@ public class PKCS11Obj {
     public TPSBuffer getData()
     {
         TPSBuffer data = getRawData();
-        TPSBuffer header = getRawHeaderData(0, data);
-
-        TPSBuffer result = new TPSBuffer(header);
+        TPSBuffer result = getRawHeaderData(0, data);
         result.add(data);
         return result;
     }
@@ -447,15 +438,8 @@ public class PKCS11Obj {
 
         System.out.println("Raw data before compress length: " + data.size());
 
-        TPSBuffer src_buffer = new TPSBuffer(data);
-
-        logger.debug("PKCS11Obj.getCompressedData: " + "sizeof src_buffer = " + src_buffer.size());
-        logger.debug("PKCS11Obj.getCompressedData: " + "data size = " + data.size());
-
-        TPSBuffer compressed = compress(src_buffer);
-        TPSBuffer header = getRawHeaderData(0x01, compressed);
-
-        TPSBuffer result = new TPSBuffer(header);
+        TPSBuffer compressed = compress(data);
+        TPSBuffer result = getRawHeaderData(0x01, compressed);
         result.add(compressed);
 
         //logger.debug("PKCS11Obj.getCompressedData: PKCS11 Data: " + result.toHexString());
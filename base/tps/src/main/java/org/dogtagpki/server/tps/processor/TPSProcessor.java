@@ -839,11 +839,61 @@ public class TPSProcessor {
             }
 
             logger.debug("TPSProcessor.generateSecureChannel Trying secure channel protocol 02");
-            respEnc02 = engine.computeSessionKeySCP02(keyDiversificationData, appletInfo.getCUID(), keyInfoData,
-                    sequenceCounter, new TPSBuffer(SecureChannel.ENCDerivationConstant),
-                    connId, getSelectedTokenType(), getSelectedKeySet());
 
-            TPSBuffer encSessionKeyWrappedSCP02 = respEnc02.getSessionKey();
+            TPSBuffer encSessionKeyWrappedSCP02;
+            TPSBuffer cmacSessionKeyWrappedSCP02;
+            TPSBuffer rmacSessionKeyWrappedSCP02;
+            TPSBuffer dekSessionKeyWrappedSCP02;
+
+            if (checkBatchSessionKeys(connId)) {
+                // get all 4 session keys from TKS in a single round trip
+                TPSBuffer[] derivationConstants = {
+                        new TPSBuffer(SecureChannel.ENCDerivationConstant),
+                        new TPSBuffer(SecureChannel.C_MACDerivationConstant),
+                        new TPSBuffer(SecureChannel.R_MACDerivationConstant),
+                        new TPSBuffer(SecureChannel.DEKDerivationConstant)
+                };
+
+                respDek02 = engine.computeSessionKeysSCP02(keyDiversificationData, appletInfo.getCUID(), keyInfoData,
+                        sequenceCounter, derivationConstants,
+                        connId, getSelectedTokenType(), getSelectedKeySet());
+
+                encSessionKeyWrappedSCP02 = respDek02.getSessionKey(0);
+                cmacSessionKeyWrappedSCP02 = respDek02.getSessionKey(1);
+                rmacSessionKeyWrappedSCP02 = respDek02.getSessionKey(2);
+                dekSessionKeyWrappedSCP02 = respDek02.getSessionKey(3);
+
+                if (encSessionKeyWrappedSCP02 == null || cmacSessionKeyWrappedSCP02 == null
+                        || rmacSessionKeyWrappedSCP02 == null || dekSessionKeyWrappedSCP02 == null) {
+                    logger.error("TPSProcessor.generateSecureChannel: Missing SCP02 session keys from TKS!");
+                    throw new TPSException("TPSProcessor.generateSecureChannel: Missing SCP02 session keys from TKS!",
+                            TPSStatus.STATUS_ERROR_SECURE_CHANNEL);
+                }
+
+            } else {
+                respEnc02 = engine.computeSessionKeySCP02(keyDiversificationData, appletInfo.getCUID(), keyInfoData,
+                        sequenceCounter, new TPSBuffer(SecureChannel.ENCDerivationConstant),
+                        connId, getSelectedTokenType(), getSelectedKeySet());
+                encSessionKeyWrappedSCP02 = respEnc02.getSessionKey();
+
+                respCMac02 = engine.computeSessionKeySCP02(keyDiversificationData, appletInfo.getCUID(), keyInfoData,
+                        sequenceCounter, new TPSBuffer(SecureChannel.C_MACDerivationConstant), connId,
+                        getSelectedTokenType(), getSelectedKeySet());
+                cmacSessionKeyWrappedSCP02 = respCMac02.getSessionKey();
+
+                respRMac02 = engine.computeSessionKeySCP02(keyDiversificationData, appletInfo.getCUID(), keyInfoData,
+                        sequenceCounter, new TPSBuffer(SecureChannel.R_MACDerivationConstant),
+                        connId, getSelectedTokenType(), getSelectedKeySet());
+                rmacSessionKeyWrappedSCP02 = respRMac02.getSessionKey();
+
+                respDek02 = engine.computeSessionKeySCP02(keyDiversificationData, appletInfo.getCUID(), keyInfoData,
+                        sequenceCounter, new TPSBuffer(SecureChannel.DEKDerivationConstant),
+                        connId, getSelectedTokenType(), getSelectedKeySet());
+                dekSessionKeyWrappedSCP02 = respDek02.getSessionKey();
+            }
+
+            logger.debug("Past engine.computeSessionKeyData: After dek key request.");
+
             encSessionKeySCP02 = SessionKey.UnwrapSessionKeyWithSharedSecret(tokenName, (PK11SymKey) sharedSecret,
                     encSessionKeyWrappedSCP02.toBytesArray());
 
@@ -853,12 +903,6 @@ public class TPSProcessor {
                         TPSStatus.STATUS_ERROR_SECURE_CHANNEL);
             }
 
-            respCMac02 = engine.computeSessionKeySCP02(keyDiversificationData, appletInfo.getCUID(), keyInfoData,
-                    sequenceCounter, new TPSBuffer(SecureChannel.C_MACDerivationConstant), connId,
-                    getSelectedTokenType(), getSelectedKeySet());
-
-            TPSBuffer cmacSessionKeyWrappedSCP02 = respCMac02.getSessionKey();
-
             cmacSessionKeySCP02 = SessionKey.UnwrapSessionKeyWithSharedSecret(tokenName,(PK11SymKey) sharedSecret,
                     cmacSessionKeyWrappedSCP02.toBytesArray());
 
@@ -868,12 +912,6 @@ public class TPSProcessor {
                         TPSStatus.STATUS_ERROR_SECURE_CHANNEL);
             }
 
-            respRMac02 = engine.computeSessionKeySCP02(keyDiversificationData, appletInfo.getCUID(), keyInfoData,
-                    sequenceCounter, new TPSBuffer(SecureChannel.R_MACDerivationConstant),
-                    connId, getSelectedTokenType(), getSelectedKeySet());
-
-            TPSBuffer rmacSessionKeyWrappedSCP02 = respRMac02.getSessionKey();
-
             rmacSessionKeySCP02 = SessionKey.UnwrapSessionKeyWithSharedSecret(tokenName,(PK11SymKey) sharedSecret,
                     rmacSessionKeyWrappedSCP02.toBytesArray());
 
@@ -883,14 +921,6 @@ public class TPSProcessor {
                         TPSStatus.STATUS_ERROR_SECURE_CHANNEL);
             }
 
-            respDek02 = engine.computeSessionKeySCP02(keyDiversificationData, appletInfo.getCUID(), keyInfoData,
-                    sequenceCounter, new TPSBuffer(SecureChannel.DEKDerivationConstant),
-                    connId, getSelectedTokenType(), getSelectedKeySet());
-
-            logger.debug("Past engine.computeSessionKeyData: After dek key request.");
-
-            TPSBuffer dekSessionKeyWrappedSCP02 = respDek02.getSessionKey();
-
             dekSessionKeySCP02 = SessionKey.UnwrapSessionKeyWithSharedSecret(tokenName,(PK11SymKey) sharedSecret,
                     dekSessionKeyWrappedSCP02.toBytesArray());
 
@@ -2766,6 +2796,26 @@ public class TPSProcessor {
         return result;
     }
 
+    /**
+     * Returns true if the TKS connector supports computing all
+     * SCP02 session keys in a single request.
+     */
+    boolean checkBatchSessionKeys(String connId) throws TPSException {
+
+        org.dogtagpki.server.tps.TPSEngine engine = org.dogtagpki.server.tps.TPSEngine.getInstance();
+        TPSEngineConfig configStore = engine.getConfig();
+
+        String batchConfig = "tps.connector." + connId + ".batchSessionKeys";
+        logger.debug("TPSProcessor.checkBatchSessionKeys: getting config: " + batchConfig);
+
+        try {
+            return configStore.getBoolean(batchConfig, false);
+        } catch (EBaseException e) {
+            throw new TPSException("TPSProcessor.checkBatchSessionKeys: Internal error obtaining config value!",
+                    TPSStatus.STATUS_ERROR_MISCONFIGURATION);
+        }
+    }
+
     void checkAllowNoAppletToken(String operation) throws TPSException {
         boolean allow = true;
         org.dogtagpki.server.tps.TPSEngine engine = org.dogtagpki.server.tps.TPSEngine.getInstance();
@@ -0,0 +1,193 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.server.tps.main;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+
+import org.dogtagpki.tps.main.TPSBuffer;
+import org.mozilla.jss.pkcs11.PKCS11Constants;
+
+/**
+ * Benchmark for PKCS11Obj encoding and decoding.
+ *
+ * It builds a token object with a number of certificates and key
+ * pairs, then measures how many times per second the object can be
+ * encoded (uncompressed and compressed) and parsed back.
+ *
+ * Usage:
+ *
+ * <pre>
+ * PKCS11ObjBenchmark [-c &lt;certificates&gt;] [-s &lt;certificate size&gt;]
+ *     [-i &lt;iterations&gt;]
+ * </pre>
+ */
+public class PKCS11ObjBenchmark {
+
+    int certs = 8;
+    int certSize = 4096;
+    int iterations = 2000;
+
+    Random random = new Random(0);
+
+    TPSBuffer randomBuffer(int size) {
+        byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        return new TPSBuffer(bytes);
+    }
+
+    AttributeSpec createAttribute(long id, TPSBuffer data) {
+        AttributeSpec attr = new AttributeSpec();
+        attr.setAttributeID(id);
+        attr.setType((byte) 0); // string
+        attr.setData(data);
+        return attr;
+    }
+
+    ObjectSpec createObject(char type, int index, long xclass, int id) {
+        ObjectSpec spec = new ObjectSpec();
+        spec.setObjectID(ObjectSpec.createObjectID(type, index));
+        spec.setFixedAttributes(0x80 | (xclass << 4) | id);
+        return spec;
+    }
+
+    PKCS11Obj createObject() {
+
+        PKCS11Obj obj = new PKCS11Obj();
+        obj.setFormatVersion(0x0100);
+        obj.setObjectVersion(1);
+        obj.setCUID(randomBuffer(10));
+        obj.setTokenName(new TPSBuffer("746f6b656e")); // "token"
+
+        for (int i = 0; i < certs; i++) {
+
+            ObjectSpec cert = createObject('C', i, PKCS11Constants.CKO_CERTIFICATE, i);
+            cert.addAttributeSpec(createAttribute(PKCS11Constants.CKA_VALUE, randomBuffer(certSize)));
+            obj.addObjectSpec(cert);
+
+            ObjectSpec certAttrs = createObject('c', i, PKCS11Constants.CKO_CERTIFICATE, i);
+            certAttrs.addAttributeSpec(createAttribute(PKCS11Constants.CKA_LABEL, randomBuffer(32)));
+            certAttrs.addAttributeSpec(createAttribute(PKCS11Constants.CKA_SUBJECT, randomBuffer(128)));
+            obj.addObjectSpec(certAttrs);
+
+            ObjectSpec privateKey = createObject('k', 2 * i, PKCS11Constants.CKO_PRIVATE_KEY, i);
+            privateKey.addAttributeSpec(createAttribute(PKCS11Constants.CKA_MODULUS, randomBuffer(256)));
+            privateKey.addAttributeSpec(createAttribute(PKCS11Constants.CKA_ID, randomBuffer(20)));
+            obj.addObjectSpec(privateKey);
+
+            ObjectSpec publicKey = createObject('k', 2 * i + 1, PKCS11Constants.CKO_PUBLIC_KEY, i);
+            publicKey.addAttributeSpec(createAttribute(PKCS11Constants.CKA_MODULUS, randomBuffer(256)));
+            publicKey.addAttributeSpec(createAttribute(PKCS11Constants.CKA_PUBLIC_EXPONENT, randomBuffer(3)));
+            obj.addObjectSpec(publicKey);
+        }
+
+        return obj;
+    }
+
+    void report(String name, long time) {
+        double seconds = time / 1e9;
+        System.out.println(String.format("%-12s %8.0f ops/s (%.3f ms/op)",
+                name, iterations / seconds, seconds * 1000 / iterations));
+    }
+
+    void run() throws Exception {
+
+        System.out.println("Certificates: " + certs + ", certificate size: " + certSize
+                + ", iterations: " + iterations);
+
+        // PKCS11Obj prints progress to stdout
+        PrintStream out = System.out;
+        PrintStream nullOut = new PrintStream(OutputStream.nullOutputStream());
+
+        System.setOut(nullOut);
+        try {
+            TPSBuffer data = createObject().getData();
+            TPSBuffer compressedData = createObject().getCompressedData();
+
+            // warm up
+            for (int i = 0; i < iterations / 10; i++) {
+                createObject().getData();
+                PKCS11Obj.parse(data, 0);
+            }
+
+            // pre-build the objects since encoding modifies them
+            PKCS11Obj[] objects = new PKCS11Obj[iterations];
+            for (int i = 0; i < iterations; i++) {
+                objects[i] = createObject();
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                objects[i].getData();
+            }
+            long encodeTime = System.nanoTime() - start;
+
+            for (int i = 0; i < iterations; i++) {
+                objects[i] = createObject();
+            }
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                objects[i].getCompressedData();
+            }
+            long compressTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                PKCS11Obj.parse(data, 0);
+            }
+            long decodeTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                PKCS11Obj.parse(compressedData, 0);
+            }
+            long decompressTime = System.nanoTime() - start;
+
+            System.setOut(out);
+
+            System.out.println("Encoded size: " + data.size() + ", compressed: " + compressedData.size());
+            report("encode", encodeTime);
+            report("compress", compressTime);
+            report("decode", decodeTime);
+            report("decompress", decompressTime);
+
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        PKCS11ObjBenchmark benchmark = new PKCS11ObjBenchmark();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+            case "-c":
+                benchmark.certs = Integer.parseInt(args[++i]);
+                break;
+            case "-s":
+                benchmark.certSize = Integer.parseInt(args[++i]);
+                break;
+            case "-i":
+                benchmark.iterations = Integer.parseInt(args[++i]);
+                break;
+            default:
+                System.err.println("Usage: PKCS11ObjBenchmark [-c <certificates>] [-s <certificate size>] [-i <iterations>]");
+                System.exit(1);
+            }
+        }
+
+        if (benchmark.certs > 15) {
+            // the key ID is stored in 4 bits
+            System.err.println("ERROR: Too many certificates");
+            System.exit(1);
+        }
+
+        benchmark.run();
+    }
+}